@@ -26,11 +26,10 @@ import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.Environment;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.discovery.DiscoveryStorage;
-import io.cryostat.rules.MatchExpressionEvaluator;
+import io.cryostat.rules.MatchExpressionIndex;
 import io.cryostat.rules.MatchExpressionValidator;
 
 import com.google.gson.Gson;
-import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
 
@@ -53,7 +52,7 @@ public abstract class ConfigurationModule {
     static CredentialsManager provideCredentialsManager(
             @Named(CONFIGURATION_PATH) Path confDir,
             MatchExpressionValidator matchExpressionValidator,
-            Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionIndex matchExpressionIndex,
             DiscoveryStorage discovery,
             StoredCredentialsDao dao,
             FileSystem fs,
@@ -63,7 +62,7 @@ public abstract class ConfigurationModule {
         return new CredentialsManager(
                 credentialsDir,
                 matchExpressionValidator,
-                matchExpressionEvaluator,
+                matchExpressionIndex,
                 discovery,
                 dao,
                 fs,
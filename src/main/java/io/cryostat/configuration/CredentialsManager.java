@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.script.ScriptException;
 
@@ -37,7 +39,7 @@ import io.cryostat.core.net.Credentials;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
-import io.cryostat.rules.MatchExpressionEvaluator;
+import io.cryostat.rules.MatchExpressionIndex;
 import io.cryostat.rules.MatchExpressionValidationException;
 import io.cryostat.rules.MatchExpressionValidator;
 import io.cryostat.util.URIUtil;
@@ -46,7 +48,11 @@ import io.cryostat.util.events.EventType;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import dagger.Lazy;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.utils.URIBuilder;
 
@@ -55,17 +61,22 @@ public class CredentialsManager
 
     private final Path credentialsDir;
     private final MatchExpressionValidator matchExpressionValidator;
-    private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
+    private final MatchExpressionIndex matchExpressionIndex;
     private final PlatformClient platformClient;
     private final StoredCredentialsDao dao;
     private final FileSystem fs;
     private final Gson gson;
     private final Logger logger;
 
+    // decrypted copies of the stored credentials, along with the credentials resolved for each
+    // target so far. Never exposed outside of this class
+    private final AtomicLong generation = new AtomicLong();
+    private volatile CredentialsSnapshot snapshot;
+
     CredentialsManager(
             Path credentialsDir,
             MatchExpressionValidator matchExpressionValidator,
-            Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionIndex matchExpressionIndex,
             PlatformClient platformClient,
             StoredCredentialsDao dao,
             FileSystem fs,
@@ -73,12 +84,29 @@ public class CredentialsManager
             Logger logger) {
         this.credentialsDir = credentialsDir;
         this.matchExpressionValidator = matchExpressionValidator;
-        this.matchExpressionEvaluator = matchExpressionEvaluator;
+        this.matchExpressionIndex = matchExpressionIndex;
         this.platformClient = platformClient;
         this.dao = dao;
         this.fs = fs;
         this.gson = gson;
         this.logger = logger;
+
+        // registered first so that the cache is dropped before other listeners are notified
+        addListener(e -> invalidateCache());
+        platformClient.addTargetDiscoveryListener(
+                tde -> {
+                    switch (tde.getEventKind()) {
+                        case LOST:
+                            CredentialsSnapshot current = snapshot;
+                            if (current != null) {
+                                current.resolved.remove(tde.getServiceRef().getServiceUri());
+                            }
+                            break;
+                        default:
+                            // modified targets no longer equal their memoized version
+                            break;
+                    }
+                });
     }
 
     // TODO remove after 2.2 release
@@ -188,12 +216,31 @@ public class CredentialsManager
     }
 
     public Credentials getCredentials(ServiceRef serviceRef) throws ScriptException {
-        for (StoredCredentials sc : dao.getAll()) {
-            if (matchExpressionEvaluator.get().applies(sc.getMatchExpression(), serviceRef)) {
-                return sc.getCredentials();
+        CredentialsLookupEvent evt = new CredentialsLookupEvent();
+        try {
+            evt.begin();
+            CredentialsSnapshot current = snapshot();
+            URI uri = serviceRef.getServiceUri();
+            ResolvedCredentials memo = current.resolved.get(uri);
+            if (memo != null && memo.serviceRef().equals(serviceRef)) {
+                evt.setCacheHit(true);
+                return memo.credentials();
+            }
+            Credentials credentials = null;
+            for (CachedCredentials cc : current.credentials) {
+                if (matchExpressionIndex.matches(cc.matchExpression(), serviceRef)) {
+                    credentials = cc.credentials();
+                    break;
+                }
+            }
+            current.resolved.put(uri, new ResolvedCredentials(serviceRef, credentials));
+            return credentials;
+        } finally {
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
             }
         }
-        return null;
     }
 
     public Collection<ServiceRef> getServiceRefsWithCredentials() throws ScriptException {
@@ -224,35 +271,77 @@ public class CredentialsManager
     }
 
     public Set<ServiceRef> resolveMatchingTargets(String matchExpression) {
-        Set<ServiceRef> matchedTargets = new HashSet<>();
-        for (ServiceRef target : platformClient.listDiscoverableServices()) {
-            try {
-                if (matchExpressionEvaluator.get().applies(matchExpression, target)) {
-                    matchedTargets.add(target);
-                }
-            } catch (ScriptException e) {
-                logger.error(e);
-                break;
-            }
+        try {
+            return matchExpressionIndex.getMatchingTargets(matchExpression);
+        } catch (ScriptException e) {
+            logger.error(e);
+            return new HashSet<>();
         }
-        return matchedTargets;
     }
 
     public boolean delete(int id) {
         dao.get(id)
                 .map(StoredCredentials::getMatchExpression)
-                .ifPresent(c -> emit(CredentialsEvent.REMOVED, c));
-        return dao.delete(id);
+                .ifPresent(
+                        c -> {
+                            matchExpressionIndex.invalidate(c);
+                            emit(CredentialsEvent.REMOVED, c);
+                        });
+        boolean deleted = dao.delete(id);
+        // REMOVED is emitted before the row is deleted, so the cache may have been repopulated
+        // with it in the meantime
+        invalidateCache();
+        return deleted;
     }
 
     public Map<Integer, String> getAll() {
         Map<Integer, String> result = new HashMap<>();
-        for (StoredCredentials sc : dao.getAll()) {
-            result.put(sc.getId(), sc.getMatchExpression());
+        for (CachedCredentials cc : snapshot().credentials) {
+            result.put(cc.id(), cc.matchExpression());
         }
         return result;
     }
 
+    private CredentialsSnapshot snapshot() {
+        CredentialsSnapshot current = snapshot;
+        long gen = generation.get();
+        if (current != null && current.generation == gen) {
+            return current;
+        }
+        List<CachedCredentials> credentials = new ArrayList<>();
+        for (StoredCredentials sc : dao.getAll()) {
+            credentials.add(
+                    new CachedCredentials(
+                            sc.getId(), sc.getMatchExpression(), sc.getCredentials()));
+        }
+        // if the cache was invalidated while loading then this snapshot is already stale. It is
+        // still used to answer the current lookup, but will be ignored by the next one
+        current = new CredentialsSnapshot(gen, credentials);
+        snapshot = current;
+        return current;
+    }
+
+    private void invalidateCache() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private static class CredentialsSnapshot {
+        private final long generation;
+        private final List<CachedCredentials> credentials;
+        private final Map<URI, ResolvedCredentials> resolved = new ConcurrentHashMap<>();
+
+        CredentialsSnapshot(long generation, List<CachedCredentials> credentials) {
+            this.generation = generation;
+            this.credentials = Collections.unmodifiableList(credentials);
+        }
+    }
+
+    private static record CachedCredentials(
+            int id, String matchExpression, Credentials credentials) {}
+
+    private static record ResolvedCredentials(ServiceRef serviceRef, Credentials credentials) {}
+
     public static class MatchedCredentials {
         private final String matchExpression;
         private final Collection<ServiceRef> targets;
@@ -332,6 +421,21 @@ public class CredentialsManager
         }
     }
 
+    @Name("io.cryostat.configuration.CredentialsManager.CredentialsLookupEvent")
+    @Label("Credentials Lookup")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class CredentialsLookupEvent extends Event {
+
+        boolean cacheHit;
+
+        void setCacheHit(boolean cacheHit) {
+            this.cacheHit = cacheHit;
+        }
+    }
+
     public enum CredentialsEvent implements EventType {
         ADDED,
         REMOVED,
@@ -26,6 +26,11 @@ public final class Variables {
     // report generation
     public static final String REPORT_GENERATOR_ENV = "CRYOSTAT_REPORT_GENERATOR";
     public static final String SUBPROCESS_MAX_HEAP_ENV = "CRYOSTAT_REPORT_GENERATION_MAX_HEAP";
+    public static final String SUBPROCESS_WORKERS_ENV = "CRYOSTAT_REPORT_GENERATION_WORKERS";
+    public static final String SUBPROCESS_WORKER_MAX_JOBS_ENV =
+            "CRYOSTAT_REPORT_GENERATION_WORKER_MAX_JOBS";
+    public static final String SUBPROCESS_WORKER_IDLE_ENV =
+            "CRYOSTAT_REPORT_GENERATION_WORKER_IDLE_SECONDS";
     public static final String ACTIVE_REPORTS_CACHE_EXPIRY_ENV =
             "CRYOSTAT_ACTIVE_REPORTS_CACHE_EXPIRY_SECONDS";
     public static final String ACTIVE_REPORTS_CACHE_REFRESH_ENV =
@@ -46,7 +51,15 @@ public final class Variables {
     public static final String AUTH_MANAGER_ENV_VAR = "CRYOSTAT_AUTH_MANAGER";
     public static final String DISABLE_BUILTIN_DISCOVERY = "CRYOSTAT_DISABLE_BUILTIN_DISCOVERY";
     public static final String DISCOVERY_PING_PERIOD_MS = "CRYOSTAT_DISCOVERY_PING_PERIOD";
+    public static final String DISCOVERY_JVMID_RESOLUTION_THREADS =
+            "CRYOSTAT_DISCOVERY_JVMID_RESOLUTION_THREADS";
+    public static final String DISCOVERY_JVMID_RESOLUTION_DEADLINE_MS =
+            "CRYOSTAT_DISCOVERY_JVMID_RESOLUTION_DEADLINE_MS";
     public static final String K8S_NAMESPACES = "CRYOSTAT_K8S_NAMESPACES";
+    public static final String CONTAINER_DISCOVERY_RECONCILE_PERIOD_MS =
+            "CRYOSTAT_CONTAINER_DISCOVERY_RECONCILE_PERIOD_MS";
+    public static final String K8S_USE_ENDPOINT_SLICES = "CRYOSTAT_K8S_USE_ENDPOINT_SLICES";
+    public static final String K8S_LABEL_SELECTOR = "CRYOSTAT_K8S_LABEL_SELECTOR";
     public static final String VERTX_POOL_SIZE = "CRYOSTAT_VERTX_POOL_SIZE";
 
     // webserver configuration
@@ -56,6 +69,7 @@ public final class Variables {
     public static final String WEBSERVER_SSL_PROXIED = "CRYOSTAT_SSL_PROXIED";
     public static final String WEBSERVER_ALLOW_UNTRUSTED_SSL = "CRYOSTAT_ALLOW_UNTRUSTED_SSL";
     public static final String MAX_CONNECTIONS_ENV_VAR = "CRYOSTAT_MAX_WS_CONNECTIONS";
+    public static final String WS_MAX_QUEUED_MESSAGES_ENV = "CRYOSTAT_MAX_WS_QUEUED_MESSAGES";
     public static final String ENABLE_CORS_ENV = "CRYOSTAT_CORS_ORIGIN";
     public static final String HTTP_REQUEST_TIMEOUT = "CRYOSTAT_HTTP_REQUEST_TIMEOUT";
     public static final String DEV_MODE = "CRYOSTAT_DEV_MODE";
@@ -64,7 +78,22 @@ public final class Variables {
     public static final String TARGET_MAX_CONCURRENT_CONNECTIONS =
             "CRYOSTAT_TARGET_MAX_CONCURRENT_CONNECTIONS";
     public static final String TARGET_CACHE_TTL = "CRYOSTAT_TARGET_CACHE_TTL";
+    public static final String TARGET_LOCK_TIMEOUT_MS = "CRYOSTAT_TARGET_LOCK_TIMEOUT_MS";
+    public static final String TARGET_KEEPALIVE_PERIOD_MS = "CRYOSTAT_TARGET_KEEPALIVE_PERIOD_MS";
+    public static final String TARGET_DEMAND_WINDOW_MS = "CRYOSTAT_TARGET_DEMAND_WINDOW_MS";
+    public static final String AGENT_HTTP_POOL_SIZE = "CRYOSTAT_AGENT_HTTP_POOL_SIZE";
+    public static final String ACTIVE_RECORDINGS_CACHE_TTL_MS =
+            "CRYOSTAT_ACTIVE_RECORDINGS_CACHE_TTL_MS";
     public static final String JMX_CONNECTION_TIMEOUT = "CRYOSTAT_JMX_CONNECTION_TIMEOUT_SECONDS";
+    public static final String JVM_ID_REVALIDATION_AGE_MS = "CRYOSTAT_JVM_ID_REVALIDATION_AGE_MS";
+    public static final String JVM_ID_MAX_AGE_MS = "CRYOSTAT_JVM_ID_MAX_AGE_MS";
+    public static final String RECORDING_METADATA_FLUSH_PERIOD_MS =
+            "CRYOSTAT_RECORDING_METADATA_FLUSH_PERIOD_MS";
+    public static final String ARCHIVE_TRANSFER_THREADS = "CRYOSTAT_ARCHIVE_TRANSFER_THREADS";
+    public static final String JVM_ID_REVERSE_LOOKUP_MAX_SIZE =
+            "CRYOSTAT_JVM_ID_REVERSE_LOOKUP_MAX_SIZE";
+    public static final String GRAPHQL_TARGET_THREADS = "CRYOSTAT_GRAPHQL_TARGET_THREADS";
+    public static final String GRAPHQL_TARGET_TIMEOUT_MS = "CRYOSTAT_GRAPHQL_TARGET_TIMEOUT_MS";
 
     // paths configuration
     public static final String ARCHIVE_PATH = "CRYOSTAT_ARCHIVE_PATH";
@@ -18,6 +18,9 @@ package io.cryostat.discovery;
 import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -48,6 +51,10 @@ import io.vertx.ext.web.client.WebClient;
 public abstract class DiscoveryModule {
 
     public static final String DISCOVERY_PING_DURATION = "DISCOVERY_PING_DURATION";
+    public static final String DISCOVERY_JVMID_RESOLUTION_DEADLINE =
+            "DISCOVERY_JVMID_RESOLUTION_DEADLINE";
+    public static final String DISCOVERY_JVMID_RESOLUTION_THREADS =
+            "DISCOVERY_JVMID_RESOLUTION_THREADS";
 
     @Provides
     @Singleton
@@ -60,6 +67,36 @@ public abstract class DiscoveryModule {
         return Duration.ofMillis(Long.parseLong(d));
     }
 
+    @Provides
+    @Singleton
+    @Named(DISCOVERY_JVMID_RESOLUTION_DEADLINE)
+    static Duration provideJvmIdResolutionDeadline(Environment env) {
+        String d = env.getEnv(Variables.DISCOVERY_JVMID_RESOLUTION_DEADLINE_MS, "5000");
+        return Duration.ofMillis(Math.max(0, Long.parseLong(d)));
+    }
+
+    @Provides
+    @Singleton
+    @Named(DISCOVERY_JVMID_RESOLUTION_THREADS)
+    static int provideJvmIdResolutionThreads(Environment env) {
+        String n = env.getEnv(Variables.DISCOVERY_JVMID_RESOLUTION_THREADS, "8");
+        return Math.max(1, Integer.parseInt(n));
+    }
+
+    @Provides
+    @Singleton
+    static JvmIdResolver provideJvmIdResolver(
+            Lazy<JvmIdHelper> jvmIdHelper,
+            @Named(DISCOVERY_JVMID_RESOLUTION_THREADS) int threads,
+            @Named(DISCOVERY_JVMID_RESOLUTION_DEADLINE) Duration deadline,
+            Logger logger) {
+        ThreadPoolExecutor workers =
+                new ThreadPoolExecutor(
+                        threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        workers.allowCoreThreadTimeOut(true);
+        return new JvmIdResolver(jvmIdHelper, workers, deadline, logger);
+    }
+
     @Provides
     @Singleton
     static PluginInfoDao providePluginInfoDao(EntityManager em, Gson gson, Logger logger) {
@@ -74,6 +111,7 @@ public abstract class DiscoveryModule {
             Lazy<BuiltInDiscovery> builtin,
             PluginInfoDao dao,
             Lazy<JvmIdHelper> jvmIdHelper,
+            JvmIdResolver jvmIdResolver,
             Lazy<CredentialsManager> credentialsManager,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
             Gson gson,
@@ -88,6 +126,7 @@ public abstract class DiscoveryModule {
                 builtin,
                 dao,
                 jvmIdHelper,
+                jvmIdResolver,
                 credentialsManager,
                 matchExpressionEvaluator,
                 gson,
@@ -19,7 +19,6 @@ import java.net.URI;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +32,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import javax.script.ScriptException;
 
@@ -55,7 +56,6 @@ import io.cryostat.rules.MatchExpressionEvaluator;
 import io.cryostat.util.HttpStatusCodeIdentifier;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import dagger.Lazy;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
@@ -77,6 +77,7 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
     private final Lazy<BuiltInDiscovery> builtin;
     private final PluginInfoDao dao;
     private final Lazy<JvmIdHelper> jvmIdHelper;
+    private final JvmIdResolver jvmIdResolver;
     private final Lazy<CredentialsManager> credentialsManager;
     private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
     private final Gson gson;
@@ -89,6 +90,12 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
     private final Map<Pair<TargetNode, UUID>, ConnectionAttemptRecord> nonConnectableTargets =
             new ConcurrentHashMap<>();
 
+    // the database is only used for durability and for reloading on startup. All reads are served
+    // from this snapshot, which is swapped atomically whenever a plugin's subtree changes.
+    private final AtomicReference<DiscoveryTreeSnapshot> snapshot = new AtomicReference<>();
+    private final Map<UUID, Object> pluginLocks = new ConcurrentHashMap<>();
+    private final Map<UUID, Map<URI, String>> lateJvmIds = new ConcurrentHashMap<>();
+
     public static final String DISCOVERY_STARTUP_ADDRESS = "discovery-startup";
 
     DiscoveryStorage(
@@ -99,6 +106,7 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
             Lazy<BuiltInDiscovery> builtin,
             PluginInfoDao dao,
             Lazy<JvmIdHelper> jvmIdHelper,
+            JvmIdResolver jvmIdResolver,
             Lazy<CredentialsManager> credentialsManager,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
             Gson gson,
@@ -112,6 +120,7 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
         this.builtin = builtin;
         this.dao = dao;
         this.jvmIdHelper = jvmIdHelper;
+        this.jvmIdResolver = jvmIdResolver;
         this.credentialsManager = credentialsManager;
         this.matchExpressionEvaluator = matchExpressionEvaluator;
         this.gson = gson;
@@ -122,6 +131,7 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
 
     @Override
     public void start(Promise<Void> future) throws Exception {
+        snapshot.set(loadSnapshot());
         pingPrune()
                 .whenComplete(
                         (v, ex) -> {
@@ -254,13 +264,12 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
                             if (predicate.test(entry.getKey())) {
                                 nonConnectableTargets.remove(entry.getKey());
                                 UUID id = entry.getKey().getValue();
-                                PluginInfo plugin = getById(id).orElseThrow();
-                                EnvironmentNode original =
-                                        gson.fromJson(plugin.getSubtree(), EnvironmentNode.class);
-                                update(id, original.getChildren());
+                                snapshot()
+                                        .getRealm(id)
+                                        .ifPresent(original -> update(id, original.getChildren()));
                             }
-                        } catch (JsonSyntaxException e) {
-                            throw new RuntimeException(e);
+                        } catch (NotFoundException e) {
+                            logger.trace(e);
                         }
                     });
         }
@@ -407,6 +416,7 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
                                     Map.of(AnnotationKey.REALM.name(), id.toString())),
                             initial.getChildren());
             PluginInfo updated = dao.update(id, update);
+            swapSnapshot(s -> s.withRealm(id, update));
             logger.trace("Discovery Registration: \"{}\" [{}]", realm, id);
             return updated.getId();
         } catch (Exception e) {
@@ -423,22 +433,19 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
     }
 
     private List<AbstractNode> modifyChildrenWithJvmIds(
-            UUID id, Collection<? extends AbstractNode> children) {
+            UUID id, Collection<? extends AbstractNode> children, JvmIdResolver.Batch batch) {
         List<AbstractNode> modifiedChildren = new ArrayList<>();
         for (AbstractNode child : children) {
             if (child instanceof TargetNode) {
-                ServiceRef ref = ((TargetNode) child).getTarget();
-                try {
-                    ref = jvmIdHelper.get().resolveId(ref);
-                    child = new TargetNode(child.getNodeType(), ref, child.getLabels());
-                } catch (Exception e) {
+                URI uri = ((TargetNode) child).getTarget().getServiceUri();
+                Optional<ServiceRef> resolved = batch.getResolved(uri);
+                Optional<Throwable> failure = batch.getFailure(uri);
+                if (resolved.isPresent()) {
+                    child = new TargetNode(child.getNodeType(), resolved.get(), child.getLabels());
+                } else if (failure.isPresent()) {
                     logger.info("Update node [{}] with null jvmId", child.getName());
-                    logger.info(e);
-                    ConnectionAttemptRecord attemptRecord = new ConnectionAttemptRecord();
-                    attemptRecord.firstAttemptTimestamp = clock.now().getEpochSecond();
-                    attemptRecord.lastAttemptTimestamp = attemptRecord.firstAttemptTimestamp;
-                    nonConnectableTargets.putIfAbsent(
-                            Pair.of((TargetNode) child, id), attemptRecord);
+                    logger.info(failure.get());
+                    recordNonConnectableTarget(id, (TargetNode) child);
                 }
                 modifiedChildren.add(child);
             } else if (child instanceof EnvironmentNode) {
@@ -448,7 +455,7 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
                                 child.getNodeType(),
                                 child.getLabels(),
                                 modifyChildrenWithJvmIds(
-                                        id, ((EnvironmentNode) child).getChildren())));
+                                        id, ((EnvironmentNode) child).getChildren(), batch)));
             } else {
                 throw new IllegalArgumentException(child.getClass().getCanonicalName());
             }
@@ -456,30 +463,142 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
         return modifiedChildren;
     }
 
-    public List<? extends AbstractNode> update(
-            UUID id, Collection<? extends AbstractNode> children) {
-        var updatedChildren =
-                modifyChildrenWithJvmIds(id, Objects.requireNonNull(children, "children"));
+    private void recordNonConnectableTarget(UUID id, TargetNode node) {
+        ConnectionAttemptRecord attemptRecord = new ConnectionAttemptRecord();
+        attemptRecord.firstAttemptTimestamp = clock.now().getEpochSecond();
+        attemptRecord.lastAttemptTimestamp = attemptRecord.firstAttemptTimestamp;
+        nonConnectableTargets.putIfAbsent(Pair.of(node, id), attemptRecord);
+    }
 
-        PluginInfo plugin = dao.get(id).orElseThrow(() -> new NotFoundException(id));
+    private void trackLateJvmIds(
+            UUID id, Collection<? extends AbstractNode> children, JvmIdResolver.Batch batch) {
+        if (batch.getPending().isEmpty()) {
+            return;
+        }
+        Map<URI, TargetNode> nodes = new HashMap<>();
+        for (TargetNode node : findLeavesFromAll(children)) {
+            nodes.putIfAbsent(node.getTarget().getServiceUri(), node);
+        }
+        batch.getPending()
+                .forEach(
+                        (uri, f) ->
+                                f.whenComplete(
+                                        (ref, t) -> {
+                                            if (t != null) {
+                                                logger.info(
+                                                        "Update node [{}] with null jvmId", uri);
+                                                logger.info(t);
+                                                recordNonConnectableTarget(id, nodes.get(uri));
+                                                return;
+                                            }
+                                            lateJvmIds
+                                                    .computeIfAbsent(
+                                                            id, k -> new ConcurrentHashMap<>())
+                                                    .put(uri, ref.getJvmId());
+                                            executor.submit(() -> patchLateJvmIds(id));
+                                        }));
+    }
 
-        EnvironmentNode originalTree = gson.fromJson(plugin.getSubtree(), EnvironmentNode.class);
-        plugin = dao.update(id, updatedChildren);
-        logger.trace("Discovery Update {} ({}): {}", id, plugin.getRealm(), updatedChildren);
-        EnvironmentNode currentTree = gson.fromJson(plugin.getSubtree(), EnvironmentNode.class);
+    private void patchLateJvmIds(UUID id) {
+        List<ServiceRef> modified = new ArrayList<>();
+        synchronized (pluginLock(id)) {
+            Map<URI, String> ids = lateJvmIds.remove(id);
+            if (ids == null || ids.isEmpty()) {
+                return;
+            }
+            Optional<EnvironmentNode> realm = snapshot().getRealm(id);
+            if (realm.isEmpty()) {
+                return;
+            }
+            EnvironmentNode original = realm.get();
+            EnvironmentNode patched =
+                    new EnvironmentNode(
+                            original.getName(),
+                            original.getNodeType(),
+                            original.getLabels(),
+                            patchJvmIds(original.getChildren(), ids, modified));
+            if (modified.isEmpty()) {
+                return;
+            }
+            dao.update(id, patched);
+            swapSnapshot(s -> s.withRealm(id, patched));
+        }
+        logger.trace("Discovery Update {}: patched {} late jvmIds", id, modified.size());
+        modified.forEach(sr -> notifyAsyncTargetDiscovery(EventKind.MODIFIED, sr));
+    }
 
-        List<ServiceRef> previousRefs = getRefsFromLeaves(findLeavesFrom(originalTree));
-        List<ServiceRef> currentRefs = getRefsFromLeaves(findLeavesFrom(currentTree));
+    private List<AbstractNode> patchJvmIds(
+            Collection<? extends AbstractNode> children,
+            Map<URI, String> ids,
+            List<ServiceRef> modified) {
+        List<AbstractNode> patchedChildren = new ArrayList<>();
+        for (AbstractNode child : children) {
+            if (child instanceof TargetNode) {
+                ServiceRef ref = ((TargetNode) child).getTarget();
+                String jvmId = ids.get(ref.getServiceUri());
+                if (StringUtils.isBlank(ref.getJvmId()) && StringUtils.isNotBlank(jvmId)) {
+                    ref = JvmIdHelper.withJvmId(ref, jvmId);
+                    child = new TargetNode(child.getNodeType(), ref, child.getLabels());
+                    modified.add(ref);
+                }
+                patchedChildren.add(child);
+            } else if (child instanceof EnvironmentNode) {
+                patchedChildren.add(
+                        new EnvironmentNode(
+                                child.getName(),
+                                child.getNodeType(),
+                                child.getLabels(),
+                                patchJvmIds(
+                                        ((EnvironmentNode) child).getChildren(), ids, modified)));
+            } else {
+                throw new IllegalArgumentException(child.getClass().getCanonicalName());
+            }
+        }
+        return patchedChildren;
+    }
 
-        ServiceRef.compare(previousRefs).to(currentRefs).updated().stream()
-                .forEach(sr -> notifyAsyncTargetDiscovery(EventKind.MODIFIED, sr));
+    private Object pluginLock(UUID id) {
+        return pluginLocks.computeIfAbsent(id, k -> new Object());
+    }
 
-        ServiceRef.compare(previousRefs).to(currentRefs).added().stream()
-                .forEach(sr -> notifyAsyncTargetDiscovery(EventKind.FOUND, sr));
+    public List<? extends AbstractNode> update(
+            UUID id, Collection<? extends AbstractNode> children) {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(children, "children");
+        String realm =
+                snapshot().getRealm(id).orElseThrow(() -> new NotFoundException(id)).getName();
+
+        JvmIdResolver.Batch batch =
+                jvmIdResolver.resolve(realm, getRefsFromLeaves(findLeavesFromAll(children)));
+        var updatedChildren = modifyChildrenWithJvmIds(id, children, batch);
+
+        EnvironmentNode currentTree;
+        DiscoveryTreeDiff diff;
+        synchronized (pluginLock(id)) {
+            EnvironmentNode originalTree =
+                    snapshot().getRealm(id).orElseThrow(() -> new NotFoundException(id));
+            currentTree =
+                    new EnvironmentNode(
+                            originalTree.getName(),
+                            originalTree.getNodeType(),
+                            originalTree.getLabels(),
+                            updatedChildren);
+            diff = DiscoveryTreeDiff.between(originalTree, currentTree);
+            if (!diff.isUnchanged()) {
+                dao.update(id, currentTree);
+                swapSnapshot(s -> s.withRealm(id, currentTree));
+            }
+        }
+        trackLateJvmIds(id, children, batch);
+        if (diff.isUnchanged()) {
+            logger.trace("Discovery Update {} ({}): unchanged", id, currentTree.getName());
+            return currentTree.getChildren();
+        }
+        logger.trace("Discovery Update {} ({}): {}", id, currentTree.getName(), updatedChildren);
 
-        ServiceRef.compare(previousRefs).to(currentRefs).removed().stream()
-                .forEach(sr -> notifyAsyncTargetDiscovery(EventKind.LOST, sr));
-        ;
+        diff.modified().forEach(sr -> notifyAsyncTargetDiscovery(EventKind.MODIFIED, sr));
+        diff.found().forEach(sr -> notifyAsyncTargetDiscovery(EventKind.FOUND, sr));
+        diff.lost().forEach(sr -> notifyAsyncTargetDiscovery(EventKind.LOST, sr));
 
         return currentTree.getChildren();
     }
@@ -488,30 +607,74 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
         PluginInfo plugin = dao.get(id).orElseThrow(() -> new NotFoundException(id));
         deleteStoredCredentials(plugin.getCallback());
         dao.delete(id);
-        findLeavesFrom(gson.fromJson(plugin.getSubtree(), EnvironmentNode.class)).stream()
-                .map(TargetNode::getTarget)
-                .forEach(sr -> notifyAsyncTargetDiscovery(EventKind.LOST, sr));
+        lateJvmIds.remove(id);
+        pluginLocks.remove(id);
+        List<ServiceRef> lost =
+                snapshot()
+                        .getServicesByPlugin(id)
+                        .orElseGet(() -> listServicesFromSubtree(plugin.getSubtree()));
+        swapSnapshot(s -> s.withoutRealm(id));
+        lost.forEach(sr -> notifyAsyncTargetDiscovery(EventKind.LOST, sr));
         return plugin;
     }
 
+    /**
+     * The returned tree is shared between all callers until the next discovery update and must not
+     * be modified.
+     */
+    @Override
     public EnvironmentNode getDiscoveryTree() {
-        List<EnvironmentNode> realms =
-                dao.getAll().stream()
-                        .map(PluginInfo::getSubtree)
-                        .map(s -> gson.fromJson(s, EnvironmentNode.class))
-                        .sorted((s1, s2) -> s1.compareTo(s2))
-                        .toList();
-        return new EnvironmentNode(
-                "Universe", BaseNodeType.UNIVERSE, Collections.emptyMap(), realms);
+        return snapshot().getUniverse();
     }
 
-    private List<TargetNode> getLeafNodes() {
-        return findLeavesFrom(getDiscoveryTree());
+    public long getDiscoveryTreeVersion() {
+        return snapshot().getVersion();
     }
 
     @Override
     public List<ServiceRef> listDiscoverableServices() {
-        return getLeafNodes().stream().map(TargetNode::getTarget).toList();
+        return snapshot().getServices();
+    }
+
+    public List<ServiceRef> listDiscoverableServices(String realm) {
+        return snapshot().getServicesByRealm(realm);
+    }
+
+    @Override
+    public Optional<ServiceRef> lookupServiceByConnectUrl(URI connectUrl) {
+        return snapshot().getServiceByConnectUrl(connectUrl);
+    }
+
+    public List<ServiceRef> lookupServicesByJvmId(String jvmId) {
+        return snapshot().getServicesByJvmId(jvmId);
+    }
+
+    private DiscoveryTreeSnapshot snapshot() {
+        DiscoveryTreeSnapshot current = snapshot.get();
+        if (current == null) {
+            snapshot.compareAndSet(null, loadSnapshot());
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    private void swapSnapshot(UnaryOperator<DiscoveryTreeSnapshot> fn) {
+        snapshot.updateAndGet(s -> fn.apply(s != null ? s : DiscoveryTreeSnapshot.EMPTY));
+    }
+
+    private DiscoveryTreeSnapshot loadSnapshot() {
+        Map<UUID, EnvironmentNode> realms = new HashMap<>();
+        for (PluginInfo plugin : dao.getAll()) {
+            realms.put(plugin.getId(), gson.fromJson(plugin.getSubtree(), EnvironmentNode.class));
+        }
+        logger.trace("Discovery tree loaded with {} realms", realms.size());
+        return DiscoveryTreeSnapshot.of(realms);
+    }
+
+    private List<ServiceRef> listServicesFromSubtree(String subtree) {
+        return findLeavesFrom(gson.fromJson(subtree, EnvironmentNode.class)).stream()
+                .map(TargetNode::getTarget)
+                .toList();
     }
 
     public Optional<PluginInfo> getBuiltInPluginByRealm(String realm) {
@@ -522,22 +685,19 @@ public class DiscoveryStorage extends AbstractPlatformClientVerticle {
     }
 
     public List<ServiceRef> listDiscoverableServices(PluginInfo plugin) {
-        return findLeavesFrom(gson.fromJson(plugin.getSubtree(), EnvironmentNode.class)).stream()
-                .map(TargetNode::getTarget)
-                .toList();
+        return snapshot()
+                .getServicesByPlugin(plugin.getId())
+                .orElseGet(() -> listServicesFromSubtree(plugin.getSubtree()));
     }
 
     private List<TargetNode> findLeavesFrom(AbstractNode node) {
-        if (node instanceof TargetNode) {
-            return List.of((TargetNode) node);
-        }
-        if (node instanceof EnvironmentNode) {
-            EnvironmentNode environment = (EnvironmentNode) node;
-            List<TargetNode> targets = new ArrayList<>();
-            environment.getChildren().stream().map(this::findLeavesFrom).forEach(targets::addAll);
-            return targets;
-        }
-        throw new IllegalArgumentException(node.getClass().getCanonicalName());
+        return DiscoveryTreeSnapshot.findLeavesFrom(node);
+    }
+
+    private List<TargetNode> findLeavesFromAll(Collection<? extends AbstractNode> nodes) {
+        List<TargetNode> leaves = new ArrayList<>();
+        nodes.forEach(node -> leaves.addAll(findLeavesFrom(node)));
+        return leaves;
     }
 
     public List<ServiceRef> getRefsFromLeaves(List<TargetNode> leaves) {
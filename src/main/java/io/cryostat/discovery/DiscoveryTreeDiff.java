@@ -0,0 +1,141 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.discovery.AbstractNode;
+import io.cryostat.platform.discovery.EnvironmentNode;
+import io.cryostat.platform.discovery.TargetNode;
+
+/**
+ * Computes the FOUND/LOST/MODIFIED target changes between two versions of a discovery subtree in a
+ * single pass. Nodes are matched up by identity (node kind and name for environment nodes, connect
+ * URL for targets) and any pair of matching nodes with equal hashes and contents is skipped without
+ * descending into it, so the cost of a diff is proportional to the size of the changed portion of
+ * the tree rather than the size of the whole tree.
+ */
+final class DiscoveryTreeDiff {
+
+    private final boolean unchanged;
+    private final Map<URI, ServiceRef> previous = new LinkedHashMap<>();
+    private final Map<URI, ServiceRef> current = new LinkedHashMap<>();
+    private final List<ServiceRef> found = new ArrayList<>();
+    private final List<ServiceRef> lost = new ArrayList<>();
+    private final List<ServiceRef> modified = new ArrayList<>();
+
+    private DiscoveryTreeDiff(AbstractNode previousTree, AbstractNode currentTree) {
+        this.unchanged = isSame(previousTree, currentTree);
+        if (!unchanged) {
+            visit(previousTree, currentTree);
+            previous.forEach(
+                    (uri, prev) -> {
+                        if (!current.containsKey(uri)) {
+                            lost.add(prev);
+                        } else if (!Objects.equals(prev, current.get(uri))) {
+                            modified.add(current.get(uri));
+                        }
+                    });
+            current.forEach(
+                    (uri, curr) -> {
+                        if (!previous.containsKey(uri)) {
+                            found.add(curr);
+                        }
+                    });
+        }
+    }
+
+    static DiscoveryTreeDiff between(AbstractNode previousTree, AbstractNode currentTree) {
+        return new DiscoveryTreeDiff(previousTree, currentTree);
+    }
+
+    /** @return true if the two trees are identical, including non-target nodes and labels */
+    boolean isUnchanged() {
+        return unchanged;
+    }
+
+    List<ServiceRef> found() {
+        return Collections.unmodifiableList(found);
+    }
+
+    List<ServiceRef> lost() {
+        return Collections.unmodifiableList(lost);
+    }
+
+    List<ServiceRef> modified() {
+        return Collections.unmodifiableList(modified);
+    }
+
+    private void visit(AbstractNode prev, AbstractNode curr) {
+        if (isSame(prev, curr)) {
+            return;
+        }
+        if (prev instanceof TargetNode) {
+            ServiceRef ref = ((TargetNode) prev).getTarget();
+            previous.putIfAbsent(ref.getServiceUri(), ref);
+        }
+        if (curr instanceof TargetNode) {
+            ServiceRef ref = ((TargetNode) curr).getTarget();
+            current.putIfAbsent(ref.getServiceUri(), ref);
+        }
+        List<AbstractNode> prevChildren = childrenOf(prev);
+        List<AbstractNode> currChildren = childrenOf(curr);
+        if (prevChildren.isEmpty() && currChildren.isEmpty()) {
+            return;
+        }
+        Map<NodeKey, AbstractNode> unmatched = new HashMap<>();
+        for (AbstractNode child : prevChildren) {
+            unmatched.putIfAbsent(NodeKey.of(child), child);
+        }
+        for (AbstractNode child : currChildren) {
+            visit(unmatched.remove(NodeKey.of(child)), child);
+        }
+        for (AbstractNode child : unmatched.values()) {
+            visit(child, null);
+        }
+    }
+
+    private static boolean isSame(AbstractNode a, AbstractNode b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        return a.getId() == b.getId() && a.equals(b);
+    }
+
+    private static List<AbstractNode> childrenOf(AbstractNode node) {
+        if (node instanceof EnvironmentNode) {
+            return ((EnvironmentNode) node).getChildren();
+        }
+        return List.of();
+    }
+
+    private static record NodeKey(Class<?> type, String kind, String name) {
+        static NodeKey of(AbstractNode node) {
+            return new NodeKey(node.getClass(), node.getNodeType().getKind(), node.getName());
+        }
+    }
+}
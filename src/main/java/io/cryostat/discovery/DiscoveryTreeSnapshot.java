@@ -0,0 +1,173 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.discovery.AbstractNode;
+import io.cryostat.platform.discovery.BaseNodeType;
+import io.cryostat.platform.discovery.EnvironmentNode;
+import io.cryostat.platform.discovery.TargetNode;
+
+/**
+ * Immutable, versioned view of the full discovery tree. Instances are built once per
+ * registration, update, or deregistration and then shared between readers, so that hot-path
+ * lookups never need to go back to the database or re-parse plugin subtree JSON. The nodes and
+ * ServiceRefs held by a snapshot must be treated as read-only.
+ */
+final class DiscoveryTreeSnapshot {
+
+    static final DiscoveryTreeSnapshot EMPTY = new DiscoveryTreeSnapshot(0, Map.of(), Map.of());
+
+    private final long version;
+    private final Map<UUID, EnvironmentNode> realms;
+    private final Map<UUID, List<ServiceRef>> servicesByPlugin;
+    private final EnvironmentNode universe;
+    private final List<ServiceRef> services;
+    private final Map<URI, ServiceRef> servicesByConnectUrl;
+    private final Map<String, List<ServiceRef>> servicesByJvmId;
+    private final Map<String, List<ServiceRef>> servicesByRealm;
+
+    private DiscoveryTreeSnapshot(
+            long version,
+            Map<UUID, EnvironmentNode> realms,
+            Map<UUID, List<ServiceRef>> servicesByPlugin) {
+        this.version = version;
+        this.realms = Collections.unmodifiableMap(realms);
+        this.servicesByPlugin = Collections.unmodifiableMap(servicesByPlugin);
+
+        List<Map.Entry<UUID, EnvironmentNode>> sortedRealms =
+                new ArrayList<>(realms.entrySet());
+        sortedRealms.sort(Map.Entry.comparingByValue());
+        this.universe =
+                new EnvironmentNode(
+                        "Universe",
+                        BaseNodeType.UNIVERSE,
+                        Collections.emptyMap(),
+                        sortedRealms.stream().map(Map.Entry::getValue).toList());
+
+        List<ServiceRef> services = new ArrayList<>();
+        Map<URI, ServiceRef> byConnectUrl = new HashMap<>();
+        Map<String, List<ServiceRef>> byJvmId = new HashMap<>();
+        Map<String, List<ServiceRef>> byRealm = new HashMap<>();
+        for (Map.Entry<UUID, EnvironmentNode> entry : sortedRealms) {
+            String realm = entry.getValue().getName();
+            List<ServiceRef> realmServices = byRealm.computeIfAbsent(realm, k -> new ArrayList<>());
+            for (ServiceRef sr : servicesByPlugin.get(entry.getKey())) {
+                services.add(sr);
+                realmServices.add(sr);
+                byConnectUrl.putIfAbsent(sr.getServiceUri(), sr);
+                if (sr.getJvmId() != null) {
+                    byJvmId.computeIfAbsent(sr.getJvmId(), k -> new ArrayList<>()).add(sr);
+                }
+            }
+        }
+        this.services = Collections.unmodifiableList(services);
+        this.servicesByConnectUrl = Collections.unmodifiableMap(byConnectUrl);
+        this.servicesByJvmId = Collections.unmodifiableMap(byJvmId);
+        this.servicesByRealm = Collections.unmodifiableMap(byRealm);
+    }
+
+    static DiscoveryTreeSnapshot of(Map<UUID, EnvironmentNode> realms) {
+        Map<UUID, List<ServiceRef>> servicesByPlugin = new HashMap<>();
+        realms.forEach((id, realm) -> servicesByPlugin.put(id, collectServices(realm)));
+        return new DiscoveryTreeSnapshot(1, new HashMap<>(realms), servicesByPlugin);
+    }
+
+    DiscoveryTreeSnapshot withRealm(UUID id, EnvironmentNode realm) {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(realm);
+        Map<UUID, EnvironmentNode> nextRealms = new HashMap<>(realms);
+        nextRealms.put(id, realm);
+        Map<UUID, List<ServiceRef>> nextServices = new HashMap<>(servicesByPlugin);
+        nextServices.put(id, collectServices(realm));
+        return new DiscoveryTreeSnapshot(version + 1, nextRealms, nextServices);
+    }
+
+    DiscoveryTreeSnapshot withoutRealm(UUID id) {
+        if (!realms.containsKey(id)) {
+            return this;
+        }
+        Map<UUID, EnvironmentNode> nextRealms = new HashMap<>(realms);
+        nextRealms.remove(id);
+        Map<UUID, List<ServiceRef>> nextServices = new HashMap<>(servicesByPlugin);
+        nextServices.remove(id);
+        return new DiscoveryTreeSnapshot(version + 1, nextRealms, nextServices);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    EnvironmentNode getUniverse() {
+        return universe;
+    }
+
+    Optional<EnvironmentNode> getRealm(UUID id) {
+        return Optional.ofNullable(realms.get(id));
+    }
+
+    List<ServiceRef> getServices() {
+        return services;
+    }
+
+    Optional<List<ServiceRef>> getServicesByPlugin(UUID id) {
+        return Optional.ofNullable(servicesByPlugin.get(id));
+    }
+
+    Optional<ServiceRef> getServiceByConnectUrl(URI connectUrl) {
+        return Optional.ofNullable(servicesByConnectUrl.get(connectUrl));
+    }
+
+    List<ServiceRef> getServicesByJvmId(String jvmId) {
+        return Collections.unmodifiableList(servicesByJvmId.getOrDefault(jvmId, List.of()));
+    }
+
+    List<ServiceRef> getServicesByRealm(String realm) {
+        return Collections.unmodifiableList(servicesByRealm.getOrDefault(realm, List.of()));
+    }
+
+    static List<TargetNode> findLeavesFrom(AbstractNode node) {
+        List<TargetNode> leaves = new ArrayList<>();
+        collectLeaves(node, leaves);
+        return leaves;
+    }
+
+    private static void collectLeaves(AbstractNode node, List<TargetNode> leaves) {
+        if (node instanceof TargetNode) {
+            leaves.add((TargetNode) node);
+        } else if (node instanceof EnvironmentNode) {
+            for (AbstractNode child : ((EnvironmentNode) node).getChildren()) {
+                collectLeaves(child, leaves);
+            }
+        } else {
+            throw new IllegalArgumentException(node.getClass().getCanonicalName());
+        }
+    }
+
+    private static List<ServiceRef> collectServices(EnvironmentNode realm) {
+        return findLeavesFrom(realm).stream().map(TargetNode::getTarget).toList();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.recordings.JvmIdHelper;
+import io.cryostat.recordings.JvmIdHelper.JvmIdGetException;
+
+import dagger.Lazy;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Resolves the JVM IDs of the targets submitted in a single discovery plugin update. Resolutions
+ * which require a connection to the target are fanned out across a bounded worker pool, and the
+ * caller only waits up to the configured batch deadline for them. Resolutions which are still in
+ * progress when the deadline expires are returned as pending futures so that the caller can commit
+ * the update immediately and patch the late IDs in afterward.
+ */
+class JvmIdResolver {
+
+    private final Lazy<JvmIdHelper> jvmIdHelper;
+    private final ExecutorService workers;
+    private final Duration batchDeadline;
+    private final Logger logger;
+
+    JvmIdResolver(
+            Lazy<JvmIdHelper> jvmIdHelper,
+            ExecutorService workers,
+            Duration batchDeadline,
+            Logger logger) {
+        this.jvmIdHelper = jvmIdHelper;
+        this.workers = workers;
+        this.batchDeadline = batchDeadline;
+        this.logger = logger;
+    }
+
+    Batch resolve(String realm, Collection<ServiceRef> refs) {
+        JvmIdResolutionBatch evt = new JvmIdResolutionBatch(realm, refs.size(), getQueueDepth());
+        evt.begin();
+        try {
+            Map<URI, CompletableFuture<ServiceRef>> futures = new HashMap<>();
+            for (ServiceRef ref : refs) {
+                futures.computeIfAbsent(ref.getServiceUri(), k -> submit(ref));
+            }
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                        .get(batchDeadline.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.info(
+                        "JVM ID resolution for realm {} exceeded {}ms deadline",
+                        realm,
+                        batchDeadline.toMillis());
+            } catch (ExecutionException e) {
+                // individual failures are reported per target by the batch
+                logger.trace(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Batch batch = new Batch(futures);
+            evt.setResolved(batch.resolved.size());
+            evt.setFailed(batch.failed.size());
+            evt.setPending(batch.pending.size());
+            return batch;
+        } finally {
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+        }
+    }
+
+    private CompletableFuture<ServiceRef> submit(ServiceRef ref) {
+        if (ref.getJvmId() != null && !ref.getJvmId().isBlank()) {
+            // already known: this only records the ID with the helper and never connects
+            try {
+                return CompletableFuture.completedFuture(jvmIdHelper.get().resolveId(ref));
+            } catch (JvmIdGetException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return jvmIdHelper.get().resolveId(ref);
+                    } catch (JvmIdGetException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                workers);
+    }
+
+    private int getQueueDepth() {
+        if (workers instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) workers).getQueue().size();
+        }
+        return 0;
+    }
+
+    static class Batch {
+        private final Map<URI, ServiceRef> resolved = new HashMap<>();
+        private final Map<URI, Throwable> failed = new HashMap<>();
+        private final Map<URI, CompletableFuture<ServiceRef>> pending = new HashMap<>();
+
+        private Batch(Map<URI, CompletableFuture<ServiceRef>> futures) {
+            futures.forEach(
+                    (uri, f) -> {
+                        if (!f.isDone()) {
+                            pending.put(uri, f);
+                        } else if (f.isCompletedExceptionally()) {
+                            failed.put(uri, unwrap(f));
+                        } else {
+                            resolved.put(uri, f.join());
+                        }
+                    });
+        }
+
+        Optional<ServiceRef> getResolved(URI uri) {
+            return Optional.ofNullable(resolved.get(uri));
+        }
+
+        Optional<Throwable> getFailure(URI uri) {
+            return Optional.ofNullable(failed.get(uri));
+        }
+
+        Map<URI, CompletableFuture<ServiceRef>> getPending() {
+            return Collections.unmodifiableMap(pending);
+        }
+
+        private static Throwable unwrap(CompletableFuture<ServiceRef> f) {
+            try {
+                f.join();
+                return new IllegalStateException();
+            } catch (CompletionException e) {
+                return e.getCause() != null ? e.getCause() : e;
+            } catch (CancellationException e) {
+                return e;
+            }
+        }
+    }
+
+    @Name("io.cryostat.discovery.JvmIdResolver.JvmIdResolutionBatch")
+    @Label("Discovery JVM ID Resolution")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class JvmIdResolutionBatch extends Event {
+        String realm;
+        int targets;
+        int queueDepth;
+        int resolved;
+        int failed;
+        int pending;
+
+        JvmIdResolutionBatch(String realm, int targets, int queueDepth) {
+            this.realm = realm;
+            this.targets = targets;
+            this.queueDepth = queueDepth;
+        }
+
+        void setResolved(int resolved) {
+            this.resolved = resolved;
+        }
+
+        void setFailed(int failed) {
+            this.failed = failed;
+        }
+
+        void setPending(int pending) {
+            this.pending = pending;
+        }
+    }
+}
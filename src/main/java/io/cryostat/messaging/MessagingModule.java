@@ -27,9 +27,11 @@ import io.cryostat.messaging.notifications.NotificationListener;
 import io.cryostat.messaging.notifications.NotificationsModule;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.HttpServer;
+import io.cryostat.recordings.JvmIdHelper;
 
 import com.google.gson.Gson;
 import dagger.Binds;
+import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
 import dagger.multibindings.IntoSet;
@@ -42,6 +44,7 @@ import io.vertx.core.Vertx;
 public abstract class MessagingModule {
 
     static final String WS_MAX_CONNECTIONS = "WS_MAX_CONNECTIONS";
+    static final String WS_MAX_QUEUED_MESSAGES = "WS_MAX_QUEUED_MESSAGES";
 
     @Provides
     @Singleton
@@ -51,7 +54,9 @@ public abstract class MessagingModule {
             Environment env,
             AuthManager authManager,
             NotificationFactory notificationFactory,
+            Lazy<JvmIdHelper> jvmIdHelper,
             @Named(WS_MAX_CONNECTIONS) int maxConnections,
+            @Named(WS_MAX_QUEUED_MESSAGES) int maxQueuedMessages,
             Clock clock,
             Logger logger,
             Gson gson) {
@@ -61,7 +66,9 @@ public abstract class MessagingModule {
                 env,
                 authManager,
                 notificationFactory,
+                jvmIdHelper,
                 maxConnections,
+                maxQueuedMessages,
                 clock,
                 logger,
                 gson);
@@ -91,4 +98,21 @@ public abstract class MessagingModule {
             return Integer.MAX_VALUE;
         }
     }
+
+    @Provides
+    @Named(WS_MAX_QUEUED_MESSAGES)
+    static int provideWebSocketMaxQueuedMessages(Environment env, Logger logger) {
+        try {
+            int count = Integer.parseInt(env.getEnv(Variables.WS_MAX_QUEUED_MESSAGES_ENV, "1024"));
+            if (count <= 0) {
+                logger.warn(
+                        "{} was set to {} - ignoring", Variables.WS_MAX_QUEUED_MESSAGES_ENV, count);
+                count = 1024;
+            }
+            return count;
+        } catch (NumberFormatException nfe) {
+            logger.warn(nfe);
+            return 1024;
+        }
+    }
 }
@@ -18,8 +18,12 @@ package io.cryostat.messaging;
 import java.io.IOException;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -39,8 +43,12 @@ import io.cryostat.net.AuthenticationErrorException;
 import io.cryostat.net.HttpServer;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.HttpMimeType;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.recordings.JvmIdHelper;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dagger.Lazy;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Vertx;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -49,11 +57,16 @@ public class MessagingServer extends AbstractVerticle
         implements AutoCloseable, NotificationListener {
 
     private final Set<WsClient> connections;
+    // indices of accepted clients by subscription, guarded by connections
+    private final Set<WsClient> allCategorySubscribers;
+    private final Map<String, Set<WsClient>> categorySubscribers;
     private final HttpServer server;
     private final AuthManager authManager;
     private final NotificationFactory notificationFactory;
+    private final Lazy<JvmIdHelper> jvmIdHelper;
     private final Clock clock;
     private final int maxConnections;
+    private final int maxQueuedMessages;
     private final Logger logger;
     private final Gson gson;
 
@@ -66,16 +79,22 @@ public class MessagingServer extends AbstractVerticle
             Environment env,
             AuthManager authManager,
             NotificationFactory notificationFactory,
+            Lazy<JvmIdHelper> jvmIdHelper,
             @Named(MessagingModule.WS_MAX_CONNECTIONS) int maxConnections,
+            @Named(MessagingModule.WS_MAX_QUEUED_MESSAGES) int maxQueuedMessages,
             Clock clock,
             Logger logger,
             Gson gson) {
         this.vertx = vertx;
         this.connections = new HashSet<>();
+        this.allCategorySubscribers = new HashSet<>();
+        this.categorySubscribers = new HashMap<>();
         this.server = server;
         this.authManager = authManager;
         this.notificationFactory = notificationFactory;
+        this.jvmIdHelper = jvmIdHelper;
         this.maxConnections = maxConnections;
+        this.maxQueuedMessages = maxQueuedMessages;
         this.clock = clock;
         this.logger = logger;
         this.gson = gson;
@@ -112,7 +131,7 @@ public class MessagingServer extends AbstractVerticle
                     }
                     logger.info("Connected remote client {}", remoteAddress);
 
-                    WsClient wsc = new WsClient(this.logger, sws, clock);
+                    WsClient wsc = new WsClient(this.logger, sws, clock, maxQueuedMessages);
                     sws.closeHandler((unused) -> removeConnection(wsc));
                     sws.textMessageHandler(
                             msg -> {
@@ -174,8 +193,11 @@ public class MessagingServer extends AbstractVerticle
                                             logger.info(
                                                     "Authenticated remote client {}",
                                                     remoteAddress);
-                                            sws.textMessageHandler(null);
-                                            wsc.setAccepted();
+                                            sws.textMessageHandler(text -> subscribe(wsc, text));
+                                            synchronized (connections) {
+                                                wsc.setAccepted();
+                                                indexSubscription(wsc);
+                                            }
                                             sendClientActivityNotification(
                                                     remoteAddress, "accepted");
 
@@ -198,22 +220,79 @@ public class MessagingServer extends AbstractVerticle
 
     @Override
     public void onNotification(Notification notification) {
-        getVertx()
-                .executeBlocking(
-                        promise -> {
-                            try {
-                                writeMessage(notification);
-                            } finally {
-                                promise.complete();
-                            }
-                        });
+        writeMessage(notification);
     }
 
     void writeMessage(Object message) {
-        String json = gson.toJson(message);
-        logger.info("Outgoing WS message: {}", json);
+        String category =
+                message instanceof Notification ? ((Notification<?>) message).getCategory() : null;
+        List<WsClient> clients = new ArrayList<>();
         synchronized (connections) {
-            connections.forEach(c -> c.writeMessage(json));
+            clients.addAll(allCategorySubscribers);
+            clients.addAll(categorySubscribers.getOrDefault(category, Set.of()));
+        }
+        TargetScope scope = new TargetScope(message);
+        String json = null;
+        for (WsClient client : clients) {
+            if (!client.getSubscription().matchesTarget(scope.targetId, scope::getJvmId)) {
+                continue;
+            }
+            if (json == null) {
+                // serialize once for all clients. Writes only queue the message and never block,
+                // so a slow client cannot hold up the others
+                json = gson.toJson(message);
+                logger.trace("Outgoing WS message: {}", json);
+            }
+            client.writeMessage(category, json);
+        }
+    }
+
+    private void subscribe(WsClient wsc, String msg) {
+        NotificationSubscription subscription;
+        try {
+            subscription = NotificationSubscription.parse(gson, msg);
+        } catch (JsonParseException e) {
+            logger.warn(
+                    "Ignoring invalid subscription from remote client {}: {}",
+                    wsc.getRemoteAddress(),
+                    e.getMessage());
+            return;
+        }
+        synchronized (connections) {
+            if (!connections.contains(wsc)) {
+                return;
+            }
+            unindexSubscription(wsc);
+            wsc.setSubscription(subscription);
+            indexSubscription(wsc);
+        }
+        logger.info(
+                "Remote client {} subscribed to {}",
+                wsc.getRemoteAddress(),
+                subscription.isAllCategories() ? "all categories" : subscription.getCategories());
+    }
+
+    private void indexSubscription(WsClient wsc) {
+        NotificationSubscription subscription = wsc.getSubscription();
+        if (subscription.isAllCategories()) {
+            allCategorySubscribers.add(wsc);
+            return;
+        }
+        for (String category : subscription.getCategories()) {
+            categorySubscribers.computeIfAbsent(category, k -> new HashSet<>()).add(wsc);
+        }
+    }
+
+    private void unindexSubscription(WsClient wsc) {
+        allCategorySubscribers.remove(wsc);
+        for (String category : wsc.getSubscription().getCategories()) {
+            Set<WsClient> subscribers = categorySubscribers.get(category);
+            if (subscribers != null) {
+                subscribers.remove(wsc);
+                if (subscribers.isEmpty()) {
+                    categorySubscribers.remove(category);
+                }
+            }
         }
     }
 
@@ -226,7 +305,7 @@ public class MessagingServer extends AbstractVerticle
     public void close() {
         this.vertx.cancelTimer(prunerTaskId);
         synchronized (connections) {
-            connections.forEach(this::removeConnection);
+            new ArrayList<>(connections).forEach(this::removeConnection);
             connections.clear();
         }
     }
@@ -239,6 +318,7 @@ public class MessagingServer extends AbstractVerticle
 
     private void removeConnection(WsClient wsc) {
         synchronized (connections) {
+            unindexSubscription(wsc);
             if (connections.remove(wsc)) {
                 wsc.close();
                 logger.info("Disconnected remote client {}", wsc.getRemoteAddress());
@@ -255,11 +335,21 @@ public class MessagingServer extends AbstractVerticle
         try {
             long now = clock.getMonotonicTime();
             synchronized (connections) {
-                for (WsClient wsc : connections) {
+                for (WsClient wsc : new ArrayList<>(connections)) {
                     long expiry = wsc.getConnectionTime() + TimeUnit.SECONDS.toNanos(10);
                     boolean isOld = now > expiry;
                     if (isOld && !wsc.isAccepted()) {
                         removeConnection(wsc);
+                        continue;
+                    }
+                    WsClient.WsClientQueue evt =
+                            new WsClient.WsClientQueue(
+                                    wsc.getRemoteAddress().host(),
+                                    wsc.getRemoteAddress().port(),
+                                    wsc.getQueueDepth(),
+                                    wsc.getDroppedMessages());
+                    if (evt.shouldCommit()) {
+                        evt.commit();
                     }
                 }
             }
@@ -279,4 +369,44 @@ public class MessagingServer extends AbstractVerticle
                                 .build()
                                 .send());
     }
+
+    /** The target, if any, which a notification refers to. */
+    private class TargetScope {
+        private final String targetId;
+        private Optional<String> jvmId;
+
+        TargetScope(Object message) {
+            String targetId = null;
+            Object payload = null;
+            if (message instanceof Notification) {
+                payload = ((Notification<?>) message).getMessage();
+            }
+            if (payload instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) payload;
+                if (map.get("target") instanceof String) {
+                    targetId = (String) map.get("target");
+                }
+                if (map.get("jvmId") instanceof String) {
+                    this.jvmId = Optional.of((String) map.get("jvmId"));
+                }
+                // TargetJvmDiscovery notifications
+                Object event = map.get("event");
+                Object serviceRef =
+                        event instanceof Map ? ((Map<?, ?>) event).get("serviceRef") : null;
+                if (serviceRef instanceof ServiceRef) {
+                    targetId = ((ServiceRef) serviceRef).getServiceUri().toString();
+                    this.jvmId = Optional.ofNullable(((ServiceRef) serviceRef).getJvmId());
+                }
+            }
+            this.targetId = targetId;
+        }
+
+        Optional<String> getJvmId() {
+            if (jvmId == null) {
+                // only use IDs which are already known, never connect to the target to find out
+                jvmId = jvmIdHelper.get().getCachedJvmId(targetId);
+            }
+            return jvmId;
+        }
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.messaging;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * The set of notifications a WebSocket client wants to receive, as sent by the client after
+ * authenticating, ex.
+ *
+ * <pre>
+ * {"categories": ["ActiveRecordingCreated"], "targets": ["service:jmx:rmi:///..."], "jvmIds": []}
+ * </pre>
+ *
+ * An empty or absent field places no restriction. Notifications which do not refer to any
+ * particular target always pass the target and JVM ID filters.
+ */
+class NotificationSubscription {
+
+    static final NotificationSubscription ALL =
+            new NotificationSubscription(Set.of(), Set.of(), Set.of());
+
+    private final Set<String> categories;
+    private final Set<String> targets;
+    private final Set<String> jvmIds;
+
+    NotificationSubscription(Set<String> categories, Set<String> targets, Set<String> jvmIds) {
+        this.categories = Set.copyOf(categories);
+        this.targets = Set.copyOf(targets);
+        this.jvmIds = Set.copyOf(jvmIds);
+    }
+
+    static NotificationSubscription parse(Gson gson, String json) {
+        Request request = gson.fromJson(json, Request.class);
+        if (request == null) {
+            throw new JsonParseException("Empty subscription");
+        }
+        return new NotificationSubscription(
+                toSet(request.categories), toSet(request.targets), toSet(request.jvmIds));
+    }
+
+    private static Set<String> toSet(List<String> list) {
+        if (list == null) {
+            return Set.of();
+        }
+        if (list.contains(null)) {
+            throw new JsonParseException("Subscription filters may not contain null");
+        }
+        return Set.copyOf(list);
+    }
+
+    boolean isAllCategories() {
+        return categories.isEmpty();
+    }
+
+    Set<String> getCategories() {
+        return categories;
+    }
+
+    boolean isTargetFiltered() {
+        return !targets.isEmpty() || !jvmIds.isEmpty();
+    }
+
+    /**
+     * @param targetId the connect URL of the target the notification refers to, or null if it does
+     *     not refer to a target
+     * @param jvmId the JVM ID of the target the notification refers to, only computed if needed
+     */
+    boolean matchesTarget(String targetId, Supplier<Optional<String>> jvmId) {
+        if (!isTargetFiltered() || targetId == null) {
+            return true;
+        }
+        if (targets.contains(targetId)) {
+            return true;
+        }
+        return !jvmIds.isEmpty() && jvmId.get().map(jvmIds::contains).orElse(false);
+    }
+
+    private static class Request {
+        List<String> categories;
+        List<String> targets;
+        List<String> jvmIds;
+    }
+}
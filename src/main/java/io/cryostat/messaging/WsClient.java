@@ -15,6 +15,11 @@
  */
 package io.cryostat.messaging;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.Clock;
 
@@ -29,15 +34,29 @@ import jdk.jfr.Name;
 
 class WsClient implements AutoCloseable {
 
+    // high-volume categories which clients can miss without losing track of Cryostat's state, and
+    // which are therefore the first to be dropped when a client falls behind
+    static final Set<String> LOW_PRIORITY_CATEGORIES =
+            Set.of("WsClientActivity", "RecordingMetadataUpdated");
+
     private final ServerWebSocket sws;
     private final long connectionTime;
     private volatile boolean isAccepted;
+    private volatile NotificationSubscription subscription = NotificationSubscription.ALL;
+    private final int maxQueuedMessages;
     private final Logger logger;
 
-    WsClient(Logger logger, ServerWebSocket sws, Clock clock) {
+    // messages waiting for the WebSocket's own write queue to drain
+    private final Deque<OutgoingMessage> queue = new ArrayDeque<>();
+    private long droppedMessages;
+    private boolean slowConsumer;
+
+    WsClient(Logger logger, ServerWebSocket sws, Clock clock, int maxQueuedMessages) {
         this.logger = logger;
         this.sws = sws;
         this.connectionTime = clock.getMonotonicTime();
+        this.maxQueuedMessages = maxQueuedMessages;
+        sws.drainHandler(v -> flush());
     }
 
     void setAccepted() {
@@ -48,32 +67,97 @@ class WsClient implements AutoCloseable {
         return isAccepted;
     }
 
+    NotificationSubscription getSubscription() {
+        return subscription;
+    }
+
+    void setSubscription(NotificationSubscription subscription) {
+        this.subscription = subscription;
+    }
+
     long getConnectionTime() {
         return connectionTime;
     }
 
-    void writeMessage(String message) {
-        if (isAccepted() && !this.sws.isClosed()) {
-            WsMessageEmitted evt =
-                    new WsMessageEmitted(
-                            sws.remoteAddress().host(),
-                            sws.remoteAddress().port(),
-                            sws.uri(),
-                            message.length());
-            evt.begin();
-
-            try {
-                this.sws.writeTextMessage(message);
-
-            } catch (Exception e) {
-                logger.warn(e);
-                evt.setExceptionThrown(true);
-
-            } finally {
-                evt.end();
-                if (evt.shouldCommit()) {
-                    evt.commit();
-                }
+    /**
+     * Send a message to this client without blocking. If the client is not keeping up then the
+     * message is queued, up to a bound. When the queue is over half full, messages in {@link
+     * #LOW_PRIORITY_CATEGORIES} are dropped. When it is full, other messages displace queued
+     * low-priority messages, and if there are none the client is disconnected as a slow consumer.
+     */
+    synchronized void writeMessage(String category, String message) {
+        if (!isAccepted() || slowConsumer || this.sws.isClosed()) {
+            return;
+        }
+        if (queue.isEmpty() && !this.sws.writeQueueFull()) {
+            write(message);
+            return;
+        }
+        boolean lowPriority = LOW_PRIORITY_CATEGORIES.contains(category);
+        if (lowPriority && queue.size() >= maxQueuedMessages / 2) {
+            droppedMessages++;
+            return;
+        }
+        if (queue.size() >= maxQueuedMessages && !evictLowPriorityMessage()) {
+            slowConsumer = true;
+            queue.clear();
+            logger.warn(
+                    "Disconnecting remote client {} which has {} notifications pending",
+                    getRemoteAddress(),
+                    maxQueuedMessages);
+            // 1013: WebSocket "Try Again Later" close reason
+            sws.close((short) 1013, "Too many pending notifications");
+            return;
+        }
+        queue.add(new OutgoingMessage(lowPriority, message));
+    }
+
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    synchronized long getDroppedMessages() {
+        return droppedMessages;
+    }
+
+    private synchronized void flush() {
+        while (!queue.isEmpty() && !this.sws.writeQueueFull() && !this.sws.isClosed()) {
+            write(queue.poll().message);
+        }
+    }
+
+    private boolean evictLowPriorityMessage() {
+        Iterator<OutgoingMessage> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().lowPriority) {
+                it.remove();
+                droppedMessages++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(String message) {
+        WsMessageEmitted evt =
+                new WsMessageEmitted(
+                        sws.remoteAddress().host(),
+                        sws.remoteAddress().port(),
+                        sws.uri(),
+                        message.length());
+        evt.begin();
+
+        try {
+            this.sws.writeTextMessage(message);
+
+        } catch (Exception e) {
+            logger.warn(e);
+            evt.setExceptionThrown(true);
+
+        } finally {
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
             }
         }
     }
@@ -94,6 +178,16 @@ class WsClient implements AutoCloseable {
         }
     }
 
+    private static class OutgoingMessage {
+        final boolean lowPriority;
+        final String message;
+
+        OutgoingMessage(boolean lowPriority, String message) {
+            this.lowPriority = lowPriority;
+            this.message = message;
+        }
+    }
+
     @Name("io.cryostat.messaging.WsClient.WsMessageEmitted")
     @Label("WebSocket Message Emitted")
     @Category("Cryostat")
@@ -119,4 +213,24 @@ class WsClient implements AutoCloseable {
             this.exceptionThrown = exceptionThrown;
         }
     }
+
+    @Name("io.cryostat.messaging.WsClient.WsClientQueue")
+    @Label("WebSocket Client Notification Queue")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "Event fields are recorded with JFR instead of accessed directly")
+    public static class WsClientQueue extends Event {
+        String host;
+        int port;
+        int queueDepth;
+        long droppedMessages;
+
+        public WsClientQueue(String host, int port, int queueDepth, long droppedMessages) {
+            this.host = host;
+            this.port = port;
+            this.queueDepth = queueDepth;
+            this.droppedMessages = droppedMessages;
+        }
+    }
 }
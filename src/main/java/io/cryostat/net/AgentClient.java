@@ -15,6 +15,8 @@
  */
 package io.cryostat.net;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.Duration;
 import java.util.Collection;
@@ -23,8 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.script.ScriptException;
 
@@ -50,7 +54,9 @@ import io.cryostat.util.HttpStatusCodeIdentifier;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonArray;
@@ -59,7 +65,13 @@ import io.vertx.ext.auth.authentication.UsernamePasswordCredentials;
 import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.client.predicate.ResponsePredicateResult;
 import io.vertx.ext.web.codec.BodyCodec;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 import jdk.jfr.RecordingState;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -67,6 +79,10 @@ import org.apache.http.auth.InvalidCredentialsException;
 
 public class AgentClient {
     public static final String NULL_CREDENTIALS = "No credentials found for agent";
+    static final long STREAM_BUFFER_BYTES = 4 * 1024 * 1024;
+    // the reader may hold a recording stream's response paused for a while, so once the Agent has
+    // responded its idle timeout only needs to catch an Agent which stops sending
+    static final Duration STREAM_IDLE_TIMEOUT = Duration.ofMinutes(5);
 
     private final ExecutorService executor;
     private final Gson gson;
@@ -75,6 +91,13 @@ public class AgentClient {
     private final CredentialsManager credentialsManager;
     private final URI agentUri;
     private final Logger logger;
+    // incremented whenever stored credentials are added or removed
+    private final AtomicLong credentialsGeneration;
+    // resolved once per session, since a lookup scans every discovered service and may evaluate
+    // every stored credentials match expression. Reset if the Agent rejects the credentials or the
+    // stored credentials change
+    private volatile Future<Credentials> credentials;
+    private volatile long credentialsResolvedGeneration;
 
     AgentClient(
             ExecutorService executor,
@@ -82,6 +105,7 @@ public class AgentClient {
             long httpTimeout,
             WebClient webClient,
             CredentialsManager credentialsManager,
+            AtomicLong credentialsGeneration,
             URI agentUri,
             Logger logger) {
         this.executor = executor;
@@ -89,6 +113,7 @@ public class AgentClient {
         this.httpTimeout = httpTimeout;
         this.webClient = webClient;
         this.credentialsManager = credentialsManager;
+        this.credentialsGeneration = credentialsGeneration;
         this.agentUri = agentUri;
         this.logger = logger;
     }
@@ -193,21 +218,90 @@ public class AgentClient {
                 });
     }
 
-    Future<Buffer> openStream(long id) {
-        Future<HttpResponse<Buffer>> f =
-                invoke(HttpMethod.GET, "/recordings/" + id, BodyCodec.buffer());
-        return f.map(
-                resp -> {
-                    int statusCode = resp.statusCode();
-                    if (HttpStatusCodeIdentifier.isSuccessCode(statusCode)) {
-                        return resp.body();
-                    } else if (statusCode == 403) {
-                        throw new AuthorizationErrorException(
-                                new UnsupportedOperationException("openStream"));
-                    } else {
-                        throw new AgentApiException(statusCode);
-                    }
-                });
+    /**
+     * Open a stream of the recording's data. The returned future completes as soon as the Agent
+     * responds with a success status, before the body has been received. The body is then piped
+     * into the returned stream with backpressure, so at most {@code STREAM_BUFFER_BYTES} of the
+     * recording are held in memory at a time. Failures after this point are reported to the
+     * reader as an {@link IOException}. The configured HTTP timeout applies until the
+     * response headers arrive, and {@code STREAM_IDLE_TIMEOUT} applies to the body.
+     */
+    Future<InputStream> openStream(long id) {
+        String path = "/recordings/" + id;
+        AgentRequest evt = new AgentRequest(agentUri.toString(), HttpMethod.GET.name(), path);
+        evt.begin();
+        BoundedBufferPipe pipe = new BoundedBufferPipe(STREAM_BUFFER_BYTES);
+        Promise<Integer> status = Promise.promise();
+        // predicates are evaluated once the status line and headers arrive, before any of the
+        // body is piped
+        ResponsePredicate expectSuccess =
+                ResponsePredicate.create(
+                        resp -> {
+                            status.tryComplete(resp.statusCode());
+                            return HttpStatusCodeIdentifier.isSuccessCode(resp.statusCode())
+                                    ? ResponsePredicateResult.success()
+                                    : ResponsePredicateResult.failure("openStream");
+                        });
+        getCredentials()
+                .compose(
+                        c ->
+                                prepareRequest(
+                                                HttpMethod.GET,
+                                                path,
+                                                BodyCodec.pipe(pipe, false),
+                                                c,
+                                                STREAM_IDLE_TIMEOUT.toMillis())
+                                        .expect(expectSuccess)
+                                        .send())
+                .onComplete(
+                        ar -> {
+                            if (ar.succeeded()) {
+                                pipe.end();
+                            } else {
+                                status.tryFail(ar.cause());
+                                pipe.fail(ar.cause());
+                                evt.setFailed(true);
+                            }
+                            // the event covers the whole transfer, including time spent waiting
+                            // for the reader
+                            evt.end();
+                            if (evt.shouldCommit()) {
+                                evt.commit();
+                            }
+                        });
+        CompletableFuture.delayedExecutor(httpTimeout, TimeUnit.SECONDS, executor)
+                .execute(
+                        () -> {
+                            TimeoutException e =
+                                    new TimeoutException(
+                                            String.format(
+                                                    "No response from %s within %ds",
+                                                    agentUri, httpTimeout));
+                            if (status.tryFail(e)) {
+                                evt.setFailed(true);
+                                // nobody will read the stream, so discard the body if the Agent
+                                // does respond after all
+                                try {
+                                    pipe.inputStream().close();
+                                } catch (IOException ioe) {
+                                    logger.warn(ioe);
+                                }
+                            }
+                        });
+        return status.future()
+                .map(
+                        statusCode -> {
+                            onResponse(statusCode);
+                            evt.setStatusCode(statusCode);
+                            if (HttpStatusCodeIdentifier.isSuccessCode(statusCode)) {
+                                return pipe.inputStream();
+                            } else if (statusCode == 403) {
+                                throw new AuthorizationErrorException(
+                                        new UnsupportedOperationException("openStream"));
+                            } else {
+                                throw new AgentApiException(statusCode);
+                            }
+                        });
     }
 
     Future<Void> stopRecording(long id) {
@@ -357,65 +451,99 @@ public class AgentClient {
 
     private <T> Future<HttpResponse<T>> invoke(
             HttpMethod mtd, String path, Buffer payload, BodyCodec<T> codec) {
-        return Future.fromCompletionStage(
-                CompletableFuture.supplyAsync(
-                                () -> {
-                                    logger.info("{} {} {}", mtd, agentUri, path);
-                                    HttpRequest<T> req =
-                                            webClient
-                                                    .request(
-                                                            mtd,
-                                                            agentUri.getPort(),
-                                                            agentUri.getHost(),
-                                                            path)
-                                                    .ssl("https".equals(agentUri.getScheme()))
-                                                    .timeout(
-                                                            Duration.ofSeconds(httpTimeout)
-                                                                    .toMillis())
-                                                    .followRedirects(true)
-                                                    .as(codec);
-                                    try {
-                                        Credentials credentials =
-                                                credentialsManager.getCredentialsByTargetId(
-                                                        agentUri.toString());
-                                        if (credentials == null
-                                                || credentials.getUsername() == null
-                                                || credentials.getPassword() == null) {
-                                            throw new InvalidCredentialsException(
-                                                    NULL_CREDENTIALS + " " + agentUri);
-                                        }
-                                        req =
-                                                req.authentication(
-                                                        new UsernamePasswordCredentials(
-                                                                credentials.getUsername(),
-                                                                credentials.getPassword()));
-                                    } catch (ScriptException | InvalidCredentialsException e) {
-                                        logger.error(e);
-                                        throw new IllegalStateException(e);
-                                    }
-
-                                    try {
-                                        if (payload != null) {
-                                            return req.sendBuffer(payload)
-                                                    .toCompletionStage()
-                                                    .toCompletableFuture()
-                                                    .get();
-                                        } else {
-                                            return req.send()
-                                                    .toCompletionStage()
-                                                    .toCompletableFuture()
-                                                    .get();
-                                        }
-                                    } catch (InterruptedException | ExecutionException e) {
-                                        logger.error(e);
-                                        throw new RuntimeException(e);
-                                    }
-                                },
-                                executor)
-                        .exceptionally(
-                                t -> {
-                                    throw new RuntimeException(t);
-                                }));
+        AgentRequest evt = new AgentRequest(agentUri.toString(), mtd.name(), path);
+        evt.begin();
+        return getCredentials()
+                .compose(
+                        c -> {
+                            HttpRequest<T> req = prepareRequest(mtd, path, codec, c);
+                            return payload != null ? req.sendBuffer(payload) : req.send();
+                        })
+                .onComplete(
+                        ar -> {
+                            if (ar.succeeded()) {
+                                onResponse(ar.result().statusCode());
+                                evt.setStatusCode(ar.result().statusCode());
+                            } else {
+                                logger.error(ar.cause());
+                                evt.setFailed(true);
+                            }
+                            evt.end();
+                            if (evt.shouldCommit()) {
+                                evt.commit();
+                            }
+                        });
+    }
+
+    private Future<Credentials> getCredentials() {
+        // read before the lookup, so that a change during the lookup causes another one next time
+        long generation = credentialsGeneration.get();
+        Future<Credentials> f = credentials;
+        if (f == null || credentialsResolvedGeneration != generation) {
+            synchronized (this) {
+                f = credentials;
+                if (f == null || credentialsResolvedGeneration != generation) {
+                    // credentials lookups may evaluate scripts, so keep them off the event loop
+                    f =
+                            Future.fromCompletionStage(
+                                    CompletableFuture.supplyAsync(
+                                            this::lookupCredentials, executor));
+                    f.onFailure(t -> invalidateCredentials());
+                    credentials = f;
+                    credentialsResolvedGeneration = generation;
+                }
+            }
+        }
+        return f;
+    }
+
+    private Credentials lookupCredentials() {
+        try {
+            Credentials c = credentialsManager.getCredentialsByTargetId(agentUri.toString());
+            if (c == null || c.getUsername() == null || c.getPassword() == null) {
+                throw new InvalidCredentialsException(NULL_CREDENTIALS + " " + agentUri);
+            }
+            return c;
+        } catch (ScriptException | InvalidCredentialsException e) {
+            logger.error(e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void invalidateCredentials() {
+        credentials = null;
+    }
+
+    private void onResponse(int statusCode) {
+        if (statusCode == 401) {
+            // stored credentials may have been changed since they were resolved for this session
+            invalidateCredentials();
+        }
+    }
+
+    private <T> HttpRequest<T> prepareRequest(
+            HttpMethod mtd, String path, BodyCodec<T> codec, Credentials credentials) {
+        return prepareRequest(
+                mtd, path, codec, credentials, Duration.ofSeconds(httpTimeout).toMillis());
+    }
+
+    private <T> HttpRequest<T> prepareRequest(
+            HttpMethod mtd,
+            String path,
+            BodyCodec<T> codec,
+            Credentials credentials,
+            long idleTimeoutMs) {
+        logger.info("{} {} {}", mtd, agentUri, path);
+        return webClient
+                .request(mtd, agentUri.getPort(), agentUri.getHost(), path)
+                .ssl("https".equals(agentUri.getScheme()))
+                // an idle timeout, which restarts whenever any part of the response arrives
+                .timeout(idleTimeoutMs)
+                .followRedirects(true)
+                .authentication(
+                        new UsernamePasswordCredentials(
+                                credentials.getUsername(), credentials.getPassword()))
+                .as(codec);
     }
 
     static class Factory {
@@ -424,27 +552,40 @@ public class AgentClient {
         private final Gson gson;
         private final long httpTimeout;
         private final WebClient webClient;
+        private final WebClient tlsWebClient;
         private final CredentialsManager credentialsManager;
         private final Logger logger;
+        private final AtomicLong credentialsGeneration = new AtomicLong();
 
         Factory(
                 ExecutorService executor,
                 Gson gson,
                 long httpTimeout,
                 WebClient webClient,
+                WebClient tlsWebClient,
                 CredentialsManager credentialsManager,
                 Logger logger) {
             this.executor = executor;
             this.gson = gson;
             this.httpTimeout = httpTimeout;
             this.webClient = webClient;
+            this.tlsWebClient = tlsWebClient;
             this.credentialsManager = credentialsManager;
             this.logger = logger;
+            // one listener for all clients, since clients come and go with their connections
+            credentialsManager.addListener(e -> credentialsGeneration.incrementAndGet());
         }
 
         AgentClient create(URI agentUri) {
             return new AgentClient(
-                    executor, gson, httpTimeout, webClient, credentialsManager, agentUri, logger);
+                    executor,
+                    gson,
+                    httpTimeout,
+                    "https".equals(agentUri.getScheme()) ? tlsWebClient : webClient,
+                    credentialsManager,
+                    credentialsGeneration,
+                    agentUri,
+                    logger);
         }
     }
 
@@ -526,4 +667,32 @@ public class AgentClient {
             return getOptionDescriptors().get(s);
         }
     }
+
+    @Name("io.cryostat.net.AgentClient.AgentRequest")
+    @Label("Agent Request")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class AgentRequest extends Event {
+        String agentUri;
+        String method;
+        String path;
+        int statusCode;
+        boolean failed;
+
+        AgentRequest(String agentUri, String method, String path) {
+            this.agentUri = agentUri;
+            this.method = method;
+            this.path = path;
+        }
+
+        void setStatusCode(int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        void setFailed(boolean failed) {
+            this.failed = failed;
+        }
+    }
 }
@@ -16,7 +16,6 @@
 package io.cryostat.net;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
@@ -54,7 +53,6 @@ import io.cryostat.core.templates.Template;
 import io.cryostat.core.templates.TemplateType;
 
 import io.vertx.core.Future;
-import io.vertx.core.buffer.Buffer;
 import org.jsoup.nodes.Document;
 
 class AgentJFRService implements CryostatFlightRecorderService {
@@ -196,10 +194,9 @@ class AgentJFRService implements CryostatFlightRecorderService {
     @Override
     public InputStream openStream(IRecordingDescriptor descriptor, boolean removeOnClose)
             throws FlightRecorderException {
-        Future<Buffer> f = client.openStream(descriptor.getId());
+        Future<InputStream> f = client.openStream(descriptor.getId());
         try {
-            Buffer b = f.toCompletionStage().toCompletableFuture().get();
-            return new BufferedInputStream(new ByteArrayInputStream(b.getBytes()));
+            return new BufferedInputStream(f.toCompletionStage().toCompletableFuture().get());
         } catch (ExecutionException | InterruptedException e) {
             logger.warn(e);
             throw new FlightRecorderException("Failed to open remote recording stream", e);
@@ -210,7 +207,9 @@ class AgentJFRService implements CryostatFlightRecorderService {
     public InputStream openStream(
             IRecordingDescriptor descriptor, IQuantity lastPartDuration, boolean removeOnClose)
             throws FlightRecorderException {
-        throw new UnimplementedException();
+        IQuantity endTime = UnitLookup.EPOCH_MS.quantity(System.currentTimeMillis());
+        IQuantity startTime = endTime.subtract(lastPartDuration);
+        return openStream(descriptor, startTime, endTime, removeOnClose);
     }
 
     @Override
@@ -220,7 +219,13 @@ class AgentJFRService implements CryostatFlightRecorderService {
             IQuantity endTime,
             boolean removeOnClose)
             throws FlightRecorderException {
-        throw new UnimplementedException();
+        // the Agent API only serves whole recordings, so the range is applied while streaming.
+        // Like the JMX implementation, the range is only as precise as the recording's chunks
+        return new BufferedInputStream(
+                new JfrChunkRangeInputStream(
+                        openStream(descriptor, removeOnClose),
+                        startTime.clampedLongValueIn(UnitLookup.EPOCH_NS),
+                        endTime.clampedLongValueIn(UnitLookup.EPOCH_NS)));
     }
 
     @Override
@@ -0,0 +1,226 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * A {@link WriteStream} which hands written buffers over to a blocking {@link InputStream} reader.
+ * The writer is told that the queue is full once {@code maxQueuedBytes} are waiting to be read,
+ * and its drain handler is called once the reader has consumed half of that, so memory use stays
+ * flat regardless of the total length of the stream.
+ */
+class BoundedBufferPipe implements WriteStream<Buffer> {
+
+    // compared by identity
+    private static final Buffer EOF = Buffer.buffer(0);
+
+    private final BlockingQueue<Buffer> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final InputStream inputStream = new PipeInputStream();
+    private volatile long maxQueuedBytes;
+    private volatile Throwable failure;
+    private volatile boolean readerClosed;
+    private boolean drainPending;
+    private Handler<Void> drainHandler;
+    private Context drainContext;
+
+    BoundedBufferPipe(long maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    InputStream inputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Ends the stream abnormally. The reader receives an {@link IOException} once it has consumed
+     * any data written before the failure, rather than a truncated stream.
+     */
+    void fail(Throwable t) {
+        failure = t;
+        queue.add(EOF);
+    }
+
+    @Override
+    public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+        if (!readerClosed && data.length() > 0) {
+            queuedBytes.addAndGet(data.length());
+            queue.add(data);
+        }
+        return Future.succeededFuture();
+    }
+
+    @Override
+    public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+        Future<Void> f = write(data);
+        if (handler != null) {
+            handler.handle(f);
+        }
+    }
+
+    @Override
+    public Future<Void> end() {
+        queue.add(EOF);
+        return Future.succeededFuture();
+    }
+
+    @Override
+    public void end(Handler<AsyncResult<Void>> handler) {
+        Future<Void> f = end();
+        if (handler != null) {
+            handler.handle(f);
+        }
+    }
+
+    @Override
+    public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+        this.maxQueuedBytes = maxSize;
+        return this;
+    }
+
+    @Override
+    public synchronized boolean writeQueueFull() {
+        boolean full = !readerClosed && queuedBytes.get() >= maxQueuedBytes;
+        if (full) {
+            drainPending = true;
+        }
+        return full;
+    }
+
+    @Override
+    public synchronized WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+        this.drainHandler = handler;
+        this.drainContext = Vertx.currentContext();
+        return this;
+    }
+
+    private void release(long bytes) {
+        long remaining = queuedBytes.addAndGet(-bytes);
+        Handler<Void> handler;
+        Context context;
+        synchronized (this) {
+            if (!drainPending || (!readerClosed && remaining > maxQueuedBytes / 2)) {
+                return;
+            }
+            drainPending = false;
+            handler = drainHandler;
+            context = drainContext;
+        }
+        if (handler == null) {
+            return;
+        }
+        if (context != null) {
+            context.runOnContext(handler);
+        } else {
+            handler.handle(null);
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+        private Buffer current;
+        private int position;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length() - position);
+            current.getBytes(position, position + n, b, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current == null || current == EOF ? 0 : current.length() - position;
+        }
+
+        @Override
+        public void close() {
+            if (readerClosed) {
+                return;
+            }
+            readerClosed = true;
+            // anything still in flight is discarded by write(), so let the writer finish
+            Buffer b;
+            while ((b = queue.poll()) != null) {
+                if (b != EOF) {
+                    queuedBytes.addAndGet(-b.length());
+                }
+            }
+            release(0);
+        }
+
+        private boolean fill() throws IOException {
+            if (readerClosed) {
+                throw new IOException("Stream closed");
+            }
+            while (current == null || position >= current.length()) {
+                if (current == EOF) {
+                    if (failure != null) {
+                        throw new IOException(failure);
+                    }
+                    return false;
+                }
+                Buffer next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                if (next == EOF) {
+                    current = EOF;
+                    continue;
+                }
+                release(next.length());
+                current = next;
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
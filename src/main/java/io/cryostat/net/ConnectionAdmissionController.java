@@ -0,0 +1,177 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.core.log.Logger;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Limits the number of open target connections. A request for a connection while the limit is
+ * reached is queued rather than blocking a thread, and is admitted when a connection is closed.
+ * Queued requests are admitted in {@link Priority} order, then in the order they arrived. Whenever
+ * a request has to queue, the pressure callback is invoked so that an idle connection can be
+ * closed to make room. Each admission is recorded as a {@link ConnectionAdmission} event whose
+ * duration is the time spent in the queue.
+ */
+class ConnectionAdmissionController {
+
+    enum Priority {
+        // declared from highest to lowest priority
+        INTERACTIVE,
+        BACKGROUND,
+    }
+
+    private final Duration timeout;
+    private final Runnable onPressure;
+    private final Logger logger;
+
+    private final PriorityQueue<Waiter> queue;
+    private int available;
+    private long sequence;
+
+    ConnectionAdmissionController(
+            int maxConnections, Duration timeout, Runnable onPressure, Logger logger) {
+        this.timeout = timeout;
+        this.onPressure = onPressure;
+        this.logger = logger;
+        this.queue = new PriorityQueue<>();
+        this.available = maxConnections;
+    }
+
+    /**
+     * @return a future which completes once the caller may open a connection, or fails with a
+     *     {@link java.util.concurrent.TimeoutException} if no connection became available in time.
+     *     A caller which was admitted must eventually {@link #release()}.
+     */
+    CompletableFuture<Void> acquire(Priority priority) {
+        Waiter waiter;
+        int depth;
+        synchronized (this) {
+            if (available > 0 && queue.isEmpty()) {
+                available--;
+                ConnectionAdmission evt = new ConnectionAdmission(priority.name(), 0);
+                if (evt.shouldCommit()) {
+                    evt.commit();
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+            waiter = new Waiter(priority, sequence++);
+            queue.add(waiter);
+            depth = queue.size();
+        }
+        logger.trace("Connection request queued at {} priority, queue depth {}", priority, depth);
+        ConnectionAdmission evt = new ConnectionAdmission(priority.name(), depth);
+        evt.begin();
+        onPressure.run();
+        return waiter.future
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete(
+                        (v, t) -> {
+                            if (t != null) {
+                                synchronized (this) {
+                                    queue.remove(waiter);
+                                }
+                                evt.setTimedOut(true);
+                            }
+                            evt.end();
+                            if (evt.shouldCommit()) {
+                                evt.commit();
+                            }
+                        });
+    }
+
+    /** Return a connection slot, admitting the next queued request if there is one. */
+    void release() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = queue.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            }
+            // a waiter which already timed out cannot take the slot, so offer it to the next one
+            if (next.future.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    /** @return true if a connection could currently be opened without queueing */
+    synchronized boolean hasAvailable() {
+        return available > 0 && queue.isEmpty();
+    }
+
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    @SuppressFBWarnings(
+            value = "EQ_COMPARETO_USE_OBJECT_EQUALS",
+            justification = "Waiters are only ever removed from the queue by identity")
+    private static class Waiter implements Comparable<Waiter> {
+        final Priority priority;
+        final long sequence;
+        final CompletableFuture<Void> future;
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.future = new CompletableFuture<>();
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            int c = priority.compareTo(o.priority);
+            if (c != 0) {
+                return c;
+            }
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+
+    @Name("io.cryostat.net.ConnectionAdmissionController.ConnectionAdmission")
+    @Label("Target Connection Admission")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class ConnectionAdmission extends Event {
+        String priority;
+        int queueDepth;
+        boolean timedOut;
+
+        ConnectionAdmission(String priority, int queueDepth) {
+            this.priority = priority;
+            this.queueDepth = queueDepth;
+        }
+
+        void setTimedOut(boolean timedOut) {
+            this.timedOut = timedOut;
+        }
+    }
+}
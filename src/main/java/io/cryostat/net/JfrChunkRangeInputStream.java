@@ -0,0 +1,139 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Passes through only those chunks of a JFR recording stream which overlap a time range, similar
+ * to the chunk-granular ranges supported by the FlightRecorderMXBean. Chunks are read one header
+ * at a time, so the recording is never held in memory.
+ */
+class JfrChunkRangeInputStream extends FilterInputStream {
+
+    private static final byte[] MAGIC = {'F', 'L', 'R', 0};
+    // magic, major, minor, chunk size, constant pool offset, metadata offset, start nanos, duration
+    static final int HEADER_PREFIX_LENGTH = 48;
+
+    private final long startNanos;
+    private final long endNanos;
+    private byte[] header;
+    private int headerPosition;
+    private long remaining;
+
+    /**
+     * @param in the complete JFR recording stream
+     * @param startNanos the start of the range, in nanoseconds since the epoch
+     * @param endNanos the end of the range, in nanoseconds since the epoch
+     */
+    JfrChunkRangeInputStream(InputStream in, long startNanos, long endNanos) {
+        super(in);
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (header != null && headerPosition < header.length) {
+                int n = Math.min(len, header.length - headerPosition);
+                System.arraycopy(header, headerPosition, b, off, n);
+                headerPosition += n;
+                return n;
+            }
+            if (remaining > 0) {
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n < 0) {
+                    throw new EOFException("Truncated JFR chunk");
+                }
+                remaining -= n;
+                return n;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] discard = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(discard, 0, (int) Math.min(discard.length, n - skipped));
+            if (r < 0) {
+                break;
+            }
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (header != null && headerPosition < header.length) {
+            return header.length - headerPosition;
+        }
+        return (int) Math.min(remaining, in.available());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private boolean nextChunk() throws IOException {
+        byte[] h = new byte[HEADER_PREFIX_LENGTH];
+        int n = in.readNBytes(h, 0, h.length);
+        if (n == 0) {
+            return false;
+        }
+        if (n < h.length || !Arrays.equals(MAGIC, Arrays.copyOf(h, MAGIC.length))) {
+            throw new IOException("Invalid JFR chunk header");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(h);
+        long size = buf.getLong(8);
+        long chunkStart = buf.getLong(32);
+        long chunkDuration = buf.getLong(40);
+        if (size < HEADER_PREFIX_LENGTH) {
+            throw new IOException("Invalid JFR chunk size " + size);
+        }
+        long body = size - HEADER_PREFIX_LENGTH;
+        if (chunkStart <= endNanos && chunkStart + chunkDuration >= startNanos) {
+            header = h;
+            headerPosition = 0;
+            remaining = body;
+        } else {
+            in.skipNBytes(body);
+        }
+        return true;
+    }
+}
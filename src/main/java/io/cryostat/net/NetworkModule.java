@@ -49,6 +49,7 @@ import dagger.Provides;
 import dagger.multibindings.IntoSet;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 
@@ -61,6 +62,9 @@ import io.vertx.ext.web.client.WebClientOptions;
         })
 public abstract class NetworkModule {
 
+    public static final String AGENT_WEB_CLIENT = "AGENT_WEB_CLIENT";
+    public static final String AGENT_TLS_WEB_CLIENT = "AGENT_TLS_WEB_CLIENT";
+
     @Provides
     @Singleton
     static HttpServer provideHttpServer(
@@ -94,6 +98,27 @@ public abstract class NetworkModule {
                 Math.max(1, Integer.parseInt(env.getEnv(Variables.TARGET_CACHE_TTL, "10"))));
     }
 
+    @Provides
+    @Named(Variables.TARGET_LOCK_TIMEOUT_MS)
+    static Duration provideTargetLockTimeout(Environment env) {
+        return Duration.ofMillis(
+                Math.max(1, Long.parseLong(env.getEnv(Variables.TARGET_LOCK_TIMEOUT_MS, "60000"))));
+    }
+
+    @Provides
+    @Named(Variables.TARGET_KEEPALIVE_PERIOD_MS)
+    static Duration provideTargetKeepAlivePeriod(Environment env) {
+        String period = env.getEnv(Variables.TARGET_KEEPALIVE_PERIOD_MS, "5000");
+        return Duration.ofMillis(Math.max(0, Long.parseLong(period)));
+    }
+
+    @Provides
+    @Named(Variables.TARGET_DEMAND_WINDOW_MS)
+    static Duration provideTargetDemandWindow(Environment env) {
+        String window = env.getEnv(Variables.TARGET_DEMAND_WINDOW_MS, "60000");
+        return Duration.ofMillis(Math.max(0, Long.parseLong(window)));
+    }
+
     @Provides
     @Singleton
     static AgentConnection.Factory provideAgentConnectionFactory(
@@ -110,7 +135,8 @@ public abstract class NetworkModule {
     static AgentClient.Factory provideAgentClientFactory(
             Gson gson,
             @Named(HttpModule.HTTP_REQUEST_TIMEOUT_SECONDS) long httpTimeout,
-            WebClient webClient,
+            @Named(AGENT_WEB_CLIENT) WebClient webClient,
+            @Named(AGENT_TLS_WEB_CLIENT) WebClient tlsWebClient,
             CredentialsManager credentialsManager,
             Logger logger) {
         return new AgentClient.Factory(
@@ -118,6 +144,7 @@ public abstract class NetworkModule {
                 gson,
                 httpTimeout,
                 webClient,
+                tlsWebClient,
                 credentialsManager,
                 logger);
     }
@@ -131,6 +158,9 @@ public abstract class NetworkModule {
             @Named(Variables.TARGET_CACHE_TTL) Duration maxTargetTtl,
             @Named(Variables.TARGET_MAX_CONCURRENT_CONNECTIONS) int maxTargetConnections,
             @Named(Variables.JMX_CONNECTION_TIMEOUT) long connectionTimeoutSeconds,
+            @Named(Variables.TARGET_LOCK_TIMEOUT_MS) Duration lockTimeout,
+            @Named(Variables.TARGET_KEEPALIVE_PERIOD_MS) Duration keepAlivePeriod,
+            @Named(Variables.TARGET_DEMAND_WINDOW_MS) Duration demandWindow,
             Logger logger) {
         return new TargetConnectionManager(
                 connectionToolkit,
@@ -141,6 +171,9 @@ public abstract class NetworkModule {
                 maxTargetTtl,
                 maxTargetConnections,
                 connectionTimeoutSeconds,
+                lockTimeout,
+                keepAlivePeriod,
+                demandWindow,
                 logger);
     }
 
@@ -181,6 +214,49 @@ public abstract class NetworkModule {
         }
     }
 
+    @Provides
+    @Singleton
+    @Named(AGENT_WEB_CLIENT)
+    static WebClient provideAgentWebClient(
+            Vertx vertx, NetworkConfiguration netConf, Environment env) {
+        // Agents are reached over plain HTTP/1.1 unless they use TLS. Over plaintext HTTP/2 could
+        // only be offered by an h2c upgrade, which the Agent's JDK HttpServer is not known to
+        // handle, or assumed with prior knowledge, which HTTP/1.1-only Agents would reject
+        return WebClient.create(vertx, agentWebClientOptions(netConf, env));
+    }
+
+    @Provides
+    @Singleton
+    @Named(AGENT_TLS_WEB_CLIENT)
+    static WebClient provideAgentTlsWebClient(
+            Vertx vertx, NetworkConfiguration netConf, Environment env) {
+        // HTTP/2 is negotiated by ALPN during the TLS handshake, so Agents which do not select it
+        // stay on HTTP/1.1. Those which do have their requests multiplexed over one connection
+        WebClientOptions opts =
+                agentWebClientOptions(netConf, env)
+                        .setProtocolVersion(HttpVersion.HTTP_2)
+                        .setUseAlpn(true)
+                        .setHttp2MaxPoolSize(1);
+        return WebClient.create(vertx, opts);
+    }
+
+    private static WebClientOptions agentWebClientOptions(
+            NetworkConfiguration netConf, Environment env) {
+        String n = env.getEnv(Variables.AGENT_HTTP_POOL_SIZE, "4");
+        int poolSize = Math.max(1, Integer.parseInt(n));
+        // Connections are kept alive and pooled per Agent
+        WebClientOptions opts =
+                new WebClientOptions()
+                        .setKeepAlive(true)
+                        .setMaxPoolSize(poolSize)
+                        .setFollowRedirects(true)
+                        .setTryUseCompression(true);
+        if (netConf.isUntrustedSslAllowed()) {
+            opts = opts.setTrustAll(true).setVerifyHost(false);
+        }
+        return opts;
+    }
+
     @Provides
     @Singleton
     static SslConfiguration provideSslConfiguration(Environment env, FileSystem fs, Logger logger) {
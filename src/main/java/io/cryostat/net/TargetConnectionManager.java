@@ -19,6 +19,7 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -27,8 +28,11 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,6 +43,7 @@ import io.cryostat.core.net.Credentials;
 import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.net.JFRConnectionToolkit;
 import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
+import io.cryostat.net.ConnectionAdmissionController.Priority;
 import io.cryostat.platform.PlatformClient;
 
 import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
@@ -52,21 +57,33 @@ import jdk.jfr.Category;
 import jdk.jfr.Event;
 import jdk.jfr.Label;
 import jdk.jfr.Name;
+import jdk.jfr.Timespan;
 
 public class TargetConnectionManager {
 
     public static final Pattern HOST_PORT_PAIR_PATTERN =
             Pattern.compile("^([^:\\s]+)(?::(\\d{1,5}))?$");
+    // a connection which was only just opened or used is likely about to be used again
+    static final Duration MIN_IDLE_TIME = Duration.ofSeconds(1);
 
     private final Lazy<JFRConnectionToolkit> jfrConnectionToolkit;
     private final Lazy<AgentConnection.Factory> agentConnectionFactory;
     private final Executor executor;
+    private final Scheduler scheduler;
     private final long connectionTimeoutSeconds;
+    private final Duration lockTimeout;
+    private final Duration keepAlivePeriod;
+    private final Duration demandWindow;
     private final Logger logger;
 
     private final AsyncLoadingCache<ConnectionDescriptor, JFRConnection> connections;
-    private final Map<String, Object> targetLocks;
-    private final Optional<Semaphore> semaphore;
+    private final Map<String, ReentrantReadWriteLock> targetLocks;
+    private final Optional<ConnectionAdmissionController> admission;
+    // System.nanoTime() of the most recent task for each connection
+    private final Map<ConnectionDescriptor, Long> lastDemand;
+    private final Map<String, ConnectionStats> stats;
+    // System.nanoTime() of the start of the previous keep-alive pass
+    private volatile long lastPass = System.nanoTime();
 
     TargetConnectionManager(
             Lazy<JFRConnectionToolkit> jfrConnectionToolkit,
@@ -77,18 +94,36 @@ public class TargetConnectionManager {
             Duration ttl,
             int maxTargetConnections,
             long connectionTimeoutSeconds,
+            Duration lockTimeout,
+            Duration keepAlivePeriod,
+            Duration demandWindow,
             Logger logger) {
         this.jfrConnectionToolkit = jfrConnectionToolkit;
         this.agentConnectionFactory = agentConnectionFactory;
         this.executor = executor;
+        this.scheduler = scheduler;
         this.connectionTimeoutSeconds = connectionTimeoutSeconds;
+        this.lockTimeout = lockTimeout;
+        this.keepAlivePeriod = keepAlivePeriod;
+        this.demandWindow = demandWindow;
         this.logger = logger;
 
         this.targetLocks = new ConcurrentHashMap<>();
+        this.lastDemand = new ConcurrentHashMap<>();
+        this.stats = new ConcurrentHashMap<>();
         if (maxTargetConnections > 0) {
-            this.semaphore = Optional.of(new Semaphore(maxTargetConnections, true));
+            this.admission =
+                    Optional.of(
+                            new ConnectionAdmissionController(
+                                    maxTargetConnections,
+                                    lockTimeout,
+                                    // the callback runs inside the cache's mapping function for
+                                    // the queued connection, where other entries must not be
+                                    // invalidated
+                                    () -> executor.execute(this::closeIdleConnection),
+                                    logger));
         } else {
-            this.semaphore = Optional.empty();
+            this.admission = Optional.empty();
         }
 
         Caffeine<ConnectionDescriptor, JFRConnection> cacheBuilder =
@@ -111,44 +146,316 @@ public class TargetConnectionManager {
         platform.addTargetDiscoveryListener(
                 tde -> {
                     if (EventKind.LOST.equals(tde.getEventKind())) {
+                        String targetId = tde.getServiceRef().getServiceUri().toString();
+                        // don't let the keep-alive reconnect to a target which is gone
+                        lastDemand.keySet().removeIf(cd -> cd.getTargetId().equals(targetId));
                         for (ConnectionDescriptor cd : connections.asMap().keySet()) {
-                            if (Objects.equals(
-                                    cd.getTargetId(),
-                                    tde.getServiceRef().getServiceUri().toString())) {
+                            if (Objects.equals(cd.getTargetId(), targetId)) {
                                 connections.synchronous().invalidate(cd);
                             }
                         }
                     }
                 });
+
+        if (!keepAlivePeriod.isZero()) {
+            scheduleKeepAlive();
+        }
     }
 
+    /**
+     * Execute a task against the target's connection on the executor. The task does not hold the
+     * target's lock while it runs, so it may itself call {@link #executeConnectedTask} or start
+     * work on other threads which does. This is meant for background work, so if a new connection
+     * must be opened while the connection limit is reached it is queued behind synchronous tasks.
+     */
     public <T> CompletableFuture<T> executeConnectedTaskAsync(
             ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task) {
-        synchronized (
-                targetLocks.computeIfAbsent(
-                        connectionDescriptor.getTargetId(), k -> new Object())) {
-            return connections
-                    .get(connectionDescriptor)
-                    .thenApplyAsync(
-                            conn -> {
+        return getConnection(connectionDescriptor, Priority.BACKGROUND)
+                .thenApplyAsync(
+                        conn -> {
+                            try {
+                                return task.execute(conn);
+                            } catch (Exception e) {
+                                logger.error(e);
+                                throw new CompletionException(e);
+                            }
+                        },
+                        executor)
+                .orTimeout(connectionTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Execute a task which may modify the target, such as starting, stopping or updating a
+     * recording. The task has exclusive access to the target and waits for any other tasks against
+     * the same target to finish first.
+     */
+    public <T> T executeConnectedTask(
+            ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task) throws Exception {
+        return executeLocked(connectionDescriptor, task, false);
+    }
+
+    /**
+     * Execute a task which only reads from the target, such as listing recordings or events or
+     * reading a recording stream. Read-only tasks against the same target may run concurrently
+     * with each other, but not with a task submitted through {@link #executeConnectedTask}.
+     */
+    public <T> T executeReadOnlyTask(
+            ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task) throws Exception {
+        return executeLocked(connectionDescriptor, task, true);
+    }
+
+    private <T> T executeLocked(
+            ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task, boolean readOnly)
+            throws Exception {
+        String targetId = connectionDescriptor.getTargetId();
+        // fair, so that a mutating task is not starved by a steady stream of read-only tasks
+        ReentrantReadWriteLock targetLock =
+                targetLocks.computeIfAbsent(targetId, k -> new ReentrantReadWriteLock(true));
+        if (targetLock.isWriteLockedByCurrentThread()) {
+            // a nested task on a thread which already has exclusive access to this target
+            return task.execute(getConnection(connectionDescriptor, Priority.INTERACTIVE).get());
+        }
+        if (targetLock.getReadHoldCount() > 0) {
+            if (!readOnly) {
+                // the read lock cannot be upgraded, and waiting for the write lock while holding
+                // it would never succeed
+                throw new IllegalStateException(
+                        String.format(
+                                "Cannot modify %s from within a read-only task", targetId));
+            }
+            return task.execute(getConnection(connectionDescriptor, Priority.INTERACTIVE).get());
+        }
+        Lock lock = readOnly ? targetLock.readLock() : targetLock.writeLock();
+        TargetLockHeld evt = new TargetLockHeld(targetId, readOnly);
+        evt.begin();
+        long requested = System.nanoTime();
+        if (!lock.tryLock(lockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            evt.setWaitTime(System.nanoTime() - requested);
+            evt.setTimedOut(true);
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+            throw new TimeoutException(
+                    String.format(
+                            "Timed out after %dms waiting for %s access to %s",
+                            lockTimeout.toMillis(), readOnly ? "read" : "write", targetId));
+        }
+        long acquired = System.nanoTime();
+        evt.setWaitTime(acquired - requested);
+        try {
+            return task.execute(getConnection(connectionDescriptor, Priority.INTERACTIVE).get());
+        } finally {
+            lock.unlock();
+            evt.setHoldTime(System.nanoTime() - acquired);
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+        }
+    }
+
+    private CompletableFuture<JFRConnection> getConnection(
+            ConnectionDescriptor connectionDescriptor, Priority priority) {
+        lastDemand.put(connectionDescriptor, System.nanoTime());
+        ConnectionStats targetStats =
+                stats.computeIfAbsent(
+                        connectionDescriptor.getTargetId(), k -> new ConnectionStats());
+        if (connections.asMap().containsKey(connectionDescriptor)) {
+            targetStats.hits.increment();
+        } else {
+            targetStats.misses.increment();
+        }
+        return connections.get(connectionDescriptor, (key, e) -> load(key, priority));
+    }
+
+    private CompletableFuture<JFRConnection> load(ConnectionDescriptor key, Priority priority) {
+        CompletableFuture<Void> admitted =
+                admission
+                        .map(a -> a.acquire(priority))
+                        .orElseGet(() -> CompletableFuture.completedFuture(null));
+        return admitted.thenCompose(unused -> connectWithTimeout(key));
+    }
+
+    private CompletableFuture<JFRConnection> connectWithTimeout(ConnectionDescriptor key) {
+        CompletableFuture<JFRConnection> connecting =
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            long start = System.nanoTime();
+                            try {
+                                JFRConnection connection = connect(key);
+                                stats.computeIfAbsent(
+                                                key.getTargetId(), k -> new ConnectionStats())
+                                        .recordConnect(System.nanoTime() - start);
+                                return connection;
+                            } catch (Exception e) {
+                                admission.ifPresent(ConnectionAdmissionController::release);
+                                throw new CompletionException(e);
+                            }
+                        },
+                        executor);
+        // time out a copy, so that a connection which completes late is still seen here
+        CompletableFuture<JFRConnection> result =
+                connecting.copy().orTimeout(connectionTimeoutSeconds, TimeUnit.SECONDS);
+        result.whenComplete(
+                (c, t) -> {
+                    if (!(t instanceof TimeoutException)) {
+                        return;
+                    }
+                    // the failed future is never cached, so nothing else will close the late
+                    // connection or return its admission slot
+                    connecting.thenAccept(
+                            late -> {
+                                logger.info(
+                                        "Closing connection to {} which completed after timing"
+                                                + " out",
+                                        key.getTargetId());
                                 try {
-                                    return task.execute(conn);
+                                    late.close();
                                 } catch (Exception e) {
-                                    logger.error(e);
-                                    throw new CompletionException(e);
+                                    logger.warn(e);
+                                } finally {
+                                    admission.ifPresent(ConnectionAdmissionController::release);
                                 }
-                            },
-                            executor)
-                    .orTimeout(connectionTimeoutSeconds, TimeUnit.SECONDS);
+                            });
+                });
+        return result;
+    }
+
+    /**
+     * Called when a connection request has to queue for a free slot. Closes the connection which
+     * has gone unused the longest, as long as no task is using or waiting for its target, to make
+     * room for the queued request.
+     */
+    private void closeIdleConnection() {
+        long now = System.nanoTime();
+        connections.synchronous().asMap().keySet().stream()
+                .filter(
+                        cd -> {
+                            ReentrantReadWriteLock lock = targetLocks.get(cd.getTargetId());
+                            return lock == null || !isLockInUse(lock);
+                        })
+                .filter(cd -> idleTime(cd, now) >= MIN_IDLE_TIME.toNanos())
+                .max(Comparator.comparingLong(cd -> idleTime(cd, now)))
+                .ifPresent(
+                        cd -> {
+                            logger.info(
+                                    "Closing idle connection for {} to admit a queued connection"
+                                            + " request",
+                                    cd.getTargetId());
+                            // otherwise the keep-alive would reopen it and pre-empt another
+                            lastDemand.remove(cd);
+                            connections.synchronous().invalidate(cd);
+                        });
+    }
+
+    private long idleTime(ConnectionDescriptor cd, long now) {
+        Long last = lastDemand.get(cd);
+        // demand is forgotten once it is older than the demand window
+        return last == null ? Long.MAX_VALUE : now - last;
+    }
+
+    private void scheduleKeepAlive() {
+        scheduler.schedule(
+                executor,
+                () -> {
+                    try {
+                        checkConnections();
+                    } catch (Exception e) {
+                        logger.error(e);
+                    } finally {
+                        scheduleKeepAlive();
+                    }
+                },
+                keepAlivePeriod.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Keep-alive pass over the cached connections. Connections which are no longer connected, or
+     * which have not been used since the previous pass and do not respond, are closed before a task
+     * tries to use them. Connections to targets with demand within the demand window are kept open
+     * past their TTL, and are reopened if they were closed and a connection slot is free, so that
+     * the next task does not have to wait for a new connection to be established.
+     * Connection statistics for each target are reported as a {@link TargetConnectionStatistics}
+     * event on each pass.
+     */
+    void checkConnections() {
+        long now = System.nanoTime();
+        long previousPass = lastPass;
+        lastPass = now;
+        lastDemand.values().removeIf(t -> now - t > demandWindow.toNanos());
+
+        for (Map.Entry<ConnectionDescriptor, JFRConnection> entry :
+                connections.synchronous().asMap().entrySet()) {
+            ConnectionDescriptor cd = entry.getKey();
+            ReentrantReadWriteLock lock = targetLocks.get(cd.getTargetId());
+            if (lock != null && isLockInUse(lock)) {
+                // a task is using the connection right now, so it's evidently alive
+                continue;
+            }
+            Long demand = lastDemand.get(cd);
+            // a connection which served a task since the previous pass does not need a round trip
+            boolean ping = demand == null || demand - previousPass < 0;
+            if (!isAlive(entry.getValue(), ping)) {
+                logger.info("Connection for {} failed keep-alive check", cd.getTargetId());
+                connections.synchronous().invalidate(cd);
+            } else if (lastDemand.containsKey(cd)) {
+                // reset the access time so that the connection does not expire
+                connections.synchronous().getIfPresent(cd);
+            }
         }
+
+        for (ConnectionDescriptor cd : lastDemand.keySet()) {
+            if (connections.asMap().containsKey(cd)) {
+                continue;
+            }
+            if (!admission.map(ConnectionAdmissionController::hasAvailable).orElse(true)) {
+                // reopening now would pre-empt a connection which may itself have demand
+                break;
+            }
+            logger.debug("Reopening connection for {}", cd.getTargetId());
+            connections
+                    .get(cd, (key, e) -> load(key, Priority.BACKGROUND))
+                    .whenComplete(
+                            (conn, t) -> {
+                                if (t != null) {
+                                    // stop trying until there is new demand for the target
+                                    lastDemand.remove(cd);
+                                    logger.debug(
+                                            "Failed to reopen connection for {}: {}",
+                                            cd.getTargetId(),
+                                            t.getMessage());
+                                }
+                            });
+        }
+
+        stats.forEach(
+                (targetId, targetStats) -> {
+                    if (!targetStats.report(targetId)) {
+                        stats.remove(targetId, targetStats);
+                    }
+                });
     }
 
-    public <T> T executeConnectedTask(
-            ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task) throws Exception {
-        synchronized (
-                targetLocks.computeIfAbsent(
-                        connectionDescriptor.getTargetId(), k -> new Object())) {
-            return task.execute(connections.get(connectionDescriptor).get());
+    private boolean isAlive(JFRConnection connection, boolean ping) {
+        if (!connection.isConnected()) {
+            return false;
+        }
+        if (!ping) {
+            return true;
+        }
+        if (connection instanceof AgentConnection) {
+            // agents are reached over plain HTTP requests, so there is no session to check
+            return true;
+        }
+        try {
+            // a small round trip to the target's RuntimeMXBean
+            connection.getJvmId();
+            return true;
+        } catch (Exception e) {
+            logger.debug(e);
+            return false;
         }
     }
 
@@ -186,7 +493,10 @@ public class TargetConnectionManager {
             evt.begin();
             try {
                 connection.close();
-                targetLocks.remove(descriptor.getTargetId());
+                // keep the lock if any task is still using or waiting for it, otherwise a task
+                // arriving now would create a second lock and run alongside them
+                targetLocks.computeIfPresent(
+                        descriptor.getTargetId(), (k, l) -> isLockInUse(l) ? l : null);
             } catch (RuntimeException e) {
                 evt.setExceptionThrown(true);
                 throw e;
@@ -199,13 +509,14 @@ public class TargetConnectionManager {
         } catch (Exception e) {
             logger.error(e);
         } finally {
-            if (semaphore.isPresent()) {
-                semaphore.get().release();
-                logger.trace("Semaphore released! Permits: {}", semaphore.get().availablePermits());
-            }
+            admission.ifPresent(ConnectionAdmissionController::release);
         }
     }
 
+    private static boolean isLockInUse(ReentrantReadWriteLock lock) {
+        return lock.isWriteLocked() || lock.getReadLockCount() > 0 || lock.hasQueuedThreads();
+    }
+
     private JFRConnection connect(ConnectionDescriptor connectionDescriptor) throws Exception {
         URI uri = URI.create(connectionDescriptor.getTargetId());
         String scheme = uri.getScheme();
@@ -253,9 +564,6 @@ public class TargetConnectionManager {
         logger.info("Creating connection for {}", url);
         evt.begin();
         try {
-            if (semaphore.isPresent()) {
-                semaphore.get().acquire();
-            }
             return jfrConnectionToolkit
                     .get()
                     .connect(
@@ -268,9 +576,6 @@ public class TargetConnectionManager {
                                     }));
         } catch (Exception e) {
             evt.setExceptionThrown(true);
-            if (semaphore.isPresent()) {
-                semaphore.get().release();
-            }
             throw e;
         } finally {
             evt.end();
@@ -286,16 +591,7 @@ public class TargetConnectionManager {
         @Override
         public CompletableFuture<JFRConnection> asyncLoad(
                 ConnectionDescriptor key, Executor executor) throws Exception {
-            return CompletableFuture.supplyAsync(
-                            () -> {
-                                try {
-                                    return connect(key);
-                                } catch (Exception e) {
-                                    throw new CompletionException(e);
-                                }
-                            },
-                            executor)
-                    .orTimeout(connectionTimeoutSeconds, TimeUnit.SECONDS);
+            return load(key, Priority.BACKGROUND);
         }
 
         @Override
@@ -313,6 +609,115 @@ public class TargetConnectionManager {
         T execute(JFRConnection connection) throws Exception;
     }
 
+    private static class ConnectionStats {
+        // upper bounds of the connect latency buckets, in milliseconds
+        static final long[] CONNECT_BUCKETS_MS = {10, 100, 1000, 10000};
+
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder[] connects = new LongAdder[CONNECT_BUCKETS_MS.length + 1];
+
+        ConnectionStats() {
+            for (int i = 0; i < connects.length; i++) {
+                connects[i] = new LongAdder();
+            }
+        }
+
+        void recordConnect(long nanos) {
+            long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int i = 0;
+            while (i < CONNECT_BUCKETS_MS.length && ms >= CONNECT_BUCKETS_MS[i]) {
+                i++;
+            }
+            connects[i].increment();
+        }
+
+        /**
+         * Emit the statistics gathered since the last report and reset them.
+         *
+         * @return false if there was no activity to report
+         */
+        boolean report(String targetId) {
+            long h = hits.sumThenReset();
+            long m = misses.sumThenReset();
+            long[] c = new long[connects.length];
+            for (int i = 0; i < connects.length; i++) {
+                c[i] = connects[i].sumThenReset();
+            }
+            if (h + m == 0) {
+                return false;
+            }
+            TargetConnectionStatistics evt = new TargetConnectionStatistics(targetId, h, m, c);
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+            return true;
+        }
+    }
+
+    @Name("io.cryostat.net.TargetConnectionManager.TargetConnectionStatistics")
+    @Label("Target Connection Statistics")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class TargetConnectionStatistics extends Event {
+        String serviceUri;
+        long hits;
+        long misses;
+        long connectsUnder10ms;
+        long connectsUnder100ms;
+        long connectsUnder1s;
+        long connectsUnder10s;
+        long connectsOver10s;
+
+        TargetConnectionStatistics(String serviceUri, long hits, long misses, long[] connects) {
+            this.serviceUri = serviceUri;
+            this.hits = hits;
+            this.misses = misses;
+            this.connectsUnder10ms = connects[0];
+            this.connectsUnder100ms = connects[1];
+            this.connectsUnder1s = connects[2];
+            this.connectsUnder10s = connects[3];
+            this.connectsOver10s = connects[4];
+        }
+    }
+
+    @Name("io.cryostat.net.TargetConnectionManager.TargetLockHeld")
+    @Label("Target Lock Held")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class TargetLockHeld extends Event {
+        String serviceUri;
+        boolean readOnly;
+        boolean timedOut;
+
+        @Timespan(Timespan.NANOSECONDS)
+        long waitTime;
+
+        @Timespan(Timespan.NANOSECONDS)
+        long holdTime;
+
+        TargetLockHeld(String serviceUri, boolean readOnly) {
+            this.serviceUri = serviceUri;
+            this.readOnly = readOnly;
+        }
+
+        void setTimedOut(boolean timedOut) {
+            this.timedOut = timedOut;
+        }
+
+        void setWaitTime(long waitTime) {
+            this.waitTime = waitTime;
+        }
+
+        void setHoldTime(long holdTime) {
+            this.holdTime = holdTime;
+        }
+    }
+
     @Name("io.cryostat.net.TargetConnectionManager.JMXConnectionOpened")
     @Label("JMX Connection Status")
     @Category("Cryostat")
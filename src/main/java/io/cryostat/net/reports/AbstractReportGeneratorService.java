@@ -21,7 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
@@ -31,6 +31,7 @@ import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.net.ConnectionDescriptor;
 import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.recordings.RecordingNotFoundException;
 
 abstract class AbstractReportGeneratorService implements ReportGeneratorService {
@@ -38,12 +39,17 @@ abstract class AbstractReportGeneratorService implements ReportGeneratorService
     static final int READ_BUFFER_SIZE = 64 * 1024; // 64 KB
 
     protected final TargetConnectionManager targetConnectionManager;
+    protected final ActiveRecordingDescriptorCache descriptorCache;
     protected final FileSystem fs;
     protected final Logger logger;
 
     protected AbstractReportGeneratorService(
-            TargetConnectionManager targetConnectionManager, FileSystem fs, Logger logger) {
+            TargetConnectionManager targetConnectionManager,
+            ActiveRecordingDescriptorCache descriptorCache,
+            FileSystem fs,
+            Logger logger) {
         this.targetConnectionManager = targetConnectionManager;
+        this.descriptorCache = descriptorCache;
         this.fs = fs;
         this.logger = logger;
     }
@@ -70,7 +76,7 @@ abstract class AbstractReportGeneratorService implements ReportGeneratorService
 
     Path getRecordingFromLiveTarget(String recordingName, ConnectionDescriptor cd)
             throws Exception {
-        return this.targetConnectionManager.executeConnectedTask(
+        return this.targetConnectionManager.executeReadOnlyTask(
                 cd,
                 conn ->
                         copyRecordingToFile(
@@ -80,13 +86,14 @@ abstract class AbstractReportGeneratorService implements ReportGeneratorService
     Path copyRecordingToFile(
             JFRConnection conn, ConnectionDescriptor cd, String recordingName, Path path)
             throws Exception {
-        for (IRecordingDescriptor rec : conn.getService().getAvailableRecordings()) {
-            if (!Objects.equals(rec.getName(), recordingName)) {
-                continue;
-            }
+        Optional<IRecordingDescriptor> descriptor =
+                descriptorCache.getByName(cd, conn, recordingName);
+        if (descriptor.isPresent()) {
+            IRecordingDescriptor rec = descriptor.get();
             try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path.toFile()))) {
-                try (conn;
-                        InputStream in = conn.getService().openStream(rec, false)) {
+                // only the stream is closed here. The connection is cached and may be shared with
+                // other read-only tasks
+                try (InputStream in = conn.getService().openStream(rec, false)) {
                     byte[] buff = new byte[READ_BUFFER_SIZE];
                     int n = 0;
                     while ((n = in.read(buff)) != -1) {
@@ -16,10 +16,16 @@
 package io.cryostat.net.reports;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Named;
+import javax.inject.Provider;
 
 import io.cryostat.configuration.Variables;
 import io.cryostat.core.log.Logger;
@@ -27,41 +33,85 @@ import io.cryostat.core.sys.Environment;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.web.http.HttpMimeType;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.util.HttpStatusCodeIdentifier;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.vertx.core.Vertx;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.codec.BodyCodec;
 import io.vertx.ext.web.multipart.MultipartForm;
+import org.apache.commons.lang3.StringUtils;
 
+/**
+ * Sends report generation jobs to one or more remote cryostat-reports instances, configured as a
+ * comma-separated list of URLs in {@link Variables#REPORT_GENERATOR_ENV}. Each job goes to the
+ * available endpoint with the fewest outstanding requests. Endpoints are periodically probed at
+ * their /health path and are skipped while unhealthy. An endpoint which fails {@link
+ * #FAILURE_THRESHOLD} consecutive requests has its circuit opened and is skipped for {@link
+ * #CIRCUIT_OPEN_SECONDS}, after which a single trial request is allowed through. If no endpoint is
+ * available the report is generated locally instead.
+ *
+ * <p>Recordings are uploaded directly from disk and reports are streamed directly to disk, so
+ * neither is held in memory.
+ */
 class RemoteReportGenerator extends AbstractReportGeneratorService {
 
+    static final long HEALTH_PROBE_PERIOD_SECONDS = 10;
+    static final int FAILURE_THRESHOLD = 3;
+    static final long CIRCUIT_OPEN_SECONDS = 30;
+
     private final Vertx vertx;
     private final WebClient http;
-    private final Environment env;
+    private final Provider<SubprocessReportGenerator> localGenerator;
     private final long generationTimeoutSeconds;
+    private final List<Endpoint> endpoints = new ArrayList<>();
 
     RemoteReportGenerator(
             TargetConnectionManager targetConnectionManager,
+            ActiveRecordingDescriptorCache descriptorCache,
             FileSystem fs,
             Vertx vertx,
             WebClient http,
             Environment env,
+            Provider<SubprocessReportGenerator> localGenerator,
             @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             Logger logger) {
-        super(targetConnectionManager, fs, logger);
+        super(targetConnectionManager, descriptorCache, fs, logger);
         this.vertx = vertx;
         this.http = http;
-        this.env = env;
+        this.localGenerator = localGenerator;
         this.generationTimeoutSeconds = generationTimeoutSeconds;
+        for (String url : env.getEnv(Variables.REPORT_GENERATOR_ENV, "").split(",")) {
+            if (StringUtils.isNotBlank(url)) {
+                endpoints.add(new Endpoint(StringUtils.removeEnd(url.strip(), "/")));
+            }
+        }
+        if (!endpoints.isEmpty()) {
+            vertx.setPeriodic(
+                    TimeUnit.SECONDS.toMillis(HEALTH_PROBE_PERIOD_SECONDS),
+                    id -> endpoints.forEach(this::probe));
+        }
     }
 
     @Override
+    public CompletableFuture<Path> exec(Path recording, Path destination, String filter)
+            throws Exception {
+        Optional<Endpoint> endpoint = acquireEndpoint();
+        if (endpoint.isEmpty()) {
+            logger.warn("No remote report generator available, generating {} locally", recording);
+            return localGenerator.get().exec(recording, destination, filter);
+        }
+        return exec(endpoint.get(), recording, destination, filter);
+    }
+
     @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
-    public CompletableFuture<Path> exec(Path recording, Path destination, String filter) {
-        String reportGenerator = env.getEnv(Variables.REPORT_GENERATOR_ENV);
-        logger.trace("POSTing {} to {}", recording, reportGenerator);
+    private CompletableFuture<Path> exec(
+            Endpoint endpoint, Path recording, Path destination, String filter) {
+        logger.trace("POSTing {} to {}", recording, endpoint.url);
         var form =
                 MultipartForm.create()
                         .attribute("filter", filter)
@@ -72,41 +122,152 @@ class RemoteReportGenerator extends AbstractReportGeneratorService {
                                 HttpMimeType.OCTET_STREAM.mime());
 
         var f = new CompletableFuture<Path>();
-        String acceptHeader = HttpMimeType.JSON.mime();
+        vertx.fileSystem()
+                .open(
+                        destination.toString(),
+                        new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true),
+                        ar -> {
+                            if (ar.failed()) {
+                                endpoint.release();
+                                f.completeExceptionally(ar.cause());
+                                return;
+                            }
+                            send(endpoint, form, ar.result(), recording, destination, f);
+                        });
+        return f;
+    }
+
+    private void send(
+            Endpoint endpoint,
+            MultipartForm form,
+            AsyncFile file,
+            Path recording,
+            Path destination,
+            CompletableFuture<Path> f) {
         this.http
-                .postAbs(String.format("%s/report", reportGenerator))
-                .putHeader(HttpHeaders.ACCEPT.toString(), acceptHeader)
+                .postAbs(String.format("%s/report", endpoint.url))
+                .putHeader(HttpHeaders.ACCEPT.toString(), HttpMimeType.JSON.mime())
                 .timeout(TimeUnit.SECONDS.toMillis(generationTimeoutSeconds))
+                .as(BodyCodec.pipe(file))
                 .sendMultipartForm(
                         form,
                         ar -> {
                             if (ar.failed()) {
+                                endpoint.onFailure();
+                                file.close();
+                                discard(destination);
                                 f.completeExceptionally(ar.cause());
                                 return;
                             }
-                            if (!HttpStatusCodeIdentifier.isSuccessCode(ar.result().statusCode())) {
+                            int statusCode = ar.result().statusCode();
+                            if (HttpStatusCodeIdentifier.isServerErrorCode(statusCode)) {
+                                endpoint.onFailure();
+                            } else {
+                                endpoint.onSuccess();
+                            }
+                            if (!HttpStatusCodeIdentifier.isSuccessCode(statusCode)) {
+                                // the piped body is an error message rather than a report
+                                discard(destination);
                                 f.completeExceptionally(
                                         new ReportGenerationException(
-                                                ar.result().statusCode(),
-                                                ar.result().statusMessage()));
+                                                statusCode, ar.result().statusMessage()));
                                 return;
                             }
-                            var body = ar.result().bodyAsBuffer();
-                            vertx.fileSystem()
-                                    .writeFile(
-                                            destination.toString(),
-                                            body,
-                                            ar2 -> {
-                                                if (ar2.failed()) {
-                                                    f.completeExceptionally(ar.cause());
-                                                    return;
-                                                }
-                                                f.complete(destination);
-                                                logger.info(
-                                                        "Report response for {}" + " success",
-                                                        recording);
-                                            });
+                            f.complete(destination);
+                            logger.info("Report response for {} success", recording);
                         });
-        return f;
+    }
+
+    private void discard(Path destination) {
+        vertx.fileSystem()
+                .delete(
+                        destination.toString(),
+                        ar -> {
+                            if (ar.failed()) {
+                                logger.warn(ar.cause());
+                            }
+                        });
+    }
+
+    synchronized Optional<Endpoint> acquireEndpoint() {
+        long now = System.nanoTime();
+        List<Endpoint> candidates = new ArrayList<>(endpoints);
+        // stable sort, so ties go to the endpoint listed first
+        candidates.sort(Comparator.comparingInt(e -> e.outstanding.get()));
+        for (Endpoint endpoint : candidates) {
+            if (endpoint.tryAcquire(now)) {
+                return Optional.of(endpoint);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void probe(Endpoint endpoint) {
+        http.getAbs(String.format("%s/health", endpoint.url))
+                .timeout(TimeUnit.SECONDS.toMillis(HEALTH_PROBE_PERIOD_SECONDS) / 2)
+                .send(
+                        ar -> {
+                            boolean healthy =
+                                    ar.succeeded()
+                                            && HttpStatusCodeIdentifier.isSuccessCode(
+                                                    ar.result().statusCode());
+                            if (!healthy) {
+                                logger.warn("Report generator {} is unhealthy", endpoint.url);
+                            }
+                            endpoint.onProbe(healthy);
+                        });
+    }
+
+    static class Endpoint {
+        final String url;
+        final AtomicInteger outstanding = new AtomicInteger();
+        private boolean healthy = true;
+        private int consecutiveFailures;
+        private long circuitOpenUntil;
+        private boolean trialInFlight;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (!healthy) {
+                return false;
+            }
+            if (consecutiveFailures >= FAILURE_THRESHOLD) {
+                if (now - circuitOpenUntil < 0 || trialInFlight) {
+                    return false;
+                }
+                // half-open: let a single request through to test the endpoint
+                trialInFlight = true;
+            }
+            outstanding.incrementAndGet();
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            release();
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (consecutiveFailures >= FAILURE_THRESHOLD) {
+                circuitOpenUntil =
+                        System.nanoTime() + TimeUnit.SECONDS.toNanos(CIRCUIT_OPEN_SECONDS);
+            }
+            release();
+        }
+
+        synchronized void release() {
+            trialInFlight = false;
+            outstanding.decrementAndGet();
+        }
+
+        synchronized void onProbe(boolean healthy) {
+            // a healthy probe only shows that the endpoint is up, not that it can generate reports,
+            // so an open circuit is left to the trial request once the open interval has elapsed
+            this.healthy = healthy;
+        }
     }
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net.reports;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Provider;
+
+import io.cryostat.configuration.Variables;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Environment;
+import io.cryostat.net.reports.SubprocessReportGenerator.ExitStatus;
+import io.cryostat.util.JavaProcess;
+
+import com.google.gson.Gson;
+
+/**
+ * Pool of long-lived {@link SubprocessReportGenerator} worker processes. Each worker runs in its
+ * own memory-capped JVM and processes one report job at a time, receiving jobs on its stdin and
+ * replying with the job's {@link ExitStatus} code on its stdout, one JSON object per line. Up to
+ * {@code concurrency} jobs run at once, each on its own worker. Workers are reused for subsequent
+ * jobs until they have completed {@code maxJobsPerWorker} jobs, or until they exit or are killed
+ * (ex. Out-Of-Memory or timeout), at which point they are replaced on demand. Workers which have
+ * been idle for longer than {@code idleTimeoutSeconds} are shut down, so that the pool only holds
+ * on to worker heaps while there is report demand. The generation timeout of a job counts from
+ * when it is submitted, including any time spent waiting for a free worker.
+ */
+class ReportWorkerPool {
+
+    static final String WORKER_MODE_ARG = "--worker";
+    // how long to wait for a worker to exit after it closes its stdout mid-job, ex. when the JVM
+    // is exiting due to an OutOfMemoryError
+    static final long WORKER_EXIT_GRACE_SECONDS = 5;
+
+    private final Environment env;
+    private final Provider<JavaProcess.Builder> javaProcessBuilderProvider;
+    private final int maxJobsPerWorker;
+    private final long idleTimeoutNanos;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+
+    // most recently used workers first, so that the least recently used ones at the tail go idle
+    // for long enough to be retired when there are more workers than demand
+    private final BlockingDeque<Worker> idleWorkers = new LinkedBlockingDeque<>();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timeoutScheduler;
+
+    ReportWorkerPool(
+            Environment env,
+            Provider<JavaProcess.Builder> javaProcessBuilderProvider,
+            int concurrency,
+            int maxJobsPerWorker,
+            long idleTimeoutSeconds,
+            Logger logger) {
+        this.env = env;
+        this.javaProcessBuilderProvider = javaProcessBuilderProvider;
+        this.maxJobsPerWorker = Math.max(1, maxJobsPerWorker);
+        long idleTimeout = Math.max(1, idleTimeoutSeconds);
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeout);
+        this.logger = logger;
+        // one job thread per worker, so the number of live workers never exceeds the concurrency
+        this.executor =
+                Executors.newFixedThreadPool(
+                        Math.max(1, concurrency), daemonThreadFactory("report-worker-"));
+        this.timeoutScheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        daemonThreadFactory("report-worker-timeout-"));
+        this.timeoutScheduler.scheduleAtFixedRate(
+                this::retireIdleWorkers, idleTimeout, idleTimeout, TimeUnit.SECONDS);
+    }
+
+    CompletableFuture<ExitStatus> submit(
+            Path recording, Path saveFile, String filter, long timeout, TimeUnit unit) {
+        WorkerJob job =
+                new WorkerJob(
+                        recording.toAbsolutePath().toString(),
+                        saveFile.toAbsolutePath().toString(),
+                        filter);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    if (deadline - System.nanoTime() <= 0) {
+                        // timed out waiting for a free worker
+                        return ExitStatus.TIMED_OUT;
+                    }
+                    Worker worker = null;
+                    try {
+                        worker = acquire();
+                        return worker.run(job, deadline);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    } catch (InterruptedException e) {
+                        logger.error(e);
+                        Thread.currentThread().interrupt();
+                        return ExitStatus.TERMINATED;
+                    } finally {
+                        if (worker != null) {
+                            release(worker);
+                        }
+                    }
+                },
+                executor);
+    }
+
+    private Worker acquire() throws IOException, InterruptedException {
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+            worker.close();
+        }
+        return launch();
+    }
+
+    private void release(Worker worker) {
+        if (worker.isAlive() && worker.getJobCount() < maxJobsPerWorker) {
+            worker.markIdle();
+            idleWorkers.addFirst(worker);
+        } else {
+            logger.trace("Retiring report worker after {} jobs", worker.getJobCount());
+            worker.close();
+        }
+    }
+
+    private void retireIdleWorkers() {
+        long now = System.nanoTime();
+        Iterator<Worker> it = idleWorkers.descendingIterator();
+        while (it.hasNext()) {
+            Worker worker = it.next();
+            if (now - worker.getIdleSince() < idleTimeoutNanos) {
+                break;
+            }
+            // only close the worker if it was not acquired for a job in the meantime
+            if (idleWorkers.removeLastOccurrence(worker)) {
+                logger.trace("Retiring report worker after {} jobs (idle)", worker.getJobCount());
+                worker.close();
+            }
+        }
+    }
+
+    private Worker launch() throws IOException, InterruptedException {
+        Process proc =
+                javaProcessBuilderProvider
+                        .get()
+                        .klazz(SubprocessReportGenerator.class)
+                        .jvmArgs(
+                                createJvmArgs(
+                                        Integer.parseInt(
+                                                env.getEnv(
+                                                        Variables.SUBPROCESS_MAX_HEAP_ENV, "0"))))
+                        .processArgs(List.of(WORKER_MODE_ARG))
+                        .inheritIO(false)
+                        .exec();
+        return new Worker(proc);
+    }
+
+    private List<String> createJvmArgs(int maxHeapMegabytes) {
+        List<String> args = new ArrayList<>();
+        if (maxHeapMegabytes > 0) {
+            args.add(String.format("-Xms%dM", maxHeapMegabytes));
+            args.add(String.format("-Xmx%dM", maxHeapMegabytes));
+        }
+        args.add("-XX:+ExitOnOutOfMemoryError");
+        // use Serial GC since we have a small heap and likely little garbage to clean,
+        // and low GC overhead is more important here than minimizing pause time since the
+        // result will end up cached for subsequent user accesses so long as the process
+        // succeeds in the end
+        args.add("-XX:+UseSerialGC");
+        return args;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private class Worker {
+        private final Process proc;
+        private final BufferedWriter jobs;
+        private final BufferedReader results;
+        private int jobCount;
+        private volatile long idleSince;
+
+        Worker(Process proc) {
+            this.proc = proc;
+            this.jobs =
+                    new BufferedWriter(
+                            new OutputStreamWriter(
+                                    proc.getOutputStream(), StandardCharsets.UTF_8));
+            this.results =
+                    new BufferedReader(
+                            new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        ExitStatus run(WorkerJob job, long deadline) throws InterruptedException {
+            jobCount++;
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> killer =
+                    timeoutScheduler.schedule(
+                            () -> {
+                                timedOut.set(true);
+                                proc.destroyForcibly();
+                            },
+                            deadline - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+            try {
+                jobs.write(gson.toJson(job));
+                jobs.newLine();
+                jobs.flush();
+                String line = results.readLine();
+                if (line != null) {
+                    return ExitStatus.byExitCode(gson.fromJson(line, WorkerResult.class).status);
+                }
+            } catch (IOException e) {
+                // the worker closed its pipes, handled below
+                logger.warn(e);
+            } finally {
+                killer.cancel(false);
+            }
+            if (timedOut.get()) {
+                return ExitStatus.TIMED_OUT;
+            }
+            // the worker died mid-job, so report why it exited
+            if (!proc.waitFor(WORKER_EXIT_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                proc.destroyForcibly();
+                return ExitStatus.TERMINATED;
+            }
+            ExitStatus status = ExitStatus.byExitCode(proc.exitValue());
+            return status == ExitStatus.OK ? ExitStatus.OTHER : status;
+        }
+
+        boolean isAlive() {
+            return proc.isAlive();
+        }
+
+        int getJobCount() {
+            return jobCount;
+        }
+
+        void markIdle() {
+            this.idleSince = System.nanoTime();
+        }
+
+        long getIdleSince() {
+            return idleSince;
+        }
+
+        void close() {
+            try {
+                // closing the worker's stdin asks it to exit once it is idle
+                jobs.close();
+            } catch (IOException e) {
+                logger.warn(e);
+            } finally {
+                proc.destroy();
+            }
+        }
+    }
+
+    static class WorkerJob {
+        final String recording;
+        final String saveFile;
+        final String filter;
+
+        WorkerJob(String recording, String saveFile, String filter) {
+            this.recording = recording;
+            this.saveFile = saveFile;
+            this.filter = filter;
+        }
+    }
+
+    static class WorkerResult {
+        final int status;
+
+        WorkerResult(int status) {
+            this.status = status;
+        }
+    }
+}
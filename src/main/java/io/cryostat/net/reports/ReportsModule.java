@@ -26,6 +26,7 @@ import io.cryostat.core.sys.FileSystem;
 import io.cryostat.messaging.notifications.NotificationListener;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.web.http.HttpModule;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.recordings.RecordingArchiveHelper;
 import io.cryostat.util.JavaProcess;
 
@@ -45,6 +46,11 @@ public abstract class ReportsModule {
             "ACTIVE_REPORT_CACHE_EXPIRY_SECONDS";
     public static final String ACTIVE_REPORT_CACHE_REFRESH_SECONDS =
             "ACTIVE_REPORT_CACHE_REFRESH_SECONDS";
+    public static final String REPORT_GENERATION_WORKERS = "REPORT_GENERATION_WORKERS";
+    public static final String REPORT_GENERATION_WORKER_MAX_JOBS =
+            "REPORT_GENERATION_WORKER_MAX_JOBS";
+    public static final String REPORT_GENERATION_WORKER_IDLE_SECONDS =
+            "REPORT_GENERATION_WORKER_IDLE_SECONDS";
 
     @Provides
     @Named(REPORT_GENERATION_TIMEOUT_SECONDS)
@@ -65,6 +71,29 @@ public abstract class ReportsModule {
         return Long.parseLong(env.getEnv(Variables.ACTIVE_REPORTS_CACHE_REFRESH_ENV, "10"));
     }
 
+    @Provides
+    @Named(REPORT_GENERATION_WORKERS)
+    static int provideReportGenerationWorkers(Environment env) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.max(
+                1,
+                Integer.parseInt(
+                        env.getEnv(Variables.SUBPROCESS_WORKERS_ENV, String.valueOf(processors))));
+    }
+
+    @Provides
+    @Named(REPORT_GENERATION_WORKER_MAX_JOBS)
+    static int provideReportGenerationWorkerMaxJobs(Environment env) {
+        return Math.max(
+                1, Integer.parseInt(env.getEnv(Variables.SUBPROCESS_WORKER_MAX_JOBS_ENV, "50")));
+    }
+
+    @Provides
+    @Named(REPORT_GENERATION_WORKER_IDLE_SECONDS)
+    static long provideReportGenerationWorkerIdleSeconds(Environment env) {
+        return Math.max(1, Long.parseLong(env.getEnv(Variables.SUBPROCESS_WORKER_IDLE_ENV, "60")));
+    }
+
     @Provides
     @Singleton
     static ActiveRecordingReportCache provideActiveRecordingReportCache(
@@ -122,31 +151,55 @@ public abstract class ReportsModule {
     }
 
     @Provides
+    @Singleton
     static RemoteReportGenerator provideRemoteReportGenerator(
             TargetConnectionManager targetConnectionManager,
+            ActiveRecordingDescriptorCache descriptorCache,
             FileSystem fs,
             Vertx vertx,
             WebClient http,
             Environment env,
+            Provider<SubprocessReportGenerator> localGenerator,
             @Named(REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             Logger logger) {
         return new RemoteReportGenerator(
-                targetConnectionManager, fs, vertx, http, env, generationTimeoutSeconds, logger);
+                targetConnectionManager,
+                descriptorCache,
+                fs,
+                vertx,
+                http,
+                env,
+                localGenerator,
+                generationTimeoutSeconds,
+                logger);
     }
 
     @Provides
-    static SubprocessReportGenerator provideSubprocessReportGenerator(
+    @Singleton
+    static ReportWorkerPool provideReportWorkerPool(
             Environment env,
+            Provider<JavaProcess.Builder> javaProcessBuilder,
+            @Named(REPORT_GENERATION_WORKERS) int workers,
+            @Named(REPORT_GENERATION_WORKER_MAX_JOBS) int maxJobsPerWorker,
+            @Named(REPORT_GENERATION_WORKER_IDLE_SECONDS) long idleTimeoutSeconds,
+            Logger logger) {
+        return new ReportWorkerPool(
+                env, javaProcessBuilder, workers, maxJobsPerWorker, idleTimeoutSeconds, logger);
+    }
+
+    @Provides
+    static SubprocessReportGenerator provideSubprocessReportGenerator(
             FileSystem fs,
             TargetConnectionManager targetConnectionManager,
-            Provider<JavaProcess.Builder> javaProcessBuilder,
+            ActiveRecordingDescriptorCache descriptorCache,
+            ReportWorkerPool workerPool,
             @Named(REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             Logger logger) {
         return new SubprocessReportGenerator(
-                env,
                 fs,
                 targetConnectionManager,
-                javaProcessBuilder,
+                descriptorCache,
+                workerPool,
                 generationTimeoutSeconds,
                 logger);
     }
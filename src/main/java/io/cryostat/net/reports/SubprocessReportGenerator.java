@@ -15,15 +15,17 @@
  */
 package io.cryostat.net.reports;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -32,47 +34,42 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import javax.inject.Named;
-import javax.inject.Provider;
 
 import org.openjdk.jmc.flightrecorder.rules.IRule;
 import org.openjdk.jmc.rjmx.ConnectionException;
 
-import io.cryostat.configuration.Variables;
 import io.cryostat.core.CryostatCore;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.reports.InterruptibleReportGenerator;
 import io.cryostat.core.reports.InterruptibleReportGenerator.AnalysisResult;
-import io.cryostat.core.sys.Environment;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.core.util.RuleFilterParser;
 import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.recordings.RecordingNotFoundException;
-import io.cryostat.util.JavaProcess;
 
 import com.google.gson.Gson;
 import org.apache.commons.lang3.tuple.Pair;
 
 public class SubprocessReportGenerator extends AbstractReportGeneratorService {
 
-    private final Environment env;
-    private final Provider<JavaProcess.Builder> javaProcessBuilderProvider;
+    private final ReportWorkerPool workerPool;
     private final long generationTimeoutSeconds;
 
     SubprocessReportGenerator(
-            Environment env,
             FileSystem fs,
             TargetConnectionManager targetConnectionManager,
-            Provider<JavaProcess.Builder> javaProcessBuilderProvider,
+            ActiveRecordingDescriptorCache descriptorCache,
+            ReportWorkerPool workerPool,
             @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             Logger logger) {
-        super(targetConnectionManager, fs, logger);
-        this.env = env;
-        this.javaProcessBuilderProvider = javaProcessBuilderProvider;
+        super(targetConnectionManager, descriptorCache, fs, logger);
+        this.workerPool = workerPool;
         this.generationTimeoutSeconds = generationTimeoutSeconds;
     }
 
     @Override
-    public synchronized CompletableFuture<Path> exec(Path recording, Path saveFile, String filter)
+    public CompletableFuture<Path> exec(Path recording, Path saveFile, String filter)
             throws NoSuchMethodException,
                     SecurityException,
                     IllegalAccessException,
@@ -90,78 +87,36 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         if (filter == null) {
             throw new IllegalArgumentException("Filter may not be null");
         }
-        JavaProcess.Builder procBuilder =
-                javaProcessBuilderProvider
-                        .get()
-                        .klazz(SubprocessReportGenerator.class)
-                        .jvmArgs(
-                                createJvmArgs(
-                                        Integer.parseInt(
-                                                env.getEnv(
-                                                        Variables.SUBPROCESS_MAX_HEAP_ENV, "0"))))
-                        .processArgs(createProcessArgs(recording, saveFile, filter));
-        return CompletableFuture.supplyAsync(
-                () -> {
-                    Process proc = null;
-                    try {
-                        proc = procBuilder.exec();
-                        proc.waitFor(generationTimeoutSeconds - 1, TimeUnit.SECONDS);
-
-                        ExitStatus status =
-                                proc.isAlive()
-                                        ? ExitStatus.TIMED_OUT
-                                        : ExitStatus.byExitCode(proc.exitValue());
-
-                        switch (status) {
-                            case OK:
-                                return saveFile;
-                            case NO_SUCH_RECORDING:
-                                throw new RecordingNotFoundException(
-                                        "archives", recording.toString());
-                            default:
-                                throw new SubprocessReportGenerationException(status);
-                        }
-                    } catch (InterruptedException e) {
-                        logger.error(e);
-                        throw new CompletionException(
-                                new SubprocessReportGenerationException(ExitStatus.TERMINATED));
-                    } catch (IOException
-                            | ReportGenerationException
-                            | RecordingNotFoundException
-                            | IllegalThreadStateException e) {
-                        logger.error(e);
-                        throw new CompletionException(e);
-                    } finally {
-                        if (proc != null) {
-                            proc.destroyForcibly();
-                        }
-                    }
-                });
+        return workerPool
+                .submit(recording, saveFile, filter, generationTimeoutSeconds - 1, TimeUnit.SECONDS)
+                .thenApply(
+                        status -> {
+                            try {
+                                switch (status) {
+                                    case OK:
+                                        return saveFile;
+                                    case NO_SUCH_RECORDING:
+                                        throw new RecordingNotFoundException(
+                                                "archives", recording.toString());
+                                    default:
+                                        throw new SubprocessReportGenerationException(status);
+                                }
+                            } catch (ReportGenerationException | RecordingNotFoundException e) {
+                                logger.error(e);
+                                throw new CompletionException(e);
+                            }
+                        });
     }
 
-    private List<String> createJvmArgs(int maxHeapMegabytes) throws IOException {
-        List<String> args = new ArrayList<>();
-        if (maxHeapMegabytes > 0) {
-            args.add(String.format("-Xms%dM", maxHeapMegabytes));
-            args.add(String.format("-Xmx%dM", maxHeapMegabytes));
+    public static void main(String[] args) {
+        boolean workerMode = args.length == 1 && ReportWorkerPool.WORKER_MODE_ARG.equals(args[0]);
+        // in worker mode the parent reads job results from our stdout, so keep everything else
+        // off of it
+        PrintStream results = System.out;
+        if (workerMode) {
+            System.setOut(System.err);
         }
-        args.add("-XX:+ExitOnOutOfMemoryError");
-        // use Serial GC since we have a small heap and likely little garbage to clean,
-        // and low GC overhead is more important here than minimizing pause time since the
-        // result will end up cached for subsequent user accesses so long as the process
-        // succeeds in the end
-        args.add("-XX:+UseSerialGC");
-        return args;
-    }
-
-    private List<String> createProcessArgs(Path recording, Path saveFile, String filter) {
-        return List.of(
-                recording.toAbsolutePath().toString(),
-                saveFile.toAbsolutePath().toString(),
-                filter);
-    }
 
-    public static void main(String[] args) {
         long startTime = System.nanoTime();
         Logger.INSTANCE.info(SubprocessReportGenerator.class.getName() + " starting");
         Runtime.getRuntime()
@@ -199,6 +154,10 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
             System.exit(ExitStatus.OTHER.code);
         }
 
+        if (workerMode) {
+            System.exit(runWorker(fs, gson, results).code);
+        }
+
         if (args.length != 3) {
             throw new IllegalArgumentException(Arrays.asList(args).toString());
         }
@@ -206,6 +165,36 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         var saveFile = Paths.get(args[1]);
         String filter = args[2];
 
+        System.exit(generateReport(fs, gson, recording, saveFile, filter).code);
+    }
+
+    private static ExitStatus runWorker(FileSystem fs, Gson gson, PrintStream results) {
+        try (BufferedReader jobs =
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String line;
+            // the parent closes our stdin when this worker is retired
+            while ((line = jobs.readLine()) != null) {
+                ReportWorkerPool.WorkerJob job =
+                        gson.fromJson(line, ReportWorkerPool.WorkerJob.class);
+                ExitStatus status =
+                        generateReport(
+                                fs,
+                                gson,
+                                Paths.get(job.recording),
+                                Paths.get(job.saveFile),
+                                job.filter);
+                results.println(gson.toJson(new ReportWorkerPool.WorkerResult(status.code)));
+                results.flush();
+            }
+            return ExitStatus.OK;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ExitStatus.IO_EXCEPTION;
+        }
+    }
+
+    private static ExitStatus generateReport(
+            FileSystem fs, Gson gson, Path recording, Path saveFile, String filter) {
         try {
             Logger.INSTANCE.info(SubprocessReportGenerator.class.getName() + " processing report");
             Map<String, AnalysisResult> evalMapResult = generateEvalMapFromFile(recording, filter);
@@ -216,17 +205,19 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
                     StandardOpenOption.TRUNCATE_EXISTING,
                     StandardOpenOption.DSYNC,
                     StandardOpenOption.WRITE);
-
-            System.exit(ExitStatus.OK.code);
+            return ExitStatus.OK;
+        } catch (SubprocessReportGenerationException e) {
+            e.printStackTrace();
+            return e.getStatus();
         } catch (ConnectionException e) {
             e.printStackTrace();
-            System.exit(ExitStatus.TARGET_CONNECTION_FAILURE.code);
+            return ExitStatus.TARGET_CONNECTION_FAILURE;
         } catch (IOException e) {
             e.printStackTrace();
-            System.exit(ExitStatus.IO_EXCEPTION.code);
+            return ExitStatus.IO_EXCEPTION;
         } catch (Exception e) {
             e.printStackTrace();
-            System.exit(ExitStatus.OTHER.code);
+            return ExitStatus.OTHER;
         }
     }
 
@@ -90,7 +90,7 @@ class TargetEventsGetHandler extends AbstractAuthenticatedRequestHandler {
     @Override
     public void handleAuthenticated(RoutingContext ctx) throws Exception {
         List<SerializableEventTypeInfo> templates =
-                connectionManager.executeConnectedTask(
+                connectionManager.executeReadOnlyTask(
                         getConnectionDescriptorFromContext(ctx),
                         connection -> {
                             Collection<? extends IEventTypeInfo> origInfos =
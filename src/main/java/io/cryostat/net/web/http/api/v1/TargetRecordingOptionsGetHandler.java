@@ -97,7 +97,7 @@ class TargetRecordingOptionsGetHandler extends AbstractAuthenticatedRequestHandl
     @Override
     public void handleAuthenticated(RoutingContext ctx) throws Exception {
         Map<String, Object> optionMap =
-                connectionManager.executeConnectedTask(
+                connectionManager.executeReadOnlyTask(
                         getConnectionDescriptorFromContext(ctx),
                         connection -> {
                             RecordingOptionsBuilder builder =
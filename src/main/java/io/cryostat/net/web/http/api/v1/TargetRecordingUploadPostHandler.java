@@ -151,7 +151,7 @@ class TargetRecordingUploadPostHandler extends AbstractAuthenticatedRequestHandl
         String targetId = ctx.pathParam("targetId");
         String recordingName = ctx.pathParam("recordingName");
         Path recordingPath =
-                targetConnectionManager.executeConnectedTask(
+                targetConnectionManager.executeReadOnlyTask(
                         getConnectionDescriptorFromContext(ctx),
                         connection ->
                                 getRecordingCopyPath(connection, targetId, recordingName)
@@ -99,7 +99,7 @@ class TargetRecordingsGetHandler extends AbstractAuthenticatedRequestHandler {
     public void handleAuthenticated(RoutingContext ctx) throws Exception {
         WebServer webServer = webServerProvider.get();
         List<HyperlinkedSerializableRecordingDescriptor> descriptors =
-                connectionManager.executeConnectedTask(
+                connectionManager.executeReadOnlyTask(
                         getConnectionDescriptorFromContext(ctx),
                         connection -> {
                             List<IRecordingDescriptor> origDescriptors =
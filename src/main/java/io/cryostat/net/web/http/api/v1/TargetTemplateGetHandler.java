@@ -85,7 +85,7 @@ class TargetTemplateGetHandler extends AbstractAuthenticatedRequestHandler {
         String templateName = ctx.pathParam("templateName");
         TemplateType templateType = TemplateType.valueOf(ctx.pathParam("templateType"));
         targetConnectionManager
-                .executeConnectedTask(
+                .executeReadOnlyTask(
                         getConnectionDescriptorFromContext(ctx),
                         conn -> conn.getTemplateService().getXml(templateName, templateType))
                 .ifPresentOrElse(
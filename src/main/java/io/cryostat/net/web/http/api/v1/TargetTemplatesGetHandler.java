@@ -97,7 +97,7 @@ class TargetTemplatesGetHandler extends AbstractAuthenticatedRequestHandler {
     @Override
     public void handleAuthenticated(RoutingContext ctx) throws Exception {
         List<Template> templates =
-                connectionManager.executeConnectedTask(
+                connectionManager.executeReadOnlyTask(
                         getConnectionDescriptorFromContext(ctx),
                         connection -> {
                             List<Template> list =
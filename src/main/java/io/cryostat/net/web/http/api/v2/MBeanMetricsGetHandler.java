@@ -82,7 +82,7 @@ public class MBeanMetricsGetHandler extends AbstractV2RequestHandler<MBeanMetric
 
     @Override
     public IntermediateResponse<MBeanMetrics> handle(RequestParameters params) throws Exception {
-        return tcm.executeConnectedTask(
+        return tcm.executeReadOnlyTask(
                 getConnectionDescriptorFromParams(params),
                 conn -> {
                     MBeanMetrics metrics = conn.getMBeanMetrics();
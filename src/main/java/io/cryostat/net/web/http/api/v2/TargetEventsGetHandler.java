@@ -90,7 +90,7 @@ class TargetEventsGetHandler extends AbstractV2RequestHandler<List<SerializableE
     @Override
     public IntermediateResponse<List<SerializableEventTypeInfo>> handle(RequestParameters params)
             throws Exception {
-        return targetConnectionManager.executeConnectedTask(
+        return targetConnectionManager.executeReadOnlyTask(
                 getConnectionDescriptorFromParams(params),
                 connection -> {
                     String q = params.getQueryParams().get("q");
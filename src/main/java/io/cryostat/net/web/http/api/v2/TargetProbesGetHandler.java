@@ -89,7 +89,7 @@ class TargetProbesGetHandler extends AbstractV2RequestHandler<List<Event>> {
             sb.append("targetId is required.");
             throw new ApiException(400, sb.toString().trim());
         }
-        return connectionManager.executeConnectedTask(
+        return connectionManager.executeReadOnlyTask(
                 getConnectionDescriptorFromParams(requestParams),
                 connection -> {
                     List<Event> response = new ArrayList<Event>();
@@ -107,7 +107,7 @@ class TargetRecordingGetHandler extends AbstractAssetJwtConsumingHandler {
             throws Exception {
         ConnectionDescriptor connectionDescriptor = getConnectionDescriptorFromJwt(ctx, jwt);
         Optional<InputStream> stream =
-                targetConnectionManager.executeConnectedTask(
+                targetConnectionManager.executeReadOnlyTask(
                         connectionDescriptor,
                         conn ->
                                 conn.getService().getAvailableRecordings().stream()
@@ -90,7 +90,7 @@ class TargetRecordingOptionsListGetHandler
     public IntermediateResponse<List<SerializableOptionDescriptor>> handle(
             RequestParameters requestParams) throws Exception {
         List<SerializableOptionDescriptor> options =
-                connectionManager.executeConnectedTask(
+                connectionManager.executeReadOnlyTask(
                         getConnectionDescriptorFromParams(requestParams),
                         connection -> {
                             Map<String, IOptionDescriptor<?>> origOptions =
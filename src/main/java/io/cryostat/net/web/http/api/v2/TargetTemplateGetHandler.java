@@ -83,7 +83,7 @@ class TargetTemplateGetHandler extends AbstractAssetJwtConsumingHandler {
         String templateName = ctx.pathParam("templateName");
         TemplateType templateType = TemplateType.valueOf(ctx.pathParam("templateType"));
         targetConnectionManager
-                .executeConnectedTask(
+                .executeReadOnlyTask(
                         getConnectionDescriptorFromJwt(ctx, jwt),
                         conn -> conn.getTemplateService().getXml(templateName, templateType))
                 .ifPresentOrElse(
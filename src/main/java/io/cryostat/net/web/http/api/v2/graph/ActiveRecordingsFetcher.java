@@ -18,7 +18,9 @@ package io.cryostat.net.web.http.api.v2.graph;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -29,6 +31,7 @@ import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ActiveRecordingsFetcher.Active;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
 import io.cryostat.net.web.http.api.v2.graph.labels.LabelSelectorMatcher;
+import io.cryostat.recordings.RecordingMetadataManager;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import graphql.schema.DataFetchingEnvironment;
@@ -40,9 +43,12 @@ import graphql.schema.DataFetchingEnvironment;
                         + " the GraphQL engine")
 class ActiveRecordingsFetcher extends AbstractPermissionedDataFetcher<Active> {
 
+    private final RecordingMetadataManager metadataManager;
+
     @Inject
-    ActiveRecordingsFetcher(AuthManager auth) {
+    ActiveRecordingsFetcher(AuthManager auth, RecordingMetadataManager metadataManager) {
         super(auth);
+        this.metadataManager = metadataManager;
     }
 
     @Override
@@ -89,12 +95,16 @@ class ActiveRecordingsFetcher extends AbstractPermissionedDataFetcher<Active> {
         if (filter.contains(FilterInput.Key.LABELS)) {
             List<String> labels = filter.get(FilterInput.Key.LABELS);
             for (String label : labels) {
+                LabelSelectorMatcher matcher = LabelSelectorMatcher.parse(label);
+                Optional<Set<String>> indexed = getIndexedRecordingNames(source, matcher);
                 recordings =
                         recordings.stream()
                                 .filter(
                                         r ->
-                                                LabelSelectorMatcher.parse(label)
-                                                        .test(r.getMetadata().getLabels()))
+                                                indexed.isPresent()
+                                                        ? indexed.get().contains(r.getName())
+                                                        : matcher.test(
+                                                                r.getMetadata().getLabels()))
                                 .collect(Collectors.toList());
             }
         }
@@ -157,6 +167,20 @@ class ActiveRecordingsFetcher extends AbstractPermissionedDataFetcher<Active> {
         return active;
     }
 
+    /**
+     * Plain equality selectors can be answered from the metadata manager's label index rather than
+     * by testing every recording's labels.
+     */
+    private Optional<Set<String>> getIndexedRecordingNames(
+            Recordings source, LabelSelectorMatcher matcher) {
+        Optional<Map.Entry<String, String>> required = matcher.getRequiredLabel();
+        if (source.jvmId == null || required.isEmpty()) {
+            return Optional.empty();
+        }
+        return metadataManager.getRecordingNamesWithLabel(
+                source.jvmId, required.get().getKey(), required.get().getValue());
+    }
+
     static class Active {
         List<GraphRecordingDescriptor> data;
         AggregateInfo aggregate;
@@ -15,20 +15,23 @@
  */
 package io.cryostat.net.web.http.api.v2.graph;
 
-import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 
+import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
 import io.cryostat.net.web.http.api.v2.graph.labels.LabelSelectorMatcher;
+import io.cryostat.recordings.ArchivedRecordingQuery;
+import io.cryostat.recordings.RecordingArchiveHelper;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -41,9 +44,18 @@ import graphql.schema.DataFetchingEnvironment;
                         + " the GraphQL engine")
 class ArchivedRecordingsFetcher extends AbstractPermissionedDataFetcher<Archived> {
 
+    private static final String LIMIT_ARGUMENT = "limit";
+    private static final String OFFSET_ARGUMENT = "offset";
+
+    private final RecordingArchiveHelper archiveHelper;
+    private final Logger logger;
+
     @Inject
-    ArchivedRecordingsFetcher(AuthManager auth) {
+    ArchivedRecordingsFetcher(
+            AuthManager auth, RecordingArchiveHelper archiveHelper, Logger logger) {
         super(auth);
+        this.archiveHelper = archiveHelper;
+        this.logger = logger;
     }
 
     @Override
@@ -61,78 +73,76 @@ class ArchivedRecordingsFetcher extends AbstractPermissionedDataFetcher<Archived
         return EnumSet.of(ResourceAction.READ_RECORDING);
     }
 
-    @Override
-    boolean blocking() {
-        return false;
-    }
-
     public Archived getAuthenticated(DataFetchingEnvironment environment) throws Exception {
         Recordings source = environment.getSource();
-        FilterInput filter = FilterInput.from(environment);
-        List<ArchivedRecordingInfo> recordings = new ArrayList<>(source.archived);
+        ArchivedRecordingQuery query =
+                buildQuery(environment, FilterInput.from(environment))
+                        .sourceTarget(source.targetId)
+                        .build();
+        try {
+            return toArchived(archiveHelper.queryRecordings(query).get());
+        } catch (ExecutionException e) {
+            logger.warn("Couldn't get archived recordings for {}", source.targetId);
+            logger.warn(e);
+            return toArchived(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
+        }
+    }
+
+    /**
+     * Translate the archived recording filter and paging arguments into an archive query, so that
+     * the selection is answered by the archive index rather than by filtering every recording.
+     */
+    static ArchivedRecordingQuery.Builder buildQuery(
+            DataFetchingEnvironment environment, FilterInput filter) {
+        ArchivedRecordingQuery.Builder query = ArchivedRecordingQuery.builder();
         if (filter.contains(FilterInput.Key.NAME)) {
-            String recordingName = filter.get(FilterInput.Key.NAME);
-            recordings =
-                    recordings.stream()
-                            .filter(r -> Objects.equals(r.getName(), recordingName))
-                            .collect(Collectors.toList());
+            query.name(filter.get(FilterInput.Key.NAME));
         }
         if (filter.contains(FilterInput.Key.NAMES)) {
-            List<String> names = filter.get(FilterInput.Key.NAMES);
-            recordings =
-                    recordings.stream()
-                            .filter(r -> names.contains(r.getName()))
-                            .collect(Collectors.toList());
+            query.names(filter.<List<String>>get(FilterInput.Key.NAMES));
         }
-
         if (filter.contains(FilterInput.Key.LABELS)) {
             List<String> labels = filter.get(FilterInput.Key.LABELS);
             for (String label : labels) {
-                recordings =
-                        recordings.stream()
-                                .filter(
-                                        r ->
-                                                LabelSelectorMatcher.parse(label)
-                                                        .test(r.getMetadata().getLabels()))
-                                .collect(Collectors.toList());
+                LabelSelectorMatcher matcher = LabelSelectorMatcher.parse(label);
+                Optional<Map.Entry<String, String>> required = matcher.getRequiredLabel();
+                if (required.isPresent()) {
+                    query.label(required.get().getKey(), required.get().getValue());
+                } else {
+                    query.labelSelector(matcher);
+                }
             }
         }
         if (filter.contains(FilterInput.Key.SIZE_GE)) {
-            long fileSize = filter.get(FilterInput.Key.SIZE_GE);
-            recordings =
-                    recordings.stream()
-                            .filter(r -> r.getSize() >= fileSize)
-                            .collect(Collectors.toList());
+            query.sizeGreaterThanEqual(filter.<Long>get(FilterInput.Key.SIZE_GE));
         }
         if (filter.contains(FilterInput.Key.SIZE_LE)) {
-            long fileSize = filter.get(FilterInput.Key.SIZE_LE);
-            recordings =
-                    recordings.stream()
-                            .filter(r -> r.getSize() <= fileSize)
-                            .collect(Collectors.toList());
+            query.sizeLessThanEqual(filter.<Long>get(FilterInput.Key.SIZE_LE));
         }
         if (filter.contains(FilterInput.Key.ARCHIVED_TIME_AFTER)) {
-            long startTime = filter.get(FilterInput.Key.ARCHIVED_TIME_AFTER);
-            recordings =
-                    recordings.stream()
-                            .filter(r -> r.getArchivedTime() >= startTime)
-                            .collect(Collectors.toList());
+            query.archivedTimeAfterEqual(filter.<Long>get(FilterInput.Key.ARCHIVED_TIME_AFTER));
         }
         if (filter.contains(FilterInput.Key.ARCHIVED_TIME_BEFORE)) {
-            long endTime = filter.get(FilterInput.Key.ARCHIVED_TIME_BEFORE);
-            recordings =
-                    recordings.stream()
-                            .filter(r -> r.getArchivedTime() <= endTime)
-                            .collect(Collectors.toList());
+            query.archivedTimeBeforeEqual(filter.<Long>get(FilterInput.Key.ARCHIVED_TIME_BEFORE));
+        }
+        Integer limit = environment.getArgument(LIMIT_ARGUMENT);
+        if (limit != null) {
+            query.limit(limit);
         }
+        Integer offset = environment.getArgument(OFFSET_ARGUMENT);
+        if (offset != null) {
+            query.offset(offset);
+        }
+        return query;
+    }
 
+    static Archived toArchived(ArchivedRecordingQuery.Result result) {
         Archived archived = new Archived();
         AggregateInfo aggregate = new AggregateInfo();
-        archived.data = recordings;
-        aggregate.count = archived.data.size();
-        aggregate.size = archived.data.stream().mapToLong(ArchivedRecordingInfo::getSize).sum();
+        archived.data = result.getRecordings();
+        aggregate.count = result.getCount();
+        aggregate.size = result.getAggregateSize();
         archived.aggregate = aggregate;
-
         return archived;
     }
 
@@ -17,20 +17,28 @@ package io.cryostat.net.web.http.api.v2.graph;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.configuration.Variables;
 import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Environment;
 import io.cryostat.discovery.DiscoveryStorage;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.web.WebServer;
 import io.cryostat.net.web.http.RequestHandler;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.recordings.RecordingArchiveHelper;
 import io.cryostat.recordings.RecordingMetadataManager;
 import io.cryostat.recordings.RecordingOptionsBuilderFactory;
@@ -61,6 +69,9 @@ import org.apache.commons.codec.binary.Base32;
 @Module
 public abstract class GraphModule {
 
+    static final String GRAPHQL_TARGET_THREADS = "GRAPHQL_TARGET_THREADS";
+    static final String GRAPHQL_TARGET_TIMEOUT = "GRAPHQL_TARGET_TIMEOUT";
+
     @Binds
     @IntoSet
     abstract RequestHandler bindGraphPostBodyHandler(GraphQLPostBodyHandler handler);
@@ -80,7 +91,9 @@ public abstract class GraphModule {
     @Provides
     @Singleton
     static GraphQL provideGraphQL(
-            Set<AbstractPermissionedDataFetcher<?>> fetchers, Set<AbstractTypeResolver> resolvers) {
+            Set<AbstractPermissionedDataFetcher<?>> fetchers,
+            Set<AbstractTypeResolver> resolvers,
+            Logger logger) {
         RuntimeWiring.Builder wiringBuilder =
                 RuntimeWiring.newRuntimeWiring()
                         .scalar(ExtendedScalars.Object)
@@ -141,9 +154,52 @@ public abstract class GraphModule {
                 };
         return GraphQL.newGraphQL(new SchemaGenerator().makeExecutableSchema(tdr, wiring))
                 .preparsedDocumentProvider(preparsedCache)
+                .instrumentation(new QueryTimingInstrumentation(logger))
                 .build();
     }
 
+    @Provides
+    @Singleton
+    @Named(GRAPHQL_TARGET_THREADS)
+    static int provideGraphQLTargetThreads(Environment env) {
+        String n = env.getEnv(Variables.GRAPHQL_TARGET_THREADS, "8");
+        return Math.max(1, Integer.parseInt(n));
+    }
+
+    @Provides
+    @Singleton
+    @Named(GRAPHQL_TARGET_TIMEOUT)
+    static Duration provideGraphQLTargetTimeout(Environment env) {
+        String d = env.getEnv(Variables.GRAPHQL_TARGET_TIMEOUT_MS, "10000");
+        return Duration.ofMillis(Math.max(1, Long.parseLong(d)));
+    }
+
+    @Provides
+    @Singleton
+    static TargetDataLoaders provideTargetDataLoaders(
+            TargetConnectionManager tcm,
+            CredentialsManager credentialsManager,
+            RecordingMetadataManager metadataManager,
+            ActiveRecordingDescriptorCache descriptorCache,
+            Provider<WebServer> webServer,
+            @Named(GRAPHQL_TARGET_THREADS) int threads,
+            @Named(GRAPHQL_TARGET_TIMEOUT) Duration timeout,
+            Logger logger) {
+        ThreadPoolExecutor workers =
+                new ThreadPoolExecutor(
+                        threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        workers.allowCoreThreadTimeOut(true);
+        return new TargetDataLoaders(
+                tcm,
+                credentialsManager,
+                metadataManager,
+                descriptorCache,
+                webServer,
+                workers,
+                timeout,
+                logger);
+    }
+
     @Binds
     @IntoSet
     abstract AbstractTypeResolver bindNodeTypeResolver(NodeTypeResolver typeResolver);
@@ -162,16 +218,8 @@ public abstract class GraphModule {
     abstract AbstractPermissionedDataFetcher<?> bindRootNodeFetcher(RootNodeFetcher apdf);
 
     @Provides
-    static RecordingsFetcher provideRecordingsFetcher(
-            AuthManager auth,
-            TargetConnectionManager tcm,
-            RecordingArchiveHelper archiveHelper,
-            CredentialsManager credentialsManager,
-            RecordingMetadataManager metadataManager,
-            Provider<WebServer> webServer,
-            Logger logger) {
-        return new RecordingsFetcher(
-                auth, tcm, archiveHelper, credentialsManager, metadataManager, webServer, logger);
+    static RecordingsFetcher provideRecordingsFetcher(AuthManager auth) {
+        return new RecordingsFetcher(auth);
     }
 
     @Binds
@@ -179,8 +227,9 @@ public abstract class GraphModule {
     abstract AbstractPermissionedDataFetcher<?> bindRecordingsFetcher(RecordingsFetcher apdf);
 
     @Provides
-    static ActiveRecordingsFetcher provideActiveRecordingsFetcher(AuthManager auth) {
-        return new ActiveRecordingsFetcher(auth);
+    static ActiveRecordingsFetcher provideActiveRecordingsFetcher(
+            AuthManager auth, RecordingMetadataManager metadataManager) {
+        return new ActiveRecordingsFetcher(auth, metadataManager);
     }
 
     @Binds
@@ -200,8 +249,9 @@ public abstract class GraphModule {
             AllArchivedRecordingsFetcher apdf);
 
     @Provides
-    static ArchivedRecordingsFetcher provideArchivedRecordingsFetcher(AuthManager auth) {
-        return new ArchivedRecordingsFetcher(auth);
+    static ArchivedRecordingsFetcher provideArchivedRecordingsFetcher(
+            AuthManager auth, RecordingArchiveHelper recordingArchiveHelper, Logger logger) {
+        return new ArchivedRecordingsFetcher(auth, recordingArchiveHelper, logger);
     }
 
     @Binds
@@ -399,12 +449,8 @@ public abstract class GraphModule {
             DeleteArchivedRecordingMutator apdf);
 
     @Provides
-    static MBeanMetricsFetcher provideMBeanMetricsFetcher(
-            AuthManager auth,
-            TargetConnectionManager tcm,
-            CredentialsManager credentialsManager,
-            Logger logger) {
-        return new MBeanMetricsFetcher(auth, tcm, credentialsManager, logger);
+    static MBeanMetricsFetcher provideMBeanMetricsFetcher(AuthManager auth) {
+        return new MBeanMetricsFetcher(auth);
     }
 
     @Binds
@@ -26,8 +26,9 @@ import io.vertx.core.http.HttpMethod;
 class GraphQLGetHandler extends GraphQLPostHandler {
 
     @Inject
-    GraphQLGetHandler(GraphQL graph, AuthManager auth, Logger logger) {
-        super(graph, auth, logger);
+    GraphQLGetHandler(
+            GraphQL graph, TargetDataLoaders dataLoaders, AuthManager auth, Logger logger) {
+        super(graph, dataLoaders, auth, logger);
     }
 
     @Override
@@ -43,8 +43,14 @@ class GraphQLPostHandler implements RequestHandler {
     private final Logger logger;
 
     @Inject
-    GraphQLPostHandler(GraphQL graph, AuthManager auth, Logger logger) {
-        this.handler = GraphQLHandler.create(graph);
+    GraphQLPostHandler(
+            GraphQL graph, TargetDataLoaders dataLoaders, AuthManager auth, Logger logger) {
+        // each query execution gets its own registry so that loaded target data is never shared
+        // between requests
+        this.handler =
+                GraphQLHandler.create(graph)
+                        .beforeExecute(
+                                b -> b.builder().dataLoaderRegistry(dataLoaders.newRegistry()));
         this.auth = auth;
         this.logger = logger;
     }
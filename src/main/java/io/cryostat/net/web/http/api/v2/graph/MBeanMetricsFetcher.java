@@ -17,37 +17,25 @@ package io.cryostat.net.web.http.api.v2.graph;
 
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import javax.inject.Inject;
 
-import io.cryostat.configuration.CredentialsManager;
-import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.MBeanMetrics;
 import io.cryostat.net.AuthManager;
-import io.cryostat.net.ConnectionDescriptor;
-import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.platform.ServiceRef;
 import io.cryostat.platform.discovery.TargetNode;
 
 import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
 
-public class MBeanMetricsFetcher extends AbstractPermissionedDataFetcher<MBeanMetrics> {
-
-    private final TargetConnectionManager tcm;
-    private final CredentialsManager credentialsManager;
-    private final Logger logger;
+public class MBeanMetricsFetcher
+        extends AbstractPermissionedDataFetcher<CompletableFuture<MBeanMetrics>> {
 
     @Inject
-    MBeanMetricsFetcher(
-            AuthManager auth,
-            TargetConnectionManager tcm,
-            CredentialsManager credentialsManager,
-            Logger logger) {
+    MBeanMetricsFetcher(AuthManager auth) {
         super(auth);
-        this.tcm = tcm;
-        this.credentialsManager = credentialsManager;
-        this.logger = logger;
     }
 
     @Override
@@ -60,23 +48,25 @@ public class MBeanMetricsFetcher extends AbstractPermissionedDataFetcher<MBeanMe
         return "mbeanMetrics";
     }
 
+    @Override
+    boolean blocking() {
+        return false;
+    }
+
     @Override
     public Set<ResourceAction> resourceActions() {
         return EnumSet.of(ResourceAction.READ_TARGET, ResourceAction.READ_CREDENTIALS);
     }
 
     @Override
-    public MBeanMetrics getAuthenticated(DataFetchingEnvironment environment) throws Exception {
+    public CompletableFuture<MBeanMetrics> getAuthenticated(DataFetchingEnvironment environment)
+            throws Exception {
         TargetNode source = (TargetNode) environment.getSource();
         ServiceRef target = source.getTarget();
-        String targetId = target.getServiceUri().toString();
-        ConnectionDescriptor cd =
-                new ConnectionDescriptor(targetId, credentialsManager.getCredentials(target));
-        try {
-            return tcm.executeConnectedTask(cd, conn -> conn.getMBeanMetrics());
-        } catch (Exception e) {
-            logger.warn(e);
-            return null;
-        }
+        DataLoader<ServiceRef, MBeanMetrics> loader =
+                environment.getDataLoader(TargetDataLoaders.MBEAN_METRICS);
+        // failures are logged by the loader. Unreachable targets have null metrics rather than
+        // failing the query
+        return loader.load(target).exceptionally(t -> null);
     }
 }
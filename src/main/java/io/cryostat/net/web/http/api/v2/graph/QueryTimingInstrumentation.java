@@ -0,0 +1,96 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net.web.http.api.v2.graph;
+
+import io.cryostat.core.log.Logger;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records the overall execution time of each GraphQL query, including the time spent waiting on
+ * batched target data loads, along with how many errors the result carried. Queries which
+ * complete with some fields failed because a target was unreachable or slow are partial results
+ * rather than failures, so the error count is what distinguishes them. Timings are logged at debug
+ * level, except for queries slower than {@link #SLOW_QUERY_MILLIS} which are logged at info.
+ */
+class QueryTimingInstrumentation extends SimplePerformantInstrumentation {
+
+    static final long SLOW_QUERY_MILLIS = 1_000;
+
+    private final Logger logger;
+
+    QueryTimingInstrumentation(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(
+            InstrumentationExecutionParameters parameters, InstrumentationState state) {
+        long start = System.nanoTime();
+        GraphQLQuery evt = new GraphQLQuery(parameters.getOperation());
+        evt.begin();
+        return SimpleInstrumentationContext.whenCompleted(
+                (result, t) -> {
+                    evt.end();
+                    int errors = 0;
+                    if (t != null) {
+                        errors = 1;
+                    } else if (result != null) {
+                        errors = result.getErrors().size();
+                    }
+                    evt.setErrors(errors);
+                    if (evt.shouldCommit()) {
+                        evt.commit();
+                    }
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    String msg = "GraphQL query {} completed in {}ms with {} errors";
+                    if (elapsed >= SLOW_QUERY_MILLIS) {
+                        logger.info(msg, parameters.getOperation(), elapsed, errors);
+                    } else {
+                        logger.debug(msg, parameters.getOperation(), elapsed, errors);
+                    }
+                });
+    }
+
+    @Name("io.cryostat.net.web.http.api.v2.graph.QueryTimingInstrumentation.GraphQLQuery")
+    @Label("GraphQL Query")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class GraphQLQuery extends Event {
+        String operationName;
+        int errors;
+
+        GraphQLQuery(String operationName) {
+            this.operationName = operationName;
+        }
+
+        void setErrors(int errors) {
+            this.errors = errors;
+        }
+    }
+}
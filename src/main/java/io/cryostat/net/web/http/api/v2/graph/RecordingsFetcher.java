@@ -15,63 +15,29 @@
  */
 package io.cryostat.net.web.http.api.v2.graph;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
-import javax.inject.Provider;
 
-import org.openjdk.jmc.common.unit.QuantityConversionException;
-
-import io.cryostat.configuration.CredentialsManager;
-import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
-import io.cryostat.net.ConnectionDescriptor;
-import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.security.ResourceAction;
-import io.cryostat.net.web.WebServer;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
 import io.cryostat.platform.ServiceRef;
 import io.cryostat.platform.discovery.TargetNode;
-import io.cryostat.recordings.RecordingArchiveHelper;
-import io.cryostat.recordings.RecordingMetadataManager;
-import io.cryostat.recordings.RecordingMetadataManager.Metadata;
-import io.cryostat.rules.ArchivedRecordingInfo;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
 
-class RecordingsFetcher extends AbstractPermissionedDataFetcher<Recordings> {
-
-    private final TargetConnectionManager targetConnectionManager;
-    private final RecordingArchiveHelper archiveHelper;
-    private final CredentialsManager credentialsManager;
-    private final RecordingMetadataManager metadataManager;
-    private final Provider<WebServer> webServer;
-    private final Logger logger;
+class RecordingsFetcher extends AbstractPermissionedDataFetcher<CompletableFuture<Recordings>> {
 
     @Inject
-    RecordingsFetcher(
-            AuthManager auth,
-            TargetConnectionManager targetConnectionManager,
-            RecordingArchiveHelper archiveHelper,
-            CredentialsManager credentialsManager,
-            RecordingMetadataManager metadataManager,
-            Provider<WebServer> webServer,
-            Logger logger) {
+    RecordingsFetcher(AuthManager auth) {
         super(auth);
-        this.targetConnectionManager = targetConnectionManager;
-        this.archiveHelper = archiveHelper;
-        this.credentialsManager = credentialsManager;
-        this.metadataManager = metadataManager;
-        this.webServer = webServer;
-        this.logger = logger;
     }
 
     @Override
@@ -84,6 +50,11 @@ class RecordingsFetcher extends AbstractPermissionedDataFetcher<Recordings> {
         return "recordings";
     }
 
+    @Override
+    boolean blocking() {
+        return false;
+    }
+
     @Override
     public Set<ResourceAction> resourceActions() {
         return EnumSet.of(
@@ -98,76 +69,40 @@ class RecordingsFetcher extends AbstractPermissionedDataFetcher<Recordings> {
             justification =
                     "The Recordings fields are serialized and returned to the client by the GraphQL"
                             + " engine")
-    public Recordings getAuthenticated(DataFetchingEnvironment environment) throws Exception {
+    public CompletableFuture<Recordings> getAuthenticated(DataFetchingEnvironment environment)
+            throws Exception {
         TargetNode source = (TargetNode) environment.getSource();
         ServiceRef target = source.getTarget();
-        String targetId = target.getServiceUri().toString();
         Recordings recordings = new Recordings();
+        // archived recordings are queried by the ArchivedRecordingsFetcher using the request's
+        // filter, so only the source target is needed here
+        recordings.targetId = target.getServiceUri().toString();
+        recordings.jvmId = target.getJvmId();
 
         List<String> requestedFields =
                 environment.getSelectionSet().getFields().stream()
                         .map(field -> field.getName())
                         .collect(Collectors.toList());
 
-        if (requestedFields.contains("active")) {
-            ConnectionDescriptor cd =
-                    new ConnectionDescriptor(targetId, credentialsManager.getCredentials(target));
-            // FIXME populating these two struct members are each async tasks. we should do them in
-            // parallel
-            recordings.active =
-                    targetConnectionManager.executeConnectedTask(
-                            cd,
-                            conn -> {
-                                return conn.getService().getAvailableRecordings().stream()
-                                        .map(
-                                                r -> {
-                                                    try {
-                                                        String downloadUrl =
-                                                                webServer
-                                                                        .get()
-                                                                        .getDownloadURL(
-                                                                                conn, r.getName());
-                                                        String reportUrl =
-                                                                webServer
-                                                                        .get()
-                                                                        .getReportURL(
-                                                                                conn, r.getName());
-                                                        Metadata metadata =
-                                                                metadataManager.getMetadata(
-                                                                        cd, r.getName());
-                                                        return new GraphRecordingDescriptor(
-                                                                target,
-                                                                r,
-                                                                downloadUrl,
-                                                                reportUrl,
-                                                                metadata);
-                                                    } catch (QuantityConversionException
-                                                            | URISyntaxException
-                                                            | IOException e) {
-                                                        logger.error(e);
-                                                        return null;
-                                                    }
-                                                })
-                                        .filter(Objects::nonNull)
-                                        .collect(Collectors.toList());
-                            });
-        }
-
-        if (requestedFields.contains("archived")) {
-            try {
-                recordings.archived = archiveHelper.getRecordings(targetId).get();
-            } catch (ExecutionException e) {
-                recordings.archived = List.of();
-                logger.warn("Couldn't get archived recordings for {}", targetId);
-                logger.warn(e);
-            }
+        if (!requestedFields.contains("active")) {
+            return CompletableFuture.completedFuture(recordings);
         }
 
-        return recordings;
+        // the active recordings of every target in the query are loaded together in one batch.
+        // See TargetDataLoaders
+        DataLoader<ServiceRef, List<GraphRecordingDescriptor>> loader =
+                environment.getDataLoader(TargetDataLoaders.ACTIVE_RECORDINGS);
+        return loader.load(target)
+                .thenApply(
+                        active -> {
+                            recordings.active = active;
+                            return recordings;
+                        });
     }
 
     static class Recordings {
         List<GraphRecordingDescriptor> active;
-        List<ArchivedRecordingInfo> archived;
+        String targetId;
+        transient String jvmId;
     }
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net.web.http.api.v2.graph;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.inject.Provider;
+
+import org.openjdk.jmc.common.unit.QuantityConversionException;
+
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.MBeanMetrics;
+import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.net.web.WebServer;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
+import io.cryostat.recordings.RecordingMetadataManager;
+import io.cryostat.recordings.RecordingMetadataManager.Metadata;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.dataloader.BatchLoader;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderRegistry;
+import org.dataloader.Try;
+
+/**
+ * Creates the per-query {@link DataLoader}s for data which has to be fetched from each target over
+ * a JMX connection. Rather than every TargetNode in a query result opening its own connection in
+ * turn, fetchers enqueue their target with the loader and the GraphQL engine dispatches each
+ * loader once per level of the query, at which point the whole batch of targets is fetched
+ * concurrently. Each target is given its own timeout, and a target which fails or times out only
+ * fails the fields which depend on it rather than the whole query.
+ */
+class TargetDataLoaders {
+
+    static final String ACTIVE_RECORDINGS = "activeRecordings";
+    static final String MBEAN_METRICS = "mbeanMetrics";
+
+    private final TargetConnectionManager tcm;
+    private final CredentialsManager credentialsManager;
+    private final RecordingMetadataManager metadataManager;
+    private final ActiveRecordingDescriptorCache descriptorCache;
+    private final Provider<WebServer> webServer;
+    private final Executor executor;
+    private final Duration timeout;
+    private final Logger logger;
+
+    TargetDataLoaders(
+            TargetConnectionManager tcm,
+            CredentialsManager credentialsManager,
+            RecordingMetadataManager metadataManager,
+            ActiveRecordingDescriptorCache descriptorCache,
+            Provider<WebServer> webServer,
+            Executor executor,
+            Duration timeout,
+            Logger logger) {
+        this.tcm = tcm;
+        this.credentialsManager = credentialsManager;
+        this.metadataManager = metadataManager;
+        this.descriptorCache = descriptorCache;
+        this.webServer = webServer;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.logger = logger;
+    }
+
+    /**
+     * DataLoaders cache their results, so a new registry must be created for each query execution.
+     */
+    DataLoaderRegistry newRegistry() {
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        registry.register(
+                ACTIVE_RECORDINGS,
+                DataLoaderFactory.newDataLoaderWithTry(
+                        batch(ACTIVE_RECORDINGS, this::getActiveRecordings)));
+        registry.register(
+                MBEAN_METRICS,
+                DataLoaderFactory.newDataLoaderWithTry(
+                        batch(MBEAN_METRICS, this::getMBeanMetrics)));
+        return registry;
+    }
+
+    private <V> BatchLoader<ServiceRef, Try<V>> batch(String loader, TargetTask<V> task) {
+        return targets -> {
+            TargetBatch evt = new TargetBatch(loader, targets.size());
+            evt.begin();
+            List<CompletableFuture<Try<V>>> results =
+                    targets.stream()
+                            .map(target -> load(loader, task, target))
+                            .collect(Collectors.toList());
+            return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                    .thenApply(
+                            unused -> {
+                                List<Try<V>> tries =
+                                        results.stream()
+                                                .map(CompletableFuture::join)
+                                                .collect(Collectors.toList());
+                                evt.setFailed((int) tries.stream().filter(Try::isFailure).count());
+                                evt.end();
+                                if (evt.shouldCommit()) {
+                                    evt.commit();
+                                }
+                                return tries;
+                            });
+        };
+    }
+
+    private <V> CompletableFuture<Try<V>> load(
+            String loader, TargetTask<V> task, ServiceRef target) {
+        return CompletableFuture.supplyAsync(() -> execute(task, target), executor)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle(
+                        (v, t) -> {
+                            if (t == null) {
+                                return Try.succeeded(v);
+                            }
+                            return Try.<V>failed(onFailure(loader, target, unwrap(t)));
+                        });
+    }
+
+    private <V> V execute(TargetTask<V> task, ServiceRef target) {
+        try {
+            return task.execute(target);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Throwable onFailure(String loader, ServiceRef target, Throwable t) {
+        if (t instanceof TimeoutException) {
+            t =
+                    new TimeoutException(
+                            String.format(
+                                    "%s for %s did not complete within %dms",
+                                    loader, target.getServiceUri(), timeout.toMillis()));
+        }
+        logger.warn("Failed to load {} for {}: {}", loader, target.getServiceUri(), t.getMessage());
+        return t;
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            return t.getCause();
+        }
+        return t;
+    }
+
+    private List<GraphRecordingDescriptor> getActiveRecordings(ServiceRef target)
+            throws Exception {
+        String targetId = target.getServiceUri().toString();
+        ConnectionDescriptor cd =
+                new ConnectionDescriptor(targetId, credentialsManager.getCredentials(target));
+        return tcm.executeReadOnlyTask(
+                cd,
+                conn ->
+                        descriptorCache.get(cd, conn).stream()
+                                .map(
+                                        r -> {
+                                            try {
+                                                String downloadUrl =
+                                                        webServer
+                                                                .get()
+                                                                .getDownloadURL(conn, r.getName());
+                                                String reportUrl =
+                                                        webServer
+                                                                .get()
+                                                                .getReportURL(conn, r.getName());
+                                                Metadata metadata =
+                                                        metadataManager.getMetadata(
+                                                                cd, r.getName());
+                                                return new GraphRecordingDescriptor(
+                                                        target,
+                                                        r,
+                                                        downloadUrl,
+                                                        reportUrl,
+                                                        metadata);
+                                            } catch (QuantityConversionException
+                                                    | URISyntaxException
+                                                    | IOException e) {
+                                                logger.error(e);
+                                                return null;
+                                            }
+                                        })
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList()));
+    }
+
+    private MBeanMetrics getMBeanMetrics(ServiceRef target) throws Exception {
+        String targetId = target.getServiceUri().toString();
+        ConnectionDescriptor cd =
+                new ConnectionDescriptor(targetId, credentialsManager.getCredentials(target));
+        return tcm.executeReadOnlyTask(cd, conn -> conn.getMBeanMetrics());
+    }
+
+    private interface TargetTask<V> {
+        V execute(ServiceRef target) throws Exception;
+    }
+
+    @Name("io.cryostat.net.web.http.api.v2.graph.TargetDataLoaders.TargetBatch")
+    @Label("GraphQL Target Batch")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class TargetBatch extends Event {
+        String loader;
+        int targets;
+        int failed;
+
+        TargetBatch(String loader, int targets) {
+            this.loader = loader;
+            this.targets = targets;
+        }
+
+        void setFailed(int failed) {
+            this.failed = failed;
+        }
+    }
+}
@@ -36,6 +36,14 @@ public class EqualityMatcher implements LabelMatcher {
         return key;
     }
 
+    public EqualityMatcher.Operator getOperator() {
+        return operator;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
     @Override
     public boolean test(String s) {
         return operator.with(value).test(s);
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -62,6 +63,22 @@ public class LabelSelectorMatcher implements Predicate<Map<String, String>> {
         return this.matchers.stream().allMatch(m -> m.test(labels.get(m.getKey())));
     }
 
+    /**
+     * @return the label key and value which a label set must contain exactly in order to match, if
+     *     this selector is a plain equality such as "env = prod", which lets the selection be
+     *     answered by a label index rather than by testing each label set
+     */
+    public Optional<Map.Entry<String, String>> getRequiredLabel() {
+        if (this.matchers.size() != 1 || !(this.matchers.get(0) instanceof EqualityMatcher)) {
+            return Optional.empty();
+        }
+        EqualityMatcher matcher = (EqualityMatcher) this.matchers.get(0);
+        if (matcher.getOperator() == EqualityMatcher.Operator.NOT_EQUAL) {
+            return Optional.empty();
+        }
+        return Optional.of(Map.entry(matcher.getKey(), matcher.getValue()));
+    }
+
     public static LabelSelectorMatcher parse(String clause) throws IllegalArgumentException {
         Collection<Function<String, LabelMatcher>> parsers =
                 Arrays.asList(
@@ -18,6 +18,8 @@ package io.cryostat.net.web.http.generic;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -41,6 +43,7 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.WebClient;
+import org.apache.commons.lang3.StringUtils;
 
 class HealthGetHandler implements RequestHandler {
 
@@ -101,7 +104,7 @@ class HealthGetHandler implements RequestHandler {
             // using subprocess generation, so it is available
             reportsAvailable.complete(true);
         } else {
-            checkUri(Variables.REPORT_GENERATOR_ENV, "/health", reportsAvailable);
+            checkAnyUri(Variables.REPORT_GENERATOR_ENV, "/health", reportsAvailable);
         }
 
         ctx.response()
@@ -125,36 +128,56 @@ class HealthGetHandler implements RequestHandler {
                                         reportsAvailable.join())));
     }
 
+    private void checkAnyUri(String envName, String path, CompletableFuture<Boolean> future) {
+        // the variable holds a comma-separated list of URIs, ex. report generator replicas
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+        for (String uri : this.env.getEnv(envName).split(",")) {
+            if (StringUtils.isBlank(uri)) {
+                continue;
+            }
+            CompletableFuture<Boolean> check = new CompletableFuture<>();
+            checkUri(envName, uri.strip(), path, check);
+            checks.add(check);
+        }
+        CompletableFuture.allOf(checks.toArray(new CompletableFuture[0]))
+                .thenRun(() -> future.complete(checks.stream().anyMatch(CompletableFuture::join)));
+    }
+
     private void checkUri(String envName, String path, CompletableFuture<Boolean> future) {
         if (this.env.hasEnv(envName)) {
-            URI uri;
-            try {
-                uri = new URI(this.env.getEnv(envName));
-            } catch (URISyntaxException e) {
-                logger.error(e);
-                future.complete(false);
-                return;
-            }
-            logger.debug("Testing health of {}={} {}", envName, uri.toString(), path);
-            HttpRequest<Buffer> req = webClient.get(uri.getHost(), path);
-            if (uri.getPort() != -1) {
-                req = req.port(uri.getPort());
-            }
-            req.ssl("https".equals(uri.getScheme()))
-                    .timeout(5000)
-                    .send(
-                            handler -> {
-                                if (handler.failed()) {
-                                    this.logger.warn(new IOException(handler.cause()));
-                                    future.complete(false);
-                                    return;
-                                }
-                                future.complete(
-                                        HttpStatusCodeIdentifier.isSuccessCode(
-                                                handler.result().statusCode()));
-                            });
+            checkUri(envName, this.env.getEnv(envName), path, future);
         } else {
             future.complete(false);
         }
     }
+
+    private void checkUri(
+            String envName, String uriString, String path, CompletableFuture<Boolean> future) {
+        URI uri;
+        try {
+            uri = new URI(uriString);
+        } catch (URISyntaxException e) {
+            logger.error(e);
+            future.complete(false);
+            return;
+        }
+        logger.debug("Testing health of {}={} {}", envName, uri.toString(), path);
+        HttpRequest<Buffer> req = webClient.get(uri.getHost(), path);
+        if (uri.getPort() != -1) {
+            req = req.port(uri.getPort());
+        }
+        req.ssl("https".equals(uri.getScheme()))
+                .timeout(5000)
+                .send(
+                        handler -> {
+                            if (handler.failed()) {
+                                this.logger.warn(new IOException(handler.cause()));
+                                future.complete(false);
+                                return;
+                            }
+                            future.complete(
+                                    HttpStatusCodeIdentifier.isSuccessCode(
+                                            handler.result().statusCode()));
+                        });
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.platform.internal;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import io.cryostat.core.log.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dagger.Lazy;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.core.parsetools.RecordParser;
+
+/**
+ * Follows the {@code /events} stream of a Podman or Docker engine over its unix socket and passes
+ * container lifecycle events for containers with the discovery label to a handler. A periodic full
+ * reconciliation is also triggered, frequently while the event stream is not connected and only
+ * occasionally while it is, so that missed events are eventually corrected.
+ */
+class ContainerEventWatcher {
+
+    static final Set<String> LIFECYCLE_ACTIONS =
+            Set.of("create", "start", "die", "died", "destroy", "remove");
+    // the polling period used before event streams were supported, still used when disconnected
+    static final Duration DISCONNECTED_POLL_PERIOD = Duration.ofSeconds(10);
+    private static final long MIN_RECONNECT_DELAY_MS = 1_000L;
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000L;
+
+    private final Lazy<Vertx> vertx;
+    private final SocketAddress socket;
+    private final String requestPath;
+    private final Duration reconcilePeriod;
+    private final Gson gson;
+    private final Logger logger;
+    private final Consumer<ContainerEvent> eventHandler;
+    private final Runnable reconciler;
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private volatile boolean running;
+    private HttpClient httpClient;
+    private long reconnectDelay = MIN_RECONNECT_DELAY_MS;
+    private long reconnectTimerId = -1;
+    private long pollTimerId = -1;
+    private volatile long lastReconcile;
+
+    ContainerEventWatcher(
+            Lazy<Vertx> vertx,
+            SocketAddress socket,
+            String eventsPath,
+            String discoveryLabel,
+            Duration reconcilePeriod,
+            Gson gson,
+            Logger logger,
+            Consumer<ContainerEvent> eventHandler,
+            Runnable reconciler) {
+        this.vertx = vertx;
+        this.socket = socket;
+        this.requestPath =
+                eventsPath
+                        + "?filters="
+                        + URLEncoder.encode(
+                                gson.toJson(
+                                        Map.of(
+                                                "type",
+                                                List.of("container"),
+                                                "label",
+                                                List.of(discoveryLabel))),
+                                StandardCharsets.UTF_8);
+        this.reconcilePeriod = reconcilePeriod;
+        this.gson = gson;
+        this.logger = logger;
+        this.eventHandler = eventHandler;
+        this.reconciler = reconciler;
+    }
+
+    void start() {
+        running = true;
+        httpClient = vertx.get().createHttpClient();
+        reconcile();
+        connect();
+        pollTimerId =
+                vertx.get()
+                        .setPeriodic(
+                                DISCONNECTED_POLL_PERIOD.toMillis(),
+                                id -> {
+                                    long elapsed = System.nanoTime() - lastReconcile;
+                                    if (!connected.get()
+                                            || elapsed >= reconcilePeriod.toNanos()) {
+                                        reconcile();
+                                    }
+                                });
+    }
+
+    void stop() {
+        running = false;
+        vertx.get().cancelTimer(pollTimerId);
+        vertx.get().cancelTimer(reconnectTimerId);
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
+    boolean isConnected() {
+        return connected.get();
+    }
+
+    private void reconcile() {
+        lastReconcile = System.nanoTime();
+        reconciler.run();
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        RequestOptions options =
+                new RequestOptions()
+                        .setServer(socket)
+                        .setHost("localhost")
+                        .setPort(80)
+                        .setMethod(HttpMethod.GET)
+                        .setURI(requestPath);
+        httpClient
+                .request(options)
+                .compose(HttpClientRequest::send)
+                .onSuccess(this::follow)
+                .onFailure(this::scheduleReconnect);
+    }
+
+    private void follow(HttpClientResponse response) {
+        if (response.statusCode() != 200) {
+            response.request().reset();
+            scheduleReconnect(
+                    new IOException(
+                            String.format(
+                                    "Container events request failed with status %d",
+                                    response.statusCode())));
+            return;
+        }
+        connected.set(true);
+        reconnectDelay = MIN_RECONNECT_DELAY_MS;
+        logger.info("Following container events at {}", socket);
+        response.handler(RecordParser.newDelimited("\n", this::handleEvent));
+        response.exceptionHandler(this::onStreamClosed);
+        response.endHandler(unused -> onStreamClosed(null));
+        // events may have been missed while the stream was not connected
+        reconcile();
+    }
+
+    private void handleEvent(Buffer line) {
+        if (line.length() == 0) {
+            return;
+        }
+        try {
+            ContainerEvent event = gson.fromJson(line.toString(), ContainerEvent.class);
+            if (event == null
+                    || !"container".equals(event.Type())
+                    || event.Actor() == null
+                    || !LIFECYCLE_ACTIONS.contains(event.Action())) {
+                return;
+            }
+            eventHandler.accept(event);
+        } catch (JsonParseException e) {
+            logger.warn(e);
+        }
+    }
+
+    private void onStreamClosed(Throwable t) {
+        if (connected.compareAndSet(true, false)) {
+            scheduleReconnect(t);
+        }
+    }
+
+    private void scheduleReconnect(Throwable t) {
+        if (!running) {
+            return;
+        }
+        if (t != null) {
+            logger.warn("Container events stream failed: {}", t.getMessage());
+        }
+        long delay = reconnectDelay;
+        reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MS, reconnectDelay * 2);
+        reconnectTimerId = vertx.get().setTimer(delay, id -> connect());
+    }
+
+    static record ContainerEvent(String Type, String Action, Actor Actor) {}
+
+    static record Actor(String ID, Map<String, String> Attributes) {}
+}
@@ -18,8 +18,8 @@ package io.cryostat.platform.internal;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,7 +28,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import javax.management.remote.JMXServiceURL;
@@ -43,6 +44,7 @@ import io.cryostat.platform.discovery.AbstractNode;
 import io.cryostat.platform.discovery.BaseNodeType;
 import io.cryostat.platform.discovery.EnvironmentNode;
 import io.cryostat.platform.discovery.TargetNode;
+import io.cryostat.platform.internal.ContainerEventWatcher.ContainerEvent;
 import io.cryostat.util.URIUtil;
 
 import com.google.gson.Gson;
@@ -63,96 +65,142 @@ public class DockerPlatformClient extends AbstractPlatformClient {
     public static final String JMX_PORT_LABEL = "io.cryostat.jmxPort";
 
     private final Lazy<WebClient> webClient;
-    private final Lazy<Vertx> vertx;
     private final SocketAddress dockerSocket;
     private final Lazy<JFRConnectionToolkit> connectionToolkit;
     private final Gson gson;
     private final Logger logger;
-    private long timerId;
+    private final ContainerEventWatcher eventWatcher;
 
-    private final CopyOnWriteArrayList<ContainerSpec> containers = new CopyOnWriteArrayList<>();
+    // ServiceRefs are converted once per container state rather than on every query
+    private final Map<String, ContainerSpec> containers = new ConcurrentHashMap<>();
+    private final Map<String, ServiceRef> serviceRefs = new ConcurrentHashMap<>();
+    // list requests are numbered as they are sent. A response is stale if a response to a later
+    // request was already applied, either for the same container or for all of them
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<String, Long> appliedRequests = new HashMap<>();
+    private long reconciledRequest;
 
     DockerPlatformClient(
             Lazy<WebClient> webClient,
             Lazy<Vertx> vertx,
             SocketAddress dockerSocket,
             Lazy<JFRConnectionToolkit> connectionToolkit,
+            Duration reconcilePeriod,
             Gson gson,
             Logger logger) {
         this.webClient = webClient;
-        this.vertx = vertx;
         this.dockerSocket = dockerSocket;
         this.connectionToolkit = connectionToolkit;
         this.gson = gson;
         this.logger = logger;
+        this.eventWatcher =
+                new ContainerEventWatcher(
+                        vertx,
+                        dockerSocket,
+                        "/v1.41/events",
+                        DISCOVERY_LABEL,
+                        reconcilePeriod,
+                        gson,
+                        logger,
+                        this::handleEvent,
+                        this::queryContainers);
     }
 
     @Override
     public void start() throws Exception {
         super.start();
-        queryContainers();
-        this.timerId =
-                vertx.get()
-                        .setPeriodic(
-                                // TODO make this configurable
-                                10_000, unused -> queryContainers());
+        eventWatcher.start();
     }
 
     @Override
     public void stop() throws Exception {
         super.stop();
-        vertx.get().cancelTimer(timerId);
+        eventWatcher.stop();
     }
 
     @Override
     public List<ServiceRef> listDiscoverableServices() {
-        HashMap<String, ContainerSpec> result = new HashMap<>();
-
-        for (ContainerSpec container : containers) {
-            result.put(container.Id, container);
-        }
-
-        return convert(result.values());
+        return new ArrayList<>(serviceRefs.values());
     }
 
     private void queryContainers() {
+        long request = requests.incrementAndGet();
         doDockerListRequest(
-                current -> {
-                    Set<ContainerSpec> previous = new HashSet<>(containers);
-                    Set<ContainerSpec> updated = new HashSet<>(current);
-
-                    Set<ContainerSpec> intersection = new HashSet<>(containers);
-                    intersection.retainAll(updated);
-
-                    Set<ContainerSpec> removed = new HashSet<>(previous);
-                    removed.removeAll(intersection);
+                Map.of("label", List.of(DISCOVERY_LABEL)), current -> reconcile(request, current));
+    }
 
-                    Set<ContainerSpec> added = new HashSet<>(updated);
-                    added.removeAll(intersection);
+    private void handleEvent(ContainerEvent event) {
+        String id = event.Actor().ID();
+        long request = requests.incrementAndGet();
+        doDockerListRequest(
+                Map.of("id", List.of(id), "label", List.of(DISCOVERY_LABEL)),
+                current -> update(request, id, current.isEmpty() ? null : current.get(0)));
+    }
 
-                    // does anything ever get modified in this scheme?
-                    // notifyAsyncTargetDiscovery(EventKind.MODIFIED, sr);
+    /**
+     * Apply a full listing of the running containers, as returned for the given list request.
+     * Containers which are not listed are removed.
+     */
+    synchronized void reconcile(long request, List<ContainerSpec> current) {
+        if (request < reconciledRequest) {
+            return;
+        }
+        Map<String, ContainerSpec> specs = new HashMap<>();
+        current.forEach(spec -> specs.put(spec.Id, spec));
+        Set<String> ids = new HashSet<>(containers.keySet());
+        ids.addAll(specs.keySet());
+        ids.forEach(id -> update(request, id, specs.get(id)));
+        reconciledRequest = request;
+        // only results newer than this listing need to be remembered per container
+        appliedRequests.values().removeIf(r -> r <= request);
+    }
 
-                    containers.removeAll(removed);
-                    removed.stream()
-                            .map(this::convert)
-                            .filter(Objects::nonNull)
-                            .forEach(spec -> notifyAsyncTargetDiscovery(EventKind.LOST, spec));
+    /**
+     * Apply the latest known state of a container, which is null if the container is no longer
+     * running, and notify about any resulting change to its ServiceRef. The state is ignored if a
+     * later request's result for the same container was already applied.
+     */
+    synchronized void update(long request, String id, ContainerSpec current) {
+        if (request < appliedRequests.getOrDefault(id, reconciledRequest)) {
+            return;
+        }
+        appliedRequests.put(id, request);
+        ContainerSpec previous =
+                current == null ? containers.remove(id) : containers.put(id, current);
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        ServiceRef currentRef = current == null ? null : convert(current);
+        ServiceRef previousRef =
+                currentRef == null ? serviceRefs.remove(id) : serviceRefs.put(id, currentRef);
+        notifyChange(previousRef, currentRef);
+    }
 
-                    containers.addAll(added);
-                    added.stream()
-                            .map(this::convert)
-                            .filter(Objects::nonNull)
-                            .forEach(spec -> notifyAsyncTargetDiscovery(EventKind.FOUND, spec));
-                });
+    private void notifyChange(ServiceRef previousRef, ServiceRef currentRef) {
+        if (Objects.equals(previousRef, currentRef)) {
+            return;
+        }
+        if (previousRef != null
+                && currentRef != null
+                && previousRef.getServiceUri().equals(currentRef.getServiceUri())) {
+            notifyAsyncTargetDiscovery(EventKind.MODIFIED, currentRef);
+            return;
+        }
+        if (previousRef != null) {
+            notifyAsyncTargetDiscovery(EventKind.LOST, previousRef);
+        }
+        if (currentRef != null) {
+            notifyAsyncTargetDiscovery(EventKind.FOUND, currentRef);
+        }
     }
 
-    private void doDockerListRequest(Consumer<List<ContainerSpec>> successHandler) {
+    private void doDockerListRequest(
+            Map<String, List<String>> filters, Consumer<List<ContainerSpec>> successHandler) {
         URI requestPath = URI.create("http://d/v1.41/containers/json");
         webClient
                 .get()
                 .request(HttpMethod.GET, dockerSocket, 80, "localhost", requestPath.toString())
-                .addQueryParam("filters", gson.toJson(Map.of("label", List.of(DISCOVERY_LABEL))))
+                .addQueryParam("filters", gson.toJson(filters))
                 .timeout(2_000L)
                 .as(BodyCodec.string())
                 .send(
@@ -218,22 +266,17 @@ public class DockerPlatformClient extends AbstractPlatformClient {
 
             return serviceRef;
         } catch (NumberFormatException | URISyntaxException | MalformedURLException e) {
-            containers.remove(desc);
             logger.warn(e);
             return null;
         }
     }
 
-    private List<ServiceRef> convert(Collection<ContainerSpec> descs) {
-        return descs.stream().map(this::convert).filter(Objects::nonNull).toList();
-    }
-
     @Override
     public EnvironmentNode getDiscoveryTree() {
         List<AbstractNode> children = new ArrayList<>();
 
-        for (ContainerSpec container : containers) {
-            ServiceRef sr = convert(container);
+        for (ContainerSpec container : containers.values()) {
+            ServiceRef sr = serviceRefs.get(container.Id);
             if (sr == null) {
                 continue;
             }
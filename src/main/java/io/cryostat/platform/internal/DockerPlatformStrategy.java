@@ -16,6 +16,7 @@
 package io.cryostat.platform.internal;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +44,7 @@ class DockerPlatformStrategy implements PlatformDetectionStrategy<DockerPlatform
     private final Lazy<WebClient> webClient;
     private final Lazy<Vertx> vertx;
     private final Lazy<JFRConnectionToolkit> connectionToolkit;
+    private final Duration reconcilePeriod;
     private final Gson gson;
     private final FileSystem fs;
 
@@ -52,6 +54,7 @@ class DockerPlatformStrategy implements PlatformDetectionStrategy<DockerPlatform
             Lazy<WebClient> webClient,
             Lazy<Vertx> vertx,
             Lazy<JFRConnectionToolkit> connectionToolkit,
+            Duration reconcilePeriod,
             Gson gson,
             FileSystem fs) {
         this.logger = logger;
@@ -59,6 +62,7 @@ class DockerPlatformStrategy implements PlatformDetectionStrategy<DockerPlatform
         this.webClient = webClient;
         this.vertx = vertx;
         this.connectionToolkit = connectionToolkit;
+        this.reconcilePeriod = reconcilePeriod;
         this.gson = gson;
         this.fs = fs;
     }
@@ -129,7 +133,7 @@ class DockerPlatformStrategy implements PlatformDetectionStrategy<DockerPlatform
     public DockerPlatformClient getPlatformClient() {
         logger.info("Selected {} Strategy", getClass().getSimpleName());
         return new DockerPlatformClient(
-                webClient, vertx, getSocket(), connectionToolkit, gson, logger);
+                webClient, vertx, getSocket(), connectionToolkit, reconcilePeriod, gson, logger);
     }
 
     @Override
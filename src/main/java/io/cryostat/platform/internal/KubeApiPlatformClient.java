@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -49,12 +50,21 @@ import io.fabric8.kubernetes.api.model.EndpointPort;
 import io.fabric8.kubernetes.api.model.EndpointSubset;
 import io.fabric8.kubernetes.api.model.Endpoints;
 import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.ObjectReference;
 import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.discovery.v1.Endpoint;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointConditions;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.fabric8.kubernetes.client.dsl.Informable;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.concurrent.ConcurrentException;
 import org.apache.commons.lang3.concurrent.LazyInitializer;
 import org.apache.commons.lang3.tuple.Pair;
@@ -63,53 +73,66 @@ import org.apache.commons.lang3.tuple.Triple;
 public class KubeApiPlatformClient extends AbstractPlatformClient {
 
     private static final long ENDPOINTS_INFORMER_RESYNC_PERIOD = Duration.ofSeconds(30).toMillis();
+    private static final List<KubernetesNodeType> OWNER_INFORMER_TYPES =
+            List.of(
+                    KubernetesNodeType.POD,
+                    KubernetesNodeType.REPLICASET,
+                    KubernetesNodeType.REPLICATIONCONTROLLER,
+                    KubernetesNodeType.DEPLOYMENT,
+                    KubernetesNodeType.STATEFULSET,
+                    KubernetesNodeType.DAEMONSET);
     public static final String REALM = "KubernetesApi";
 
+    public static final String ALL_NAMESPACES = "*";
+
     private final KubernetesClient k8sClient;
     private final Set<String> namespaces;
-    private final LazyInitializer<HashMap<String, SharedIndexInformer<Endpoints>>> nsInformers =
-            new LazyInitializer<HashMap<String, SharedIndexInformer<Endpoints>>>() {
-                @Override
-                protected HashMap<String, SharedIndexInformer<Endpoints>> initialize()
-                        throws ConcurrentException {
-                    // TODO add support for some wildcard indicating a single Informer for any
-                    // namespace that
-                    // Cryostat has permissions to. This will need some restructuring of how the
-                    // namespaces
-                    // within the discovery tree are mapped.
-                    var result = new HashMap<String, SharedIndexInformer<Endpoints>>();
-                    namespaces.forEach(
-                            ns -> {
-                                result.put(
-                                        ns,
-                                        k8sClient
-                                                .endpoints()
-                                                .inNamespace(ns)
-                                                .inform(
-                                                        new EndpointsHandler(),
-                                                        ENDPOINTS_INFORMER_RESYNC_PERIOD));
-                                logger.info(
-                                        "Started Endpoints SharedInformer for namespace \"{}\"",
-                                        ns);
-                            });
-                    return result;
-                }
-            };
-    private Integer memoHash;
-    private EnvironmentNode memoTree;
+    private final boolean useEndpointSlices;
+    private final String labelSelector;
+    // keyed by namespace, or by ALL_NAMESPACES for a single cluster-wide informer
+    private final LazyInitializer<HashMap<String, SharedIndexInformer<? extends HasMetadata>>>
+            nsInformers =
+                    new LazyInitializer<
+                            HashMap<String, SharedIndexInformer<? extends HasMetadata>>>() {
+                        @Override
+                        protected HashMap<String, SharedIndexInformer<? extends HasMetadata>>
+                                initialize() throws ConcurrentException {
+                            var result =
+                                    new HashMap<
+                                            String, SharedIndexInformer<? extends HasMetadata>>();
+                            String kind = useEndpointSlices ? "EndpointSlice" : "Endpoints";
+                            informerScopes()
+                                    .forEach(
+                                            ns -> {
+                                                result.put(ns, informTargetSources(ns));
+                                                logger.info(
+                                                        "Started {} SharedInformer for namespace"
+                                                                + " \"{}\"",
+                                                        kind,
+                                                        ns);
+                                            });
+                            return result;
+                        }
+                    };
+    // owner lookups are answered from these stores instead of individual API requests
+    private final Map<Pair<String, KubernetesNodeType>, SharedIndexInformer<HasMetadata>>
+            ownerInformers = new ConcurrentHashMap<>();
+    // subtrees are only rebuilt for namespaces in which something relevant has changed
+    private final Map<String, EnvironmentNode> namespaceTrees = new ConcurrentHashMap<>();
+    private final Set<String> dirtyNamespaces = ConcurrentHashMap.newKeySet();
     private final Lazy<JFRConnectionToolkit> connectionToolkit;
     private final Logger logger;
-    private final Map<Triple<String, String, String>, Pair<HasMetadata, EnvironmentNode>>
-            discoveryNodeCache = new ConcurrentHashMap<>();
-    private final Map<Triple<String, String, String>, Object> queryLocks =
-            new ConcurrentHashMap<>();
 
     KubeApiPlatformClient(
             Collection<String> namespaces,
+            boolean useEndpointSlices,
+            String labelSelector,
             KubernetesClient k8sClient,
             Lazy<JFRConnectionToolkit> connectionToolkit,
             Logger logger) {
         this.namespaces = new HashSet<>(namespaces);
+        this.useEndpointSlices = useEndpointSlices;
+        this.labelSelector = labelSelector;
         this.k8sClient = k8sClient;
         this.connectionToolkit = connectionToolkit;
         this.logger = logger;
@@ -118,6 +141,9 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
     @Override
     public void start() {
         try {
+            // start the owner informers first so that their stores are populated by the time the
+            // Endpoints informers begin to notify about targets
+            startOwnerInformers();
             nsInformers.get(); // trigger lazy init
         } catch (ConcurrentException e) {
             throw new IllegalStateException(e);
@@ -134,49 +160,113 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
         }
     }
 
+    private boolean isClusterWide() {
+        return namespaces.contains(ALL_NAMESPACES);
+    }
+
+    private Set<String> informerScopes() {
+        return isClusterWide() ? Set.of(ALL_NAMESPACES) : namespaces;
+    }
+
+    private SharedIndexInformer<? extends HasMetadata> informTargetSources(String namespace) {
+        if (useEndpointSlices) {
+            return scoped(k8sClient.discovery().v1().endpointSlices(), namespace, labelSelector)
+                    .inform(new EndpointsHandler(), ENDPOINTS_INFORMER_RESYNC_PERIOD);
+        }
+        return scoped(k8sClient.endpoints(), namespace, labelSelector)
+                .inform(new EndpointsHandler(), ENDPOINTS_INFORMER_RESYNC_PERIOD);
+    }
+
+    private <T extends HasMetadata, L, R extends Resource<T>> Informable<T> scoped(
+            MixedOperation<T, L, R> operation, String namespace, String labelSelector) {
+        FilterWatchListDeletable<T, L, R> scoped =
+                ALL_NAMESPACES.equals(namespace)
+                        ? operation.inAnyNamespace()
+                        : operation.inNamespace(namespace);
+        if (StringUtils.isBlank(labelSelector)) {
+            return scoped;
+        }
+        return scoped.withLabelSelector(labelSelector);
+    }
+
+    private void startOwnerInformers() {
+        for (String ns : informerScopes()) {
+            for (KubernetesNodeType type : OWNER_INFORMER_TYPES) {
+                try {
+                    ownerInformers.put(
+                            Pair.of(ns, type),
+                            informable(type, ns)
+                                    .inform(new OwnerHandler(), ENDPOINTS_INFORMER_RESYNC_PERIOD));
+                } catch (Exception e) {
+                    // most likely missing list/watch permissions. Lookups for this kind fall back
+                    // to individual API requests
+                    logger.warn(
+                            "Could not start {} SharedInformer for namespace \"{}\": {}",
+                            type,
+                            ns,
+                            e.getMessage());
+                }
+            }
+        }
+    }
+
     @Override
-    public EnvironmentNode getDiscoveryTree() {
-        int currentHash = 0;
-        HashCodeBuilder hcb = new HashCodeBuilder();
-        Map<String, SharedIndexInformer<Endpoints>> informers = safeGetInformers();
-        for (var informer : informers.values()) {
-            List<Endpoints> store = informer.getStore().list();
-            hcb.append(store.hashCode());
-        }
-        currentHash = hcb.build();
-        if (Objects.equals(memoHash, currentHash)) {
-            logger.trace("Using memoized discovery tree");
-            return new EnvironmentNode(memoTree);
-        }
-        memoHash = currentHash;
+    public synchronized EnvironmentNode getDiscoveryTree() {
         EnvironmentNode realmNode =
                 new EnvironmentNode(REALM, BaseNodeType.REALM, Collections.emptyMap(), Set.of());
-        informers
-                .entrySet()
-                .forEach(
-                        entry -> {
-                            var namespace = entry.getKey();
-                            var store = entry.getValue().getStore().list();
-                            EnvironmentNode nsNode =
-                                    new EnvironmentNode(namespace, KubernetesNodeType.NAMESPACE);
-                            try {
-                                store.stream()
-                                        .flatMap(endpoints -> getTargetTuples(endpoints).stream())
-                                        .forEach(tuple -> buildOwnerChain(nsNode, tuple));
-                            } catch (Exception e) {
-                                logger.warn(e);
-                            } finally {
-                                discoveryNodeCache.clear();
-                                queryLocks.clear();
-                            }
-                            realmNode.addChildNode(nsNode);
-                        });
-        memoTree = realmNode;
+        Set<String> discoveryNamespaces = getDiscoveryNamespaces();
+        namespaceTrees.keySet().retainAll(discoveryNamespaces);
+        discoveryNamespaces.forEach(
+                namespace -> {
+                    if (dirtyNamespaces.remove(namespace)
+                            || !namespaceTrees.containsKey(namespace)) {
+                        logger.trace("Rebuilding discovery tree for {}", namespace);
+                        namespaceTrees.put(
+                                namespace,
+                                buildNamespaceNode(namespace, listTargetSources(namespace)));
+                    }
+                    realmNode.addChildNode(new EnvironmentNode(namespaceTrees.get(namespace)));
+                });
         return realmNode;
     }
 
-    private Map<String, SharedIndexInformer<Endpoints>> safeGetInformers() {
-        Map<String, SharedIndexInformer<Endpoints>> informers;
+    private Set<String> getDiscoveryNamespaces() {
+        if (!isClusterWide()) {
+            return namespaces;
+        }
+        return safeGetInformers().get(ALL_NAMESPACES).getStore().list().stream()
+                .map(o -> o.getMetadata().getNamespace())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private List<? extends HasMetadata> listTargetSources(String namespace) {
+        if (!isClusterWide()) {
+            return safeGetInformers().get(namespace).getStore().list();
+        }
+        return safeGetInformers()
+                .get(ALL_NAMESPACES)
+                .getIndexer()
+                .byIndex(Cache.NAMESPACE_INDEX, namespace);
+    }
+
+    private EnvironmentNode buildNamespaceNode(
+            String namespace, List<? extends HasMetadata> store) {
+        EnvironmentNode nsNode = new EnvironmentNode(namespace, KubernetesNodeType.NAMESPACE);
+        // nodes built so far for this namespace, so that targets sharing an owner share a node
+        Map<Triple<String, String, String>, Pair<HasMetadata, EnvironmentNode>> nodes =
+                new HashMap<>();
+        try {
+            store.stream()
+                    .flatMap(source -> getTargetTuples(source).stream())
+                    .forEach(tuple -> buildOwnerChain(nsNode, tuple, nodes));
+        } catch (Exception e) {
+            logger.warn(e);
+        }
+        return nsNode;
+    }
+
+    private Map<String, SharedIndexInformer<? extends HasMetadata>> safeGetInformers() {
+        Map<String, SharedIndexInformer<? extends HasMetadata>> informers;
         try {
             informers = nsInformers.get();
         } catch (ConcurrentException e) {
@@ -185,15 +275,15 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
         return informers;
     }
 
-    private void buildOwnerChain(EnvironmentNode nsNode, TargetTuple targetTuple) {
-        ObjectReference target = targetTuple.addr.getTargetRef();
+    private void buildOwnerChain(
+            EnvironmentNode nsNode,
+            TargetTuple targetTuple,
+            Map<Triple<String, String, String>, Pair<HasMetadata, EnvironmentNode>> nodes) {
+        ObjectReference target = targetTuple.objRef;
         if (target == null) {
             logger.error(
-                    "Address {} for Endpoint {} had null target reference",
-                    targetTuple.addr.getIp() != null
-                            ? targetTuple.addr.getIp()
-                            : targetTuple.addr.getHostname(),
-                    targetTuple.objRef.getName());
+                    "Address {} had null target reference",
+                    targetTuple.ip != null ? targetTuple.ip : targetTuple.hostname);
             return;
         }
         String targetKind = target.getKind();
@@ -203,7 +293,7 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
             // add that to the Namespace
 
             Pair<HasMetadata, EnvironmentNode> pod =
-                    discoveryNodeCache.computeIfAbsent(
+                    nodes.computeIfAbsent(
                             cacheKey(target.getNamespace(), target), this::queryForNode);
             pod.getRight()
                     .addChildNode(
@@ -212,7 +302,7 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
 
             Pair<HasMetadata, EnvironmentNode> node = pod;
             while (true) {
-                Pair<HasMetadata, EnvironmentNode> owner = getOrCreateOwnerNode(node);
+                Pair<HasMetadata, EnvironmentNode> owner = getOrCreateOwnerNode(node, nodes);
                 if (owner == null) {
                     break;
                 }
@@ -230,7 +320,8 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
     }
 
     private Pair<HasMetadata, EnvironmentNode> getOrCreateOwnerNode(
-            Pair<HasMetadata, EnvironmentNode> child) {
+            Pair<HasMetadata, EnvironmentNode> child,
+            Map<Triple<String, String, String>, Pair<HasMetadata, EnvironmentNode>> nodes) {
         HasMetadata childRef = child.getLeft();
         if (childRef == null) {
             logger.error(
@@ -251,7 +342,7 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
                         .filter(o -> KubernetesNodeType.fromKubernetesKind(o.getKind()) != null)
                         .findFirst()
                         .orElse(owners.get(0));
-        return discoveryNodeCache.computeIfAbsent(cacheKey(namespace, owner), this::queryForNode);
+        return nodes.computeIfAbsent(cacheKey(namespace, owner), this::queryForNode);
     }
 
     private Triple<String, String, String> cacheKey(String ns, OwnerReference resource) {
@@ -272,67 +363,165 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
         if (nodeType == null) {
             return null;
         }
-        synchronized (queryLocks.computeIfAbsent(lookupKey, k -> new Object())) {
-            EnvironmentNode node;
-            HasMetadata kubeObj =
-                    nodeType.getQueryFunction().apply(k8sClient).apply(namespace).apply(nodeName);
-            if (kubeObj != null) {
-                node = new EnvironmentNode(nodeName, nodeType, kubeObj.getMetadata().getLabels());
-            } else {
-                node = new EnvironmentNode(nodeName, nodeType);
+        EnvironmentNode node;
+        HasMetadata kubeObj = lookup(namespace, nodeType, nodeName);
+        if (kubeObj != null) {
+            node = new EnvironmentNode(nodeName, nodeType, kubeObj.getMetadata().getLabels());
+        } else {
+            node = new EnvironmentNode(nodeName, nodeType);
+        }
+        return Pair.of(kubeObj, node);
+    }
+
+    private HasMetadata lookup(String namespace, KubernetesNodeType nodeType, String name) {
+        SharedIndexInformer<HasMetadata> informer =
+                ownerInformers.get(
+                        Pair.of(isClusterWide() ? ALL_NAMESPACES : namespace, nodeType));
+        if (informer != null) {
+            HasMetadata obj = informer.getStore().getByKey(Cache.namespaceKeyFunc(namespace, name));
+            if (obj != null) {
+                return obj;
             }
-            return Pair.of(kubeObj, node);
         }
+        // either this kind is not informed, or the informer has not seen the object yet
+        logger.trace("Querying API for {} {}/{}", nodeType, namespace, name);
+        return nodeType.getQueryFunction().apply(k8sClient).apply(namespace).apply(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Informable<HasMetadata> informable(KubernetesNodeType nodeType, String namespace) {
+        Informable<? extends HasMetadata> informable;
+        switch (nodeType) {
+            case POD:
+                informable = scoped(k8sClient.pods(), namespace, null);
+                break;
+            case REPLICASET:
+                informable = scoped(k8sClient.apps().replicaSets(), namespace, null);
+                break;
+            case REPLICATIONCONTROLLER:
+                informable = scoped(k8sClient.replicationControllers(), namespace, null);
+                break;
+            case DEPLOYMENT:
+                informable = scoped(k8sClient.apps().deployments(), namespace, null);
+                break;
+            case STATEFULSET:
+                informable = scoped(k8sClient.apps().statefulSets(), namespace, null);
+                break;
+            case DAEMONSET:
+                informable = scoped(k8sClient.apps().daemonSets(), namespace, null);
+                break;
+            default:
+                throw new IllegalArgumentException(nodeType.toString());
+        }
+        return (Informable<HasMetadata>) informable;
     }
 
-    private boolean isCompatiblePort(EndpointPort port) {
-        return "jfr-jmx".equals(port.getName()) || 9091 == port.getPort();
+    private boolean isCompatiblePort(String name, Integer port) {
+        return "jfr-jmx".equals(name) || Integer.valueOf(9091).equals(port);
     }
 
     private List<ServiceRef> getAllServiceRefs() {
         return safeGetInformers().values().stream()
                 .flatMap(i -> i.getStore().list().stream())
-                .flatMap(endpoints -> getServiceRefs(endpoints).stream())
+                .flatMap(source -> getServiceRefs(source).stream())
                 .collect(Collectors.toList());
     }
 
-    private List<TargetTuple> getTargetTuples(Endpoints endpoints) {
+    private List<TargetTuple> getTargetTuples(HasMetadata source) {
+        if (source instanceof EndpointSlice) {
+            return getSliceTargetTuples((EndpointSlice) source);
+        }
+        return getEndpointsTargetTuples((Endpoints) source);
+    }
+
+    private List<TargetTuple> getEndpointsTargetTuples(Endpoints endpoints) {
         List<TargetTuple> tts = new ArrayList<>();
         for (EndpointSubset subset : endpoints.getSubsets()) {
             for (EndpointPort port : subset.getPorts()) {
-                if (!isCompatiblePort(port)) {
+                if (!isCompatiblePort(port.getName(), port.getPort())) {
                     continue;
                 }
                 for (EndpointAddress addr : subset.getAddresses()) {
-                    tts.add(new TargetTuple(addr.getTargetRef(), addr, port));
+                    tts.add(
+                            new TargetTuple(
+                                    addr.getTargetRef(),
+                                    addr.getIp(),
+                                    addr.getHostname(),
+                                    port.getPort()));
                 }
             }
         }
         return tts;
     }
 
-    private List<ServiceRef> getServiceRefs(Endpoints endpoints) {
-        return getTargetTuples(endpoints).stream()
+    private List<TargetTuple> getSliceTargetTuples(EndpointSlice slice) {
+        List<TargetTuple> tts = new ArrayList<>();
+        // FQDN slices list hostnames rather than Pod IPs, which the JMX URL scheme relies on
+        if ("FQDN".equals(slice.getAddressType())) {
+            return tts;
+        }
+        for (io.fabric8.kubernetes.api.model.discovery.v1.EndpointPort port : slice.getPorts()) {
+            // a null port number means "all ports", which cannot be turned into a JMX URL
+            if (port.getPort() == null || !isCompatiblePort(port.getName(), port.getPort())) {
+                continue;
+            }
+            for (Endpoint endpoint : slice.getEndpoints()) {
+                // unlike Endpoints, slices also list endpoints which are not ready. A null
+                // readiness should be interpreted as ready
+                EndpointConditions conditions = endpoint.getConditions();
+                if (conditions != null && Boolean.FALSE.equals(conditions.getReady())) {
+                    continue;
+                }
+                // slices may also list endpoints which are not backed by a Pod, ex. those managed
+                // by hand or by other controllers, which cannot be resolved to a target
+                ObjectReference targetRef = endpoint.getTargetRef();
+                if (targetRef == null
+                        || KubernetesNodeType.fromKubernetesKind(targetRef.getKind())
+                                != KubernetesNodeType.POD) {
+                    continue;
+                }
+                for (String address : endpoint.getAddresses()) {
+                    tts.add(
+                            new TargetTuple(
+                                    targetRef,
+                                    address,
+                                    endpoint.getHostname(),
+                                    port.getPort()));
+                }
+            }
+        }
+        return tts;
+    }
+
+    private List<ServiceRef> getServiceRefs(HasMetadata source) {
+        return getTargetTuples(source).stream()
                 .map(TargetTuple::toServiceRef)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    private final class EndpointsHandler implements ResourceEventHandler<Endpoints> {
+    /**
+     * Notifies about targets appearing and disappearing from either Endpoints or EndpointSlices.
+     * With EndpointSlices each delta only covers the slice that changed, rather than the full set
+     * of addresses of the Service.
+     */
+    private final class EndpointsHandler implements ResourceEventHandler<HasMetadata> {
         @Override
-        public void onAdd(Endpoints endpoints) {
-            getServiceRefs(endpoints)
+        public void onAdd(HasMetadata source) {
+            dirtyNamespaces.add(source.getMetadata().getNamespace());
+            getServiceRefs(source)
                     .forEach(serviceRef -> notifyAsyncTargetDiscovery(EventKind.FOUND, serviceRef));
         }
 
         @Override
-        public void onUpdate(Endpoints oldEndpoints, Endpoints newEndpoints) {
-            Set<ServiceRef> previousRefs = new HashSet<>(getServiceRefs(oldEndpoints));
-            Set<ServiceRef> currentRefs = new HashSet<>(getServiceRefs(newEndpoints));
+        public void onUpdate(HasMetadata oldSource, HasMetadata newSource) {
+            Set<ServiceRef> previousRefs = new HashSet<>(getServiceRefs(oldSource));
+            Set<ServiceRef> currentRefs = new HashSet<>(getServiceRefs(newSource));
 
             if (previousRefs.equals(currentRefs)) {
                 return;
             }
+            dirtyNamespaces.add(newSource.getMetadata().getNamespace());
 
             ServiceRef.compare(previousRefs).to(currentRefs).updated().stream()
                     .forEach(sr -> notifyAsyncTargetDiscovery(EventKind.MODIFIED, sr));
@@ -345,43 +534,73 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
         }
 
         @Override
-        public void onDelete(Endpoints endpoints, boolean deletedFinalStateUnknown) {
+        public void onDelete(HasMetadata source, boolean deletedFinalStateUnknown) {
+            dirtyNamespaces.add(source.getMetadata().getNamespace());
             if (deletedFinalStateUnknown) {
-                logger.warn("Deleted final state unknown: {}", endpoints);
+                logger.warn("Deleted final state unknown: {}", source);
                 return;
             }
-            getServiceRefs(endpoints)
+            getServiceRefs(source)
                     .forEach(serviceRef -> notifyAsyncTargetDiscovery(EventKind.LOST, serviceRef));
         }
     }
 
+    /**
+     * Marks a namespace for rebuilding when an object which may appear in its owner chains changes
+     * in a way that is visible in the discovery tree. Periodic resyncs and status-only updates,
+     * which are very frequent for Pods, are ignored.
+     */
+    private final class OwnerHandler implements ResourceEventHandler<HasMetadata> {
+        @Override
+        public void onAdd(HasMetadata obj) {
+            dirtyNamespaces.add(obj.getMetadata().getNamespace());
+        }
+
+        @Override
+        public void onUpdate(HasMetadata oldObj, HasMetadata newObj) {
+            ObjectMeta oldMeta = oldObj.getMetadata();
+            ObjectMeta newMeta = newObj.getMetadata();
+            if (!Objects.equals(oldMeta.getLabels(), newMeta.getLabels())
+                    || !Objects.equals(oldMeta.getAnnotations(), newMeta.getAnnotations())
+                    || !Objects.equals(
+                            oldMeta.getOwnerReferences(), newMeta.getOwnerReferences())) {
+                dirtyNamespaces.add(newMeta.getNamespace());
+            }
+        }
+
+        @Override
+        public void onDelete(HasMetadata obj, boolean deletedFinalStateUnknown) {
+            dirtyNamespaces.add(obj.getMetadata().getNamespace());
+        }
+    }
+
     private class TargetTuple {
         ObjectReference objRef;
-        EndpointAddress addr;
-        EndpointPort port;
+        String ip;
+        String hostname;
+        int port;
 
-        TargetTuple(ObjectReference objRef, EndpointAddress addr, EndpointPort port) {
+        TargetTuple(ObjectReference objRef, String ip, String hostname, int port) {
             this.objRef = objRef;
-            this.addr = addr;
+            this.ip = ip;
+            this.hostname = hostname;
             this.port = port;
         }
 
         ServiceRef toServiceRef() {
-            Pair<HasMetadata, EnvironmentNode> node =
-                    discoveryNodeCache.computeIfAbsent(
-                            cacheKey(objRef.getNamespace(), objRef),
-                            KubeApiPlatformClient.this::queryForNode);
-            HasMetadata podRef = node.getLeft();
-            if (node.getRight().getNodeType() != KubernetesNodeType.POD) {
+            if (KubernetesNodeType.fromKubernetesKind(objRef.getKind())
+                    != KubernetesNodeType.POD) {
                 throw new IllegalStateException();
             }
+            HasMetadata podRef =
+                    lookup(objRef.getNamespace(), KubernetesNodeType.POD, objRef.getName());
             if (podRef == null) {
                 throw new IllegalStateException();
             }
             try {
                 String targetName = objRef.getName();
 
-                String ip = addr.getIp().replaceAll("\\.", "-");
+                String ip = this.ip.replaceAll("\\.", "-");
                 String namespace = podRef.getMetadata().getNamespace();
                 String host = String.format("%s.%s.pod", ip, namespace);
 
@@ -390,7 +609,7 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
                                 "rmi",
                                 "",
                                 0,
-                                "/jndi/rmi://" + host + ':' + port.getPort() + "/jmxrmi");
+                                "/jndi/rmi://" + host + ':' + port + "/jmxrmi");
                 ServiceRef serviceRef =
                         new ServiceRef(null, URI.create(jmxUrl.toString()), targetName);
                 serviceRef.setLabels(podRef.getMetadata().getLabels());
@@ -400,13 +619,13 @@ public class KubeApiPlatformClient extends AbstractPlatformClient {
                                 AnnotationKey.REALM,
                                 REALM,
                                 AnnotationKey.HOST,
-                                addr.getIp(),
+                                ip,
                                 AnnotationKey.PORT,
-                                Integer.toString(port.getPort()),
+                                Integer.toString(port),
                                 AnnotationKey.NAMESPACE,
-                                addr.getTargetRef().getNamespace(),
+                                objRef.getNamespace(),
                                 AnnotationKey.POD_NAME,
-                                addr.getTargetRef().getName()));
+                                objRef.getName()));
                 return serviceRef;
             } catch (Exception e) {
                 logger.warn(e);
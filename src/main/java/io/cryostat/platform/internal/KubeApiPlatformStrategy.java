@@ -73,7 +73,12 @@ class KubeApiPlatformStrategy implements PlatformDetectionStrategy<KubeApiPlatfo
     public KubeApiPlatformClient getPlatformClient() {
         logger.info("Selected {} Strategy", getClass().getSimpleName());
         return new KubeApiPlatformClient(
-                getNamespaces(), createClient(), connectionToolkit, logger);
+                getNamespaces(),
+                Boolean.parseBoolean(env.getEnv(Variables.K8S_USE_ENDPOINT_SLICES, "false")),
+                env.getEnv(Variables.K8S_LABEL_SELECTOR, ""),
+                createClient(),
+                connectionToolkit,
+                logger);
     }
 
     @Override
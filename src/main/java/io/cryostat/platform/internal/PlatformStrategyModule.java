@@ -15,11 +15,13 @@
  */
 package io.cryostat.platform.internal;
 
+import java.time.Duration;
 import java.util.Set;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import io.cryostat.configuration.Variables;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.JFRConnectionToolkit;
 import io.cryostat.core.net.discovery.JvmDiscoveryClient;
@@ -41,6 +43,8 @@ import io.vertx.ext.web.client.WebClient;
 public abstract class PlatformStrategyModule {
 
     public static final String UNIX_SOCKET_WEBCLIENT = "UNIX_SOCKET_WEBCLIENT";
+    public static final String CONTAINER_DISCOVERY_RECONCILE_PERIOD =
+            "CONTAINER_DISCOVERY_RECONCILE_PERIOD";
 
     @Provides
     @Singleton
@@ -49,6 +53,20 @@ public abstract class PlatformStrategyModule {
         return WebClient.create(vertx);
     }
 
+    @Provides
+    @Singleton
+    @Named(CONTAINER_DISCOVERY_RECONCILE_PERIOD)
+    static Duration provideContainerDiscoveryReconcilePeriod(Environment env) {
+        String d =
+                env.getEnv(
+                        Variables.CONTAINER_DISCOVERY_RECONCILE_PERIOD_MS,
+                        String.valueOf(Duration.ofMinutes(5).toMillis()));
+        return Duration.ofMillis(
+                Math.max(
+                        ContainerEventWatcher.DISCONNECTED_POLL_PERIOD.toMillis(),
+                        Long.parseLong(d)));
+    }
+
     @Provides
     @Singleton
     static CustomTargetPlatformClient provideCustomTargetPlatformClient(
@@ -95,10 +113,18 @@ public abstract class PlatformStrategyModule {
             @Named(UNIX_SOCKET_WEBCLIENT) Lazy<WebClient> webClient,
             Lazy<Vertx> vertx,
             Lazy<JFRConnectionToolkit> connectionToolkit,
+            @Named(CONTAINER_DISCOVERY_RECONCILE_PERIOD) Duration reconcilePeriod,
             Gson gson,
             FileSystem fs) {
         return new PodmanPlatformStrategy(
-                logger, noopAuthManager, webClient, vertx, connectionToolkit, gson, fs);
+                logger,
+                noopAuthManager,
+                webClient,
+                vertx,
+                connectionToolkit,
+                reconcilePeriod,
+                gson,
+                fs);
     }
 
     @Provides
@@ -109,10 +135,18 @@ public abstract class PlatformStrategyModule {
             @Named(UNIX_SOCKET_WEBCLIENT) Lazy<WebClient> webClient,
             Lazy<Vertx> vertx,
             Lazy<JFRConnectionToolkit> connectionToolkit,
+            @Named(CONTAINER_DISCOVERY_RECONCILE_PERIOD) Duration reconcilePeriod,
             Gson gson,
             FileSystem fs) {
         return new DockerPlatformStrategy(
-                logger, noopAuthManager, webClient, vertx, connectionToolkit, gson, fs);
+                logger,
+                noopAuthManager,
+                webClient,
+                vertx,
+                connectionToolkit,
+                reconcilePeriod,
+                gson,
+                fs);
     }
 
     @Provides
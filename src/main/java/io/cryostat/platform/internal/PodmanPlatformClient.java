@@ -18,8 +18,8 @@ package io.cryostat.platform.internal;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,11 +29,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import javax.management.remote.JMXServiceURL;
@@ -49,6 +50,7 @@ import io.cryostat.platform.discovery.BaseNodeType;
 import io.cryostat.platform.discovery.EnvironmentNode;
 import io.cryostat.platform.discovery.NodeType;
 import io.cryostat.platform.discovery.TargetNode;
+import io.cryostat.platform.internal.ContainerEventWatcher.ContainerEvent;
 import io.cryostat.util.URIUtil;
 
 import com.google.gson.Gson;
@@ -71,14 +73,21 @@ public class PodmanPlatformClient extends AbstractPlatformClient {
 
     private final ExecutorService executor;
     private final Lazy<WebClient> webClient;
-    private final Lazy<Vertx> vertx;
     private final SocketAddress podmanSocket;
     private final Lazy<JFRConnectionToolkit> connectionToolkit;
     private final Gson gson;
     private final Logger logger;
-    private long timerId;
-
-    private final CopyOnWriteArrayList<ContainerSpec> containers = new CopyOnWriteArrayList<>();
+    private final ContainerEventWatcher eventWatcher;
+
+    // Only modified on the executor thread. ServiceRefs are converted once per container state
+    // rather than on every query, since conversion may require an inspect request
+    private final Map<String, ContainerSpec> containers = new ConcurrentHashMap<>();
+    private final Map<String, ServiceRef> serviceRefs = new ConcurrentHashMap<>();
+    // list requests are numbered as they are sent. A response is stale if a response to a later
+    // request was already applied, either for the same container or for all of them
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<String, Long> appliedRequests = new HashMap<>();
+    private long reconciledRequest;
 
     PodmanPlatformClient(
             ExecutorService executor,
@@ -86,83 +95,131 @@ public class PodmanPlatformClient extends AbstractPlatformClient {
             Lazy<Vertx> vertx,
             SocketAddress podmanSocket,
             Lazy<JFRConnectionToolkit> connectionToolkit,
+            Duration reconcilePeriod,
             Gson gson,
             Logger logger) {
         this.executor = executor;
         this.webClient = webClient;
-        this.vertx = vertx;
         this.podmanSocket = podmanSocket;
         this.connectionToolkit = connectionToolkit;
         this.gson = gson;
         this.logger = logger;
+        this.eventWatcher =
+                new ContainerEventWatcher(
+                        vertx,
+                        podmanSocket,
+                        "/v3.0.0/libpod/events",
+                        DISCOVERY_LABEL,
+                        reconcilePeriod,
+                        gson,
+                        logger,
+                        this::handleEvent,
+                        this::queryContainers);
     }
 
     @Override
     public void start() throws Exception {
         super.start();
-        queryContainers();
-        this.timerId =
-                vertx.get()
-                        .setPeriodic(
-                                // TODO make this configurable
-                                10_000, unused -> queryContainers());
+        eventWatcher.start();
     }
 
     @Override
     public void stop() throws Exception {
         super.stop();
-        vertx.get().cancelTimer(timerId);
+        eventWatcher.stop();
     }
 
     @Override
     public List<ServiceRef> listDiscoverableServices() {
-        HashMap<String, ContainerSpec> result = new HashMap<>();
+        return new ArrayList<>(serviceRefs.values());
+    }
+
+    private void queryContainers() {
+        long request = requests.incrementAndGet();
+        doPodmanListRequest(
+                Map.of("label", List.of(DISCOVERY_LABEL)),
+                current -> executor.execute(() -> reconcile(request, current)));
+    }
+
+    private void handleEvent(ContainerEvent event) {
+        String id = event.Actor().ID();
+        long request = requests.incrementAndGet();
+        doPodmanListRequest(
+                Map.of("id", List.of(id), "label", List.of(DISCOVERY_LABEL)),
+                current ->
+                        executor.execute(
+                                () ->
+                                        update(
+                                                request,
+                                                id,
+                                                current.isEmpty() ? null : current.get(0))));
+    }
 
-        for (ContainerSpec container : containers) {
-            result.put(container.Id, container);
+    /**
+     * Apply a full listing of the running containers, as returned for the given list request.
+     * Containers which are not listed are removed. Must be called on the executor thread.
+     */
+    void reconcile(long request, List<ContainerSpec> current) {
+        if (request < reconciledRequest) {
+            return;
         }
+        Map<String, ContainerSpec> specs = new HashMap<>();
+        current.forEach(spec -> specs.put(spec.Id, spec));
+        Set<String> ids = new HashSet<>(containers.keySet());
+        ids.addAll(specs.keySet());
+        ids.forEach(id -> update(request, id, specs.get(id)));
+        reconciledRequest = request;
+        // only results newer than this listing need to be remembered per container
+        appliedRequests.values().removeIf(r -> r <= request);
+    }
 
-        return convert(result.values());
+    /**
+     * Apply the latest known state of a container, which is null if the container is no longer
+     * running, and notify about any resulting change to its ServiceRef. The state is ignored if a
+     * later request's result for the same container was already applied. Must be called on the
+     * executor thread.
+     */
+    void update(long request, String id, ContainerSpec current) {
+        if (request < appliedRequests.getOrDefault(id, reconciledRequest)) {
+            return;
+        }
+        appliedRequests.put(id, request);
+        ContainerSpec previous =
+                current == null ? containers.remove(id) : containers.put(id, current);
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        ServiceRef currentRef = current == null ? null : convert(current);
+        ServiceRef previousRef =
+                currentRef == null ? serviceRefs.remove(id) : serviceRefs.put(id, currentRef);
+        notifyChange(previousRef, currentRef);
     }
 
-    private void queryContainers() {
-        doPodmanListRequest(
-                current -> {
-                    Set<ContainerSpec> previous = new HashSet<>(containers);
-                    Set<ContainerSpec> updated = new HashSet<>(current);
-
-                    Set<ContainerSpec> intersection = new HashSet<>(containers);
-                    intersection.retainAll(updated);
-
-                    Set<ContainerSpec> removed = new HashSet<>(previous);
-                    removed.removeAll(intersection);
-
-                    Set<ContainerSpec> added = new HashSet<>(updated);
-                    added.removeAll(intersection);
-
-                    // does anything ever get modified in this scheme?
-                    // notifyAsyncTargetDiscovery(EventKind.MODIFIED, sr);
-
-                    containers.removeAll(removed);
-                    removed.stream()
-                            .map(this::convert)
-                            .filter(Objects::nonNull)
-                            .forEach(spec -> notifyAsyncTargetDiscovery(EventKind.LOST, spec));
-
-                    containers.addAll(added);
-                    added.stream()
-                            .map(this::convert)
-                            .filter(Objects::nonNull)
-                            .forEach(spec -> notifyAsyncTargetDiscovery(EventKind.FOUND, spec));
-                });
+    private void notifyChange(ServiceRef previousRef, ServiceRef currentRef) {
+        if (Objects.equals(previousRef, currentRef)) {
+            return;
+        }
+        if (previousRef != null
+                && currentRef != null
+                && previousRef.getServiceUri().equals(currentRef.getServiceUri())) {
+            notifyAsyncTargetDiscovery(EventKind.MODIFIED, currentRef);
+            return;
+        }
+        if (previousRef != null) {
+            notifyAsyncTargetDiscovery(EventKind.LOST, previousRef);
+        }
+        if (currentRef != null) {
+            notifyAsyncTargetDiscovery(EventKind.FOUND, currentRef);
+        }
     }
 
-    private void doPodmanListRequest(Consumer<List<ContainerSpec>> successHandler) {
+    private void doPodmanListRequest(
+            Map<String, List<String>> filters, Consumer<List<ContainerSpec>> successHandler) {
         URI requestPath = URI.create("http://d/v3.0.0/libpod/containers/json");
         webClient
                 .get()
                 .request(HttpMethod.GET, podmanSocket, 80, "localhost", requestPath.toString())
-                .addQueryParam("filters", gson.toJson(Map.of("label", List.of(DISCOVERY_LABEL))))
+                .addQueryParam("filters", gson.toJson(filters))
                 .timeout(2_000L)
                 .as(BodyCodec.string())
                 .send(
@@ -184,32 +241,23 @@ public class PodmanPlatformClient extends AbstractPlatformClient {
         URI requestPath =
                 URI.create(
                         String.format("http://d/v3.0.0/libpod/containers/%s/json", container.Id));
-        executor.submit(
-                () -> {
-                    webClient
-                            .get()
-                            .request(
-                                    HttpMethod.GET,
-                                    podmanSocket,
-                                    80,
-                                    "localhost",
-                                    requestPath.toString())
-                            .timeout(2_000L)
-                            .as(BodyCodec.string())
-                            .send(
-                                    ar -> {
-                                        if (ar.failed()) {
-                                            Throwable t = ar.cause();
-                                            logger.error("Podman API request failed", t);
-                                            result.completeExceptionally(t);
-                                            return;
-                                        }
-                                        result.complete(
-                                                gson.fromJson(
-                                                        ar.result().body(),
-                                                        ContainerDetails.class));
-                                    });
-                });
+        // the response is delivered on the event loop, so this may be awaited on the executor
+        webClient
+                .get()
+                .request(HttpMethod.GET, podmanSocket, 80, "localhost", requestPath.toString())
+                .timeout(2_000L)
+                .as(BodyCodec.string())
+                .send(
+                        ar -> {
+                            if (ar.failed()) {
+                                Throwable t = ar.cause();
+                                logger.error("Podman API request failed", t);
+                                result.completeExceptionally(t);
+                                return;
+                            }
+                            result.complete(
+                                    gson.fromJson(ar.result().body(), ContainerDetails.class));
+                        });
         return result;
     }
 
@@ -239,7 +287,8 @@ public class PodmanPlatformClient extends AbstractPlatformClient {
                                         .Config
                                         .Hostname;
                     } catch (InterruptedException | TimeoutException | ExecutionException e) {
-                        containers.remove(desc);
+                        // forget the container so that the next reconciliation retries it
+                        containers.remove(desc.Id);
                         logger.warn(e);
                         return null;
                     }
@@ -266,23 +315,18 @@ public class PodmanPlatformClient extends AbstractPlatformClient {
 
             return serviceRef;
         } catch (NumberFormatException | URISyntaxException | MalformedURLException e) {
-            containers.remove(desc);
             logger.warn(e);
             return null;
         }
     }
 
-    private List<ServiceRef> convert(Collection<ContainerSpec> descs) {
-        return descs.stream().map(this::convert).filter(Objects::nonNull).toList();
-    }
-
     @Override
     public EnvironmentNode getDiscoveryTree() {
         List<AbstractNode> children = new ArrayList<>();
 
         Map<String, EnvironmentNode> pods = new HashMap<>();
-        for (ContainerSpec container : containers) {
-            ServiceRef sr = convert(container);
+        for (ContainerSpec container : containers.values()) {
+            ServiceRef sr = serviceRefs.get(container.Id);
             if (sr == null) {
                 continue;
             }
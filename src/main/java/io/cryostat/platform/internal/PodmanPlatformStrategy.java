@@ -16,6 +16,7 @@
 package io.cryostat.platform.internal;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -44,6 +45,7 @@ class PodmanPlatformStrategy implements PlatformDetectionStrategy<PodmanPlatform
     private final Lazy<WebClient> webClient;
     private final Lazy<Vertx> vertx;
     private final Lazy<JFRConnectionToolkit> connectionToolkit;
+    private final Duration reconcilePeriod;
     private final Gson gson;
     private final FileSystem fs;
 
@@ -53,6 +55,7 @@ class PodmanPlatformStrategy implements PlatformDetectionStrategy<PodmanPlatform
             Lazy<WebClient> webClient,
             Lazy<Vertx> vertx,
             Lazy<JFRConnectionToolkit> connectionToolkit,
+            Duration reconcilePeriod,
             Gson gson,
             FileSystem fs) {
         this.logger = logger;
@@ -60,6 +63,7 @@ class PodmanPlatformStrategy implements PlatformDetectionStrategy<PodmanPlatform
         this.webClient = webClient;
         this.vertx = vertx;
         this.connectionToolkit = connectionToolkit;
+        this.reconcilePeriod = reconcilePeriod;
         this.gson = gson;
         this.fs = fs;
     }
@@ -135,6 +139,7 @@ class PodmanPlatformStrategy implements PlatformDetectionStrategy<PodmanPlatform
                 vertx,
                 getSocket(),
                 connectionToolkit,
+                reconcilePeriod,
                 gson,
                 logger);
     }
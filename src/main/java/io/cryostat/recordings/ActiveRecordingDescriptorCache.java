@@ -0,0 +1,194 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.JFRConnection;
+import io.cryostat.core.sys.Clock;
+import io.cryostat.messaging.notifications.Notification;
+import io.cryostat.messaging.notifications.NotificationListener;
+import io.cryostat.net.ConnectionDescriptor;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Short-lived per-target cache of the active recording descriptors reported by {@link
+ * org.openjdk.jmc.rjmx.services.jfr.IFlightRecorderService#getAvailableRecordings()}, so that the
+ * several lookups made while handling a single request, or by concurrent requests for the same
+ * target, share one JMX round trip. Concurrent lookups which miss wait on the same in-flight load
+ * rather than each issuing their own. Entries are dropped on the recording notifications Cryostat
+ * issues for its own changes, so the TTL only bounds how long changes made to the target by
+ * anything else can go unnoticed.
+ */
+public class ActiveRecordingDescriptorCache implements NotificationListener<Map<String, Object>> {
+
+    static final Set<String> INVALIDATING_CATEGORIES =
+            Set.of(
+                    RecordingTargetHelper.CREATION_NOTIFICATION_CATEGORY,
+                    RecordingTargetHelper.STOP_NOTIFICATION_CATEGORY,
+                    RecordingTargetHelper.DELETION_NOTIFICATION_CATEGORY,
+                    RecordingTargetHelper.SNAPSHOT_CREATION_NOTIFICATION_CATEGORY,
+                    RecordingTargetHelper.SNAPSHOT_DELETION_NOTIFICATION_CATEGORY);
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final Logger logger;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    ActiveRecordingDescriptorCache(Duration ttl, Clock clock, Logger logger) {
+        this.ttl = ttl;
+        this.clock = clock;
+        this.logger = logger;
+    }
+
+    /**
+     * @param connection an open connection to the target described by connectionDescriptor, used
+     *     to load the descriptors if there is no current cache entry
+     */
+    public List<IRecordingDescriptor> get(
+            ConnectionDescriptor connectionDescriptor, JFRConnection connection) throws Exception {
+        String targetId = connectionDescriptor.getTargetId();
+        DescriptorCacheLookup evt = new DescriptorCacheLookup(targetId);
+        evt.begin();
+        try {
+            long now = clock.getMonotonicTime();
+            Entry fresh = new Entry(now);
+            Entry entry =
+                    entries.compute(
+                            targetId,
+                            (k, v) -> v == null || v.isExpired(now, ttl) ? fresh : v);
+            boolean hit = entry != fresh;
+            evt.setHit(hit);
+            evt.setAge(Duration.ofNanos(now - entry.loadedAt).toMillis());
+            if (!hit) {
+                load(targetId, entry, connection);
+            }
+            return entry.descriptors.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+        }
+    }
+
+    /**
+     * Look up a recording by name. A cached listing which does not contain the name is reloaded
+     * once before concluding that there is no such recording, so recordings created on the target
+     * since the listing was cached are still found.
+     */
+    public Optional<IRecordingDescriptor> getByName(
+            ConnectionDescriptor connectionDescriptor, JFRConnection connection, String name)
+            throws Exception {
+        Optional<IRecordingDescriptor> descriptor =
+                find(get(connectionDescriptor, connection), name);
+        if (descriptor.isEmpty()) {
+            invalidate(connectionDescriptor.getTargetId());
+            descriptor = find(get(connectionDescriptor, connection), name);
+        }
+        return descriptor;
+    }
+
+    public void invalidate(String targetId) {
+        if (entries.remove(targetId) != null) {
+            logger.trace("Invalidated active recording descriptors for {}", targetId);
+        }
+    }
+
+    @Override
+    public void onNotification(Notification<Map<String, Object>> notification) {
+        if (!INVALIDATING_CATEGORIES.contains(notification.getCategory())) {
+            return;
+        }
+        Object target = notification.getMessage().get("target");
+        if (target != null) {
+            invalidate(target.toString());
+        }
+    }
+
+    private void load(String targetId, Entry entry, JFRConnection connection) {
+        try {
+            entry.descriptors.complete(connection.getService().getAvailableRecordings());
+        } catch (Exception e) {
+            // don't cache failures. Any lookups already waiting on this load fail with it, and
+            // the next lookup tries again
+            entries.remove(targetId, entry);
+            entry.descriptors.completeExceptionally(e);
+        }
+    }
+
+    private static Optional<IRecordingDescriptor> find(
+            List<IRecordingDescriptor> descriptors, String name) {
+        return descriptors.stream().filter(r -> r.getName().equals(name)).findFirst();
+    }
+
+    private static class Entry {
+        final long loadedAt;
+        final CompletableFuture<List<IRecordingDescriptor>> descriptors =
+                new CompletableFuture<>();
+
+        Entry(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isExpired(long now, Duration ttl) {
+            // an entry still loading is never expired, so that lookups arriving during a slow
+            // load wait for it rather than starting another
+            return descriptors.isDone() && now - loadedAt >= ttl.toNanos();
+        }
+    }
+
+    @Name("io.cryostat.recordings.ActiveRecordingDescriptorCache.DescriptorCacheLookup")
+    @Label("Active Recording Descriptor Cache Lookup")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class DescriptorCacheLookup extends Event {
+        String targetId;
+        boolean hit;
+        long ageMs;
+
+        DescriptorCacheLookup(String targetId) {
+            this.targetId = targetId;
+        }
+
+        void setHit(boolean hit) {
+            this.hit = hit;
+        }
+
+        void setAge(long ageMs) {
+            this.ageMs = ageMs;
+        }
+    }
+}
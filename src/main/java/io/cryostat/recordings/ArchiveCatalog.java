@@ -0,0 +1,328 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Index of the archived recordings directory, keyed by archive subdirectory name and then by
+ * recording file name. Holds the details which are otherwise expensive to recompute for every
+ * listing - the source connectUrl, JVM ID, file size and archived time of each recording - and is
+ * persisted to a JSON file so that it survives restarts. The catalog is only an index: the
+ * archive directory remains the source of truth, and {@link RecordingArchiveHelper} reconciles
+ * each subdirectory's entries against its directory listing, and each recording's entry against
+ * the file's size and last modified time, before serving them. A subdirectory whose last modified
+ * time matches the cataloged one has had no recordings added or removed since it was indexed, so
+ * its entries are served without listing or re-reading the files in it.
+ */
+class ArchiveCatalog {
+
+    static final String CATALOG_FILE = "archive-catalog.json";
+    static final String BACKUP_SUFFIX = ".bak";
+
+    private static final Type CATALOG_TYPE = new TypeToken<Map<String, Directory>>() {}.getType();
+
+    private final FileSystem fs;
+    private final Path catalogFile;
+    private final Path backupFile;
+    private final Executor executor;
+    private final Gson gson;
+    private final Logger logger;
+
+    // guarded by this
+    private final Map<String, Directory> directories = new HashMap<>();
+    private long generation;
+    private boolean persistPending;
+
+    ArchiveCatalog(FileSystem fs, Path catalogFile, Executor executor, Gson gson, Logger logger) {
+        this.fs = fs;
+        this.catalogFile = catalogFile;
+        this.backupFile = catalogFile.resolveSibling(catalogFile.getFileName() + BACKUP_SUFFIX);
+        this.executor = executor;
+        this.gson = gson;
+        this.logger = logger;
+    }
+
+    /**
+     * Replace the in-memory catalog with the persisted one. If the catalog file is unreadable, ex.
+     * because Cryostat stopped while it was being written, the backup copy is read instead. If
+     * neither can be read then the catalog is left empty, in which case it is rebuilt from disk as
+     * subdirectories are reconciled.
+     */
+    synchronized void load() {
+        generation++;
+        directories.clear();
+        for (Path file : List.of(catalogFile, backupFile)) {
+            Optional<Map<String, Directory>> persisted = read(file);
+            if (persisted.isPresent()) {
+                persisted
+                        .get()
+                        .forEach(
+                                (subdirectoryName, directory) -> {
+                                    if (directory != null && directory.recordings != null) {
+                                        directories.put(subdirectoryName, directory);
+                                    }
+                                });
+                logger.info("Loaded archive catalog with {} subdirectories", directories.size());
+                return;
+            }
+        }
+    }
+
+    private Optional<Map<String, Directory>> read(Path file) {
+        if (!fs.exists(file)) {
+            return Optional.empty();
+        }
+        try (BufferedReader reader = fs.readFile(file)) {
+            return Optional.ofNullable(gson.fromJson(reader, CATALOG_TYPE));
+        } catch (IOException | JsonParseException e) {
+            logger.warn("Archive catalog {} could not be read", file);
+            logger.warn(e);
+            return Optional.empty();
+        }
+    }
+
+    /** Incremented whenever the cataloged contents change. */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    synchronized Optional<Directory> getDirectory(String subdirectoryName) {
+        return Optional.ofNullable(directories.get(subdirectoryName));
+    }
+
+    /**
+     * @return a snapshot of the cataloged subdirectories, sorted by subdirectory name
+     */
+    synchronized SortedMap<String, Directory> getDirectories() {
+        return new TreeMap<>(directories);
+    }
+
+    synchronized Optional<Entry> getRecording(String subdirectoryName, String recordingName) {
+        Directory directory = directories.get(subdirectoryName);
+        if (directory == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(directory.recordings.get(recordingName));
+    }
+
+    /**
+     * @return the name of a subdirectory containing a recording with the given name, if any
+     */
+    synchronized Optional<String> findRecording(String recordingName) {
+        return directories.entrySet().stream()
+                .filter(e -> e.getValue().recordings.containsKey(recordingName))
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
+    synchronized void putDirectory(String subdirectoryName, Directory directory) {
+        if (!Objects.equals(directories.put(subdirectoryName, directory), directory)) {
+            persist();
+        }
+    }
+
+    synchronized void putRecording(
+            String subdirectoryName, String connectUrl, String jvmId, Entry entry) {
+        Directory directory = directories.get(subdirectoryName);
+        Map<String, Entry> recordings = new LinkedHashMap<>();
+        if (directory != null) {
+            recordings.putAll(directory.recordings);
+        }
+        recordings.put(entry.name, entry);
+        // the subdirectory's last modified time is left unknown, since the caller has just written
+        // to it, so the next listing reconciles it once more and records the new one
+        directories.put(subdirectoryName, new Directory(connectUrl, jvmId, recordings));
+        persist();
+    }
+
+    synchronized void removeRecording(String subdirectoryName, String recordingName) {
+        Directory directory = directories.get(subdirectoryName);
+        if (directory == null || !directory.recordings.containsKey(recordingName)) {
+            return;
+        }
+        Map<String, Entry> recordings = new LinkedHashMap<>(directory.recordings);
+        recordings.remove(recordingName);
+        directories.put(
+                subdirectoryName, new Directory(directory.connectUrl, directory.jvmId, recordings));
+        persist();
+    }
+
+    synchronized void removeDirectory(String subdirectoryName) {
+        if (directories.remove(subdirectoryName) != null) {
+            persist();
+        }
+    }
+
+    /** Drop any cataloged subdirectories which no longer exist on disk. */
+    synchronized void retainDirectories(Collection<String> subdirectoryNames) {
+        if (directories.keySet().retainAll(subdirectoryNames)) {
+            persist();
+        }
+    }
+
+    // writes are coalesced and performed off of the calling thread, which may be an event loop
+    private void persist() {
+        generation++;
+        if (persistPending) {
+            return;
+        }
+        persistPending = true;
+        executor.execute(this::write);
+    }
+
+    private void write() {
+        String json;
+        synchronized (this) {
+            persistPending = false;
+            json = gson.toJson(directories, CATALOG_TYPE);
+        }
+        try {
+            // write the backup copy first, so that a crash mid-write always leaves at least one
+            // complete copy of the catalog behind for load() to fall back on
+            for (Path file : List.of(backupFile, catalogFile)) {
+                fs.writeString(
+                        file,
+                        json,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write archive catalog {}", catalogFile);
+            logger.warn(e);
+        }
+    }
+
+    static class Directory {
+        final String connectUrl;
+        final String jvmId;
+        final Map<String, Entry> recordings;
+        // the subdirectory's last modified time when it was indexed, or 0 if unknown
+        final long lastModified;
+
+        Directory(String connectUrl, String jvmId, Map<String, Entry> recordings) {
+            this(connectUrl, jvmId, recordings, 0);
+        }
+
+        Directory(
+                String connectUrl, String jvmId, Map<String, Entry> recordings, long lastModified) {
+            this.connectUrl = connectUrl;
+            this.jvmId = jvmId;
+            this.recordings = recordings;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null) {
+                return false;
+            }
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Directory)) {
+                return false;
+            }
+
+            Directory other = (Directory) o;
+            return new EqualsBuilder()
+                    .append(connectUrl, other.connectUrl)
+                    .append(jvmId, other.jvmId)
+                    .append(recordings, other.recordings)
+                    .append(lastModified, other.lastModified)
+                    .build();
+        }
+
+        @Override
+        public int hashCode() {
+            return new HashCodeBuilder()
+                    .append(connectUrl)
+                    .append(jvmId)
+                    .append(recordings)
+                    .append(lastModified)
+                    .toHashCode();
+        }
+    }
+
+    static class Entry {
+        final String name;
+        final long size;
+        final long archivedTime;
+        final long lastModified;
+
+        Entry(String name, long size, long archivedTime, long lastModified) {
+            this.name = name;
+            this.size = size;
+            this.archivedTime = archivedTime;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null) {
+                return false;
+            }
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+
+            Entry other = (Entry) o;
+            return new EqualsBuilder()
+                    .append(name, other.name)
+                    .append(size, other.size)
+                    .append(archivedTime, other.archivedTime)
+                    .append(lastModified, other.lastModified)
+                    .build();
+        }
+
+        @Override
+        public int hashCode() {
+            return new HashCodeBuilder()
+                    .append(name)
+                    .append(size)
+                    .append(archivedTime)
+                    .append(lastModified)
+                    .toHashCode();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import io.cryostat.rules.ArchivedRecordingInfo;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Immutable snapshot of the archived recordings with secondary indexes over the fields which
+ * {@link ArchivedRecordingQuery} can select on. Each index maps a value to the set of row numbers
+ * holding it, so that a query intersects the postings for its conditions and only materializes
+ * the rows which match. The snapshot is tagged with the {@link ArchiveCatalog} and {@link
+ * RecordingMetadataManager} generations it was built from and must be rebuilt once either changes.
+ */
+class ArchivedRecordingIndex {
+
+    private final long catalogGeneration;
+    private final long metadataGeneration;
+
+    private final List<ArchivedRecordingInfo> rows;
+    private final Map<String, BitSet> bySubdirectory = new HashMap<>();
+    private final Map<String, BitSet> byName = new HashMap<>();
+    private final Map<Pair<String, String>, BitSet> byLabel = new HashMap<>();
+    private final NavigableMap<Long, BitSet> bySize = new TreeMap<>();
+    private final NavigableMap<Long, BitSet> byArchivedTime = new TreeMap<>();
+
+    /**
+     * @param rows archive subdirectory names paired with the recordings they contain, in listing
+     *     order
+     */
+    ArchivedRecordingIndex(
+            List<Pair<String, ArchivedRecordingInfo>> rows,
+            long catalogGeneration,
+            long metadataGeneration) {
+        this.catalogGeneration = catalogGeneration;
+        this.metadataGeneration = metadataGeneration;
+        this.rows = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            String subdirectoryName = rows.get(i).getLeft();
+            ArchivedRecordingInfo recording = rows.get(i).getRight();
+            this.rows.add(recording);
+            post(bySubdirectory, subdirectoryName, i);
+            post(byName, recording.getName(), i);
+            for (Map.Entry<String, String> label :
+                    recording.getMetadata().getLabels().entrySet()) {
+                post(byLabel, Pair.of(label.getKey(), label.getValue()), i);
+            }
+            post(bySize, recording.getSize(), i);
+            post(byArchivedTime, recording.getArchivedTime(), i);
+        }
+    }
+
+    private static <K> void post(Map<K, BitSet> index, K key, int row) {
+        index.computeIfAbsent(key, k -> new BitSet()).set(row);
+    }
+
+    boolean isCurrent(long catalogGeneration, long metadataGeneration) {
+        return this.catalogGeneration == catalogGeneration
+                && this.metadataGeneration == metadataGeneration;
+    }
+
+    /**
+     * @param subdirectoryName the archive subdirectory to restrict the query to, or null to query
+     *     all subdirectories
+     */
+    ArchivedRecordingQuery.Result query(ArchivedRecordingQuery query, String subdirectoryName) {
+        // null stands for "every row" until some condition narrows it
+        BitSet candidates = null;
+        if (subdirectoryName != null) {
+            candidates = intersect(candidates, bySubdirectory.get(subdirectoryName));
+        }
+        if (query.getNames() != null) {
+            BitSet named = new BitSet();
+            for (String name : query.getNames()) {
+                BitSet postings = byName.get(name);
+                if (postings != null) {
+                    named.or(postings);
+                }
+            }
+            candidates = intersect(candidates, named);
+        }
+        for (Pair<String, String> label : query.getLabels()) {
+            candidates = intersect(candidates, byLabel.get(label));
+        }
+        candidates =
+                range(
+                        candidates,
+                        bySize,
+                        query.getSizeGreaterThanEqual(),
+                        query.getSizeLessThanEqual(),
+                        ArchivedRecordingInfo::getSize);
+        candidates =
+                range(
+                        candidates,
+                        byArchivedTime,
+                        query.getArchivedTimeAfterEqual(),
+                        query.getArchivedTimeBeforeEqual(),
+                        ArchivedRecordingInfo::getArchivedTime);
+        if (candidates == null) {
+            candidates = new BitSet(rows.size());
+            candidates.set(0, rows.size());
+        }
+
+        List<ArchivedRecordingInfo> page = new ArrayList<>();
+        long count = 0;
+        long aggregateSize = 0;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            ArchivedRecordingInfo recording = rows.get(i);
+            if (!matchesSelectors(query.getLabelSelectors(), recording)) {
+                continue;
+            }
+            if (count >= query.getOffset() && page.size() < query.getLimit()) {
+                page.add(recording);
+            }
+            count++;
+            aggregateSize += recording.getSize();
+        }
+        return new ArchivedRecordingQuery.Result(page, count, aggregateSize);
+    }
+
+    private static BitSet intersect(BitSet candidates, BitSet postings) {
+        if (postings == null) {
+            return new BitSet();
+        }
+        if (candidates == null) {
+            return (BitSet) postings.clone();
+        }
+        candidates.and(postings);
+        return candidates;
+    }
+
+    private BitSet range(
+            BitSet candidates,
+            NavigableMap<Long, BitSet> index,
+            Long from,
+            Long to,
+            ToLongFunction<ArchivedRecordingInfo> extractor) {
+        if (from == null && to == null) {
+            return candidates;
+        }
+        long lower = from == null ? Long.MIN_VALUE : from;
+        long upper = to == null ? Long.MAX_VALUE : to;
+        if (lower > upper) {
+            return new BitSet();
+        }
+        if (candidates != null) {
+            // already narrowed by a more selective condition, so checking the remaining rows is
+            // cheaper than walking the range
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                long value = extractor.applyAsLong(rows.get(i));
+                if (value < lower || value > upper) {
+                    candidates.clear(i);
+                }
+            }
+            return candidates;
+        }
+        BitSet matched = new BitSet();
+        for (BitSet postings : index.subMap(lower, true, upper, true).values()) {
+            matched.or(postings);
+        }
+        return matched;
+    }
+
+    private static boolean matchesSelectors(
+            List<Predicate<Map<String, String>>> selectors, ArchivedRecordingInfo recording) {
+        Map<String, String> labels = recording.getMetadata().getLabels();
+        for (Predicate<Map<String, String>> selector : selectors) {
+            if (!selector.test(labels)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import io.cryostat.rules.ArchivedRecordingInfo;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Filter and page selection over the archived recordings, answered by {@link
+ * RecordingArchiveHelper#queryRecordings(ArchivedRecordingQuery)}. All conditions must hold for a
+ * recording to match. Exact name and label equality and the size and archived time ranges are
+ * answered from the archive index, while any other label selectors are only evaluated against the
+ * recordings which already satisfy those.
+ */
+public class ArchivedRecordingQuery {
+
+    private final String sourceTarget;
+    private final Set<String> names;
+    private final List<Pair<String, String>> labels;
+    private final List<Predicate<Map<String, String>>> labelSelectors;
+    private final Long sizeGreaterThanEqual;
+    private final Long sizeLessThanEqual;
+    private final Long archivedTimeAfterEqual;
+    private final Long archivedTimeBeforeEqual;
+    private final int offset;
+    private final int limit;
+
+    private ArchivedRecordingQuery(Builder builder) {
+        this.sourceTarget = builder.sourceTarget;
+        this.names = builder.names == null ? null : Set.copyOf(builder.names);
+        this.labels = List.copyOf(builder.labels);
+        this.labelSelectors = List.copyOf(builder.labelSelectors);
+        this.sizeGreaterThanEqual = builder.sizeGreaterThanEqual;
+        this.sizeLessThanEqual = builder.sizeLessThanEqual;
+        this.archivedTimeAfterEqual = builder.archivedTimeAfterEqual;
+        this.archivedTimeBeforeEqual = builder.archivedTimeBeforeEqual;
+        this.offset = builder.offset;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getSourceTarget() {
+        return sourceTarget;
+    }
+
+    /**
+     * @return the recording names to select, or null if recordings are not selected by name
+     */
+    public Set<String> getNames() {
+        return names;
+    }
+
+    public List<Pair<String, String>> getLabels() {
+        return labels;
+    }
+
+    public List<Predicate<Map<String, String>>> getLabelSelectors() {
+        return labelSelectors;
+    }
+
+    public Long getSizeGreaterThanEqual() {
+        return sizeGreaterThanEqual;
+    }
+
+    public Long getSizeLessThanEqual() {
+        return sizeLessThanEqual;
+    }
+
+    public Long getArchivedTimeAfterEqual() {
+        return archivedTimeAfterEqual;
+    }
+
+    public Long getArchivedTimeBeforeEqual() {
+        return archivedTimeBeforeEqual;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public static class Builder {
+        private String sourceTarget;
+        private Set<String> names;
+        private final List<Pair<String, String>> labels = new ArrayList<>();
+        private final List<Predicate<Map<String, String>>> labelSelectors = new ArrayList<>();
+        private Long sizeGreaterThanEqual;
+        private Long sizeLessThanEqual;
+        private Long archivedTimeAfterEqual;
+        private Long archivedTimeBeforeEqual;
+        private int offset = 0;
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder() {}
+
+        /** Only select recordings archived from the target with the given connectUrl. */
+        public Builder sourceTarget(String sourceTarget) {
+            this.sourceTarget = sourceTarget;
+            return this;
+        }
+
+        public Builder name(String name) {
+            return names(List.of(name));
+        }
+
+        /**
+         * Only select recordings with one of the given names. Repeated calls narrow the selection
+         * to the names common to each.
+         */
+        public Builder names(Collection<String> names) {
+            if (this.names == null) {
+                this.names = new HashSet<>(names);
+            } else {
+                this.names.retainAll(names);
+            }
+            return this;
+        }
+
+        /** Only select recordings with a label of exactly the given key and value. */
+        public Builder label(String key, String value) {
+            this.labels.add(Pair.of(key, value));
+            return this;
+        }
+
+        /** Only select recordings whose labels satisfy the given selector. */
+        public Builder labelSelector(Predicate<Map<String, String>> selector) {
+            this.labelSelectors.add(selector);
+            return this;
+        }
+
+        public Builder sizeGreaterThanEqual(long size) {
+            this.sizeGreaterThanEqual = size;
+            return this;
+        }
+
+        public Builder sizeLessThanEqual(long size) {
+            this.sizeLessThanEqual = size;
+            return this;
+        }
+
+        public Builder archivedTimeAfterEqual(long archivedTime) {
+            this.archivedTimeAfterEqual = archivedTime;
+            return this;
+        }
+
+        public Builder archivedTimeBeforeEqual(long archivedTime) {
+            this.archivedTimeBeforeEqual = archivedTime;
+            return this;
+        }
+
+        /** Skip the given number of matching recordings. */
+        public Builder offset(int offset) {
+            if (offset < 0) {
+                throw new IllegalArgumentException("offset must not be negative");
+            }
+            this.offset = offset;
+            return this;
+        }
+
+        /** Return at most the given number of matching recordings. */
+        public Builder limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit must not be negative");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public ArchivedRecordingQuery build() {
+            return new ArchivedRecordingQuery(this);
+        }
+    }
+
+    /**
+     * A page of matching recordings, in archive listing order, along with the count and total size
+     * of all recordings matching the query regardless of paging.
+     */
+    public static class Result {
+        private final List<ArchivedRecordingInfo> recordings;
+        private final long count;
+        private final long aggregateSize;
+
+        public Result(List<ArchivedRecordingInfo> recordings, long count, long aggregateSize) {
+            this.recordings = recordings;
+            this.count = count;
+            this.aggregateSize = aggregateSize;
+        }
+
+        public List<ArchivedRecordingInfo> getRecordings() {
+            return recordings;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getAggregateSize() {
+            return aggregateSize;
+        }
+    }
+}
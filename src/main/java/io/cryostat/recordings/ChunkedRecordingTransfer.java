@@ -0,0 +1,229 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Clock;
+import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.TargetConnectionManager;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Copies a recording stream opened on a target into an archive file one chunk at a time. The
+ * target's connection lock is only held while each chunk is read from the target, so other
+ * operations on the same target can proceed between the chunks of a long transfer, and each chunk
+ * is written directly into a {@link FileChannel}. Once the stream is exhausted the file size is
+ * checked against the number of bytes read and the file is checked for the JFR header.
+ */
+class ChunkedRecordingTransfer {
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+    // every JFR chunk begins with these magic bytes
+    private static final byte[] JFR_MAGIC = {'F', 'L', 'R', 0};
+
+    private final TargetConnectionManager targetConnectionManager;
+    private final Executor executor;
+    private final Clock clock;
+    private final Logger logger;
+
+    ChunkedRecordingTransfer(
+            TargetConnectionManager targetConnectionManager,
+            Executor executor,
+            Clock clock,
+            Logger logger) {
+        this.targetConnectionManager = targetConnectionManager;
+        this.executor = executor;
+        this.clock = clock;
+        this.logger = logger;
+    }
+
+    /**
+     * @param stream the recording stream, which is closed once the transfer completes
+     * @param destination an empty file already reserved by the caller, which remains responsible
+     *     for deleting it if the transfer fails
+     * @return the number of bytes written to the destination, which is zero if the recording was
+     *     empty
+     */
+    CompletableFuture<Long> transfer(
+            ConnectionDescriptor connectionDescriptor,
+            String recordingName,
+            InputStream stream,
+            Path destination) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return copy(connectionDescriptor, recordingName, stream, destination);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
+    }
+
+    long copy(
+            ConnectionDescriptor connectionDescriptor,
+            String recordingName,
+            InputStream stream,
+            Path destination)
+            throws Exception {
+        String targetId = connectionDescriptor.getTargetId();
+        ArchiveTransfer evt = new ArchiveTransfer(targetId, recordingName);
+        evt.begin();
+        long start = clock.getMonotonicTime();
+        long bytes = 0;
+        int chunks = 0;
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (stream;
+                FileChannel channel =
+                        FileChannel.open(
+                                destination,
+                                StandardOpenOption.READ,
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (true) {
+                if (!targetConnectionManager.markConnectionInUse(connectionDescriptor)) {
+                    throw new IOException(
+                            String.format(
+                                    "Connection to %s was closed while archiving %s",
+                                    targetId, recordingName));
+                }
+                int n =
+                        targetConnectionManager.executeReadOnlyTask(
+                                connectionDescriptor, conn -> readChunk(stream, buffer));
+                if (n < 0) {
+                    break;
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                bytes += n;
+                chunks++;
+            }
+            channel.force(false);
+            verify(channel, destination, bytes);
+        } catch (Exception e) {
+            evt.setFailed(true);
+            throw e;
+        } finally {
+            long elapsedMs =
+                    TimeUnit.NANOSECONDS.toMillis(clock.getMonotonicTime() - start);
+            long bytesPerSecond = elapsedMs > 0 ? bytes * 1000 / elapsedMs : bytes;
+            evt.setBytes(bytes);
+            evt.setChunks(chunks);
+            evt.setBytesPerSecond(bytesPerSecond);
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+            logger.info(
+                    "Archived {} bytes of {} from {} in {} chunks over {}ms ({} B/s)",
+                    bytes,
+                    recordingName,
+                    targetId,
+                    chunks,
+                    elapsedMs,
+                    bytesPerSecond);
+        }
+        return bytes;
+    }
+
+    // fill the buffer as far as possible so that each lock acquisition moves a full chunk
+    private static int readChunk(InputStream stream, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = stream.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static void verify(FileChannel channel, Path destination, long bytes)
+            throws IOException {
+        if (channel.size() != bytes) {
+            throw new IOException(
+                    String.format(
+                            "%s is %d bytes but %d bytes were read from the target",
+                            destination, channel.size(), bytes));
+        }
+        if (bytes == 0) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(JFR_MAGIC.length);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // keep reading until the header is filled or the file ends
+        }
+        if (!Arrays.equals(header.array(), JFR_MAGIC)) {
+            throw new IOException(String.format("%s is not a JFR file", destination));
+        }
+    }
+
+    @Name("io.cryostat.recordings.ChunkedRecordingTransfer.ArchiveTransfer")
+    @Label("Recording Archive Transfer")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class ArchiveTransfer extends Event {
+        String targetId;
+        String recordingName;
+        long bytes;
+        int chunks;
+        long bytesPerSecond;
+        boolean failed;
+
+        ArchiveTransfer(String targetId, String recordingName) {
+            this.targetId = targetId;
+            this.recordingName = recordingName;
+        }
+
+        void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        void setChunks(int chunks) {
+            this.chunks = chunks;
+        }
+
+        void setBytesPerSecond(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void setFailed(boolean failed) {
+            this.failed = failed;
+        }
+    }
+}
@@ -18,11 +18,15 @@ package io.cryostat.recordings;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -34,6 +38,7 @@ import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
 import io.cryostat.core.net.JFRConnection;
+import io.cryostat.core.sys.Clock;
 import io.cryostat.net.ConnectionDescriptor;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.platform.PlatformClient;
@@ -43,34 +48,67 @@ import io.cryostat.util.events.EventType;
 
 import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import org.apache.commons.codec.binary.Base32;
 import org.apache.commons.lang3.StringUtils;
 
+/**
+ * Maps target connection URLs to the JVM IDs of the targets behind them. Resolved IDs are persisted
+ * along with the time they were last confirmed by a connection to the target, and are trusted as-is
+ * when Cryostat restarts so that archived recordings and metadata can be matched up to their
+ * targets without connecting to each one first. Once a target is discovered again its ID is
+ * re-validated in the background if it has not been confirmed within the configured age. Stored
+ * IDs are forgotten when their target is lost, or once they have gone unconfirmed for longer than
+ * the configured maximum age.
+ */
 public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, String> {
 
+    static final Duration PRUNE_PERIOD = Duration.ofMinutes(5);
+
     private final TargetConnectionManager targetConnectionManager;
     private final CredentialsManager credentialsManager;
+    private final PlatformClient platform;
+    private final StoredJvmIdDao dao;
     private final long connectionTimeoutSeconds;
+    private final Duration revalidationAge;
+    private final Duration maxAge;
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final Clock clock;
     private final Base32 base32;
     private final Logger logger;
 
     private final AsyncLoadingCache<String, String> ids;
-    private final Map<String, ServiceRef> reverse;
+    private final Cache<String, ServiceRef> reverse;
+    private final Map<String, Long> verifiedAt = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
 
     JvmIdHelper(
             TargetConnectionManager targetConnectionManager,
             CredentialsManager credentialsManager,
             PlatformClient platform,
+            StoredJvmIdDao dao,
             long connectionTimeoutSeconds,
+            Duration revalidationAge,
+            Duration maxAge,
+            long reverseLookupMaxSize,
             Executor executor,
             Scheduler scheduler,
+            Clock clock,
             Base32 base32,
             Logger logger) {
         this.targetConnectionManager = targetConnectionManager;
         this.credentialsManager = credentialsManager;
+        this.platform = platform;
+        this.dao = dao;
         this.connectionTimeoutSeconds = connectionTimeoutSeconds;
+        this.revalidationAge = revalidationAge;
+        this.maxAge = maxAge;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.clock = clock;
         this.base32 = base32;
         this.logger = logger;
         this.ids =
@@ -85,23 +123,118 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
                 tde -> {
                     switch (tde.getEventKind()) {
                         case LOST:
-                            String targetId = tde.getServiceRef().getServiceUri().toString();
-                            ids.synchronous().invalidate(targetId);
+                            forget(tde.getServiceRef().getServiceUri().toString());
                             break;
                         default:
                             // ignored
                             break;
                     }
                 });
-        this.reverse = new HashMap<>();
+        this.reverse =
+                Caffeine.newBuilder()
+                        .executor(executor)
+                        .scheduler(scheduler)
+                        .maximumSize(reverseLookupMaxSize)
+                        .build();
+
+        loadStoredIds();
+        schedulePrune();
+    }
+
+    private void loadStoredIds() {
+        List<StoredJvmId> stored;
+        try {
+            stored = dao.getAll();
+        } catch (Exception e) {
+            logger.warn("Could not load stored JVM IDs");
+            logger.warn(e);
+            return;
+        }
+        long cutoff = clock.getWallTime() - maxAge.toMillis();
+        int loaded = 0;
+        for (StoredJvmId s : stored) {
+            if (s.getLastVerified() < cutoff) {
+                continue;
+            }
+            ids.put(s.getTargetId(), CompletableFuture.completedFuture(s.getJvmId()));
+            verifiedAt.put(s.getTargetId(), s.getLastVerified());
+            loaded++;
+        }
+        logger.info("Loaded {} stored JVM IDs", loaded);
+        if (loaded < stored.size()) {
+            try {
+                int deleted = dao.deleteOlderThan(cutoff);
+                logger.info("Deleted {} expired JVM IDs", deleted);
+            } catch (Exception e) {
+                logger.warn("Could not delete expired JVM IDs");
+                logger.warn(e);
+            }
+        }
+    }
+
+    private void schedulePrune() {
+        scheduler.schedule(
+                executor,
+                () -> {
+                    try {
+                        pruneExpiredIds();
+                    } finally {
+                        schedulePrune();
+                    }
+                },
+                PRUNE_PERIOD.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forget stored IDs which have not been confirmed within the maximum age and whose targets are
+     * not currently discovered. IDs of discovered targets are kept even if they are old, since
+     * they are only re-confirmed when a discovery event for the target arrives.
+     */
+    void pruneExpiredIds() {
+        long cutoff = clock.getWallTime() - maxAge.toMillis();
+        Set<String> discovered = new HashSet<>();
+        try {
+            platform.listDiscoverableServices()
+                    .forEach(sr -> discovered.add(sr.getServiceUri().toString()));
+        } catch (Exception e) {
+            logger.warn(e);
+            return;
+        }
+        verifiedAt.forEach(
+                (targetId, last) -> {
+                    if (last < cutoff && !discovered.contains(targetId)) {
+                        logger.info("Forgetting expired JVM ID for target {}", targetId);
+                        forget(targetId);
+                    }
+                });
+    }
+
+    private void forget(String targetId) {
+        ids.synchronous().invalidate(targetId);
+        revalidating.remove(targetId);
+        if (verifiedAt.remove(targetId) == null) {
+            return;
+        }
+        try {
+            dao.delete(targetId);
+        } catch (Exception e) {
+            logger.warn("Could not delete stored JVM ID for target {}", targetId);
+            logger.warn(e);
+        }
     }
 
     private boolean observe(ServiceRef sr) {
         if (StringUtils.isBlank(sr.getJvmId())) {
             return false;
         }
+        String targetId = sr.getServiceUri().toString();
         reverse.put(sr.getJvmId(), sr);
-        ids.put(sr.getServiceUri().toString(), CompletableFuture.completedFuture(sr.getJvmId()));
+        boolean changed = !Objects.equals(getCachedJvmId(targetId).orElse(null), sr.getJvmId());
+        if (changed) {
+            ids.put(targetId, CompletableFuture.completedFuture(sr.getJvmId()));
+        }
+        markVerified(targetId, sr.getJvmId(), changed);
         return true;
     }
 
@@ -110,27 +243,36 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
         if (observe(sr)) {
             return sr;
         }
-        logger.info("Observing new target: {}", sr);
         URI serviceUri = sr.getServiceUri();
         String uriStr = serviceUri.toString();
+        Optional<String> cached = getCachedJvmId(uriStr);
+        if (cached.isPresent()) {
+            ServiceRef updated = withJvmId(sr, cached.get());
+            reverse.put(cached.get(), sr);
+            revalidateIfStale(sr, cached.get());
+            return updated;
+        }
+        logger.info("Observing new target: {}", sr);
         try {
             String id =
                     computeJvmId(uriStr, Optional.ofNullable(credentialsManager.getCredentials(sr)))
                             .whenComplete(
                                     (i, t) -> {
-                                        String prevId = this.ids.synchronous().get(uriStr);
-                                        if (Objects.equals(prevId, i)) {
+                                        if (t != null) {
                                             return;
                                         }
-                                        this.ids.put(uriStr, CompletableFuture.completedFuture(i));
-                                        logger.info("JVM ID: {} -> {}", uriStr, i);
+                                        String prevId = getCachedJvmId(uriStr).orElse(null);
+                                        boolean changed = !Objects.equals(prevId, i);
+                                        if (changed) {
+                                            this.ids.put(
+                                                    uriStr, CompletableFuture.completedFuture(i));
+                                            logger.info("JVM ID: {} -> {}", uriStr, i);
+                                        }
+                                        markVerified(uriStr, i, changed);
                                     })
                             .get();
 
-            ServiceRef updated = new ServiceRef(id, serviceUri, sr.getAlias().orElse(uriStr));
-            updated.setLabels(sr.getLabels());
-            updated.setPlatformAnnotations(sr.getPlatformAnnotations());
-            updated.setCryostatAnnotations(sr.getCryostatAnnotations());
+            ServiceRef updated = withJvmId(sr, id);
             reverse.put(id, sr);
             return updated;
         } catch (InterruptedException | ExecutionException | ScriptException e) {
@@ -139,8 +281,95 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
         }
     }
 
+    private void revalidateIfStale(ServiceRef sr, String jvmId) {
+        String targetId = sr.getServiceUri().toString();
+        Long last = verifiedAt.get(targetId);
+        if (last != null && clock.getWallTime() - last < revalidationAge.toMillis()) {
+            return;
+        }
+        if (!revalidating.add(targetId)) {
+            return;
+        }
+        CompletableFuture<String> f;
+        try {
+            f = computeJvmId(targetId, Optional.ofNullable(credentialsManager.getCredentials(sr)));
+        } catch (ScriptException e) {
+            revalidating.remove(targetId);
+            logger.warn(e);
+            return;
+        }
+        f.whenComplete(
+                (id, t) -> {
+                    if (!revalidating.remove(targetId)) {
+                        // the target was forgotten while this was in flight
+                        return;
+                    }
+                    if (t != null) {
+                        // keep trusting the known ID until a connection succeeds
+                        logger.info("Could not re-validate JVM ID for target {}", targetId);
+                        return;
+                    }
+                    boolean changed = !Objects.equals(jvmId, id);
+                    if (changed) {
+                        logger.info("JVM ID for {} changed: {} -> {}", targetId, jvmId, id);
+                        reverse.invalidate(jvmId);
+                        reverse.put(id, sr);
+                        ids.put(targetId, CompletableFuture.completedFuture(id));
+                    }
+                    markVerified(targetId, id, changed);
+                });
+    }
+
+    private void markVerified(String targetId, String jvmId, boolean changed) {
+        if (StringUtils.isBlank(jvmId) || isSpecialTargetId(targetId)) {
+            return;
+        }
+        long now = clock.getWallTime();
+        Long last = verifiedAt.put(targetId, now);
+        if (!changed && last != null && now - last < revalidationAge.toMillis()) {
+            // avoid rewriting the record on every discovery event
+            return;
+        }
+        try {
+            dao.upsert(targetId, jvmId, now);
+        } catch (Exception e) {
+            logger.warn("Could not store JVM ID for target {}", targetId);
+            logger.warn(e);
+        }
+    }
+
+    private boolean isSpecialTargetId(String targetId) {
+        return targetId == null
+                || targetId.equals(RecordingArchiveHelper.ARCHIVES)
+                || targetId.equals(RecordingArchiveHelper.UPLOADED_RECORDINGS_SUBDIRECTORY)
+                || targetId.equals(RecordingArchiveHelper.LOST_RECORDINGS_SUBDIRECTORY);
+    }
+
+    /**
+     * Look up a previously resolved JVM ID without opening a connection to the target.
+     *
+     * @return the cached JVM ID, or empty if none is known or its resolution is still in progress
+     */
+    public Optional<String> getCachedJvmId(String targetId) {
+        CompletableFuture<String> f = ids.getIfPresent(targetId);
+        if (f == null || !f.isDone() || f.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(StringUtils.trimToNull(f.join()));
+    }
+
+    public static ServiceRef withJvmId(ServiceRef sr, String jvmId) {
+        URI serviceUri = sr.getServiceUri();
+        ServiceRef updated =
+                new ServiceRef(jvmId, serviceUri, sr.getAlias().orElse(serviceUri.toString()));
+        updated.setLabels(sr.getLabels());
+        updated.setPlatformAnnotations(sr.getPlatformAnnotations());
+        updated.setCryostatAnnotations(sr.getCryostatAnnotations());
+        return updated;
+    }
+
     public Optional<ServiceRef> reverseLookup(String jvmId) {
-        return Optional.ofNullable(this.reverse.get(jvmId));
+        return Optional.ofNullable(this.reverse.getIfPresent(jvmId));
     }
 
     private CompletableFuture<String> computeJvmId(
@@ -236,7 +465,9 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
 
         @Override
         public CompletableFuture<String> asyncLoad(String key, Executor executor) throws Exception {
-            return computeJvmId(key, Optional.empty());
+            CompletableFuture<String> f = computeJvmId(key, Optional.empty());
+            f.thenAccept(id -> markVerified(key, id, true));
+            return f;
         }
 
         @Override
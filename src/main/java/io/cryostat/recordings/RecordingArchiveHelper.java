@@ -20,29 +20,40 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -82,6 +93,7 @@ import io.vertx.core.Vertx;
 import io.vertx.ext.web.FileUpload;
 import org.apache.commons.codec.binary.Base32;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 public class RecordingArchiveHelper {
 
@@ -98,10 +110,24 @@ public class RecordingArchiveHelper {
     private final JvmIdHelper jvmIdHelper;
     private final Vertx vertx;
     private final Base32 base32;
+    private final ArchiveCatalog catalog;
+    private final ChunkedRecordingTransfer transfer;
+
+    // guarded by this
+    private ArchivedRecordingIndex recordingIndex;
+    // the rows of recordingIndex keyed by subdirectory and recording name, so that rebuilding the
+    // index only needs to look up metadata for recordings which were added, changed or relabelled
+    private Map<Pair<String, String>, IndexedRecording> indexedRecordings = new HashMap<>();
+    private final Set<String> relabelledRecordings = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean allRelabelled = new AtomicBoolean();
+    private volatile long archiveReconciledNanos =
+            System.nanoTime() - ARCHIVE_RECONCILE_INTERVAL.toNanos();
 
     private static final String SAVE_NOTIFICATION_CATEGORY = "ActiveRecordingSaved";
     private static final String DELETE_NOTIFICATION_CATEGORY = "ArchivedRecordingDeleted";
     private static final long FS_TIMEOUT_SECONDS = 1;
+    private static final Duration DIRECTORY_MTIME_RESOLUTION = Duration.ofSeconds(2);
+    private static final Duration ARCHIVE_RECONCILE_INTERVAL = Duration.ofSeconds(30);
 
     public static final String RECORDING_NAME_ERR_MSG =
             "This is not a valid file name for the recording.";
@@ -134,7 +160,9 @@ public class RecordingArchiveHelper {
             NotificationFactory notificationFactory,
             JvmIdHelper jvmIdHelper,
             Vertx vertx,
-            Base32 base32) {
+            Base32 base32,
+            ArchiveCatalog catalog,
+            ChunkedRecordingTransfer transfer) {
         this.fs = fs;
         this.webServerProvider = webServerProvider;
         this.logger = logger;
@@ -148,6 +176,18 @@ public class RecordingArchiveHelper {
         this.jvmIdHelper = jvmIdHelper;
         this.vertx = vertx;
         this.base32 = base32;
+        this.catalog = catalog;
+        this.transfer = transfer;
+
+        recordingMetadataManager.addChangeListener(this::onMetadataChange);
+    }
+
+    private void onMetadataChange(String recordingName) {
+        if (recordingName == null) {
+            allRelabelled.set(true);
+        } else {
+            relabelledRecordings.add(recordingName);
+        }
     }
 
     // startup migration for archived recordings
@@ -262,11 +302,30 @@ public class RecordingArchiveHelper {
         for (var f : futures) {
             f.get();
         }
+        rebuildCatalog();
+    }
+
+    // load the persisted archive catalog and reconcile it against the archive directory, so that
+    // recordings added or removed while Cryostat was not running are picked up
+    private void rebuildCatalog() throws IOException {
+        catalog.load();
+        List<String> subdirectories = fs.listDirectoryChildren(archivedRecordingsPath);
+        catalog.retainDirectories(subdirectories);
+        for (String subdirectoryName : subdirectories) {
+            try {
+                indexSubdirectory(subdirectoryName, null);
+            } catch (IOException | InterruptedException | ExecutionException e) {
+                logger.warn("Failed to index archived recordings in {}", subdirectoryName);
+                logger.warn(e);
+            }
+        }
+        logger.info("Indexed {} archived recordings subdirectories", subdirectories.size());
     }
 
     protected void transferArchivesIfRestarted(String targetId) {
         try {
             Path subdirectoryPath = null;
+            String subdirectoryName = null;
             for (String encodedJvmId : fs.listDirectoryChildren(archivedRecordingsPath)) {
                 Path subdir = archivedRecordingsPath.resolve(encodedJvmId);
                 Path connectUrl = subdir.resolve(CONNECT_URL);
@@ -274,6 +333,7 @@ public class RecordingArchiveHelper {
                     String u = fs.readString(connectUrl);
                     if (Objects.equals(targetId, u)) {
                         subdirectoryPath = subdir;
+                        subdirectoryName = encodedJvmId;
                         break;
                     }
                 }
@@ -303,6 +363,8 @@ public class RecordingArchiveHelper {
                 Files.move(oldLocation, newLocation);
             }
             fs.deleteIfExists(subdirectoryPath);
+            // the new subdirectory is indexed the next time it is listed
+            catalog.removeDirectory(subdirectoryName);
 
             logger.info(
                     "[{}]: Archives subdirectory successfully transferred: {} -> {}",
@@ -355,19 +417,16 @@ public class RecordingArchiveHelper {
         return archivedRecordingsPath.resolve(subdirectory);
     }
 
-    @SuppressFBWarnings(
-            value = "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE",
-            justification =
-                    "SpotBugs false positive. validateSavePath() ensures that the getParent() and"
-                            + " getFileName() of the Path are not null, barring some exceptional"
-                            + " circumstance like some external filesystem access race.")
     public Future<ArchivedRecordingInfo> saveRecording(
             ConnectionDescriptor connectionDescriptor, String recordingName) {
 
         CompletableFuture<ArchivedRecordingInfo> future = new CompletableFuture<>();
 
+        Pair<Path, InputStream> transferSource;
         try {
-            Path savePath =
+            // only the lookup and stream opening need the target lock. The transfer itself
+            // acquires it chunk by chunk so that other tasks can proceed in between
+            transferSource =
                     targetConnectionManager.executeConnectedTask(
                             connectionDescriptor,
                             connection -> {
@@ -375,54 +434,106 @@ public class RecordingArchiveHelper {
                                         this.getDescriptorByName(connection, recordingName);
 
                                 if (descriptor.isPresent()) {
-                                    return writeRecordingToDestination(
-                                            connection, descriptor.get());
+                                    Path destination =
+                                            prepareDestination(connection, descriptor.get());
+                                    try {
+                                        InputStream stream =
+                                                connection
+                                                        .getService()
+                                                        .openStream(descriptor.get(), false);
+                                        return Pair.of(destination, stream);
+                                    } catch (Exception e) {
+                                        fs.deleteIfExists(destination);
+                                        throw e;
+                                    }
                                 } else {
                                     throw new RecordingNotFoundException(
                                             "active recordings", recordingName);
                                 }
                             });
-            validateSavePath(recordingName, savePath);
-            Path filenamePath = savePath.getFileName();
-            String filename = filenamePath.toString();
-            Metadata metadata =
-                    recordingMetadataManager
-                            .copyMetadataToArchives(connectionDescriptor, recordingName, filename)
-                            .get();
-            ArchivedRecordingInfo archivedRecordingInfo =
-                    new ArchivedRecordingInfo(
-                            connectionDescriptor.getTargetId(),
-                            filename,
-                            webServerProvider
-                                    .get()
-                                    .getArchivedDownloadURL(
-                                            connectionDescriptor.getTargetId(), filename),
-                            webServerProvider
-                                    .get()
-                                    .getArchivedReportURL(
-                                            connectionDescriptor.getTargetId(), filename),
-                            metadata,
-                            getFileSize(filename),
-                            getArchivedTime(filename));
-            future.complete(archivedRecordingInfo);
-            notificationFactory
-                    .createBuilder()
-                    .metaCategory(SAVE_NOTIFICATION_CATEGORY)
-                    .metaType(HttpMimeType.JSON)
-                    .message(
-                            Map.of(
-                                    "recording",
-                                    archivedRecordingInfo,
-                                    "target",
-                                    connectionDescriptor.getTargetId()))
-                    .build()
-                    .send();
         } catch (Exception e) {
             future.completeExceptionally(e);
+            return future;
         }
+
+        Path savePath = transferSource.getLeft();
+        transfer.transfer(connectionDescriptor, recordingName, transferSource.getRight(), savePath)
+                .whenComplete(
+                        (bytes, t) -> {
+                            try {
+                                if (t != null) {
+                                    fs.deleteIfExists(savePath);
+                                    if (t instanceof CompletionException
+                                            && t.getCause() != null) {
+                                        t = t.getCause();
+                                    }
+                                    future.completeExceptionally(t);
+                                    return;
+                                }
+                                if (bytes == 0) {
+                                    fs.deleteIfExists(savePath);
+                                    throw new EmptyRecordingException();
+                                }
+                                future.complete(
+                                        onRecordingSaved(
+                                                connectionDescriptor, recordingName, savePath));
+                            } catch (Exception e) {
+                                future.completeExceptionally(e);
+                            }
+                        });
         return future;
     }
 
+    @SuppressFBWarnings(
+            value = "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE",
+            justification =
+                    "SpotBugs false positive. validateSavePath() ensures that the getParent() and"
+                            + " getFileName() of the Path are not null, barring some exceptional"
+                            + " circumstance like some external filesystem access race.")
+    private ArchivedRecordingInfo onRecordingSaved(
+            ConnectionDescriptor connectionDescriptor, String recordingName, Path savePath)
+            throws Exception {
+        validateSavePath(recordingName, savePath);
+        Path filenamePath = savePath.getFileName();
+        String filename = filenamePath.toString();
+        ArchiveCatalog.Entry entry =
+                indexRecording(
+                        savePath.getParent().getFileName().toString(),
+                        connectionDescriptor.getTargetId(),
+                        savePath);
+        Metadata metadata =
+                recordingMetadataManager
+                        .copyMetadataToArchives(connectionDescriptor, recordingName, filename)
+                        .get();
+        ArchivedRecordingInfo archivedRecordingInfo =
+                new ArchivedRecordingInfo(
+                        connectionDescriptor.getTargetId(),
+                        filename,
+                        webServerProvider
+                                .get()
+                                .getArchivedDownloadURL(
+                                        connectionDescriptor.getTargetId(), filename),
+                        webServerProvider
+                                .get()
+                                .getArchivedReportURL(connectionDescriptor.getTargetId(), filename),
+                        metadata,
+                        entry.size,
+                        entry.archivedTime);
+        notificationFactory
+                .createBuilder()
+                .metaCategory(SAVE_NOTIFICATION_CATEGORY)
+                .metaType(HttpMimeType.JSON)
+                .message(
+                        Map.of(
+                                "recording",
+                                archivedRecordingInfo,
+                                "target",
+                                connectionDescriptor.getTargetId()))
+                .build()
+                .send();
+        return archivedRecordingInfo;
+    }
+
     @SuppressFBWarnings(
             value = "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE",
             justification =
@@ -440,6 +551,9 @@ public class RecordingArchiveHelper {
             Path filenamePath = recordingPath.getFileName();
             String filename = filenamePath.toString();
             String targetId = getConnectUrlFromPath(subdirectoryPath).get();
+            ArchiveCatalog.Entry entry =
+                    catalog.getRecording(subdirectoryName, filename)
+                            .orElseGet(() -> statRecording(filename, recordingPath));
             ArchivedRecordingInfo archivedRecordingInfo =
                     new ArchivedRecordingInfo(
                             targetId,
@@ -448,8 +562,8 @@ public class RecordingArchiveHelper {
                             webServerProvider.get().getArchivedReportURL(targetId, filename),
                             recordingMetadataManager.deleteRecordingMetadataIfExists(
                                     jvmId, recordingName),
-                            getFileSize(filename),
-                            getArchivedTime(filename));
+                            entry.size,
+                            entry.archivedTime);
             notificationFactory
                     .createBuilder()
                     .metaCategory(DELETE_NOTIFICATION_CATEGORY)
@@ -458,7 +572,8 @@ public class RecordingArchiveHelper {
                     .build()
                     .send();
             fs.deleteIfExists(recordingPath);
-            checkEmptySubdirectory(subdirectoryPath);
+            catalog.removeRecording(subdirectoryName, filename);
+            checkEmptySubdirectory(subdirectoryName, subdirectoryPath);
             future.complete(archivedRecordingInfo);
         } catch (IOException | URISyntaxException | InterruptedException | ExecutionException e) {
             future.completeExceptionally(e);
@@ -504,6 +619,11 @@ public class RecordingArchiveHelper {
             String targetId =
                     sourceTarget == null ? UPLOADED_RECORDINGS_SUBDIRECTORY : sourceTarget;
             subdirectoryName = parentPath.getFileName().toString();
+            // the file is already gone, so only the catalog can still describe it
+            ArchiveCatalog.Entry entry =
+                    catalog.getRecording(subdirectoryName, filename)
+                            .orElseGet(() -> new ArchiveCatalog.Entry(filename, 0, 0, 0));
+            catalog.removeRecording(subdirectoryName, filename);
             ArchivedRecordingInfo archivedRecordingInfo =
                     new ArchivedRecordingInfo(
                             targetId,
@@ -512,8 +632,8 @@ public class RecordingArchiveHelper {
                             webServerProvider.get().getArchivedReportURL(targetId, filename),
                             recordingMetadataManager.deleteRecordingMetadataIfExists(
                                     new ConnectionDescriptor(targetId), recordingName),
-                            getFileSize(filename),
-                            getArchivedTime(filename));
+                            entry.size,
+                            entry.archivedTime);
             notificationFactory
                     .createBuilder()
                     .metaCategory(DELETE_NOTIFICATION_CATEGORY)
@@ -521,7 +641,7 @@ public class RecordingArchiveHelper {
                     .message(Map.of("recording", archivedRecordingInfo, "target", targetId))
                     .build()
                     .send();
-            checkEmptySubdirectory(parentPath);
+            checkEmptySubdirectory(subdirectoryName, parentPath);
             future.complete(archivedRecordingInfo);
         } catch (IOException | URISyntaxException e) {
             future.completeExceptionally(e);
@@ -531,11 +651,13 @@ public class RecordingArchiveHelper {
         return future;
     }
 
-    private void checkEmptySubdirectory(Path parentPath) throws IOException {
+    private void checkEmptySubdirectory(String subdirectoryName, Path parentPath)
+            throws IOException {
         if (fs.listDirectoryChildren(parentPath).size() == 1
                 && fs.listDirectoryChildren(parentPath).contains(CONNECT_URL)) {
             fs.deleteIfExists(parentPath.resolve(CONNECT_URL));
             fs.deleteIfExists(parentPath);
+            catalog.removeDirectory(subdirectoryName);
         }
     }
 
@@ -612,7 +734,8 @@ public class RecordingArchiveHelper {
 
         try {
             String jvmId = jvmIdHelper.getJvmId(targetId);
-            Path specificRecordingsPath = getRecordingSubdirectoryPath(jvmId);
+            String subdirectoryName = jvmIdHelper.jvmIdToSubdirectoryName(jvmId);
+            Path specificRecordingsPath = archivedRecordingsPath.resolve(subdirectoryName);
             if (!fs.exists(archivedRecordingsPath)) {
                 throw new ArchivePathException(archivedRecordingsPath.toString(), "does not exist");
             }
@@ -639,20 +762,20 @@ public class RecordingArchiveHelper {
             }
             WebServer webServer = webServerProvider.get();
             List<ArchivedRecordingInfo> archivedRecordings = new ArrayList<>();
-            this.fs.listDirectoryChildren(specificRecordingsPath).stream()
-                    .filter(filename -> !filename.equals(CONNECT_URL))
+            indexSubdirectory(subdirectoryName, targetId).recordings.values().stream()
                     .map(
-                            file -> {
+                            entry -> {
                                 try {
                                     return new ArchivedRecordingInfo(
                                             targetId,
-                                            file,
-                                            webServer.getArchivedDownloadURL(targetId, file),
-                                            webServer.getArchivedReportURL(targetId, file),
+                                            entry.name,
+                                            webServer.getArchivedDownloadURL(targetId, entry.name),
+                                            webServer.getArchivedReportURL(targetId, entry.name),
                                             recordingMetadataManager.getMetadata(
-                                                    new ConnectionDescriptor(targetId), file),
-                                            getFileSize(file),
-                                            getArchivedTime(file));
+                                                    new ConnectionDescriptor(targetId),
+                                                    entry.name),
+                                            entry.size,
+                                            entry.archivedTime);
                                 } catch (IOException | URISyntaxException e) {
                                     logger.warn(e);
                                     return null;
@@ -661,7 +784,7 @@ public class RecordingArchiveHelper {
                     .filter(Objects::nonNull)
                     .forEach(archivedRecordings::add);
             future.complete(archivedRecordings);
-        } catch (ArchivePathException | IOException e) {
+        } catch (ArchivePathException | IOException | InterruptedException | ExecutionException e) {
             future.completeExceptionally(e);
         }
         return future;
@@ -684,41 +807,42 @@ public class RecordingArchiveHelper {
             WebServer webServer = webServerProvider.get();
             List<ArchiveDirectory> directories = new ArrayList<>();
             List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
+            catalog.retainDirectories(subdirectories);
             for (String subdirectoryName : subdirectories) {
                 if (subdirectoryName.equals(TEMP_UPLOADS_SUBDIRECTORY)) {
                     continue;
                 }
-                Path subdirectory = archivedRecordingsPath.resolve(subdirectoryName);
-                String targetId = getConnectUrlFromPath(subdirectory).get();
-                String jvmId = jvmIdHelper.subdirectoryNameToJvmId(subdirectoryName);
-                List<String> files = this.fs.listDirectoryChildren(subdirectory);
+                ArchiveCatalog.Directory directory = indexSubdirectory(subdirectoryName, null);
+                String targetId = directory.connectUrl;
+                String jvmId = directory.jvmId;
                 List<ArchivedRecordingInfo> temp =
-                        files.stream()
-                                .filter(filename -> !filename.equals(CONNECT_URL))
+                        directory.recordings.values().stream()
                                 .map(
-                                        file -> {
+                                        entry -> {
                                             try {
                                                 // FIXME: string replacing
                                                 return new ArchivedRecordingInfo(
                                                         targetId,
-                                                        file,
+                                                        entry.name,
                                                         webServer
                                                                 .getArchivedDownloadURL(
-                                                                        subdirectoryName, file)
+                                                                        subdirectoryName,
+                                                                        entry.name)
                                                                 .replace(
                                                                         "beta/recordings",
                                                                         "beta/fs/recordings"),
                                                         webServer
                                                                 .getArchivedReportURL(
-                                                                        subdirectoryName, file)
+                                                                        subdirectoryName,
+                                                                        entry.name)
                                                                 .replace(
                                                                         "beta/reports",
                                                                         "beta/fs/reports"),
                                                         recordingMetadataManager
                                                                 .getMetadataFromPathIfExists(
-                                                                        jvmId, file),
-                                                        getFileSize(file),
-                                                        getArchivedTime(file));
+                                                                        jvmId, entry.name),
+                                                        entry.size,
+                                                        entry.archivedTime);
                                             } catch (IOException | URISyntaxException e) {
                                                 logger.warn(e);
                                                 return null;
@@ -739,50 +863,14 @@ public class RecordingArchiveHelper {
         CompletableFuture<List<ArchivedRecordingInfo>> future = new CompletableFuture<>();
 
         try {
-            if (!fs.exists(archivedRecordingsPath)) {
-                throw new ArchivePathException(archivedRecordingsPath.toString(), "does not exist");
-            }
-            if (!fs.isReadable(archivedRecordingsPath)) {
-                throw new ArchivePathException(
-                        archivedRecordingsPath.toString(), "is not readable");
-            }
-            if (!fs.isDirectory(archivedRecordingsPath)) {
-                throw new ArchivePathException(
-                        archivedRecordingsPath.toString(), "is not a directory");
-            }
+            validateArchivePath();
             WebServer webServer = webServerProvider.get();
             List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
+            catalog.retainDirectories(subdirectories);
             List<ArchivedRecordingInfo> archivedRecordings = new ArrayList<>();
             for (String subdirectoryName : subdirectories) {
-                Path subdirectory = archivedRecordingsPath.resolve(subdirectoryName);
-                String targetId = getConnectUrlFromPath(subdirectory).get();
-                List<String> files = this.fs.listDirectoryChildren(subdirectory);
-                List<ArchivedRecordingInfo> temp =
-                        files.stream()
-                                .filter(filename -> !filename.equals(CONNECT_URL))
-                                .map(
-                                        file -> {
-                                            try {
-                                                return new ArchivedRecordingInfo(
-                                                        targetId,
-                                                        file,
-                                                        webServer.getArchivedDownloadURL(
-                                                                targetId, file),
-                                                        webServer.getArchivedReportURL(
-                                                                targetId, file),
-                                                        recordingMetadataManager.getMetadata(
-                                                                new ConnectionDescriptor(targetId),
-                                                                file),
-                                                        getFileSize(file),
-                                                        getArchivedTime(file));
-                                            } catch (IOException | URISyntaxException e) {
-                                                logger.warn(e);
-                                                return null;
-                                            }
-                                        })
-                                .filter(Objects::nonNull)
-                                .collect(Collectors.toList());
-                archivedRecordings.addAll(temp);
+                ArchiveCatalog.Directory directory = indexSubdirectory(subdirectoryName, null);
+                archivedRecordings.addAll(describeRecordings(webServer, directory));
             }
             future.complete(archivedRecordings);
         } catch (ArchivePathException | IOException | InterruptedException | ExecutionException e) {
@@ -791,6 +879,149 @@ public class RecordingArchiveHelper {
         return future;
     }
 
+    /**
+     * Select archived recordings by their source target, name, labels, size and archived time,
+     * optionally a page at a time. Unlike filtering the results of {@link #getRecordings()}, the
+     * query is answered from an index over all archived recordings which is only rebuilt when the
+     * archive contents or recording labels have changed since the previous query. Recordings added
+     * or removed directly on disk are picked up by the next listing, or by the first query made at
+     * least 30 seconds after the archive directory was last reconciled.
+     */
+    public Future<ArchivedRecordingQuery.Result> queryRecordings(ArchivedRecordingQuery query) {
+        CompletableFuture<ArchivedRecordingQuery.Result> future = new CompletableFuture<>();
+
+        try {
+            String subdirectoryName = null;
+            if (query.getSourceTarget() != null) {
+                String jvmId = jvmIdHelper.getJvmId(query.getSourceTarget());
+                subdirectoryName = jvmIdHelper.jvmIdToSubdirectoryName(jvmId);
+            }
+            future.complete(getRecordingIndex().query(query, subdirectoryName));
+        } catch (ArchivePathException | IOException | InterruptedException | ExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private ArchivedRecordingIndex getRecordingIndex()
+            throws ArchivePathException, IOException, InterruptedException, ExecutionException {
+        validateArchivePath();
+        // changes made through Cryostat bump the catalog generation directly, so the archive
+        // directory only needs to be reconciled now and then to pick up changes made on disk.
+        // This is done outside of the monitor so that queries do not queue behind the I/O
+        if (System.nanoTime() - archiveReconciledNanos >= ARCHIVE_RECONCILE_INTERVAL.toNanos()) {
+            List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
+            catalog.retainDirectories(subdirectories);
+            for (String subdirectoryName : subdirectories) {
+                indexSubdirectory(subdirectoryName, null);
+            }
+            archiveReconciledNanos = System.nanoTime();
+        }
+        return indexCatalog();
+    }
+
+    private synchronized ArchivedRecordingIndex indexCatalog() {
+        // read before describing the recordings so that any concurrent label change leaves the
+        // new index already stale rather than silently missing the change
+        long catalogGeneration = catalog.getGeneration();
+        long metadataGeneration = recordingMetadataManager.getGeneration();
+        if (recordingIndex != null
+                && recordingIndex.isCurrent(catalogGeneration, metadataGeneration)) {
+            return recordingIndex;
+        }
+        Map<String, ArchiveCatalog.Directory> directories = catalog.getDirectories();
+        // collected after reading the generation, so that nothing counted by it is missed
+        boolean relabelAll = allRelabelled.getAndSet(false);
+        Set<String> relabelled = new HashSet<>();
+        for (var it = relabelledRecordings.iterator(); it.hasNext(); ) {
+            relabelled.add(it.next());
+            it.remove();
+        }
+        WebServer webServer = webServerProvider.get();
+        List<Pair<String, ArchivedRecordingInfo>> rows = new ArrayList<>();
+        Map<Pair<String, String>, IndexedRecording> indexed = new HashMap<>();
+        for (Map.Entry<String, ArchiveCatalog.Directory> directory : directories.entrySet()) {
+            String subdirectoryName = directory.getKey();
+            String connectUrl = directory.getValue().connectUrl;
+            for (ArchiveCatalog.Entry entry : directory.getValue().recordings.values()) {
+                Pair<String, String> key = Pair.of(subdirectoryName, entry.name);
+                IndexedRecording previous = indexedRecordings.get(key);
+                ArchivedRecordingInfo recording;
+                if (previous != null
+                        && !relabelAll
+                        && !relabelled.contains(entry.name)
+                        && previous.isCurrent(connectUrl, entry)) {
+                    recording = previous.recording;
+                } else {
+                    recording = describeRecording(webServer, connectUrl, entry);
+                    if (recording == null) {
+                        continue;
+                    }
+                }
+                indexed.put(key, new IndexedRecording(connectUrl, entry, recording));
+                rows.add(Pair.of(subdirectoryName, recording));
+            }
+        }
+        indexedRecordings = indexed;
+        recordingIndex = new ArchivedRecordingIndex(rows, catalogGeneration, metadataGeneration);
+        return recordingIndex;
+    }
+
+    private List<ArchivedRecordingInfo> describeRecordings(
+            WebServer webServer, ArchiveCatalog.Directory directory) {
+        return directory.recordings.values().stream()
+                .map(entry -> describeRecording(webServer, directory.connectUrl, entry))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private ArchivedRecordingInfo describeRecording(
+            WebServer webServer, String targetId, ArchiveCatalog.Entry entry) {
+        try {
+            return new ArchivedRecordingInfo(
+                    targetId,
+                    entry.name,
+                    webServer.getArchivedDownloadURL(targetId, entry.name),
+                    webServer.getArchivedReportURL(targetId, entry.name),
+                    recordingMetadataManager.getMetadata(
+                            new ConnectionDescriptor(targetId), entry.name),
+                    entry.size,
+                    entry.archivedTime);
+        } catch (IOException | URISyntaxException e) {
+            logger.warn(e);
+            return null;
+        }
+    }
+
+    private static class IndexedRecording {
+        final String connectUrl;
+        final ArchiveCatalog.Entry entry;
+        final ArchivedRecordingInfo recording;
+
+        IndexedRecording(
+                String connectUrl, ArchiveCatalog.Entry entry, ArchivedRecordingInfo recording) {
+            this.connectUrl = connectUrl;
+            this.entry = entry;
+            this.recording = recording;
+        }
+
+        boolean isCurrent(String connectUrl, ArchiveCatalog.Entry entry) {
+            return Objects.equals(this.connectUrl, connectUrl) && this.entry.equals(entry);
+        }
+    }
+
+    private void validateArchivePath() throws ArchivePathException {
+        if (!fs.exists(archivedRecordingsPath)) {
+            throw new ArchivePathException(archivedRecordingsPath.toString(), "does not exist");
+        }
+        if (!fs.isReadable(archivedRecordingsPath)) {
+            throw new ArchivePathException(archivedRecordingsPath.toString(), "is not readable");
+        }
+        if (!fs.isDirectory(archivedRecordingsPath)) {
+            throw new ArchivePathException(archivedRecordingsPath.toString(), "is not a directory");
+        }
+    }
+
     public Future<Path> getRecordingPathFromPath(String subdirectoryName, String recordingName) {
         try {
             boolean checkConnectUrl = !jvmIdHelper.isSpecialDirectory(subdirectoryName);
@@ -805,6 +1036,22 @@ public class RecordingArchiveHelper {
     public Future<Path> getRecordingPath(String recordingName) {
         CompletableFuture<Path> future = new CompletableFuture<>();
         try {
+            Optional<String> cataloged = catalog.findRecording(recordingName);
+            if (cataloged.isPresent()) {
+                Path path =
+                        archivedRecordingsPath
+                                .resolve(cataloged.get())
+                                .resolve(recordingName)
+                                .normalize()
+                                .toAbsolutePath();
+                if (fs.exists(path)) {
+                    validateRecordingPath(Optional.of(path), recordingName, false);
+                    future.complete(path);
+                    return future;
+                }
+                // the catalog has drifted from the archive directory, so fall back to searching it
+                catalog.removeRecording(cataloged.get(), recordingName);
+            }
             List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
             Optional<Path> optional =
                     searchSubdirectories(subdirectories, archivedRecordingsPath, recordingName);
@@ -879,11 +1126,15 @@ public class RecordingArchiveHelper {
         }
         // assume sourceTarget is percent encoded
         String decodedTargetId = URLDecoder.decode(sourceTarget, StandardCharsets.UTF_8);
-        boolean exists =
-                this.platformClient.listDiscoverableServices().stream()
-                        .anyMatch(
-                                target ->
-                                        target.getServiceUri().toString().equals(decodedTargetId));
+        boolean exists;
+        try {
+            exists =
+                    this.platformClient
+                            .lookupServiceByConnectUrl(new URI(decodedTargetId))
+                            .isPresent();
+        } catch (URISyntaxException e) {
+            exists = false;
+        }
         if (!exists) {
             throw new RecordingSourceTargetNotFoundException(decodedTargetId);
         }
@@ -911,7 +1162,7 @@ public class RecordingArchiveHelper {
         }
     }
 
-    Path writeRecordingToDestination(JFRConnection connection, IRecordingDescriptor descriptor)
+    Path prepareDestination(JFRConnection connection, IRecordingDescriptor descriptor)
             throws IOException, URISyntaxException, FlightRecorderException, Exception {
         URI serviceUri = URIUtil.getConnectionUri(connection);
         String jvmId = jvmIdHelper.getJvmId(serviceUri.toString());
@@ -954,38 +1205,24 @@ public class RecordingArchiveHelper {
         // TODO byte-sized rename limit is arbitrary. Probably plenty since recordings are also
         // differentiated by second-resolution timestamp
         byte count = 1;
-        while (fs.exists(specificRecordingsPath.resolve(destination + ".jfr"))) {
-            destination =
-                    String.format("%s_%s_%s.%d", targetName, recordingName, timestamp, count++);
-            if (count == Byte.MAX_VALUE) {
-                throw new IOException(
-                        "Recording could not be saved; file already exists and rename attempts were"
-                                + " exhausted.");
-            }
-        }
-        destination += ".jfr";
-        Path destinationPath = specificRecordingsPath.resolve(destination);
-        try (BufferedInputStream bufferedStream =
-                new BufferedInputStream(connection.getService().openStream(descriptor, false))) {
-
-            // Check if recording stream is non-empty
-            int readLimit = 1; // arbitrary number greater than 0
-            bufferedStream.mark(readLimit);
-
+        while (true) {
+            Path destinationPath = specificRecordingsPath.resolve(destination + ".jfr");
+            // reserve the file atomically so that a concurrent save of the same recording within
+            // the same second picks the next name instead of sharing (and later deleting) this one
             try {
-                if (bufferedStream.read() == -1) {
-                    fs.deleteIfExists(destinationPath);
-                    throw new EmptyRecordingException();
+                fs.writeString(destinationPath, "", StandardOpenOption.CREATE_NEW);
+                return destinationPath;
+            } catch (FileAlreadyExistsException e) {
+                destination =
+                        String.format(
+                                "%s_%s_%s.%d", targetName, recordingName, timestamp, count++);
+                if (count == Byte.MAX_VALUE) {
+                    throw new IOException(
+                            "Recording could not be saved; file already exists and rename attempts"
+                                    + " were exhausted.");
                 }
-            } catch (IOException e) {
-                throw new EmptyRecordingException(e);
             }
-
-            bufferedStream.reset();
-
-            fs.copy(bufferedStream, destinationPath);
         }
-        return destinationPath;
     }
 
     private Optional<IRecordingDescriptor> getDescriptorByName(
@@ -996,25 +1233,87 @@ public class RecordingArchiveHelper {
                 .findFirst();
     }
 
-    private long getFileSize(String recordingName) {
-        try {
-            return Files.size(getRecordingPath(recordingName).get());
-        } catch (IOException | InterruptedException | ExecutionException e) {
-            logger.error("Invalid path: {}", recordingName);
-            return 0;
+    /**
+     * Reconcile the catalog's entries for an archive subdirectory against its directory listing
+     * and the size and last modified time of each file, so that recordings which were added,
+     * removed, or replaced under the same name since the subdirectory was last indexed are picked
+     * up. If the subdirectory's own last modified time still matches the cataloged one then no
+     * recordings were added or removed, and the cataloged entries are returned without listing
+     * the subdirectory. The catalog is only rewritten if something changed.
+     *
+     * @param connectUrl the connectUrl of the subdirectory's source target if already known, or
+     *     null to use the cataloged value or otherwise read it from the subdirectory
+     */
+    private ArchiveCatalog.Directory indexSubdirectory(String subdirectoryName, String connectUrl)
+            throws IOException, InterruptedException, ExecutionException {
+        Path subdirectory = archivedRecordingsPath.resolve(subdirectoryName);
+        Optional<ArchiveCatalog.Directory> cached = catalog.getDirectory(subdirectoryName);
+        long lastModified = getLastModifiedTime(subdirectory);
+        if (cached.isPresent()
+                && lastModified != 0
+                && cached.get().lastModified == lastModified
+                && (connectUrl == null || connectUrl.equals(cached.get().connectUrl))) {
+            return cached.get();
+        }
+        // a change made within the filesystem's timestamp resolution of this listing may not move
+        // the last modified time, so only trust it once it is old enough
+        if (lastModified != 0
+                && clock.now().toEpochMilli() - lastModified
+                        < DIRECTORY_MTIME_RESOLUTION.toMillis()) {
+            lastModified = 0;
+        }
+        List<String> files = this.fs.listDirectoryChildren(subdirectory);
+        if (connectUrl == null) {
+            connectUrl =
+                    cached.isPresent()
+                            ? cached.get().connectUrl
+                            : getConnectUrlFromPath(subdirectory).get();
         }
+        Map<String, ArchiveCatalog.Entry> recordings = new LinkedHashMap<>();
+        for (String file : files) {
+            if (file.equals(CONNECT_URL)) {
+                continue;
+            }
+            recordings.put(file, statRecording(file, subdirectory.resolve(file)));
+        }
+        ArchiveCatalog.Directory directory =
+                new ArchiveCatalog.Directory(
+                        connectUrl,
+                        jvmIdHelper.subdirectoryNameToJvmId(subdirectoryName),
+                        recordings,
+                        lastModified);
+        catalog.putDirectory(subdirectoryName, directory);
+        return directory;
+    }
+
+    private ArchiveCatalog.Entry indexRecording(
+            String subdirectoryName, String connectUrl, Path recordingPath) {
+        ArchiveCatalog.Entry entry =
+                statRecording(recordingPath.getFileName().toString(), recordingPath);
+        catalog.putRecording(
+                subdirectoryName,
+                connectUrl,
+                jvmIdHelper.subdirectoryNameToJvmId(subdirectoryName),
+                entry);
+        return entry;
     }
 
-    private long getArchivedTime(String recordingName) {
+    private ArchiveCatalog.Entry statRecording(String recordingName, Path recordingPath) {
+        if (!fs.exists(recordingPath)) {
+            logger.error("Invalid path: {}", recordingPath);
+            return new ArchiveCatalog.Entry(recordingName, 0, 0, 0);
+        }
         try {
-            FileTime fileTime =
-                    (FileTime)
-                            Files.getAttribute(
-                                    getRecordingPath(recordingName).get(), "creationTime");
-            return fileTime.toMillis();
-        } catch (IOException | InterruptedException | ExecutionException e) {
-            logger.error("Invalid path: {}", recordingName);
-            return 0;
+            BasicFileAttributes attrs =
+                    Files.readAttributes(recordingPath, BasicFileAttributes.class);
+            return new ArchiveCatalog.Entry(
+                    recordingName,
+                    attrs.size(),
+                    attrs.creationTime().toMillis(),
+                    attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            logger.error("Invalid path: {}", recordingPath);
+            return new ArchiveCatalog.Entry(recordingName, 0, 0, 0);
         }
     }
 
@@ -1158,6 +1457,10 @@ public class RecordingArchiveHelper {
                                                             makeFailedAsyncResult(res2.cause()));
                                                     return;
                                                 }
+                                                indexRecording(
+                                                        subdirectoryName,
+                                                        connectUrl,
+                                                        specificRecordingsPath.resolve(filename));
                                                 handler.handle(makeAsyncResult(filename));
                                             });
                         });
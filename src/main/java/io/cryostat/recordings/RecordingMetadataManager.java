@@ -21,17 +21,25 @@ import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -62,20 +70,29 @@ import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.EventBus;
 import org.apache.commons.codec.binary.Base32;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.tuple.Pair;
 
+/**
+ * Stores the labels attached to active and archived recordings. All metadata is held in memory,
+ * keyed by the recording's JVM ID and name, and is loaded from the metadata directory when the
+ * verticle starts. Changes are applied to memory immediately and written back to disk in batches
+ * on a fixed period, so that lookups made while listing many recordings never touch the disk.
+ */
 public class RecordingMetadataManager extends AbstractVerticle
         implements Consumer<TargetDiscoveryEvent>, EventListener<JvmIdHelper.IdEvent, String> {
 
     public static final String NOTIFICATION_CATEGORY = "RecordingMetadataUpdated";
     private static final String UPLOADS = RecordingArchiveHelper.UPLOADED_RECORDINGS_SUBDIRECTORY;
+    private static final String METADATA_FILE_EXTENSION = ".json";
 
     private final ExecutorService executor;
     private final Path recordingMetadataDir;
     private final Path archivedRecordingsPath;
     private final long connectionTimeoutSeconds;
+    private final Duration flushPeriod;
     private final FileSystem fs;
     private final Provider<RecordingArchiveHelper> archiveHelperProvider;
     private final TargetConnectionManager targetConnectionManager;
@@ -88,12 +105,30 @@ public class RecordingMetadataManager extends AbstractVerticle
     private final Logger logger;
 
     private final CountDownLatch migrationLatch = new CountDownLatch(1);
+    // incremented whenever stored metadata changes, so that views derived from it can be
+    // invalidated
+    private final AtomicLong generation = new AtomicLong();
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
+    // keyed by (jvmId, recordingName)
+    private final Map<Pair<String, String>, StoredRecordingMetadata> store =
+            new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> recordingsByJvmId = new ConcurrentHashMap<>();
+    private final Map<Pair<String, String>, Set<Pair<String, String>>> recordingsByLabel =
+            new ConcurrentHashMap<>();
+    // latest unflushed state of each changed entry, where empty means the entry was deleted
+    private final Map<Pair<String, String>, Optional<StoredRecordingMetadata>> pendingWrites =
+            new ConcurrentHashMap<>();
+    // until the metadata directory has been loaded, misses must fall back to reading the disk
+    private volatile boolean hydrated;
+    private long flushTimerId = -1;
 
     RecordingMetadataManager(
             ExecutorService executor,
             Path recordingMetadataDir,
             Path archivedRecordingsPath,
             long connectionTimeoutSeconds,
+            Duration flushPeriod,
             FileSystem fs,
             Provider<RecordingArchiveHelper> archiveHelperProvider,
             TargetConnectionManager targetConnectionManager,
@@ -108,6 +143,7 @@ public class RecordingMetadataManager extends AbstractVerticle
         this.recordingMetadataDir = recordingMetadataDir;
         this.archivedRecordingsPath = archivedRecordingsPath;
         this.connectionTimeoutSeconds = connectionTimeoutSeconds;
+        this.flushPeriod = flushPeriod;
         this.fs = fs;
         this.archiveHelperProvider = archiveHelperProvider;
         this.targetConnectionManager = targetConnectionManager;
@@ -142,6 +178,7 @@ public class RecordingMetadataManager extends AbstractVerticle
                                                     "Skipping metadata validation: appears to be a"
                                                             + " special location: {}",
                                                     subdirectoryName);
+                                            hydrateWithoutValidation(subdirectory);
                                             return;
                                         } else if (this.fs
                                                 .listDirectoryChildren(subdirectory)
@@ -207,6 +244,10 @@ public class RecordingMetadataManager extends AbstractVerticle
                                                                     // since we are using directory
                                                                     // structure
                                                                     if (srm.getJvmId() != null) {
+                                                                        hydrate(
+                                                                                srm.getJvmId(),
+                                                                                recordingName,
+                                                                                srm);
                                                                         try {
                                                                             if (!isArchivedRecording(
                                                                                     recordingName)) {
@@ -352,6 +393,8 @@ public class RecordingMetadataManager extends AbstractVerticle
                                 }
                             });
 
+            hydrated = true;
+            logger.info("Loaded metadata for {} recordings", store.size());
             future.complete();
         } catch (IOException e) {
             logger.error(
@@ -360,6 +403,16 @@ public class RecordingMetadataManager extends AbstractVerticle
                     e.getMessage());
             future.fail(e.getCause());
         }
+        this.flushTimerId =
+                vertx.setPeriodic(
+                        flushPeriod.toMillis(),
+                        id ->
+                                vertx.executeBlocking(
+                                        promise -> {
+                                            flush();
+                                            promise.complete();
+                                        },
+                                        false));
         EventBus eb = vertx.eventBus();
         eb.consumer(
                 DiscoveryStorage.DISCOVERY_STARTUP_ADDRESS,
@@ -391,6 +444,204 @@ public class RecordingMetadataManager extends AbstractVerticle
     @Override
     public void stop() {
         this.platformClient.removeTargetDiscoveryListener(this);
+        if (flushTimerId >= 0) {
+            vertx.cancelTimer(flushTimerId);
+        }
+        flush();
+    }
+
+    private void hydrateWithoutValidation(Path subdirectory) throws IOException {
+        Path subdirectoryName = subdirectory.getFileName();
+        if (subdirectoryName == null) {
+            return;
+        }
+        // these directory names are used as the JVM ID as-is, see JvmIdHelper
+        String jvmId = subdirectoryName.toString();
+        if (!jvmId.equals(UPLOADS)
+                && !jvmId.equals(RecordingArchiveHelper.LOST_RECORDINGS_SUBDIRECTORY)) {
+            return;
+        }
+        for (String filename : fs.listDirectoryChildren(subdirectory)) {
+            if (!filename.endsWith(METADATA_FILE_EXTENSION)) {
+                continue;
+            }
+            String recordingName =
+                    new String(
+                            base32.decode(StringUtils.removeEnd(filename, METADATA_FILE_EXTENSION)),
+                            StandardCharsets.UTF_8);
+            try (BufferedReader br = fs.readFile(subdirectory.resolve(filename))) {
+                StoredRecordingMetadata srm = gson.fromJson(br, StoredRecordingMetadata.class);
+                if (srm != null) {
+                    hydrate(jvmId, recordingName, srm);
+                }
+            } catch (IOException | JsonSyntaxException | JsonIOException e) {
+                logger.error("Could not read metadata file {}, msg: {}", filename, e.getMessage());
+            }
+        }
+    }
+
+    /** Load an entry read from disk, unless it has already been changed in memory. */
+    private void hydrate(String jvmId, String recordingName, StoredRecordingMetadata read) {
+        Pair<String, String> key = Pair.of(jvmId, recordingName);
+        StoredRecordingMetadata srm =
+                new StoredRecordingMetadata(
+                        read.getTargetId(),
+                        jvmId,
+                        recordingName,
+                        read.labels == null ? Map.of() : read.labels);
+        synchronized (store) {
+            if (store.containsKey(key) || pendingWrites.containsKey(key)) {
+                return;
+            }
+            store.put(key, srm);
+            index(key, srm);
+        }
+    }
+
+    private Optional<StoredRecordingMetadata> lookup(String jvmId, String recordingName)
+            throws IOException {
+        Pair<String, String> key = Pair.of(jvmId, recordingName);
+        StoredRecordingMetadata srm = store.get(key);
+        if (srm != null || hydrated || pendingWrites.containsKey(key)) {
+            return Optional.ofNullable(srm);
+        }
+        Path metadataPath = resolveMetadataPath(jvmId, recordingName);
+        if (!fs.isRegularFile(metadataPath)) {
+            return Optional.empty();
+        }
+        try (BufferedReader br = fs.readFile(metadataPath)) {
+            StoredRecordingMetadata read = gson.fromJson(br, StoredRecordingMetadata.class);
+            if (read == null) {
+                return Optional.empty();
+            }
+            hydrate(jvmId, recordingName, read);
+        }
+        return Optional.ofNullable(store.get(key));
+    }
+
+    private void put(StoredRecordingMetadata srm) {
+        Pair<String, String> key = Pair.of(srm.getJvmId(), srm.getRecordingName());
+        synchronized (store) {
+            unindex(key, store.put(key, srm));
+            index(key, srm);
+            pendingWrites.put(key, Optional.of(srm));
+        }
+        changed(key.getRight());
+    }
+
+    private StoredRecordingMetadata remove(String jvmId, String recordingName) {
+        Pair<String, String> key = Pair.of(jvmId, recordingName);
+        StoredRecordingMetadata prev;
+        synchronized (store) {
+            prev = store.remove(key);
+            unindex(key, prev);
+            pendingWrites.put(key, Optional.empty());
+        }
+        if (prev != null) {
+            changed(recordingName);
+        }
+        return prev;
+    }
+
+    // listeners are notified before the generation is incremented, so that a view which reads the
+    // generation and then collects the changed recordings cannot miss a change
+    private void changed(String recordingName) {
+        changeListeners.forEach(listener -> listener.accept(recordingName));
+        generation.incrementAndGet();
+    }
+
+    private void index(Pair<String, String> key, StoredRecordingMetadata srm) {
+        recordingsByJvmId
+                .computeIfAbsent(key.getLeft(), k -> ConcurrentHashMap.newKeySet())
+                .add(key.getRight());
+        for (Map.Entry<String, String> label : srm.labels.entrySet()) {
+            recordingsByLabel
+                    .computeIfAbsent(
+                            Pair.of(label.getKey(), label.getValue()),
+                            k -> ConcurrentHashMap.newKeySet())
+                    .add(key);
+        }
+    }
+
+    private void unindex(Pair<String, String> key, StoredRecordingMetadata srm) {
+        if (srm == null) {
+            return;
+        }
+        recordingsByJvmId.computeIfPresent(
+                key.getLeft(),
+                (k, names) -> {
+                    names.remove(key.getRight());
+                    return names.isEmpty() ? null : names;
+                });
+        for (Map.Entry<String, String> label : srm.labels.entrySet()) {
+            recordingsByLabel.computeIfPresent(
+                    Pair.of(label.getKey(), label.getValue()),
+                    (k, keys) -> {
+                        keys.remove(key);
+                        return keys.isEmpty() ? null : keys;
+                    });
+        }
+    }
+
+    private List<String> getRecordingNames(String jvmId) {
+        return new ArrayList<>(recordingsByJvmId.getOrDefault(jvmId, Set.of()));
+    }
+
+    /**
+     * Select the recordings of a JVM which carry an exact label using the label index, rather than
+     * reading the metadata of each recording in turn.
+     *
+     * @return the names of the matching recordings, or empty if the index is not yet complete
+     *     because stored metadata is still being loaded
+     */
+    public Optional<Set<String>> getRecordingNamesWithLabel(
+            String jvmId, String key, String value) {
+        Objects.requireNonNull(jvmId);
+        if (!hydrated) {
+            return Optional.empty();
+        }
+        Set<String> names = new HashSet<>();
+        for (Pair<String, String> recording :
+                recordingsByLabel.getOrDefault(Pair.of(key, value), Set.of())) {
+            if (jvmId.equals(recording.getLeft())) {
+                names.add(recording.getRight());
+            }
+        }
+        return Optional.of(names);
+    }
+
+    /** Write all changes made since the previous flush to the metadata directory. */
+    void flush() {
+        synchronized (pendingWrites) {
+            for (Pair<String, String> key : new ArrayList<>(pendingWrites.keySet())) {
+                Optional<StoredRecordingMetadata> change = pendingWrites.remove(key);
+                if (change == null) {
+                    continue;
+                }
+                try {
+                    if (change.isPresent()) {
+                        fs.writeString(
+                                getMetadataPath(key.getLeft(), key.getRight()),
+                                gson.toJson(change.get()),
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+                    } else {
+                        Path metadataPath = resolveMetadataPath(key.getLeft(), key.getRight());
+                        if (fs.deleteIfExists(metadataPath)) {
+                            deleteSubdirectoryIfEmpty(metadataPath.getParent());
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.error(
+                            "Could not write metadata for recording {}, msg: {}",
+                            key.getRight(),
+                            e.getMessage());
+                    // retry on the next flush unless it has been superseded in the meantime
+                    pendingWrites.putIfAbsent(key, change);
+                }
+            }
+        }
     }
 
     @Override
@@ -474,6 +725,9 @@ public class RecordingMetadataManager extends AbstractVerticle
                     if (!targetRecordingExists(cd, recordingName)) {
                         // recording was lost
                         logger.info("Active recording lost {}, deleting...", recordingName);
+                        if (srm.getJvmId() != null) {
+                            remove(srm.getJvmId(), recordingName);
+                        }
                         deleteMetadataPathIfExists(path);
                     } else {
                         // target still up
@@ -505,13 +759,7 @@ public class RecordingMetadataManager extends AbstractVerticle
                         .get();
         String jvmId = jvmIdHelper.subdirectoryNameToJvmId(subdirectoryName);
 
-        Path metadataPath = this.getMetadataPath(jvmId, recordingName);
-        fs.writeString(
-                metadataPath,
-                gson.toJson(StoredRecordingMetadata.of(connectUrl, jvmId, recordingName, metadata)),
-                StandardOpenOption.WRITE,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING);
+        put(StoredRecordingMetadata.of(connectUrl, jvmId, recordingName, metadata));
 
         notificationFactory
                 .createBuilder()
@@ -542,18 +790,9 @@ public class RecordingMetadataManager extends AbstractVerticle
         Objects.requireNonNull(metadata);
         String jvmId = jvmIdHelper.getJvmId(connectionDescriptor);
 
-        Path metadataPath = this.getMetadataPath(jvmId, recordingName);
-        fs.writeString(
-                metadataPath,
-                gson.toJson(
-                        StoredRecordingMetadata.of(
-                                connectionDescriptor.getTargetId(),
-                                jvmId,
-                                recordingName,
-                                metadata)),
-                StandardOpenOption.WRITE,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING);
+        put(
+                StoredRecordingMetadata.of(
+                        connectionDescriptor.getTargetId(), jvmId, recordingName, metadata));
 
         if (issueNotification) {
             notificationFactory
@@ -597,8 +836,6 @@ public class RecordingMetadataManager extends AbstractVerticle
         Objects.requireNonNull(connectionDescriptor);
         Objects.requireNonNull(recordingName);
 
-        Metadata metadata = null;
-
         String jvmId;
         if (connectionDescriptor.getTargetId().equals(UPLOADS)) {
             jvmId = UPLOADS;
@@ -606,16 +843,7 @@ public class RecordingMetadataManager extends AbstractVerticle
             jvmId = jvmIdHelper.getJvmId(connectionDescriptor);
         }
 
-        Path metadataPath = getMetadataPath(jvmId, recordingName);
-        if (!fs.isRegularFile(metadataPath)) {
-            metadata = new Metadata();
-            fs.writeString(metadataPath, gson.toJson(metadata));
-        } else {
-            try (BufferedReader br = fs.readFile(metadataPath)) {
-                metadata = gson.fromJson(br, Metadata.class);
-            }
-        }
-        return metadata;
+        return lookup(jvmId, recordingName).map(Metadata::new).orElseGet(Metadata::new);
     }
 
     // Public metadata getter which doesn't rely on target being available
@@ -623,15 +851,7 @@ public class RecordingMetadataManager extends AbstractVerticle
             throws IOException {
         Objects.requireNonNull(jvmId);
         Objects.requireNonNull(recordingName);
-        Path metadataPath = getMetadataPath(jvmId, recordingName);
-        if (!fs.isRegularFile(metadataPath)) {
-            Metadata metadata = new Metadata();
-            fs.writeString(metadataPath, gson.toJson(metadata));
-            return metadata;
-        }
-        try (BufferedReader br = fs.readFile(metadataPath)) {
-            return gson.fromJson(br, Metadata.class);
-        }
+        return lookup(jvmId, recordingName).map(Metadata::new).orElseGet(Metadata::new);
     }
 
     public Metadata deleteRecordingMetadataIfExists(
@@ -648,17 +868,11 @@ public class RecordingMetadataManager extends AbstractVerticle
         Objects.requireNonNull(jvmId);
         Objects.requireNonNull(recordingName);
 
-        Path metadataPath = this.getMetadataPath(jvmId, recordingName);
-        if (fs.isRegularFile(metadataPath)) {
-            try (BufferedReader br = fs.readFile(metadataPath)) {
-                Metadata metadata = gson.fromJson(br, Metadata.class);
-                if (fs.deleteIfExists(metadataPath)) {
-                    deleteSubdirectoryIfEmpty(metadataPath.getParent());
-                }
-                return metadata;
-            }
+        if (lookup(jvmId, recordingName).isEmpty()) {
+            return null;
         }
-        return null;
+        StoredRecordingMetadata srm = remove(jvmId, recordingName);
+        return srm == null ? null : new Metadata(srm);
     }
 
     public Future<Metadata> copyMetadataToArchives(
@@ -671,6 +885,18 @@ public class RecordingMetadataManager extends AbstractVerticle
         return this.setRecordingMetadata(connectionDescriptor, filename, metadata);
     }
 
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @param listener called with the recording name whenever the stored metadata of a recording
+     *     with that name changes, or with null when the metadata of any recording may have changed
+     */
+    void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
     public Map<String, String> parseRecordingLabels(String labels) throws IllegalArgumentException {
         Objects.requireNonNull(labels, "Labels must not be null");
 
@@ -729,27 +955,12 @@ public class RecordingMetadataManager extends AbstractVerticle
             }
 
             logger.info("[{}] Metadata transfer: {} -> {}", targetId, oldJvmId, newJvmId);
-            Path oldParent = getMetadataPath(oldJvmId);
-            for (String encodedFilename : fs.listDirectoryChildren(oldParent)) {
-                Path oldMetadataPath = oldParent.resolve(encodedFilename);
-                try (BufferedReader storedMetadata = fs.readFile(oldMetadataPath)) {
-                    StoredRecordingMetadata srm =
-                            gson.fromJson(storedMetadata, StoredRecordingMetadata.class);
-                    String recordingName = srm.recordingName;
-                    StoredRecordingMetadata updatedSrm =
-                            StoredRecordingMetadata.of(targetId, newJvmId, recordingName, srm);
-                    Path newLocation = getMetadataPath(newJvmId, recordingName);
-                    fs.writeString(newLocation, gson.toJson(updatedSrm));
-
-                    fs.deleteIfExists(oldMetadataPath);
-                } catch (Exception e) {
-                    logger.error("Metadata could not be transferred");
-                    logger.error(e);
+            for (String recordingName : getRecordingNames(oldJvmId)) {
+                StoredRecordingMetadata srm = remove(oldJvmId, recordingName);
+                if (srm != null) {
+                    put(StoredRecordingMetadata.of(targetId, newJvmId, recordingName, srm));
                 }
             }
-            if (fs.listDirectoryChildren(oldParent).isEmpty()) {
-                fs.deleteIfExists(oldParent);
-            }
             logger.info(
                     "[{}] Metadata successfully transferred: {} -> {}",
                     targetId,
@@ -761,20 +972,14 @@ public class RecordingMetadataManager extends AbstractVerticle
     }
 
     private void removeLostTargetMetadata(String jvmId) {
-        try {
-            for (String encodedFilename : fs.listDirectoryChildren(getMetadataPath(jvmId))) {
-                String recordingName =
-                        new String(base32.decode(encodedFilename), StandardCharsets.UTF_8);
-                try {
-                    if (!isArchivedRecording(recordingName)) {
-                        deleteRecordingMetadataIfExists(jvmId, recordingName);
-                    }
-                } catch (IOException e) {
-                    logger.error(e);
+        for (String recordingName : getRecordingNames(jvmId)) {
+            try {
+                if (!isArchivedRecording(recordingName)) {
+                    deleteRecordingMetadataIfExists(jvmId, recordingName);
                 }
+            } catch (IOException e) {
+                logger.error(e);
             }
-        } catch (IOException e) {
-            logger.error(e);
         }
     }
 
@@ -848,15 +1053,26 @@ public class RecordingMetadataManager extends AbstractVerticle
 
     private Path getMetadataPath(String jvmId, String recordingName) throws IOException {
         Path subdirectory = getMetadataPath(jvmId);
-        String filename =
-                base32.encodeAsString(recordingName.getBytes(StandardCharsets.UTF_8)) + ".json";
-        return subdirectory.resolve(filename);
+        return subdirectory.resolve(getMetadataFilename(recordingName));
+    }
+
+    // unlike getMetadataPath, does not create the subdirectory if it is missing
+    private Path resolveMetadataPath(String jvmId, String recordingName) {
+        return recordingMetadataDir
+                .resolve(jvmIdHelper.jvmIdToSubdirectoryName(jvmId))
+                .resolve(getMetadataFilename(recordingName));
+    }
+
+    private String getMetadataFilename(String recordingName) {
+        return base32.encodeAsString(recordingName.getBytes(StandardCharsets.UTF_8))
+                + METADATA_FILE_EXTENSION;
     }
 
     private boolean deleteMetadataPathIfExists(Path path) {
         if (fs.exists(path)) {
             try {
                 if (fs.deleteIfExists(path)) {
+                    changed(null);
                     logger.info("Deleted metadata file {}", path);
                     deleteSubdirectoryIfEmpty(path.getParent());
                     return true;
@@ -56,11 +56,11 @@ import org.apache.commons.lang3.tuple.Pair;
 
 public class RecordingTargetHelper {
 
-    private static final String CREATION_NOTIFICATION_CATEGORY = "ActiveRecordingCreated";
+    static final String CREATION_NOTIFICATION_CATEGORY = "ActiveRecordingCreated";
     public static final String STOP_NOTIFICATION_CATEGORY = "ActiveRecordingStopped";
-    private static final String DELETION_NOTIFICATION_CATEGORY = "ActiveRecordingDeleted";
-    private static final String SNAPSHOT_CREATION_NOTIFICATION_CATEGORY = "SnapshotCreated";
-    private static final String SNAPSHOT_DELETION_NOTIFICATION_CATEGORY = "SnapshotDeleted";
+    static final String DELETION_NOTIFICATION_CATEGORY = "ActiveRecordingDeleted";
+    static final String SNAPSHOT_CREATION_NOTIFICATION_CATEGORY = "SnapshotCreated";
+    static final String SNAPSHOT_DELETION_NOTIFICATION_CATEGORY = "SnapshotDeleted";
 
     private static final long TIMESTAMP_DRIFT_SAFEGUARD = 500L;
 
@@ -77,6 +77,7 @@ public class RecordingTargetHelper {
     private final RecordingOptionsBuilderFactory recordingOptionsBuilderFactory;
     private final ReportService reportService;
     private final RecordingMetadataManager recordingMetadataManager;
+    private final ActiveRecordingDescriptorCache descriptorCache;
     private final Logger logger;
     private final Map<Pair<String, String>, Long> scheduledRecordingTasks;
     private final RecordingArchiveHelper recordingArchiveHelper;
@@ -91,6 +92,7 @@ public class RecordingTargetHelper {
             ReportService reportService,
             RecordingMetadataManager recordingMetadataManager,
             RecordingArchiveHelper recordingArchiveHelper,
+            ActiveRecordingDescriptorCache descriptorCache,
             Logger logger) {
         this.vertx = vertx;
         this.targetConnectionManager = targetConnectionManager;
@@ -101,15 +103,16 @@ public class RecordingTargetHelper {
         this.reportService = reportService;
         this.recordingMetadataManager = recordingMetadataManager;
         this.recordingArchiveHelper = recordingArchiveHelper;
+        this.descriptorCache = descriptorCache;
         this.logger = logger;
         this.scheduledRecordingTasks = new ConcurrentHashMap<>();
     }
 
     public List<IRecordingDescriptor> getRecordings(ConnectionDescriptor connectionDescriptor)
             throws Exception {
-        return targetConnectionManager.executeConnectedTask(
+        return targetConnectionManager.executeReadOnlyTask(
                 connectionDescriptor,
-                connection -> connection.getService().getAvailableRecordings());
+                connection -> descriptorCache.get(connectionDescriptor, connection));
     }
 
     public enum ReplacementPolicy {
@@ -167,6 +170,7 @@ public class RecordingTargetHelper {
                                     .getService()
                                     .start(recordingOptions, templateName, preferredTemplateType);
                     String targetId = connectionDescriptor.getTargetId();
+                    descriptorCache.invalidate(targetId);
 
                     Map<String, String> labels = metadata.getLabels();
                     labels.put("template.name", templateName);
@@ -230,10 +234,10 @@ public class RecordingTargetHelper {
         CompletableFuture<Optional<InputStream>> future = new CompletableFuture<>();
         try {
             Optional<InputStream> recording =
-                    targetConnectionManager.executeConnectedTask(
+                    targetConnectionManager.executeReadOnlyTask(
                             connectionDescriptor,
                             conn ->
-                                    getDescriptorByName(conn, recordingName)
+                                    getDescriptorByName(connectionDescriptor, conn, recordingName)
                                             .map(
                                                     desc -> {
                                                         try {
@@ -275,6 +279,7 @@ public class RecordingTargetHelper {
                             return d;
                         }
                         connection.getService().stop(d);
+                        descriptorCache.invalidate(targetId);
                         this.cancelScheduledTasksIfExists(targetId, recordingName);
                         HyperlinkedSerializableRecordingDescriptor linkedDesc =
                                 new HyperlinkedSerializableRecordingDescriptor(
@@ -317,6 +322,7 @@ public class RecordingTargetHelper {
                                         .getService()
                                         .updateRecordingOptions(
                                                 descriptor, recordingOptionsBuilder.build());
+                                descriptorCache.invalidate(connectionDescriptor.getTargetId());
 
                                 Optional<IRecordingDescriptor> updatedDescriptor =
                                         getDescriptorByName(connection, rename);
@@ -402,6 +408,11 @@ public class RecordingTargetHelper {
         throw new IllegalArgumentException(eventSpecifier);
     }
 
+    /**
+     * Look up a recording directly from the target, bypassing the {@link
+     * ActiveRecordingDescriptorCache}. Use this where the descriptor's current state matters, ex.
+     * before modifying the recording.
+     */
     public Optional<IRecordingDescriptor> getDescriptorByName(
             JFRConnection connection, String recordingName) throws Exception {
         return connection.getService().getAvailableRecordings().stream()
@@ -409,6 +420,18 @@ public class RecordingTargetHelper {
                 .findFirst();
     }
 
+    /**
+     * Look up a recording through the {@link ActiveRecordingDescriptorCache}. The descriptor's
+     * state may be up to the cache TTL old.
+     */
+    public Optional<IRecordingDescriptor> getDescriptorByName(
+            ConnectionDescriptor connectionDescriptor,
+            JFRConnection connection,
+            String recordingName)
+            throws Exception {
+        return descriptorCache.getByName(connectionDescriptor, connection, recordingName);
+    }
+
     private Future<Void> deleteRecording(
             ConnectionDescriptor connectionDescriptor,
             String recordingName,
@@ -425,6 +448,7 @@ public class RecordingTargetHelper {
                                 if (descriptor.isPresent()) {
                                     IRecordingDescriptor d = descriptor.get();
                                     connection.getService().close(d);
+                                    descriptorCache.invalidate(targetId);
                                     reportService.delete(connectionDescriptor, recordingName);
                                     this.cancelScheduledTasksIfExists(targetId, recordingName);
                                     HyperlinkedSerializableRecordingDescriptor linkedDesc =
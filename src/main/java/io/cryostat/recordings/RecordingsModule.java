@@ -20,12 +20,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import javax.persistence.EntityManager;
 
 import org.openjdk.jmc.flightrecorder.configuration.recording.RecordingOptionsBuilder;
 
@@ -42,6 +47,7 @@ import io.cryostat.core.sys.FileSystem;
 import io.cryostat.core.tui.ClientWriter;
 import io.cryostat.discovery.DiscoveryStorage;
 import io.cryostat.messaging.notifications.NotificationFactory;
+import io.cryostat.messaging.notifications.NotificationListener;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.reports.ReportService;
 import io.cryostat.net.web.WebModule;
@@ -49,9 +55,11 @@ import io.cryostat.net.web.WebServer;
 
 import com.github.benmanes.caffeine.cache.Scheduler;
 import com.google.gson.Gson;
+import dagger.Binds;
 import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
+import dagger.multibindings.IntoSet;
 import io.vertx.core.Vertx;
 import org.apache.commons.codec.binary.Base32;
 
@@ -73,6 +81,27 @@ public abstract class RecordingsModule {
                 env.getEnv(Variables.PUSH_MAX_FILES_ENV, String.valueOf(Integer.MAX_VALUE)));
     }
 
+    @Provides
+    @Named(Variables.ACTIVE_RECORDINGS_CACHE_TTL_MS)
+    static Duration provideActiveRecordingsCacheTtl(Environment env) {
+        String ttl = env.getEnv(Variables.ACTIVE_RECORDINGS_CACHE_TTL_MS, "2000");
+        return Duration.ofMillis(Math.max(0, Long.parseLong(ttl)));
+    }
+
+    @Provides
+    @Singleton
+    static ActiveRecordingDescriptorCache provideActiveRecordingDescriptorCache(
+            @Named(Variables.ACTIVE_RECORDINGS_CACHE_TTL_MS) Duration ttl,
+            Clock clock,
+            Logger logger) {
+        return new ActiveRecordingDescriptorCache(ttl, clock, logger);
+    }
+
+    @Binds
+    @IntoSet
+    abstract NotificationListener bindActiveRecordingDescriptorCache(
+            ActiveRecordingDescriptorCache cache);
+
     @Provides
     @Singleton
     static RecordingTargetHelper provideRecordingTargetHelper(
@@ -85,6 +114,7 @@ public abstract class RecordingsModule {
             ReportService reportService,
             RecordingMetadataManager recordingMetadataManager,
             RecordingArchiveHelper recordingArchiveHelper,
+            ActiveRecordingDescriptorCache descriptorCache,
             Logger logger) {
         return new RecordingTargetHelper(
                 vertx,
@@ -96,6 +126,7 @@ public abstract class RecordingsModule {
                 reportService,
                 recordingMetadataManager,
                 recordingArchiveHelper,
+                descriptorCache,
                 logger);
     }
 
@@ -114,7 +145,9 @@ public abstract class RecordingsModule {
             NotificationFactory notificationFactory,
             JvmIdHelper jvmIdHelper,
             Vertx vertx,
-            Base32 base32) {
+            Base32 base32,
+            ArchiveCatalog catalog,
+            ChunkedRecordingTransfer transfer) {
         return new RecordingArchiveHelper(
                 fs,
                 webServerProvider,
@@ -128,7 +161,47 @@ public abstract class RecordingsModule {
                 notificationFactory,
                 jvmIdHelper,
                 vertx,
-                base32);
+                base32,
+                catalog,
+                transfer);
+    }
+
+    @Provides
+    @Singleton
+    static ChunkedRecordingTransfer provideChunkedRecordingTransfer(
+            TargetConnectionManager targetConnectionManager,
+            Clock clock,
+            Environment env,
+            Logger logger) {
+        int threads =
+                Math.max(1, Integer.parseInt(env.getEnv(Variables.ARCHIVE_TRANSFER_THREADS, "4")));
+        ThreadPoolExecutor workers =
+                new ThreadPoolExecutor(
+                        threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        workers.allowCoreThreadTimeOut(true);
+        return new ChunkedRecordingTransfer(targetConnectionManager, workers, clock, logger);
+    }
+
+    @Provides
+    @Singleton
+    static ArchiveCatalog provideArchiveCatalog(
+            @Named(ConfigurationModule.CONFIGURATION_PATH) Path confDir,
+            FileSystem fs,
+            Gson gson,
+            Logger logger) {
+        return new ArchiveCatalog(
+                fs,
+                confDir.resolve(ArchiveCatalog.CATALOG_FILE),
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            // the catalog is only an index and is reconciled against the archive
+                            // on startup, so a pending write must not hold up shutdown
+                            Thread t = new Thread(r, "archive-catalog-writer");
+                            t.setDaemon(true);
+                            return t;
+                        }),
+                gson,
+                logger);
     }
 
     @Provides
@@ -148,6 +221,13 @@ public abstract class RecordingsModule {
         return new RecordingOptionsCustomizer(cw);
     }
 
+    @Provides
+    @Named(Variables.RECORDING_METADATA_FLUSH_PERIOD_MS)
+    static Duration provideRecordingMetadataFlushPeriod(Environment env) {
+        String period = env.getEnv(Variables.RECORDING_METADATA_FLUSH_PERIOD_MS, "1000");
+        return Duration.ofMillis(Math.max(1, Long.parseLong(period)));
+    }
+
     @Provides
     @Singleton
     static RecordingMetadataManager provideRecordingMetadataManager(
@@ -156,6 +236,7 @@ public abstract class RecordingsModule {
             @Named(ConfigurationModule.CONFIGURATION_PATH) Path confDir,
             @Named(MainModule.RECORDINGS_PATH) Path archivedRecordingsPath,
             @Named(Variables.JMX_CONNECTION_TIMEOUT) long connectionTimeoutSeconds,
+            @Named(Variables.RECORDING_METADATA_FLUSH_PERIOD_MS) Duration flushPeriod,
             FileSystem fs,
             Provider<RecordingArchiveHelper> archiveHelperProvider,
             TargetConnectionManager targetConnectionManager,
@@ -182,6 +263,7 @@ public abstract class RecordingsModule {
                     metadataDir,
                     archivedRecordingsPath,
                     connectionTimeoutSeconds,
+                    flushPeriod,
                     fs,
                     archiveHelperProvider,
                     targetConnectionManager,
@@ -197,22 +279,59 @@ public abstract class RecordingsModule {
         }
     }
 
+    @Provides
+    @Singleton
+    static StoredJvmIdDao provideStoredJvmIdDao(EntityManager em, Logger logger) {
+        return new StoredJvmIdDao(em, logger);
+    }
+
+    @Provides
+    @Named(Variables.JVM_ID_REVALIDATION_AGE_MS)
+    static Duration provideJvmIdRevalidationAge(Environment env) {
+        String age = env.getEnv(Variables.JVM_ID_REVALIDATION_AGE_MS, "300000");
+        return Duration.ofMillis(Math.max(0, Long.parseLong(age)));
+    }
+
+    @Provides
+    @Named(Variables.JVM_ID_MAX_AGE_MS)
+    static Duration provideJvmIdMaxAge(Environment env) {
+        String age = env.getEnv(Variables.JVM_ID_MAX_AGE_MS, "604800000");
+        return Duration.ofMillis(Math.max(0, Long.parseLong(age)));
+    }
+
+    @Provides
+    @Named(Variables.JVM_ID_REVERSE_LOOKUP_MAX_SIZE)
+    static long provideJvmIdReverseLookupMaxSize(Environment env) {
+        String size = env.getEnv(Variables.JVM_ID_REVERSE_LOOKUP_MAX_SIZE, "10000");
+        return Math.max(1, Long.parseLong(size));
+    }
+
     @Provides
     @Singleton
     static JvmIdHelper provideJvmIdHelper(
             TargetConnectionManager targetConnectionManager,
             @Named(Variables.JMX_CONNECTION_TIMEOUT) long connectionTimeoutSeconds,
+            @Named(Variables.JVM_ID_REVALIDATION_AGE_MS) Duration revalidationAge,
+            @Named(Variables.JVM_ID_MAX_AGE_MS) Duration maxAge,
+            @Named(Variables.JVM_ID_REVERSE_LOOKUP_MAX_SIZE) long reverseLookupMaxSize,
             CredentialsManager credentialsManager,
             DiscoveryStorage storage,
+            StoredJvmIdDao dao,
+            Clock clock,
             Base32 base32,
             Logger logger) {
         return new JvmIdHelper(
                 targetConnectionManager,
                 credentialsManager,
                 storage,
+                dao,
                 connectionTimeoutSeconds,
+                revalidationAge,
+                maxAge,
+                reverseLookupMaxSize,
                 Executors.newCachedThreadPool(),
                 Scheduler.systemScheduler(),
+                clock,
                 base32,
                 logger);
     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * A previously resolved target JVM ID, along with the time at which it was last confirmed by a
+ * connection to the target.
+ */
+@Entity
+public class StoredJvmId {
+
+    @Id
+    @Column(length = 2048)
+    private String targetId;
+
+    @Column(nullable = false)
+    private String jvmId;
+
+    @Column(nullable = false)
+    private long lastVerified;
+
+    StoredJvmId() {}
+
+    StoredJvmId(String targetId, String jvmId, long lastVerified) {
+        this.targetId = Objects.requireNonNull(targetId, "targetId");
+        this.jvmId = Objects.requireNonNull(jvmId, "jvmId");
+        this.lastVerified = lastVerified;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public String getJvmId() {
+        return jvmId;
+    }
+
+    public long getLastVerified() {
+        return lastVerified;
+    }
+
+    public void setTargetId(String targetId) {
+        this.targetId = Objects.requireNonNull(targetId);
+    }
+
+    public void setJvmId(String jvmId) {
+        this.jvmId = Objects.requireNonNull(jvmId);
+    }
+
+    public void setLastVerified(long lastVerified) {
+        this.lastVerified = lastVerified;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(targetId, jvmId, lastVerified);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        StoredJvmId other = (StoredJvmId) obj;
+        return Objects.equals(targetId, other.targetId)
+                && Objects.equals(jvmId, other.jvmId)
+                && lastVerified == other.lastVerified;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.Objects;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.storage.AbstractDao;
+
+class StoredJvmIdDao extends AbstractDao<String, StoredJvmId> {
+
+    StoredJvmIdDao(EntityManager em, Logger logger) {
+        super(StoredJvmId.class, em, logger);
+    }
+
+    public final StoredJvmId upsert(String targetId, String jvmId, long lastVerified) {
+        synchronized (entityManager) {
+            Objects.requireNonNull(targetId);
+            Objects.requireNonNull(jvmId);
+            EntityTransaction transaction = entityManager.getTransaction();
+            try {
+                transaction.begin();
+                StoredJvmId stored =
+                        entityManager.merge(new StoredJvmId(targetId, jvmId, lastVerified));
+                transaction.commit();
+                entityManager.detach(stored);
+                return stored;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                logger.error(e);
+                throw e;
+            }
+        }
+    }
+
+    public final int deleteOlderThan(long cutoff) {
+        synchronized (entityManager) {
+            EntityTransaction transaction = entityManager.getTransaction();
+            try {
+                transaction.begin();
+                int deleted =
+                        entityManager
+                                .createQuery(
+                                        "DELETE FROM StoredJvmId s WHERE s.lastVerified <"
+                                                + " :cutoff")
+                                .setParameter("cutoff", cutoff)
+                                .executeUpdate();
+                transaction.commit();
+                return deleted;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                logger.error(e);
+                throw e;
+            }
+        }
+    }
+}
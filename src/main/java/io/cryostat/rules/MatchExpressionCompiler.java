@@ -0,0 +1,369 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.rules;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.cryostat.platform.ServiceRef;
+
+import org.openjdk.nashorn.api.tree.ArrayAccessTree;
+import org.openjdk.nashorn.api.tree.BinaryTree;
+import org.openjdk.nashorn.api.tree.CompilationUnitTree;
+import org.openjdk.nashorn.api.tree.ExpressionStatementTree;
+import org.openjdk.nashorn.api.tree.ExpressionTree;
+import org.openjdk.nashorn.api.tree.FunctionCallTree;
+import org.openjdk.nashorn.api.tree.IdentifierTree;
+import org.openjdk.nashorn.api.tree.LiteralTree;
+import org.openjdk.nashorn.api.tree.MemberSelectTree;
+import org.openjdk.nashorn.api.tree.Parser;
+import org.openjdk.nashorn.api.tree.RegExpLiteralTree;
+import org.openjdk.nashorn.api.tree.Tree;
+import org.openjdk.nashorn.internal.runtime.ParserException;
+
+/**
+ * Compiles match expressions into plain Java predicates over {@link ServiceRef}s so that they can
+ * be evaluated repeatedly without going through the script engine. Only the common subset of the
+ * match expression grammar is handled: boolean literals, {@code &&} and {@code ||} over boolean
+ * operands, (strict) equality between target properties, string literals and {@code null}, and
+ * {@code /regex/.test(...)} calls. Anything outside of that subset, or anything whose result could
+ * differ from the script engine's (non-boolean results, type coercions, regular expression syntax
+ * which Java interprets differently than JavaScript), is not compiled, and callers should fall back
+ * to evaluating the expression with the script engine.
+ */
+class MatchExpressionCompiler {
+
+    // Map methods and bean properties, which the script engine resolves in preference to
+    // Map#get(key)
+    private static final Set<String> SHADOWED_MAP_KEYS =
+            Stream.concat(
+                            Stream.of("class", "empty"),
+                            Arrays.stream(HashMap.class.getMethods()).map(Method::getName))
+                    .collect(Collectors.toUnmodifiableSet());
+
+    private final Parser parser = Parser.create();
+
+    Optional<Predicate<ServiceRef>> compile(String matchExpression) {
+        try {
+            CompilationUnitTree cut = parser.parse("", matchExpression, null);
+            if (cut == null || cut.getSourceElements().size() != 1) {
+                return Optional.empty();
+            }
+            Tree statement = cut.getSourceElements().get(0);
+            if (!(statement instanceof ExpressionStatementTree)) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(
+                    condition(((ExpressionStatementTree) statement).getExpression()));
+        } catch (ParserException pe) {
+            return Optional.empty();
+        }
+    }
+
+    private Predicate<ServiceRef> condition(ExpressionTree node) {
+        switch (node.getKind()) {
+            case BOOLEAN_LITERAL:
+                boolean value = (Boolean) ((LiteralTree) node).getValue();
+                return sr -> value;
+            case CONDITIONAL_AND:
+                {
+                    BinaryTree binary = (BinaryTree) node;
+                    Predicate<ServiceRef> left = condition(binary.getLeftOperand());
+                    Predicate<ServiceRef> right = condition(binary.getRightOperand());
+                    if (left == null || right == null) {
+                        return null;
+                    }
+                    return left.and(right);
+                }
+            case CONDITIONAL_OR:
+                {
+                    BinaryTree binary = (BinaryTree) node;
+                    Predicate<ServiceRef> left = condition(binary.getLeftOperand());
+                    Predicate<ServiceRef> right = condition(binary.getRightOperand());
+                    if (left == null || right == null) {
+                        return null;
+                    }
+                    return left.or(right);
+                }
+            case EQUAL_TO:
+            case STRICT_EQUAL_TO:
+                // operands are always strings or null, so loose and strict equality agree
+                return equality((BinaryTree) node);
+            case NOT_EQUAL_TO:
+            case STRICT_NOT_EQUAL_TO:
+                {
+                    Predicate<ServiceRef> equality = equality((BinaryTree) node);
+                    return equality == null ? null : equality.negate();
+                }
+            case FUNCTION_CALL:
+                return regExpTest((FunctionCallTree) node);
+            default:
+                return null;
+        }
+    }
+
+    private Predicate<ServiceRef> equality(BinaryTree node) {
+        Function<ServiceRef, String> left = operand(node.getLeftOperand());
+        Function<ServiceRef, String> right = operand(node.getRightOperand());
+        if (left == null || right == null) {
+            return null;
+        }
+        return sr -> Objects.equals(left.apply(sr), right.apply(sr));
+    }
+
+    private Predicate<ServiceRef> regExpTest(FunctionCallTree node) {
+        if (!(node.getFunctionSelect() instanceof MemberSelectTree)) {
+            return null;
+        }
+        MemberSelectTree select = (MemberSelectTree) node.getFunctionSelect();
+        if (!"test".equals(select.getIdentifier())
+                || !(select.getExpression() instanceof RegExpLiteralTree)
+                || node.getArguments().size() != 1) {
+            return null;
+        }
+        Pattern pattern = toPattern((RegExpLiteralTree) select.getExpression());
+        Function<ServiceRef, String> argument = operand(node.getArguments().get(0));
+        if (pattern == null || argument == null) {
+            return null;
+        }
+        // RegExp.prototype.test converts its argument to a string, so null becomes "null"
+        return sr -> pattern.matcher(String.valueOf(argument.apply(sr))).find();
+    }
+
+    private Function<ServiceRef, String> operand(ExpressionTree node) {
+        switch (node.getKind()) {
+            case STRING_LITERAL:
+                String value = (String) ((LiteralTree) node).getValue();
+                return sr -> value;
+            case NULL_LITERAL:
+                return sr -> null;
+            case MEMBER_SELECT:
+            case ARRAY_ACCESS:
+                return property(path(node));
+            default:
+                return null;
+        }
+    }
+
+    private Function<ServiceRef, String> property(List<String> path) {
+        if (path == null || path.isEmpty() || !"target".equals(path.get(0))) {
+            return null;
+        }
+        if (path.size() == 2) {
+            switch (path.get(1)) {
+                case "connectUrl":
+                    return sr -> sr.getServiceUri().toString();
+                case "jvmId":
+                    return ServiceRef::getJvmId;
+                case "alias":
+                    return sr -> sr.getAlias().orElse(null);
+                default:
+                    return null;
+            }
+        }
+        if (path.size() == 3 && "labels".equals(path.get(1))) {
+            return mapEntry(path.get(2), ServiceRef::getLabels);
+        }
+        if (path.size() == 4 && "annotations".equals(path.get(1))) {
+            switch (path.get(2)) {
+                case "platform":
+                    return mapEntry(path.get(3), ServiceRef::getPlatformAnnotations);
+                case "cryostat":
+                    if (SHADOWED_MAP_KEYS.contains(path.get(3))) {
+                        return null;
+                    }
+                    ServiceRef.AnnotationKey annotationKey;
+                    try {
+                        annotationKey = ServiceRef.AnnotationKey.valueOf(path.get(3));
+                    } catch (IllegalArgumentException iae) {
+                        return sr -> null;
+                    }
+                    return sr -> sr.getCryostatAnnotations().get(annotationKey);
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    private Function<ServiceRef, String> mapEntry(
+            String key, Function<ServiceRef, Map<String, String>> map) {
+        if (SHADOWED_MAP_KEYS.contains(key)) {
+            return null;
+        }
+        return sr -> map.apply(sr).get(key);
+    }
+
+    private List<String> path(ExpressionTree node) {
+        if (node instanceof IdentifierTree) {
+            return List.of(((IdentifierTree) node).getName());
+        }
+        ExpressionTree parent;
+        String name;
+        if (node instanceof MemberSelectTree) {
+            parent = ((MemberSelectTree) node).getExpression();
+            name = ((MemberSelectTree) node).getIdentifier();
+        } else if (node instanceof ArrayAccessTree
+                && ((ArrayAccessTree) node).getIndex().getKind() == Tree.Kind.STRING_LITERAL) {
+            parent = ((ArrayAccessTree) node).getExpression();
+            name = (String) ((LiteralTree) ((ArrayAccessTree) node).getIndex()).getValue();
+        } else {
+            return null;
+        }
+        List<String> path = path(parent);
+        if (path == null) {
+            return null;
+        }
+        return concat(path, name);
+    }
+
+    private static List<String> concat(List<String> path, String name) {
+        String[] next = path.toArray(new String[path.size() + 1]);
+        next[path.size()] = name;
+        return List.of(next);
+    }
+
+    private Pattern toPattern(RegExpLiteralTree node) {
+        int flags = 0;
+        switch (node.getOptions()) {
+            case "":
+                break;
+            case "i":
+                // JavaScript case folding never maps non-ASCII characters onto ASCII ones, which
+                // matches Java's ASCII-only case folding as long as the pattern is ASCII too
+                if (!node.getPattern().chars().allMatch(ch -> ch < 0x80)) {
+                    return null;
+                }
+                flags = Pattern.CASE_INSENSITIVE;
+                break;
+            default:
+                return null;
+        }
+        String translated = translateRegExp(node.getPattern());
+        if (translated == null) {
+            return null;
+        }
+        try {
+            return Pattern.compile(translated, flags);
+        } catch (PatternSyntaxException pse) {
+            return null;
+        }
+    }
+
+    /**
+     * Translate a JavaScript regular expression source into an equivalent {@link Pattern} source,
+     * or return null if the expression uses any syntax whose meaning is not known to be the same in
+     * both dialects.
+     */
+    static String translateRegExp(String source) {
+        StringBuilder sb = new StringBuilder(source.length() + 16);
+        boolean inClass = false;
+        boolean afterQuantifier = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            boolean quantifier = false;
+            switch (c) {
+                case '\\':
+                    if (++i >= source.length()) {
+                        return null;
+                    }
+                    char escaped = source.charAt(i);
+                    if ("dDwWtnrf".indexOf(escaped) >= 0
+                            || (!Character.isLetterOrDigit(escaped) && escaped < 0x80)) {
+                        sb.append('\\').append(escaped);
+                    } else {
+                        return null;
+                    }
+                    break;
+                case '[':
+                    if (inClass) {
+                        // Java treats nested brackets as class unions
+                        return null;
+                    }
+                    if (source.startsWith("[]", i) || source.startsWith("[^]", i)) {
+                        return null;
+                    }
+                    inClass = true;
+                    sb.append(c);
+                    break;
+                case ']':
+                    inClass = false;
+                    sb.append(c);
+                    break;
+                case '&':
+                    if (inClass && source.startsWith("&&", i)) {
+                        // Java treats && within a class as an intersection
+                        return null;
+                    }
+                    sb.append(c);
+                    break;
+                case '.':
+                    // JavaScript line terminators, which differ from Java's default set
+                    sb.append(inClass ? "." : "[^\\n\\r\\u2028\\u2029]");
+                    break;
+                case '$':
+                    // Java's $ also matches before a trailing line terminator
+                    sb.append(inClass ? "$" : "\\z");
+                    break;
+                case '(':
+                    if (!inClass
+                            && source.startsWith("(?", i)
+                            && !source.startsWith("(?:", i)
+                            && !source.startsWith("(?=", i)
+                            && !source.startsWith("(?!", i)) {
+                        return null;
+                    }
+                    sb.append(c);
+                    break;
+                case '*':
+                case '+':
+                case '}':
+                    if (afterQuantifier && !inClass) {
+                        // possessive quantifiers are Java-only
+                        return null;
+                    }
+                    quantifier = !inClass;
+                    sb.append(c);
+                    break;
+                case '?':
+                    // a ? following a quantifier makes it lazy in both dialects
+                    quantifier = !inClass && !afterQuantifier;
+                    sb.append(c);
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+            afterQuantifier = quantifier;
+        }
+        if (inClass) {
+            return null;
+        }
+        return sb.toString();
+    }
+}
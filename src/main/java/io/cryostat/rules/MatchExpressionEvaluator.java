@@ -19,7 +19,9 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 
 import javax.script.Bindings;
 import javax.script.ScriptEngine;
@@ -41,6 +43,8 @@ import org.apache.commons.lang3.tuple.Pair;
 public class MatchExpressionEvaluator {
 
     private final ScriptEngine scriptEngine;
+    private final MatchExpressionCompiler compiler;
+    private final LoadingCache<String, Optional<Predicate<ServiceRef>>> compiled;
     private final LoadingCache<Pair<String, ServiceRef>, Boolean> cache;
     private final Logger logger;
 
@@ -49,8 +53,19 @@ public class MatchExpressionEvaluator {
             CredentialsManager credentialsManager,
             RuleRegistry ruleRegistry,
             Logger logger) {
+        this(scriptEngine, new MatchExpressionCompiler(), credentialsManager, ruleRegistry, logger);
+    }
+
+    MatchExpressionEvaluator(
+            ScriptEngine scriptEngine,
+            MatchExpressionCompiler compiler,
+            CredentialsManager credentialsManager,
+            RuleRegistry ruleRegistry,
+            Logger logger) {
         this.scriptEngine = scriptEngine;
+        this.compiler = compiler;
         this.logger = logger;
+        this.compiled = Caffeine.newBuilder().maximumSize(256).build(this::compile);
         this.cache =
                 Caffeine.newBuilder()
                         .maximumSize(1024) // should this be configurable?
@@ -80,7 +95,31 @@ public class MatchExpressionEvaluator {
                 });
     }
 
+    private Optional<Predicate<ServiceRef>> compile(String matchExpression) {
+        MatchExpressionCompilationEvent evt = new MatchExpressionCompilationEvent(matchExpression);
+        try {
+            evt.begin();
+            Optional<Predicate<ServiceRef>> predicate = compiler.compile(matchExpression);
+            evt.setCompiled(predicate.isPresent());
+            if (predicate.isEmpty()) {
+                logger.trace(
+                        "Match expression will be evaluated by script engine: {}",
+                        matchExpression);
+            }
+            return predicate;
+        } finally {
+            evt.end();
+            if (evt.shouldCommit()) {
+                evt.commit();
+            }
+        }
+    }
+
     private boolean compute(String matchExpression, ServiceRef serviceRef) throws ScriptException {
+        Optional<Predicate<ServiceRef>> predicate = compiled.get(matchExpression);
+        if (predicate.isPresent()) {
+            return predicate.get().test(serviceRef);
+        }
         Object r = this.scriptEngine.eval(matchExpression, createBindings(serviceRef));
         if (r == null) {
             throw new ScriptException(
@@ -98,6 +137,9 @@ public class MatchExpressionEvaluator {
     }
 
     private void invalidateCache(String matchExpression) {
+        if (matchExpression != null) {
+            compiled.invalidate(matchExpression);
+        }
         var it = cache.asMap().keySet().iterator();
         while (it.hasNext()) {
             Pair<String, ServiceRef> entry = it.next();
@@ -183,6 +225,26 @@ public class MatchExpressionEvaluator {
         }
     }
 
+    @Name("io.cryostat.rules.MatchExpressionEvaluator.MatchExpressionCompilationEvent")
+    @Label("Match Expression Compilation")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class MatchExpressionCompilationEvent extends Event {
+
+        String matchExpression;
+        boolean compiled;
+
+        MatchExpressionCompilationEvent(String matchExpression) {
+            this.matchExpression = matchExpression;
+        }
+
+        void setCompiled(boolean compiled) {
+            this.compiled = compiled;
+        }
+    }
+
     @Name("io.cryostat.rules.MatchExpressionEvaluator.BindingsCreationEvent")
     @Label("Match Expression Binding Creation")
     @Category("Cryostat")
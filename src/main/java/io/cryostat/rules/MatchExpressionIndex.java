@@ -0,0 +1,338 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.script.ScriptException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
+
+import dagger.Lazy;
+
+/**
+ * Bidirectional index between match expressions (from automated rules, stored credentials, and
+ * stored match expressions) and the discovered targets which they match. Each expression is
+ * evaluated against each target once, when the expression is first looked up or when the target is
+ * FOUND or MODIFIED, rather than on every lookup, so that both "which targets does this expression
+ * match" and "which expressions match this target" are answered with hash lookups.
+ *
+ * <p>Lookups of already-indexed expressions only take a shared read lock. Expressions are evaluated
+ * outside of any lock against a snapshot of the index, and the results are then reconciled against
+ * whatever changed in the meantime under the write lock, so that slow script evaluations do not
+ * serialize callers. Evaluation failures are not indexed and are thrown to the caller.
+ *
+ * <p>Owners of match expressions should {@link #invalidate(String)} an expression when it is
+ * deleted, so that the index does not keep tracking it.
+ */
+public class MatchExpressionIndex {
+
+    private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
+    private final PlatformClient platformClient;
+    private final Logger logger;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object discoveryLock = new Object();
+    private final Map<URI, ServiceRef> targets = new HashMap<>();
+    private final Map<String, Set<URI>> targetsByExpression = new HashMap<>();
+    private final Map<URI, Set<String>> expressionsByTarget = new HashMap<>();
+    private volatile boolean loaded;
+
+    MatchExpressionIndex(
+            Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            PlatformClient platformClient,
+            Logger logger) {
+        this.matchExpressionEvaluator = matchExpressionEvaluator;
+        this.platformClient = platformClient;
+        this.logger = logger;
+
+        platformClient.addTargetDiscoveryListener(this::onTargetDiscovery);
+    }
+
+    public Set<ServiceRef> getMatchingTargets(String matchExpression) throws ScriptException {
+        load();
+        lock.readLock().lock();
+        try {
+            Set<URI> matched = targetsByExpression.get(matchExpression);
+            if (matched != null) {
+                return resolve(matched);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return track(matchExpression);
+    }
+
+    public boolean matches(String matchExpression, ServiceRef serviceRef) throws ScriptException {
+        load();
+        boolean indexed;
+        lock.readLock().lock();
+        try {
+            indexed = isIndexed(serviceRef);
+            Set<URI> matched = targetsByExpression.get(matchExpression);
+            if (indexed && matched != null) {
+                return matched.contains(serviceRef.getServiceUri());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!indexed) {
+            // not (yet) discovered, or the caller holds a different version of the target than
+            // the index does. Don't trust or update the index for it, just answer directly
+            return evaluate(matchExpression, serviceRef);
+        }
+        return track(matchExpression).contains(serviceRef);
+    }
+
+    /**
+     * @return the expressions matching the given target, out of those which have been looked up
+     *     since they were last invalidated
+     */
+    public Set<String> getMatchingExpressions(ServiceRef serviceRef) throws ScriptException {
+        load();
+        Set<String> expressions;
+        lock.readLock().lock();
+        try {
+            if (isIndexed(serviceRef)) {
+                return Collections.unmodifiableSet(
+                        new HashSet<>(
+                                expressionsByTarget.getOrDefault(
+                                        serviceRef.getServiceUri(), Set.of())));
+            }
+            expressions = new HashSet<>(targetsByExpression.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        Set<String> result = new HashSet<>();
+        for (String matchExpression : expressions) {
+            if (evaluate(matchExpression, serviceRef)) {
+                result.add(matchExpression);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    public void invalidate(String matchExpression) {
+        lock.writeLock().lock();
+        try {
+            untrack(matchExpression);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void onTargetDiscovery(TargetDiscoveryEvent tde) {
+        ServiceRef serviceRef = tde.getServiceRef();
+        // discovery events are applied one at a time and in order, but lookups may proceed while
+        // the new target is evaluated
+        synchronized (discoveryLock) {
+            if (!loaded) {
+                // the full target list will be read on first use
+                return;
+            }
+            switch (tde.getEventKind()) {
+                case FOUND:
+                case MODIFIED:
+                    addTarget(serviceRef);
+                    break;
+                case LOST:
+                    lock.writeLock().lock();
+                    try {
+                        removeTarget(serviceRef.getServiceUri());
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    break;
+                default:
+                    throw new UnsupportedOperationException(tde.getEventKind().toString());
+            }
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        // discovery events which arrive while the target list is being read wait for it, and are
+        // then applied on top of it rather than dropped
+        synchronized (discoveryLock) {
+            if (loaded) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                for (ServiceRef serviceRef : platformClient.listDiscoverableServices()) {
+                    targets.putIfAbsent(serviceRef.getServiceUri(), serviceRef);
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private boolean isIndexed(ServiceRef serviceRef) {
+        return Objects.equals(serviceRef, targets.get(serviceRef.getServiceUri()));
+    }
+
+    private Set<ServiceRef> resolve(Set<URI> matched) {
+        Set<ServiceRef> result = new HashSet<>();
+        for (URI uri : matched) {
+            result.add(targets.get(uri));
+        }
+        return result;
+    }
+
+    private Set<ServiceRef> track(String matchExpression) throws ScriptException {
+        Map<URI, ServiceRef> snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = new HashMap<>(targets);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<URI> matched = new HashSet<>();
+        for (ServiceRef serviceRef : snapshot.values()) {
+            if (evaluate(matchExpression, serviceRef)) {
+                matched.add(serviceRef.getServiceUri());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<URI> existing = targetsByExpression.get(matchExpression);
+            if (existing != null) {
+                // tracked concurrently by another caller
+                return resolve(existing);
+            }
+            // account for targets which changed while the snapshot was being evaluated
+            matched.removeIf(uri -> !Objects.equals(snapshot.get(uri), targets.get(uri)));
+            for (ServiceRef serviceRef : targets.values()) {
+                URI uri = serviceRef.getServiceUri();
+                if (!Objects.equals(serviceRef, snapshot.get(uri))
+                        && evaluate(matchExpression, serviceRef)) {
+                    matched.add(uri);
+                }
+            }
+            targetsByExpression.put(matchExpression, matched);
+            for (URI uri : matched) {
+                expressionsByTarget.computeIfAbsent(uri, k -> new HashSet<>()).add(matchExpression);
+            }
+            return resolve(matched);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void untrack(String matchExpression) {
+        Set<URI> matched = targetsByExpression.remove(matchExpression);
+        if (matched == null) {
+            return;
+        }
+        for (URI uri : matched) {
+            Set<String> expressions = expressionsByTarget.get(uri);
+            if (expressions != null) {
+                expressions.remove(matchExpression);
+            }
+        }
+    }
+
+    private void addTarget(ServiceRef serviceRef) {
+        Set<String> snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = new HashSet<>(targetsByExpression.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<String> expressions = new HashSet<>();
+        Set<String> failed = new HashSet<>();
+        for (String matchExpression : snapshot) {
+            evaluateInto(matchExpression, serviceRef, expressions, failed);
+        }
+
+        URI uri = serviceRef.getServiceUri();
+        lock.writeLock().lock();
+        try {
+            removeTarget(uri);
+            targets.put(uri, serviceRef);
+            // account for expressions tracked or invalidated while the target was being evaluated
+            for (String matchExpression : targetsByExpression.keySet()) {
+                if (!snapshot.contains(matchExpression)) {
+                    evaluateInto(matchExpression, serviceRef, expressions, failed);
+                }
+            }
+            expressions.retainAll(targetsByExpression.keySet());
+            for (String matchExpression : expressions) {
+                targetsByExpression.get(matchExpression).add(uri);
+            }
+            if (!expressions.isEmpty()) {
+                expressionsByTarget.put(uri, expressions);
+            }
+            // drop failing expressions from the index so that the failure is reported to the next
+            // caller looking them up, rather than being recorded as a non-match
+            failed.forEach(this::untrack);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evaluateInto(
+            String matchExpression,
+            ServiceRef serviceRef,
+            Set<String> expressions,
+            Set<String> failed) {
+        try {
+            if (evaluate(matchExpression, serviceRef)) {
+                expressions.add(matchExpression);
+            }
+        } catch (ScriptException se) {
+            logger.error(se);
+            failed.add(matchExpression);
+        }
+    }
+
+    private void removeTarget(URI uri) {
+        targets.remove(uri);
+        Set<String> expressions = expressionsByTarget.remove(uri);
+        if (expressions == null) {
+            return;
+        }
+        for (String matchExpression : expressions) {
+            Set<URI> matched = targetsByExpression.get(matchExpression);
+            if (matched != null) {
+                matched.remove(uri);
+            }
+        }
+    }
+
+    private boolean evaluate(String matchExpression, ServiceRef serviceRef) throws ScriptException {
+        return matchExpressionEvaluator.get().applies(matchExpression, serviceRef);
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 public class MatchExpressionManager {
     private final MatchExpressionValidator matchExpressionValidator;
     private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
+    private final MatchExpressionIndex matchExpressionIndex;
     private final PlatformClient platformClient;
     private final MatchExpressionDao dao;
     private final Gson gson;
@@ -45,12 +46,14 @@ public class MatchExpressionManager {
     MatchExpressionManager(
             MatchExpressionValidator matchExpressionValidator,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionIndex matchExpressionIndex,
             PlatformClient platformClient,
             MatchExpressionDao dao,
             Gson gson,
             Logger logger) {
         this.matchExpressionValidator = matchExpressionValidator;
         this.matchExpressionEvaluator = matchExpressionEvaluator;
+        this.matchExpressionIndex = matchExpressionIndex;
         this.platformClient = platformClient;
         this.dao = dao;
         this.gson = gson;
@@ -73,6 +76,9 @@ public class MatchExpressionManager {
     }
 
     public boolean delete(int id) {
+        dao.get(id)
+                .map(MatchExpression::getMatchExpression)
+                .ifPresent(matchExpressionIndex::invalidate);
         return dao.delete(id);
     }
 
@@ -85,7 +91,12 @@ public class MatchExpressionManager {
     }
 
     public Set<ServiceRef> resolveMatchingTargets(MatchExpression expr) {
-        return resolveMatchingTargets(expr.getMatchExpression(), s -> true);
+        try {
+            return matchExpressionIndex.getMatchingTargets(expr.getMatchExpression());
+        } catch (ScriptException e) {
+            logger.error(e);
+            return new HashSet<>();
+        }
     }
 
     public Set<ServiceRef> resolveMatchingTargets(String expr, Predicate<ServiceRef> targetFilter) {
@@ -40,6 +40,7 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
 
     private final Path rulesDir;
     private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
+    private final MatchExpressionIndex matchExpressionIndex;
     private final FileSystem fs;
     private final Set<Rule> rules;
     private final Gson gson;
@@ -48,11 +49,13 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
     RuleRegistry(
             Path rulesDir,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionIndex matchExpressionIndex,
             FileSystem fs,
             Gson gson,
             Logger logger) {
         this.rulesDir = rulesDir;
         this.matchExpressionEvaluator = matchExpressionEvaluator;
+        this.matchExpressionIndex = matchExpressionIndex;
         this.fs = fs;
         this.gson = gson;
         this.logger = logger;
@@ -127,7 +130,21 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
         if (!serviceRef.getAlias().isPresent()) {
             return Set.of();
         }
-        return rules.stream().filter(r -> applies(r, serviceRef)).collect(Collectors.toSet());
+        return rules.stream().filter(r -> matches(r, serviceRef)).collect(Collectors.toSet());
+    }
+
+    private boolean matches(Rule rule, ServiceRef serviceRef) {
+        try {
+            return matchExpressionIndex.matches(rule.getMatchExpression(), serviceRef);
+        } catch (ScriptException se) {
+            logger.error(se);
+            try {
+                deleteRule(rule);
+            } catch (IOException ioe) {
+                logger.error(ioe);
+            }
+            return false;
+        }
     }
 
     public Set<Rule> getRules() {
@@ -151,6 +168,7 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
             if (Objects.equals(rule.getName(), name)) {
                 emit(RuleEvent.REMOVED, rule);
                 it.remove();
+                matchExpressionIndex.invalidate(rule.getMatchExpression());
                 break;
             }
         }
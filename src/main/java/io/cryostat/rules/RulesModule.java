@@ -51,6 +51,7 @@ public abstract class RulesModule {
     static RuleRegistry provideRuleRegistry(
             @Named(ConfigurationModule.CONFIGURATION_PATH) Path confDir,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionIndex matchExpressionIndex,
             FileSystem fs,
             Gson gson,
             Logger logger) {
@@ -59,7 +60,8 @@ public abstract class RulesModule {
             if (!fs.isDirectory(rulesDir)) {
                 Files.createDirectory(rulesDir);
             }
-            return new RuleRegistry(rulesDir, matchExpressionEvaluator, fs, gson, logger);
+            return new RuleRegistry(
+                    rulesDir, matchExpressionEvaluator, matchExpressionIndex, fs, gson, logger);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -76,12 +78,28 @@ public abstract class RulesModule {
     static MatchExpressionManager provideMatchExpressionManager(
             MatchExpressionValidator matchExpressionValidator,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionIndex matchExpressionIndex,
             DiscoveryStorage discovery,
             MatchExpressionDao dao,
             Gson gson,
             Logger logger) {
         return new MatchExpressionManager(
-                matchExpressionValidator, matchExpressionEvaluator, discovery, dao, gson, logger);
+                matchExpressionValidator,
+                matchExpressionEvaluator,
+                matchExpressionIndex,
+                discovery,
+                dao,
+                gson,
+                logger);
+    }
+
+    @Provides
+    @Singleton
+    static MatchExpressionIndex provideMatchExpressionIndex(
+            Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            DiscoveryStorage discovery,
+            Logger logger) {
+        return new MatchExpressionIndex(matchExpressionEvaluator, discovery, logger);
     }
 
     @Provides
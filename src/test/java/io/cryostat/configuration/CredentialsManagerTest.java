@@ -28,7 +28,7 @@ import io.cryostat.core.net.Credentials;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
-import io.cryostat.rules.MatchExpressionEvaluator;
+import io.cryostat.rules.MatchExpressionIndex;
 import io.cryostat.rules.MatchExpressionValidator;
 
 import com.google.gson.Gson;
@@ -51,7 +51,7 @@ class CredentialsManagerTest {
     CredentialsManager credentialsManager;
     @Mock Path credentialsDir;
     @Mock MatchExpressionValidator matchExpressionValidator;
-    @Mock MatchExpressionEvaluator matchExpressionEvaluator;
+    @Mock MatchExpressionIndex matchExpressionIndex;
     @Mock PlatformClient platformClient;
     @Mock StoredCredentialsDao dao;
     @Mock FileSystem fs;
@@ -65,7 +65,7 @@ class CredentialsManagerTest {
                 new CredentialsManager(
                         credentialsDir,
                         matchExpressionValidator,
-                        () -> matchExpressionEvaluator,
+                        matchExpressionIndex,
                         platformClient,
                         dao,
                         fs,
@@ -99,7 +99,7 @@ class CredentialsManagerTest {
         StoredCredentials stored = new StoredCredentials(1, matchExpression, credentials);
 
         ServiceRef serviceRef = new ServiceRef("id", new URI(targetId), "foo");
-        Mockito.when(matchExpressionEvaluator.applies(matchExpression, serviceRef))
+        Mockito.when(matchExpressionIndex.matches(matchExpression, serviceRef))
                 .thenReturn(true);
 
         Mockito.when(dao.save(Mockito.any())).thenReturn(stored);
@@ -205,7 +205,7 @@ class CredentialsManagerTest {
         StoredCredentials stored = new StoredCredentials(1, matchExpression, credentials);
         Mockito.when(dao.getAll()).thenReturn(List.of(stored));
 
-        Mockito.when(matchExpressionEvaluator.applies(Mockito.eq(matchExpression), Mockito.any()))
+        Mockito.when(matchExpressionIndex.matches(Mockito.eq(matchExpression), Mockito.any()))
                 .thenAnswer(
                         invocation -> Set.of(target1, target2).contains(invocation.getArgument(1)));
 
@@ -246,7 +246,7 @@ class CredentialsManagerTest {
         StoredCredentials stored = new StoredCredentials(1, matchExpression, credentials);
         Mockito.when(dao.getAll()).thenReturn(List.of(stored));
 
-        Mockito.when(matchExpressionEvaluator.applies(Mockito.eq(matchExpression), Mockito.any()))
+        Mockito.when(matchExpressionIndex.matches(Mockito.eq(matchExpression), Mockito.any()))
                 .thenAnswer(
                         new Answer<Boolean>() {
                             @Override
@@ -290,9 +290,8 @@ class CredentialsManagerTest {
                         URI.create("service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi"),
                         "mytarget");
 
-        Mockito.when(platformClient.listDiscoverableServices()).thenReturn(List.of(serviceRef));
-        Mockito.when(matchExpressionEvaluator.applies(matchExpression, serviceRef))
-                .thenReturn(true);
+        Mockito.when(matchExpressionIndex.getMatchingTargets(matchExpression))
+                .thenReturn(Set.of(serviceRef));
 
         Set<ServiceRef> expected = Set.of(serviceRef);
 
@@ -302,4 +301,68 @@ class CredentialsManagerTest {
         MatcherAssert.assertThat(
                 credentialsManager.resolveMatchingTargets(7), Matchers.equalTo(expected));
     }
+
+    @Test
+    void cachesDecryptedCredentialsAndResolvedTargets() throws Exception {
+        String matchExpression = "some expression";
+        Credentials credentials = new Credentials("user", "pass");
+        StoredCredentials stored = new StoredCredentials(1, matchExpression, credentials);
+        Mockito.when(dao.getAll()).thenReturn(List.of(stored));
+
+        ServiceRef serviceRef = new ServiceRef("id", new URI("target"), "alias");
+        Mockito.when(matchExpressionIndex.matches(matchExpression, serviceRef)).thenReturn(true);
+
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(serviceRef), Matchers.equalTo(credentials));
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(serviceRef), Matchers.equalTo(credentials));
+        MatcherAssert.assertThat(
+                credentialsManager.getAll(), Matchers.equalTo(Map.of(1, matchExpression)));
+
+        Mockito.verify(dao, Mockito.times(1)).getAll();
+        Mockito.verify(matchExpressionIndex, Mockito.times(1))
+                .matches(matchExpression, serviceRef);
+    }
+
+    @Test
+    void refreshesCacheOnCredentialsEvents() throws Exception {
+        String matchExpression = "some expression";
+        Credentials credentials = new Credentials("user", "pass");
+        StoredCredentials stored = new StoredCredentials(1, matchExpression, credentials);
+        ServiceRef serviceRef = new ServiceRef("id", new URI("target"), "alias");
+
+        Mockito.when(dao.getAll()).thenReturn(List.of());
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(serviceRef), Matchers.nullValue());
+
+        Mockito.when(dao.save(Mockito.any())).thenReturn(stored);
+        Mockito.when(dao.getAll()).thenReturn(List.of(stored));
+        Mockito.when(matchExpressionIndex.matches(matchExpression, serviceRef)).thenReturn(true);
+        credentialsManager.addCredentials(matchExpression, credentials);
+
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(serviceRef), Matchers.equalTo(credentials));
+
+        Mockito.when(dao.get(1)).thenReturn(Optional.of(stored));
+        Mockito.when(dao.delete(1)).thenReturn(true);
+        Mockito.when(dao.getAll()).thenReturn(List.of());
+        credentialsManager.delete(1);
+
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(serviceRef), Matchers.nullValue());
+        Mockito.verify(dao, Mockito.times(3)).getAll();
+    }
+
+    @Test
+    void deleteInvalidatesIndexedMatchExpression() throws Exception {
+        String matchExpression = "some expression";
+        Credentials credentials = new Credentials("user", "pass");
+        StoredCredentials stored = new StoredCredentials(7, matchExpression, credentials);
+        Mockito.when(dao.get(7)).thenReturn(Optional.of(stored));
+        Mockito.when(dao.delete(7)).thenReturn(true);
+
+        MatcherAssert.assertThat(credentialsManager.delete(7), Matchers.is(true));
+
+        Mockito.verify(matchExpressionIndex).invalidate(matchExpression);
+    }
 }
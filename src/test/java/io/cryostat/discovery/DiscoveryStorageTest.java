@@ -18,13 +18,14 @@ package io.cryostat.discovery;
 import java.net.URI;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Singleton;
 
@@ -116,6 +117,11 @@ class DiscoveryStorageTest {
                         () -> builtin,
                         dao,
                         () -> jvmIdHelper,
+                        new JvmIdResolver(
+                                () -> jvmIdHelper,
+                                new DirectExecutorService(),
+                                Duration.ofSeconds(5),
+                                logger),
                         () -> credentialsManager,
                         () -> matchExpressionEvaluator,
                         gson,
@@ -409,7 +415,6 @@ class DiscoveryStorageTest {
 
         @Test
         void throwsIfUuidNull() {
-            Mockito.when(dao.get(Mockito.isNull())).thenThrow(NullPointerException.class);
             Assertions.assertThrows(
                     NullPointerException.class, () -> storage.update(null, Set.of()));
         }
@@ -449,11 +454,12 @@ class DiscoveryStorageTest {
             PluginInfo prevPlugin =
                     new PluginInfo(
                             "test-realm", URI.create("http://example.com"), gson.toJson(prev));
+            prevPlugin.setId(id);
             PluginInfo nextPlugin =
                     new PluginInfo(
                             "test-realm", URI.create("http://example.com"), gson.toJson(next));
-            Mockito.when(dao.get(Mockito.eq(id))).thenReturn(Optional.of(prevPlugin));
-            Mockito.when(dao.update(Mockito.any(), Mockito.any(Collection.class)))
+            Mockito.when(dao.getAll()).thenReturn(List.of(prevPlugin));
+            Mockito.when(dao.update(Mockito.eq(id), Mockito.any(EnvironmentNode.class)))
                     .thenReturn(nextPlugin);
 
             List<TargetDiscoveryEvent> discoveryEvents = new ArrayList<>();
@@ -468,6 +474,36 @@ class DiscoveryStorageTest {
                     new TargetDiscoveryEvent(EventKind.MODIFIED, nextServiceRef);
             MatcherAssert.assertThat(discoveryEvents, Matchers.contains(modifiedEvent));
         }
+
+        @Test
+        void skipsDaoAndNotificationsIfSubtreeUnchanged() throws Exception {
+            ServiceRef serviceRef =
+                    new ServiceRef(
+                            "id",
+                            URI.create("service:jmx:rmi:///jndi/rmi://localhost/jmxrmi"),
+                            "serviceRef");
+            TargetNode target = new TargetNode(BaseNodeType.JVM, serviceRef);
+            EnvironmentNode realm =
+                    new EnvironmentNode("realm", BaseNodeType.REALM, Map.of(), Set.of(target));
+            Mockito.when(jvmIdHelper.resolveId(Mockito.any())).thenReturn(serviceRef);
+
+            UUID id = UUID.randomUUID();
+            PluginInfo plugin =
+                    new PluginInfo(
+                            "test-realm", URI.create("http://example.com"), gson.toJson(realm));
+            plugin.setId(id);
+            Mockito.when(dao.getAll()).thenReturn(List.of(plugin));
+
+            List<TargetDiscoveryEvent> discoveryEvents = new ArrayList<>();
+            storage.addTargetDiscoveryListener(discoveryEvents::add);
+
+            List<? extends AbstractNode> updatedChildren = storage.update(id, List.of(target));
+
+            MatcherAssert.assertThat(updatedChildren, Matchers.equalTo(List.of(target)));
+            MatcherAssert.assertThat(discoveryEvents, Matchers.empty());
+            Mockito.verify(dao, Mockito.never())
+                    .update(Mockito.any(UUID.class), Mockito.any(EnvironmentNode.class));
+        }
     }
 
     @Nested
@@ -542,6 +578,7 @@ class DiscoveryStorageTest {
         @Test
         void returnsExpectedSubtree() {
             PluginInfo plugin1 = new PluginInfo();
+            plugin1.setId(UUID.randomUUID());
             TargetNode leaf1 =
                     new TargetNode(
                             BaseNodeType.JVM,
@@ -562,6 +599,7 @@ class DiscoveryStorageTest {
             plugin1.setSubtree(gson.toJson(realm1));
 
             PluginInfo plugin2 = new PluginInfo();
+            plugin2.setId(UUID.randomUUID());
             TargetNode leaf3 =
                     new TargetNode(
                             BaseNodeType.JVM,
@@ -595,6 +633,7 @@ class DiscoveryStorageTest {
         @Test
         void returnsExpectedOrderedSubtree() {
             PluginInfo plugin1 = new PluginInfo();
+            plugin1.setId(UUID.randomUUID());
             TargetNode leaf1 =
                     new TargetNode(
                             BaseNodeType.JVM,
@@ -612,6 +651,7 @@ class DiscoveryStorageTest {
             plugin1.setSubtree(gson.toJson(realm1));
 
             PluginInfo plugin2 = new PluginInfo();
+            plugin2.setId(UUID.randomUUID());
             TargetNode leaf2 =
                     new TargetNode(
                             BaseNodeType.JVM,
@@ -629,12 +669,14 @@ class DiscoveryStorageTest {
             plugin2.setSubtree(gson.toJson(realm2));
 
             PluginInfo plugin3 = new PluginInfo();
+            plugin3.setId(UUID.randomUUID());
             EnvironmentNode realm3 =
                     new EnvironmentNode(
                             KubeApiPlatformClient.REALM, BaseNodeType.REALM, Map.of(), Set.of());
             plugin3.setSubtree(gson.toJson(realm3));
 
             PluginInfo plugin4 = new PluginInfo();
+            plugin4.setId(UUID.randomUUID());
             EnvironmentNode realm4 =
                     new EnvironmentNode(
                             "some-agent-plugin-realm", BaseNodeType.REALM, Map.of(), Set.of());
@@ -678,6 +720,7 @@ class DiscoveryStorageTest {
                     new EnvironmentNode(
                             "realm1", BaseNodeType.REALM, Map.of(), Set.of(leaf1, leaf2));
             PluginInfo plugin1 = new PluginInfo();
+            plugin1.setId(UUID.randomUUID());
             plugin1.setSubtree(gson.toJson(realm1));
 
             ServiceRef sr3 =
@@ -692,6 +735,7 @@ class DiscoveryStorageTest {
                     new EnvironmentNode(
                             "realm2", BaseNodeType.REALM, Map.of(), Set.of(leaf3, leaf4));
             PluginInfo plugin2 = new PluginInfo();
+            plugin2.setId(UUID.randomUUID());
             plugin2.setSubtree(gson.toJson(realm2));
 
             Mockito.when(dao.getAll()).thenReturn(List.of(plugin1, plugin2));
@@ -701,6 +745,46 @@ class DiscoveryStorageTest {
             MatcherAssert.assertThat(servicesList, Matchers.hasSize(4));
             MatcherAssert.assertThat(servicesList, Matchers.containsInAnyOrder(sr1, sr2, sr3, sr4));
         }
+
+        @Test
+        void servesRepeatedLookupsFromSnapshot() {
+            ServiceRef sr1 =
+                    new ServiceRef(
+                            "id1",
+                            URI.create("service:jmx:rmi:///jndi/rmi://leaf:1/jmxrmi"),
+                            "sr1");
+            ServiceRef sr2 =
+                    new ServiceRef(
+                            "id2",
+                            URI.create("service:jmx:rmi:///jndi/rmi://leaf:2/jmxrmi"),
+                            "sr2");
+            EnvironmentNode realm1 =
+                    new EnvironmentNode(
+                            "realm1",
+                            BaseNodeType.REALM,
+                            Map.of(),
+                            Set.of(
+                                    new TargetNode(BaseNodeType.JVM, sr1),
+                                    new TargetNode(BaseNodeType.JVM, sr2)));
+            PluginInfo plugin1 = new PluginInfo();
+            plugin1.setId(UUID.randomUUID());
+            plugin1.setSubtree(gson.toJson(realm1));
+
+            Mockito.when(dao.getAll()).thenReturn(List.of(plugin1));
+
+            MatcherAssert.assertThat(storage.listDiscoverableServices(), Matchers.hasSize(2));
+            MatcherAssert.assertThat(
+                    storage.lookupServiceByConnectUrl(sr2.getServiceUri()),
+                    Matchers.equalTo(Optional.of(sr2)));
+            MatcherAssert.assertThat(
+                    storage.lookupServicesByJvmId("id1"), Matchers.equalTo(List.of(sr1)));
+            MatcherAssert.assertThat(
+                    storage.listDiscoverableServices("realm1"),
+                    Matchers.containsInAnyOrder(sr1, sr2));
+            MatcherAssert.assertThat(storage.listDiscoverableServices("realm2"), Matchers.empty());
+
+            Mockito.verify(dao, Mockito.times(1)).getAll();
+        }
     }
 
     @Nested
@@ -784,18 +868,16 @@ class DiscoveryStorageTest {
             PluginInfo prevPlugin =
                     new PluginInfo(
                             "test-realm", URI.create("http://example.com"), gson.toJson(realm1));
+            prevPlugin.setId(id);
 
-            Mockito.when(dao.get(Mockito.eq(id))).thenReturn(Optional.of(prevPlugin));
-            Mockito.when(dao.update(Mockito.any(UUID.class), Mockito.any(Collection.class)))
+            Mockito.when(dao.getAll()).thenReturn(List.of(prevPlugin));
+            Mockito.when(dao.update(Mockito.any(UUID.class), Mockito.any(EnvironmentNode.class)))
                     .thenAnswer(
                             new Answer<PluginInfo>() {
                                 @Override
                                 public PluginInfo answer(InvocationOnMock invocation)
                                         throws Throwable {
-                                    List<AbstractNode> subtree = invocation.getArgument(1);
-                                    EnvironmentNode next =
-                                            new EnvironmentNode(
-                                                    "next", BaseNodeType.REALM, Map.of(), subtree);
+                                    EnvironmentNode next = invocation.getArgument(1);
                                     return new PluginInfo(
                                             "test-realm",
                                             URI.create("http://example.com"),
@@ -847,5 +929,103 @@ class DiscoveryStorageTest {
                             new TargetDiscoveryEvent(EventKind.FOUND, updatedServiceRef3),
                             new TargetDiscoveryEvent(EventKind.MODIFIED, updatedServiceRef4)));
         }
+
+        @Test
+        void commitsBeforeDeadlineAndPatchesLateJvmIds() throws Exception {
+            List<Runnable> resolutionTasks = new ArrayList<>();
+            DiscoveryStorage storage =
+                    new DiscoveryStorage(
+                            deployer,
+                            new FakeScheduledExecutorService(),
+                            new DirectExecutorService(),
+                            Duration.ofMinutes(5),
+                            () -> builtin,
+                            dao,
+                            () -> jvmIdHelper,
+                            new JvmIdResolver(
+                                    () -> jvmIdHelper,
+                                    new AbstractExecutorService() {
+                                        @Override
+                                        public void execute(Runnable command) {
+                                            resolutionTasks.add(command);
+                                        }
+
+                                        @Override
+                                        public void shutdown() {}
+
+                                        @Override
+                                        public List<Runnable> shutdownNow() {
+                                            return List.of();
+                                        }
+
+                                        @Override
+                                        public boolean isShutdown() {
+                                            return false;
+                                        }
+
+                                        @Override
+                                        public boolean isTerminated() {
+                                            return false;
+                                        }
+
+                                        @Override
+                                        public boolean awaitTermination(
+                                                long timeout, TimeUnit unit) {
+                                            return false;
+                                        }
+                                    },
+                                    Duration.ZERO,
+                                    logger),
+                            () -> credentialsManager,
+                            () -> matchExpressionEvaluator,
+                            gson,
+                            http,
+                            clock,
+                            logger);
+            storage.init(vertx, null);
+
+            UUID id = UUID.randomUUID();
+            EnvironmentNode realm =
+                    new EnvironmentNode("realm", BaseNodeType.REALM, Map.of(), Set.of());
+            PluginInfo plugin =
+                    new PluginInfo("realm", URI.create("http://example.com"), gson.toJson(realm));
+            plugin.setId(id);
+            Mockito.when(dao.getAll()).thenReturn(List.of(plugin));
+
+            ServiceRef serviceRef =
+                    new ServiceRef(
+                            null,
+                            URI.create("service:jmx:rmi:///jndi/rmi://localhost:1/jmxrmi"),
+                            "serviceRef");
+            ServiceRef resolvedServiceRef =
+                    new ServiceRef(
+                            "jvmId", serviceRef.getServiceUri(), serviceRef.getAlias().get());
+            Mockito.when(jvmIdHelper.resolveId(Mockito.any(ServiceRef.class)))
+                    .thenReturn(resolvedServiceRef);
+
+            List<TargetDiscoveryEvent> discoveryEvents = new ArrayList<>();
+            storage.addTargetDiscoveryListener(discoveryEvents::add);
+
+            storage.update(id, List.of(new TargetNode(BaseNodeType.JVM, serviceRef)));
+
+            MatcherAssert.assertThat(
+                    discoveryEvents,
+                    Matchers.contains(new TargetDiscoveryEvent(EventKind.FOUND, serviceRef)));
+            MatcherAssert.assertThat(storage.lookupServicesByJvmId("jvmId"), Matchers.empty());
+            MatcherAssert.assertThat(resolutionTasks, Matchers.hasSize(1));
+
+            resolutionTasks.get(0).run();
+
+            MatcherAssert.assertThat(
+                    discoveryEvents,
+                    Matchers.contains(
+                            new TargetDiscoveryEvent(EventKind.FOUND, serviceRef),
+                            new TargetDiscoveryEvent(EventKind.MODIFIED, resolvedServiceRef)));
+            MatcherAssert.assertThat(
+                    storage.lookupServicesByJvmId("jvmId"),
+                    Matchers.equalTo(List.of(resolvedServiceRef)));
+            Mockito.verify(dao, Mockito.times(2))
+                    .update(Mockito.eq(id), Mockito.any(EnvironmentNode.class));
+        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.discovery.BaseNodeType;
+import io.cryostat.platform.discovery.EnvironmentNode;
+import io.cryostat.platform.discovery.TargetNode;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+class DiscoveryTreeDiffTest {
+
+    static ServiceRef ref(String jvmId, int port) {
+        String url = String.format("service:jmx:rmi:///jndi/rmi://localhost:%d/jmxrmi", port);
+        URI uri = URI.create(url);
+        return new ServiceRef(jvmId, uri, "alias-" + port);
+    }
+
+    static TargetNode target(ServiceRef ref) {
+        return new TargetNode(BaseNodeType.JVM, ref);
+    }
+
+    @Test
+    void reportsIdenticalTreesAsUnchanged() {
+        EnvironmentNode prev =
+                new EnvironmentNode(
+                        "realm", BaseNodeType.REALM, Map.of(), Set.of(target(ref("a", 1))));
+        EnvironmentNode curr =
+                new EnvironmentNode(
+                        "realm", BaseNodeType.REALM, Map.of(), Set.of(target(ref("a", 1))));
+
+        DiscoveryTreeDiff diff = DiscoveryTreeDiff.between(prev, curr);
+
+        MatcherAssert.assertThat(diff.isUnchanged(), Matchers.is(true));
+        MatcherAssert.assertThat(diff.found(), Matchers.empty());
+        MatcherAssert.assertThat(diff.lost(), Matchers.empty());
+        MatcherAssert.assertThat(diff.modified(), Matchers.empty());
+    }
+
+    @Test
+    void reportsFoundLostAndModifiedTargets() {
+        ServiceRef kept = ref("a", 1);
+        ServiceRef removed = ref("b", 2);
+        ServiceRef changedBefore = ref(null, 3);
+        ServiceRef changedAfter = ref("c", 3);
+        ServiceRef added = ref("d", 4);
+
+        EnvironmentNode prev =
+                new EnvironmentNode(
+                        "realm",
+                        BaseNodeType.REALM,
+                        Map.of(),
+                        Set.of(
+                                new EnvironmentNode(
+                                        "ns",
+                                        BaseNodeType.AGENT,
+                                        Map.of(),
+                                        Set.of(target(kept), target(removed))),
+                                target(changedBefore)));
+        EnvironmentNode curr =
+                new EnvironmentNode(
+                        "realm",
+                        BaseNodeType.REALM,
+                        Map.of(),
+                        Set.of(
+                                new EnvironmentNode(
+                                        "ns",
+                                        BaseNodeType.AGENT,
+                                        Map.of(),
+                                        Set.of(target(kept), target(added))),
+                                target(changedAfter)));
+
+        DiscoveryTreeDiff diff = DiscoveryTreeDiff.between(prev, curr);
+
+        MatcherAssert.assertThat(diff.isUnchanged(), Matchers.is(false));
+        MatcherAssert.assertThat(diff.found(), Matchers.contains(added));
+        MatcherAssert.assertThat(diff.lost(), Matchers.contains(removed));
+        MatcherAssert.assertThat(diff.modified(), Matchers.contains(changedAfter));
+    }
+
+    @Test
+    void doesNotReportTargetsMovedBetweenSubtrees() {
+        ServiceRef moved = ref("a", 1);
+
+        EnvironmentNode prev =
+                new EnvironmentNode(
+                        "realm",
+                        BaseNodeType.REALM,
+                        Map.of(),
+                        Set.of(
+                                new EnvironmentNode(
+                                        "first",
+                                        BaseNodeType.AGENT,
+                                        Map.of(),
+                                        Set.of(target(moved)))));
+        EnvironmentNode curr =
+                new EnvironmentNode(
+                        "realm",
+                        BaseNodeType.REALM,
+                        Map.of(),
+                        Set.of(
+                                new EnvironmentNode(
+                                        "second",
+                                        BaseNodeType.AGENT,
+                                        Map.of(),
+                                        Set.of(target(moved)))));
+
+        DiscoveryTreeDiff diff = DiscoveryTreeDiff.between(prev, curr);
+
+        MatcherAssert.assertThat(diff.isUnchanged(), Matchers.is(false));
+        MatcherAssert.assertThat(diff.found(), Matchers.empty());
+        MatcherAssert.assertThat(diff.lost(), Matchers.empty());
+        MatcherAssert.assertThat(diff.modified(), Matchers.empty());
+    }
+}
@@ -23,6 +23,8 @@ import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
@@ -37,6 +39,7 @@ import io.cryostat.net.AuthManager;
 import io.cryostat.net.AuthenticatedAction;
 import io.cryostat.net.HttpServer;
 import io.cryostat.net.web.http.HttpMimeType;
+import io.cryostat.recordings.JvmIdHelper;
 
 import com.google.gson.Gson;
 import io.vertx.core.Handler;
@@ -67,6 +70,7 @@ class MessagingServerTest {
     @Mock Notification notification;
     @Mock Notification.Builder notificationBuilder;
     @Mock AuthenticatedAction authAction;
+    @Mock JvmIdHelper jvmIdHelper;
 
     @BeforeEach
     void setup() {
@@ -104,7 +108,9 @@ class MessagingServerTest {
                         env,
                         authManager,
                         notificationFactory,
+                        () -> jvmIdHelper,
                         2,
+                        16,
                         clock,
                         logger,
                         gson);
@@ -236,7 +242,10 @@ class MessagingServerTest {
         verify(authAction).onSuccess(authSuccessCaptor.capture());
         authSuccessCaptor.getValue().run();
 
-        verify(sws).textMessageHandler(null);
+        // subsequent messages are subscriptions rather than authentication attempts
+        verify(sws, Mockito.times(2)).textMessageHandler(textMessageHandlerCaptor.capture());
+        textMessageHandlerCaptor.getValue().handle("{\"categories\":[\"foo\"]}");
+        verify(authManager).doAuthenticated(Mockito.any(), Mockito.any());
     }
 
     @Test
@@ -325,12 +334,81 @@ class MessagingServerTest {
         ArgumentCaptor<Runnable> authSuccessCaptor = ArgumentCaptor.forClass(Runnable.class);
         verify(authAction).onSuccess(authSuccessCaptor.capture());
         authSuccessCaptor.getValue().run();
-        verify(sws).textMessageHandler(null);
 
         closeHandlerCaptor.getValue().handle(null);
         verify(sws).close();
     }
 
+    @Test
+    void shouldOnlyWriteSubscribedCategories() throws Exception {
+        Handler<String> subscriptionHandler = connectAndAuthenticate();
+        subscriptionHandler.handle("{\"categories\":[\"Wanted\"]}");
+
+        server.writeMessage(notification("Unwanted", Map.of()));
+        verify(sws, Mockito.never()).writeTextMessage(Mockito.anyString());
+
+        server.writeMessage(notification("Wanted", Map.of()));
+        verify(sws, Mockito.times(1)).writeTextMessage(Mockito.anyString());
+    }
+
+    @Test
+    void shouldOnlyWriteSubscribedTargets() throws Exception {
+        Handler<String> subscriptionHandler = connectAndAuthenticate();
+        subscriptionHandler.handle(
+                "{\"targets\":[\"service:jmx:rmi:///a\"],\"jvmIds\":[\"id-c\"]}");
+        when(jvmIdHelper.getCachedJvmId("service:jmx:rmi:///b")).thenReturn(Optional.empty());
+        when(jvmIdHelper.getCachedJvmId("service:jmx:rmi:///c")).thenReturn(Optional.of("id-c"));
+
+        server.writeMessage(notification("Category", Map.of("target", "service:jmx:rmi:///b")));
+        verify(sws, Mockito.never()).writeTextMessage(Mockito.anyString());
+
+        server.writeMessage(notification("Category", Map.of("target", "service:jmx:rmi:///a")));
+        verify(sws, Mockito.times(1)).writeTextMessage(Mockito.anyString());
+
+        server.writeMessage(notification("Category", Map.of("target", "service:jmx:rmi:///c")));
+        verify(sws, Mockito.times(2)).writeTextMessage(Mockito.anyString());
+
+        // notifications which are not about any particular target are always written
+        server.writeMessage(notification("Category", Map.of("template", "foo")));
+        verify(sws, Mockito.times(3)).writeTextMessage(Mockito.anyString());
+    }
+
+    @Test
+    void shouldIgnoreInvalidSubscriptions() throws Exception {
+        Handler<String> subscriptionHandler = connectAndAuthenticate();
+        subscriptionHandler.handle("{\"categories\":[\"Wanted\"]}");
+        subscriptionHandler.handle("not json");
+
+        server.writeMessage(notification("Unwanted", Map.of()));
+        verify(sws, Mockito.never()).writeTextMessage(Mockito.anyString());
+    }
+
+    Handler<String> connectAndAuthenticate() throws Exception {
+        server.start();
+
+        ArgumentCaptor<Handler> websocketHandlerCaptor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(httpServer).websocketHandler(websocketHandlerCaptor.capture());
+        websocketHandlerCaptor.getValue().handle(sws);
+
+        ArgumentCaptor<Handler> textMessageHandlerCaptor = ArgumentCaptor.forClass(Handler.class);
+        verify(sws).textMessageHandler(textMessageHandlerCaptor.capture());
+        textMessageHandlerCaptor.getValue().handle("irrelevant");
+
+        ArgumentCaptor<Runnable> authSuccessCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(authAction).onSuccess(authSuccessCaptor.capture());
+        authSuccessCaptor.getValue().run();
+
+        verify(sws, Mockito.times(2)).textMessageHandler(textMessageHandlerCaptor.capture());
+        return textMessageHandlerCaptor.getValue();
+    }
+
+    static Notification notification(String category, Object message) {
+        Notification notification = Mockito.mock(Notification.class);
+        lenient().when(notification.getCategory()).thenReturn(category);
+        lenient().when(notification.getMessage()).thenReturn(message);
+        return notification;
+    }
+
     static class TestMessage {
         List<String> msgs;
 
@@ -0,0 +1,138 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.messaging;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Clock;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.net.SocketAddress;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WsClientTest {
+
+    static final String CATEGORY = "ActiveRecordingCreated";
+    static final String LOW_PRIORITY_CATEGORY = "WsClientActivity";
+
+    WsClient client;
+    @Mock Logger logger;
+    @Mock ServerWebSocket sws;
+    @Mock Clock clock;
+    @Mock SocketAddress addr;
+    Handler<Void> drainHandler;
+
+    @BeforeEach
+    void setup() {
+        Mockito.lenient().when(sws.remoteAddress()).thenReturn(addr);
+        Mockito.lenient().when(addr.host()).thenReturn("client");
+        Mockito.lenient().when(addr.port()).thenReturn(1234);
+        this.client = new WsClient(logger, sws, clock, 4);
+        this.client.setAccepted();
+
+        ArgumentCaptor<Handler<Void>> captor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(sws).drainHandler(captor.capture());
+        this.drainHandler = captor.getValue();
+    }
+
+    @Test
+    void shouldWriteDirectlyWhenNotBackpressured() {
+        client.writeMessage(CATEGORY, "a");
+
+        Mockito.verify(sws).writeTextMessage("a");
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(0));
+    }
+
+    @Test
+    void shouldQueueUntilDrainedInOrder() {
+        Mockito.when(sws.writeQueueFull()).thenReturn(true);
+        client.writeMessage(CATEGORY, "a");
+        client.writeMessage(CATEGORY, "b");
+        Mockito.verify(sws, Mockito.never()).writeTextMessage(Mockito.anyString());
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(2));
+
+        Mockito.when(sws.writeQueueFull()).thenReturn(false);
+        client.writeMessage(CATEGORY, "c");
+        drainHandler.handle(null);
+
+        InOrder inOrder = Mockito.inOrder(sws);
+        inOrder.verify(sws).writeTextMessage("a");
+        inOrder.verify(sws).writeTextMessage("b");
+        inOrder.verify(sws).writeTextMessage("c");
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(0));
+    }
+
+    @Test
+    void shouldDropLowPriorityMessagesUnderBackpressure() {
+        Mockito.when(sws.writeQueueFull()).thenReturn(true);
+        client.writeMessage(CATEGORY, "a");
+        client.writeMessage(LOW_PRIORITY_CATEGORY, "b");
+        client.writeMessage(CATEGORY, "c");
+        client.writeMessage(LOW_PRIORITY_CATEGORY, "d");
+
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(3));
+        MatcherAssert.assertThat(client.getDroppedMessages(), Matchers.equalTo(1L));
+
+        client.writeMessage(CATEGORY, "e");
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(4));
+        // the queue is full, so the queued low priority message makes room
+        client.writeMessage(CATEGORY, "f");
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(4));
+        MatcherAssert.assertThat(client.getDroppedMessages(), Matchers.equalTo(2L));
+        Mockito.verify(sws, Mockito.never()).close(Mockito.anyShort(), Mockito.anyString());
+
+        Mockito.when(sws.writeQueueFull()).thenReturn(false);
+        drainHandler.handle(null);
+        InOrder inOrder = Mockito.inOrder(sws);
+        inOrder.verify(sws).writeTextMessage("a");
+        inOrder.verify(sws).writeTextMessage("c");
+        inOrder.verify(sws).writeTextMessage("e");
+        inOrder.verify(sws).writeTextMessage("f");
+        Mockito.verify(sws, Mockito.never()).writeTextMessage("b");
+        Mockito.verify(sws, Mockito.never()).writeTextMessage("d");
+    }
+
+    @Test
+    void shouldDisconnectSlowConsumer() {
+        Mockito.when(sws.writeQueueFull()).thenReturn(true);
+        for (int i = 0; i < 5; i++) {
+            client.writeMessage(CATEGORY, String.valueOf(i));
+        }
+
+        Mockito.verify(sws).close((short) 1013, "Too many pending notifications");
+        MatcherAssert.assertThat(client.getQueueDepth(), Matchers.equalTo(0));
+
+        client.writeMessage(CATEGORY, "after");
+        Mockito.verify(sws, Mockito.never()).writeTextMessage(Mockito.anyString());
+    }
+
+    @Test
+    void shouldNotWriteBeforeAccepted() {
+        WsClient limbo = new WsClient(logger, sws, clock, 4);
+        limbo.writeMessage(CATEGORY, "a");
+        Mockito.verify(sws, Mockito.never()).writeTextMessage(Mockito.anyString());
+    }
+}
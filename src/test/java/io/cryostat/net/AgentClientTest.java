@@ -0,0 +1,199 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.DirectExecutorService;
+import io.cryostat.MainModule;
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.configuration.CredentialsManager.CredentialsEvent;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.Credentials;
+import io.cryostat.util.events.Event;
+import io.cryostat.util.events.EventListener;
+
+import com.google.gson.Gson;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class AgentClientTest {
+
+    static final URI AGENT_URI = URI.create("http://agent:9977");
+
+    @Mock WebClient webClient;
+    @Mock WebClient tlsWebClient;
+    @Mock HttpRequest<Buffer> request;
+    @Mock HttpResponse<Buffer> response;
+    @Mock CredentialsManager credentialsManager;
+    @Mock Logger logger;
+    Gson gson = MainModule.provideGson(logger);
+    EventListener<CredentialsEvent, String> credentialsListener;
+    AgentClient.Factory factory;
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.factory =
+                new AgentClient.Factory(
+                        new DirectExecutorService(),
+                        gson,
+                        10,
+                        webClient,
+                        tlsWebClient,
+                        credentialsManager,
+                        logger);
+        ArgumentCaptor<EventListener<CredentialsEvent, String>> listenerCaptor =
+                ArgumentCaptor.forClass(EventListener.class);
+        Mockito.verify(credentialsManager).addListener(listenerCaptor.capture());
+        this.credentialsListener = listenerCaptor.getValue();
+
+        Mockito.when(
+                        webClient.request(
+                                Mockito.any(HttpMethod.class),
+                                Mockito.anyInt(),
+                                Mockito.anyString(),
+                                Mockito.anyString()))
+                .thenReturn(request);
+        Mockito.when(request.ssl(Mockito.anyBoolean())).thenReturn(request);
+        Mockito.when(request.timeout(Mockito.anyLong())).thenReturn(request);
+        Mockito.when(request.followRedirects(Mockito.anyBoolean())).thenReturn(request);
+        Mockito.when(request.authentication(Mockito.any())).thenReturn(request);
+        Mockito.doReturn(request).when(request).as(Mockito.any());
+        Mockito.when(request.send()).thenReturn(Future.succeededFuture(response));
+    }
+
+    void givenStoredCredentials() throws Exception {
+        Mockito.when(credentialsManager.getCredentialsByTargetId(AGENT_URI.toString()))
+                .thenReturn(new Credentials("user", "pass"));
+    }
+
+    static boolean ping(AgentClient client) throws Exception {
+        return client.ping().toCompletionStage().toCompletableFuture().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldReuseCredentialsWithinSession() throws Exception {
+        givenStoredCredentials();
+        Mockito.when(response.statusCode()).thenReturn(200);
+        AgentClient client = factory.create(AGENT_URI);
+
+        MatcherAssert.assertThat(ping(client), Matchers.equalTo(true));
+        MatcherAssert.assertThat(ping(client), Matchers.equalTo(true));
+
+        Mockito.verify(credentialsManager, Mockito.times(1))
+                .getCredentialsByTargetId(AGENT_URI.toString());
+        Mockito.verify(request, Mockito.times(2)).send();
+    }
+
+    @Test
+    void shouldResolveCredentialsAgainAfterUnauthorizedResponse() throws Exception {
+        givenStoredCredentials();
+        Mockito.when(response.statusCode()).thenReturn(401).thenReturn(200);
+        AgentClient client = factory.create(AGENT_URI);
+
+        MatcherAssert.assertThat(ping(client), Matchers.equalTo(false));
+        MatcherAssert.assertThat(ping(client), Matchers.equalTo(true));
+        MatcherAssert.assertThat(ping(client), Matchers.equalTo(true));
+
+        Mockito.verify(credentialsManager, Mockito.times(2))
+                .getCredentialsByTargetId(AGENT_URI.toString());
+    }
+
+    @Test
+    void shouldResolveCredentialsAgainWhenStoredCredentialsChange() throws Exception {
+        givenStoredCredentials();
+        Mockito.when(response.statusCode()).thenReturn(200);
+        AgentClient client = factory.create(AGENT_URI);
+        AgentClient other = factory.create(URI.create("http://other:9977"));
+        Mockito.when(credentialsManager.getCredentialsByTargetId("http://other:9977"))
+                .thenReturn(new Credentials("user", "pass"));
+        ping(client);
+        ping(other);
+
+        credentialsListener.onEvent(new Event<>(CredentialsEvent.ADDED, "true"));
+        ping(client);
+        ping(client);
+        ping(other);
+
+        Mockito.verify(credentialsManager, Mockito.times(2))
+                .getCredentialsByTargetId(AGENT_URI.toString());
+        Mockito.verify(credentialsManager, Mockito.times(2))
+                .getCredentialsByTargetId("http://other:9977");
+    }
+
+    @Test
+    void shouldUseTlsClientForHttpsAgents() throws Exception {
+        givenStoredCredentials();
+        URI secureUri = URI.create("https://secure:9977");
+        Mockito.when(credentialsManager.getCredentialsByTargetId(secureUri.toString()))
+                .thenReturn(new Credentials("user", "pass"));
+        Mockito.when(
+                        tlsWebClient.request(
+                                Mockito.any(HttpMethod.class),
+                                Mockito.anyInt(),
+                                Mockito.anyString(),
+                                Mockito.anyString()))
+                .thenReturn(request);
+        Mockito.when(response.statusCode()).thenReturn(200);
+
+        ping(factory.create(AGENT_URI));
+        ping(factory.create(secureUri));
+
+        Mockito.verify(webClient)
+                .request(
+                        Mockito.any(HttpMethod.class),
+                        Mockito.eq(9977),
+                        Mockito.eq("agent"),
+                        Mockito.anyString());
+        Mockito.verify(tlsWebClient)
+                .request(
+                        Mockito.any(HttpMethod.class),
+                        Mockito.eq(9977),
+                        Mockito.eq("secure"),
+                        Mockito.anyString());
+        Mockito.verifyNoMoreInteractions(webClient, tlsWebClient);
+    }
+
+    @Test
+    void shouldNotReuseFailedCredentialsLookup() throws Exception {
+        Mockito.when(credentialsManager.getCredentialsByTargetId(AGENT_URI.toString()))
+                .thenReturn(null)
+                .thenReturn(new Credentials("user", "pass"));
+        Mockito.when(response.statusCode()).thenReturn(200);
+        AgentClient client = factory.create(AGENT_URI);
+
+        Assertions.assertThrows(Exception.class, () -> ping(client));
+        MatcherAssert.assertThat(ping(client), Matchers.equalTo(true));
+
+        Mockito.verify(request, Mockito.times(1)).send();
+    }
+}
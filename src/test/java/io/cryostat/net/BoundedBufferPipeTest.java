@@ -0,0 +1,94 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class BoundedBufferPipeTest {
+
+    @Mock Handler<Void> drainHandler;
+    BoundedBufferPipe pipe;
+
+    @BeforeEach
+    void setup() {
+        this.pipe = new BoundedBufferPipe(8);
+        pipe.drainHandler(drainHandler);
+    }
+
+    @Test
+    void shouldPassWrittenDataToReader() throws IOException {
+        pipe.write(Buffer.buffer("hello "));
+        pipe.write(Buffer.buffer("world"));
+        pipe.end();
+
+        MatcherAssert.assertThat(
+                new String(pipe.inputStream().readAllBytes()), Matchers.equalTo("hello world"));
+    }
+
+    @Test
+    void shouldSignalFullAndDrainAsReaderConsumes() throws IOException {
+        pipe.write(Buffer.buffer("12345"));
+        MatcherAssert.assertThat(pipe.writeQueueFull(), Matchers.is(false));
+        pipe.write(Buffer.buffer("67890"));
+        MatcherAssert.assertThat(pipe.writeQueueFull(), Matchers.is(true));
+
+        InputStream in = pipe.inputStream();
+        in.readNBytes(5);
+        Mockito.verifyNoInteractions(drainHandler);
+
+        in.readNBytes(1);
+        Mockito.verify(drainHandler).handle(null);
+        MatcherAssert.assertThat(pipe.writeQueueFull(), Matchers.is(false));
+    }
+
+    @Test
+    void shouldReportFailureAfterPrecedingData() throws IOException {
+        pipe.write(Buffer.buffer("abc"));
+        pipe.fail(new IllegalStateException("connection reset"));
+
+        InputStream in = pipe.inputStream();
+        MatcherAssert.assertThat(new String(in.readNBytes(3)), Matchers.equalTo("abc"));
+        IOException ioe = Assertions.assertThrows(IOException.class, in::read);
+        MatcherAssert.assertThat(
+                ioe.getCause(), Matchers.instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    void shouldDiscardWritesAndDrainAfterReaderCloses() throws IOException {
+        pipe.write(Buffer.buffer("123456789"));
+        MatcherAssert.assertThat(pipe.writeQueueFull(), Matchers.is(true));
+
+        pipe.inputStream().close();
+
+        Mockito.verify(drainHandler).handle(null);
+        pipe.write(Buffer.buffer("123456789"));
+        MatcherAssert.assertThat(pipe.writeQueueFull(), Matchers.is(false));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.net.ConnectionAdmissionController.Priority;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionAdmissionControllerTest {
+
+    @Mock Runnable onPressure;
+    @Mock Logger logger;
+    ConnectionAdmissionController controller;
+
+    @BeforeEach
+    void setup() {
+        this.controller =
+                new ConnectionAdmissionController(1, Duration.ofSeconds(10), onPressure, logger);
+    }
+
+    @Test
+    void shouldAdmitImmediatelyWhenBelowLimit() {
+        CompletableFuture<Void> admitted = controller.acquire(Priority.BACKGROUND);
+
+        MatcherAssert.assertThat(admitted.isDone(), Matchers.is(true));
+        MatcherAssert.assertThat(controller.getQueueDepth(), Matchers.equalTo(0));
+        Mockito.verifyNoInteractions(onPressure);
+    }
+
+    @Test
+    void shouldQueueAndSignalPressureWhenAtLimit() {
+        controller.acquire(Priority.INTERACTIVE);
+
+        CompletableFuture<Void> queued = controller.acquire(Priority.INTERACTIVE);
+
+        MatcherAssert.assertThat(queued.isDone(), Matchers.is(false));
+        MatcherAssert.assertThat(controller.getQueueDepth(), Matchers.equalTo(1));
+        Mockito.verify(onPressure).run();
+
+        controller.release();
+
+        MatcherAssert.assertThat(queued.isDone(), Matchers.is(true));
+        MatcherAssert.assertThat(controller.getQueueDepth(), Matchers.equalTo(0));
+    }
+
+    @Test
+    void shouldAdmitInteractiveRequestsBeforeBackground() {
+        controller.acquire(Priority.INTERACTIVE);
+        CompletableFuture<Void> background = controller.acquire(Priority.BACKGROUND);
+        CompletableFuture<Void> interactive = controller.acquire(Priority.INTERACTIVE);
+
+        controller.release();
+
+        MatcherAssert.assertThat(interactive.isDone(), Matchers.is(true));
+        MatcherAssert.assertThat(background.isDone(), Matchers.is(false));
+
+        controller.release();
+
+        MatcherAssert.assertThat(background.isDone(), Matchers.is(true));
+    }
+
+    @Test
+    void shouldTimeOutAndPassSlotToNextRequest() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(1, Duration.ofMillis(1), onPressure, logger);
+        controller.acquire(Priority.INTERACTIVE);
+        CompletableFuture<Void> timedOut = controller.acquire(Priority.INTERACTIVE);
+
+        ExecutionException ee = Assertions.assertThrows(ExecutionException.class, timedOut::get);
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(TimeoutException.class));
+        MatcherAssert.assertThat(controller.getQueueDepth(), Matchers.equalTo(0));
+
+        controller.release();
+
+        MatcherAssert.assertThat(
+                controller.acquire(Priority.BACKGROUND).isDone(), Matchers.is(true));
+    }
+}
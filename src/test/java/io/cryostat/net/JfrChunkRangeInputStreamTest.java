@@ -0,0 +1,99 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class JfrChunkRangeInputStreamTest {
+
+    @Test
+    void shouldPassOnlyOverlappingChunks() throws IOException {
+        byte[] first = chunk(1_000, 100, (byte) 1);
+        byte[] second = chunk(2_000, 100, (byte) 2);
+        byte[] third = chunk(3_000, 100, (byte) 3);
+
+        InputStream in =
+                new JfrChunkRangeInputStream(
+                        new ByteArrayInputStream(concat(first, second, third)), 1_050, 2_500);
+
+        MatcherAssert.assertThat(in.readAllBytes(), Matchers.equalTo(concat(first, second)));
+    }
+
+    @Test
+    void shouldProduceEmptyStreamIfNoChunksOverlap() throws IOException {
+        InputStream in =
+                new JfrChunkRangeInputStream(
+                        new ByteArrayInputStream(chunk(1_000, 100, (byte) 1)), 5_000, 6_000);
+
+        MatcherAssert.assertThat(in.readAllBytes().length, Matchers.equalTo(0));
+    }
+
+    @Test
+    void shouldRejectNonJfrData() {
+        InputStream in =
+                new JfrChunkRangeInputStream(
+                        new ByteArrayInputStream(new byte[64]), 0, Long.MAX_VALUE);
+
+        Assertions.assertThrows(IOException.class, in::readAllBytes);
+    }
+
+    @Test
+    void shouldRejectTruncatedChunk() {
+        byte[] chunk = chunk(1_000, 100, (byte) 1);
+        byte[] truncated = new byte[chunk.length - 4];
+        System.arraycopy(chunk, 0, truncated, 0, truncated.length);
+        InputStream in =
+                new JfrChunkRangeInputStream(
+                        new ByteArrayInputStream(truncated), 0, Long.MAX_VALUE);
+
+        Assertions.assertThrows(IOException.class, in::readAllBytes);
+    }
+
+    private static byte[] chunk(long startNanos, long durationNanos, byte fill) {
+        int bodyLength = 32;
+        ByteBuffer buf =
+                ByteBuffer.allocate(JfrChunkRangeInputStream.HEADER_PREFIX_LENGTH + bodyLength);
+        buf.put(new byte[] {'F', 'L', 'R', 0});
+        buf.putShort((short) 2);
+        buf.putShort((short) 1);
+        buf.putLong(buf.capacity());
+        buf.putLong(0);
+        buf.putLong(0);
+        buf.putLong(startNanos);
+        buf.putLong(durationNanos);
+        while (buf.hasRemaining()) {
+            buf.put(fill);
+        }
+        return buf.array();
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] a : arrays) {
+            out.writeBytes(a);
+        }
+        return out.toByteArray();
+    }
+}
@@ -17,7 +17,12 @@ package io.cryostat.net;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.management.remote.JMXServiceURL;
 
@@ -25,11 +30,13 @@ import io.cryostat.DirectExecutor;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.net.JFRConnectionToolkit;
+import io.cryostat.net.TargetConnectionManager.ConnectedTask;
 import io.cryostat.platform.PlatformClient;
 
 import com.github.benmanes.caffeine.cache.Scheduler;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -64,6 +71,9 @@ class TargetConnectionManagerTest {
                         TTL,
                         -1,
                         10,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
                         logger);
     }
 
@@ -106,6 +116,36 @@ class TargetConnectionManagerTest {
                 });
     }
 
+    @Test
+    void shouldRunNestedReadOnlyTasksWithinReadOnlyTasks() throws Exception {
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(Mockito.mock(JFRConnection.class));
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+
+        boolean nested =
+                mgr.executeReadOnlyTask(
+                        desc, conn1 -> mgr.executeReadOnlyTask(desc, conn2 -> true));
+
+        MatcherAssert.assertThat(nested, Matchers.is(true));
+    }
+
+    @Test
+    void shouldRejectNestedMutatingTasksWithinReadOnlyTasks() throws Exception {
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(Mockito.mock(JFRConnection.class));
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () ->
+                        mgr.executeReadOnlyTask(
+                                desc, conn1 -> mgr.executeConnectedTask(desc, conn2 -> true)));
+        // the read lock was released despite the failure
+        MatcherAssert.assertThat(mgr.executeConnectedTask(desc, conn -> true), Matchers.is(true));
+    }
+
     @Test
     void shouldReuseConnectionInSequentialAccessWithoutDelay() throws Exception {
         Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
@@ -158,6 +198,9 @@ class TargetConnectionManagerTest {
                         Duration.ofNanos(1),
                         1,
                         10,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
                         logger);
         Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenAnswer(
@@ -188,6 +231,9 @@ class TargetConnectionManagerTest {
                         Duration.ofNanos(1),
                         -1,
                         10,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
                         logger);
         Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenAnswer(
@@ -207,6 +253,235 @@ class TargetConnectionManagerTest {
         MatcherAssert.assertThat(conn1, Matchers.not(Matchers.sameInstance(conn2)));
     }
 
+    @Test
+    void shouldRunReadOnlyTasksConcurrently() throws Exception {
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(Mockito.mock(JFRConnection.class));
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        ConnectedTask<Boolean> task =
+                conn -> {
+                    bothRunning.countDown();
+                    // only returns true if the other task entered while this one was running
+                    return bothRunning.await(5, TimeUnit.SECONDS);
+                };
+
+        CompletableFuture<Boolean> first =
+                CompletableFuture.supplyAsync(
+                        () -> readOnly(mgr, desc, task), ForkJoinPool.commonPool());
+        boolean second = mgr.executeReadOnlyTask(desc, task);
+
+        MatcherAssert.assertThat(second, Matchers.is(true));
+        MatcherAssert.assertThat(first.get(), Matchers.is(true));
+    }
+
+    @Test
+    void shouldTimeOutWaitingForExclusiveAccess() throws Exception {
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(Mockito.mock(JFRConnection.class));
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        platformClient,
+                        new DirectExecutor(),
+                        Scheduler.disabledScheduler(),
+                        TTL,
+                        -1,
+                        10,
+                        Duration.ofMillis(50),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
+                        logger);
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> reader =
+                CompletableFuture.supplyAsync(
+                        () ->
+                                readOnly(
+                                        mgr,
+                                        desc,
+                                        conn -> {
+                                            reading.countDown();
+                                            return release.await(5, TimeUnit.SECONDS);
+                                        }),
+                        ForkJoinPool.commonPool());
+        reading.await(5, TimeUnit.SECONDS);
+
+        try {
+            Assertions.assertThrows(
+                    TimeoutException.class, () -> mgr.executeConnectedTask(desc, conn -> null));
+        } finally {
+            release.countDown();
+        }
+        reader.get(5, TimeUnit.SECONDS);
+
+        MatcherAssert.assertThat(mgr.executeConnectedTask(desc, conn -> true), Matchers.is(true));
+    }
+
+    @Test
+    void shouldReopenDeadConnectionsForRecentlyUsedTargets() throws Exception {
+        JFRConnection conn1 = Mockito.mock(JFRConnection.class);
+        JFRConnection conn2 = Mockito.mock(JFRConnection.class);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(conn1)
+                .thenReturn(conn2);
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        MatcherAssert.assertThat(
+                mgr.executeConnectedTask(desc, a -> a), Matchers.sameInstance(conn1));
+
+        Mockito.when(conn1.isConnected()).thenReturn(false);
+        mgr.checkConnections();
+
+        Mockito.verify(conn1).close();
+        Mockito.verify(jfrConnectionToolkit, Mockito.times(2))
+                .connect(Mockito.any(), Mockito.any(), Mockito.any());
+        MatcherAssert.assertThat(
+                mgr.executeConnectedTask(desc, a -> a), Matchers.sameInstance(conn2));
+    }
+
+    @Test
+    void shouldNotReopenConnectionsWithoutRecentDemand() throws Exception {
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        platformClient,
+                        new DirectExecutor(),
+                        Scheduler.disabledScheduler(),
+                        TTL,
+                        -1,
+                        10,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ZERO,
+                        logger);
+        JFRConnection conn = Mockito.mock(JFRConnection.class);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(conn);
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        mgr.executeConnectedTask(desc, a -> a);
+        Thread.sleep(1);
+
+        Mockito.when(conn.isConnected()).thenReturn(false);
+        mgr.checkConnections();
+
+        Mockito.verify(conn).close();
+        Mockito.verify(jfrConnectionToolkit, Mockito.times(1))
+                .connect(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldOnlyPingConnectionsIdleSinceLastPass() throws Exception {
+        JFRConnection conn = Mockito.mock(JFRConnection.class);
+        Mockito.when(conn.isConnected()).thenReturn(true);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(conn);
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        mgr.executeConnectedTask(desc, a -> a);
+
+        mgr.checkConnections();
+        Mockito.verify(conn, Mockito.never()).getJvmId();
+
+        mgr.checkConnections();
+        Mockito.verify(conn, Mockito.times(1)).getJvmId();
+    }
+
+    @Test
+    void shouldNotReopenPreemptedConnections() throws Exception {
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        platformClient,
+                        ForkJoinPool.commonPool(),
+                        Scheduler.disabledScheduler(),
+                        Duration.ofSeconds(60),
+                        1,
+                        10,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
+                        logger);
+        JFRConnection conn1 = Mockito.mock(JFRConnection.class);
+        JFRConnection conn2 = Mockito.mock(JFRConnection.class);
+        Mockito.when(conn2.isConnected()).thenReturn(true);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(conn1)
+                .thenReturn(conn2);
+        ConnectionDescriptor desc1 =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        ConnectionDescriptor desc2 =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://example:1/jmxrmi");
+        long idle = TargetConnectionManager.MIN_IDLE_TIME.toMillis() + 10;
+
+        mgr.executeConnectedTask(desc1, a -> a);
+        Thread.sleep(idle);
+        // the connection limit is reached, so the idle connection to desc1 is closed
+        mgr.executeConnectedTask(desc2, a -> a);
+        Mockito.verify(conn1, Mockito.timeout(1_000)).close();
+
+        Thread.sleep(idle);
+        mgr.checkConnections();
+
+        Mockito.verify(conn2, Mockito.never()).close();
+        Mockito.verify(jfrConnectionToolkit, Mockito.times(2))
+                .connect(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldCloseAndReleaseConnectionsWhichCompleteAfterTimingOut() throws Exception {
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        platformClient,
+                        ForkJoinPool.commonPool(),
+                        Scheduler.disabledScheduler(),
+                        Duration.ofSeconds(60),
+                        1,
+                        1,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
+                        logger);
+        JFRConnection slow = Mockito.mock(JFRConnection.class);
+        JFRConnection fast = Mockito.mock(JFRConnection.class);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        invocation -> {
+                            Thread.sleep(1_500);
+                            return slow;
+                        })
+                .thenReturn(fast);
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+
+        Assertions.assertThrows(
+                ExecutionException.class, () -> mgr.executeConnectedTask(desc, a -> a));
+        Mockito.verify(slow, Mockito.timeout(2_000)).close();
+
+        // the only admission slot was returned, so this does not have to queue
+        MatcherAssert.assertThat(
+                mgr.executeConnectedTask(desc, a -> a), Matchers.sameInstance(fast));
+    }
+
+    private static <T> T readOnly(
+            TargetConnectionManager mgr, ConnectionDescriptor desc, ConnectedTask<T> task) {
+        try {
+            return mgr.executeReadOnlyTask(desc, task);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(
             strings = {
@@ -227,6 +502,9 @@ class TargetConnectionManagerTest {
                         Duration.ofNanos(1),
                         -1,
                         10,
+                        Duration.ofSeconds(10),
+                        Duration.ZERO,
+                        Duration.ofSeconds(60),
                         logger);
         ConnectionDescriptor desc = new ConnectionDescriptor(url);
         JFRConnection conn = mgr.executeConnectedTask(desc, a -> a);
@@ -0,0 +1,175 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net.reports;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Environment;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.net.reports.RemoteReportGenerator.Endpoint;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RemoteReportGeneratorTest {
+
+    @Mock TargetConnectionManager targetConnectionManager;
+    @Mock FileSystem fs;
+    @Mock Vertx vertx;
+    @Mock WebClient http;
+    @Mock Environment env;
+    @Mock SubprocessReportGenerator localGenerator;
+    @Mock ActiveRecordingDescriptorCache descriptorCache;
+    @Mock Logger logger;
+
+    RemoteReportGenerator createGenerator(String urls) {
+        Mockito.when(env.getEnv(Mockito.eq("CRYOSTAT_REPORT_GENERATOR"), Mockito.anyString()))
+                .thenReturn(urls);
+        return new RemoteReportGenerator(
+                targetConnectionManager,
+                descriptorCache,
+                fs,
+                vertx,
+                http,
+                env,
+                () -> localGenerator,
+                30,
+                logger);
+    }
+
+    @Test
+    void shouldParseEndpointList() {
+        RemoteReportGenerator generator =
+                createGenerator("http://reports-1:10001/, http://reports-2:10001");
+
+        MatcherAssert.assertThat(
+                generator.acquireEndpoint().get().url, Matchers.equalTo("http://reports-1:10001"));
+        MatcherAssert.assertThat(
+                generator.acquireEndpoint().get().url, Matchers.equalTo("http://reports-2:10001"));
+        Mockito.verify(vertx).setPeriodic(Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    void shouldPreferEndpointWithFewestOutstandingRequests() {
+        RemoteReportGenerator generator = createGenerator("http://a,http://b,http://c");
+
+        Endpoint a = generator.acquireEndpoint().get();
+        Endpoint b = generator.acquireEndpoint().get();
+        Endpoint c = generator.acquireEndpoint().get();
+        b.onSuccess();
+
+        MatcherAssert.assertThat(generator.acquireEndpoint().get(), Matchers.sameInstance(b));
+        MatcherAssert.assertThat(a.url, Matchers.equalTo("http://a"));
+        MatcherAssert.assertThat(c.url, Matchers.equalTo("http://c"));
+    }
+
+    @Test
+    void shouldSkipUnhealthyEndpoints() {
+        RemoteReportGenerator generator = createGenerator("http://a,http://b");
+
+        Endpoint a = generator.acquireEndpoint().get();
+        a.release();
+        a.onProbe(false);
+
+        MatcherAssert.assertThat(
+                generator.acquireEndpoint().get().url, Matchers.equalTo("http://b"));
+    }
+
+    @Test
+    void shouldOpenCircuitAfterConsecutiveFailures() {
+        Endpoint endpoint = new Endpoint("http://a");
+        for (int i = 0; i < RemoteReportGenerator.FAILURE_THRESHOLD; i++) {
+            MatcherAssert.assertThat(endpoint.tryAcquire(System.nanoTime()), Matchers.is(true));
+            endpoint.onFailure();
+        }
+        MatcherAssert.assertThat(endpoint.tryAcquire(System.nanoTime()), Matchers.is(false));
+
+        // after the circuit has been open long enough, a single trial request is let through
+        long later =
+                System.nanoTime()
+                        + TimeUnit.SECONDS.toNanos(RemoteReportGenerator.CIRCUIT_OPEN_SECONDS + 1);
+        MatcherAssert.assertThat(endpoint.tryAcquire(later), Matchers.is(true));
+        MatcherAssert.assertThat(endpoint.tryAcquire(later), Matchers.is(false));
+
+        endpoint.onSuccess();
+        MatcherAssert.assertThat(endpoint.tryAcquire(System.nanoTime()), Matchers.is(true));
+        MatcherAssert.assertThat(endpoint.tryAcquire(System.nanoTime()), Matchers.is(true));
+    }
+
+    @Test
+    void shouldNotCloseCircuitOnHealthyProbe() {
+        Endpoint endpoint = new Endpoint("http://a");
+        for (int i = 0; i < RemoteReportGenerator.FAILURE_THRESHOLD; i++) {
+            endpoint.tryAcquire(System.nanoTime());
+            endpoint.onFailure();
+        }
+        endpoint.onProbe(true);
+        MatcherAssert.assertThat(endpoint.tryAcquire(System.nanoTime()), Matchers.is(false));
+
+        // the trial request still decides, and a failed trial re-opens the circuit
+        long later =
+                System.nanoTime()
+                        + TimeUnit.SECONDS.toNanos(RemoteReportGenerator.CIRCUIT_OPEN_SECONDS + 1);
+        MatcherAssert.assertThat(endpoint.tryAcquire(later), Matchers.is(true));
+        endpoint.onFailure();
+        endpoint.onProbe(true);
+        MatcherAssert.assertThat(endpoint.tryAcquire(System.nanoTime()), Matchers.is(false));
+    }
+
+    @Test
+    void shouldFallBackToLocalGenerationWithoutAvailableEndpoints() throws Exception {
+        RemoteReportGenerator generator = createGenerator("http://a");
+        Endpoint a = generator.acquireEndpoint().get();
+        a.release();
+        a.onProbe(false);
+
+        Path recording = Mockito.mock(Path.class);
+        Path destination = Mockito.mock(Path.class);
+        CompletableFuture<Path> result = CompletableFuture.completedFuture(destination);
+        Mockito.when(localGenerator.exec(recording, destination, "")).thenReturn(result);
+
+        MatcherAssert.assertThat(
+                generator.exec(recording, destination, ""), Matchers.sameInstance(result));
+        Mockito.verifyNoInteractions(http);
+    }
+
+    @Test
+    void shouldFallBackToLocalGenerationWithoutConfiguredEndpoints() throws Exception {
+        RemoteReportGenerator generator = createGenerator("");
+
+        Path recording = Mockito.mock(Path.class);
+        Path destination = Mockito.mock(Path.class);
+        CompletableFuture<Path> result = CompletableFuture.completedFuture(destination);
+        Mockito.when(localGenerator.exec(recording, destination, "")).thenReturn(result);
+
+        MatcherAssert.assertThat(
+                generator.exec(recording, destination, ""), Matchers.sameInstance(result));
+        Mockito.verifyNoInteractions(vertx, http);
+    }
+}
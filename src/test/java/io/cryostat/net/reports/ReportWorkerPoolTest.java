@@ -0,0 +1,184 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net.reports;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Environment;
+import io.cryostat.net.reports.SubprocessReportGenerator.ExitStatus;
+import io.cryostat.util.JavaProcess;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReportWorkerPoolTest {
+
+    @Mock Environment env;
+    @Mock JavaProcess.Builder javaProcessBuilder;
+    @Mock Logger logger;
+    @Mock Process proc;
+    ReportWorkerPool pool;
+
+    Path recording = Paths.get("/tmp/recording.jfr");
+    Path saveFile = Paths.get("/tmp/report.json");
+
+    @BeforeEach
+    void setup() throws Exception {
+        Mockito.lenient()
+                .when(javaProcessBuilder.klazz(Mockito.any(Class.class)))
+                .thenReturn(javaProcessBuilder);
+        Mockito.lenient()
+                .when(javaProcessBuilder.jvmArgs(Mockito.anyList()))
+                .thenReturn(javaProcessBuilder);
+        Mockito.lenient()
+                .when(javaProcessBuilder.processArgs(Mockito.anyList()))
+                .thenReturn(javaProcessBuilder);
+        Mockito.lenient()
+                .when(javaProcessBuilder.inheritIO(Mockito.anyBoolean()))
+                .thenReturn(javaProcessBuilder);
+        Mockito.lenient().when(javaProcessBuilder.exec()).thenReturn(proc);
+        Mockito.lenient()
+                .when(env.getEnv(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("0");
+        Mockito.lenient().when(proc.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        Mockito.lenient().when(proc.isAlive()).thenReturn(true);
+        Mockito.lenient().when(proc.waitFor(Mockito.anyLong(), Mockito.any())).thenReturn(true);
+        this.pool = new ReportWorkerPool(env, () -> javaProcessBuilder, 1, 2, 60, logger);
+    }
+
+    void respond(ExitStatus... statuses) {
+        StringBuilder sb = new StringBuilder();
+        for (ExitStatus status : statuses) {
+            sb.append(String.format("{\"status\":%d}\n", status.code));
+        }
+        Mockito.when(proc.getInputStream())
+                .thenReturn(
+                        new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    ExitStatus submit() throws Exception {
+        return pool.submit(recording, saveFile, "", 10, TimeUnit.SECONDS).get();
+    }
+
+    @Test
+    void shouldReuseWorkerForSubsequentJobs() throws Exception {
+        respond(ExitStatus.OK, ExitStatus.NO_SUCH_RECORDING);
+
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.OK));
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.NO_SUCH_RECORDING));
+
+        Mockito.verify(javaProcessBuilder, Mockito.times(1)).exec();
+        Mockito.verify(proc, Mockito.never()).destroy();
+    }
+
+    @Test
+    void shouldRetireWorkerAfterMaxJobs() throws Exception {
+        respond(ExitStatus.OK, ExitStatus.OK);
+        submit();
+        submit();
+        Mockito.verify(proc).destroy();
+
+        respond(ExitStatus.OK);
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.OK));
+        Mockito.verify(javaProcessBuilder, Mockito.times(2)).exec();
+    }
+
+    @Test
+    void shouldReportWorkerExitStatusAndReplaceWorker() throws Exception {
+        respond();
+        Mockito.when(proc.exitValue()).thenReturn(ExitStatus.OUT_OF_MEMORY.code);
+        Mockito.when(proc.isAlive()).thenReturn(false);
+
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.OUT_OF_MEMORY));
+
+        respond(ExitStatus.OK);
+        Mockito.when(proc.isAlive()).thenReturn(true);
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.OK));
+        Mockito.verify(javaProcessBuilder, Mockito.times(2)).exec();
+    }
+
+    @Test
+    void shouldKillWorkerOnTimeout() throws Exception {
+        PipedOutputStream stdout = new PipedOutputStream();
+        Mockito.when(proc.getInputStream()).thenReturn(new PipedInputStream(stdout));
+        Mockito.when(proc.destroyForcibly())
+                .thenAnswer(
+                        invocation -> {
+                            stdout.close();
+                            return proc;
+                        });
+
+        Assertions.assertTimeoutPreemptively(
+                Duration.ofSeconds(2),
+                () -> {
+                    ExitStatus status =
+                            pool.submit(recording, saveFile, "", 100, TimeUnit.MILLISECONDS).get();
+                    MatcherAssert.assertThat(status, Matchers.equalTo(ExitStatus.TIMED_OUT));
+                });
+        Mockito.verify(proc).destroyForcibly();
+    }
+
+    @Test
+    void shouldRetireIdleWorkers() throws Exception {
+        this.pool = new ReportWorkerPool(env, () -> javaProcessBuilder, 1, 2, 1, logger);
+        respond(ExitStatus.OK);
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.OK));
+
+        Mockito.verify(proc, Mockito.timeout(5_000)).destroy();
+
+        respond(ExitStatus.OK);
+        MatcherAssert.assertThat(submit(), Matchers.equalTo(ExitStatus.OK));
+        Mockito.verify(javaProcessBuilder, Mockito.times(2)).exec();
+    }
+
+    @Test
+    void shouldCountQueueTimeTowardsTimeout() throws Exception {
+        PipedOutputStream stdout = new PipedOutputStream();
+        Mockito.when(proc.getInputStream()).thenReturn(new PipedInputStream(stdout));
+
+        CompletableFuture<ExitStatus> first =
+                pool.submit(recording, saveFile, "", 10, TimeUnit.SECONDS);
+        CompletableFuture<ExitStatus> second =
+                pool.submit(recording, saveFile, "", 100, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        stdout.write(
+                String.format("{\"status\":%d}\n", ExitStatus.OK.code)
+                        .getBytes(StandardCharsets.UTF_8));
+        stdout.flush();
+
+        MatcherAssert.assertThat(first.get(), Matchers.equalTo(ExitStatus.OK));
+        MatcherAssert.assertThat(second.get(), Matchers.equalTo(ExitStatus.TIMED_OUT));
+        Mockito.verify(javaProcessBuilder, Mockito.times(1)).exec();
+    }
+}
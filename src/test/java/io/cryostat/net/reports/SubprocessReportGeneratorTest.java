@@ -15,12 +15,14 @@
  */
 package io.cryostat.net.reports;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
@@ -28,6 +30,7 @@ import io.cryostat.core.sys.Environment;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.net.ConnectionDescriptor;
 import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.util.JavaProcess;
 
 import org.hamcrest.MatcherAssert;
@@ -49,9 +52,11 @@ class SubprocessReportGeneratorTest {
     @Mock Environment env;
     @Mock FileSystem fs;
     @Mock TargetConnectionManager targetConnectionManager;
+    @Mock ActiveRecordingDescriptorCache descriptorCache;
     @Mock JavaProcess.Builder javaProcessBuilder;
     @Mock Logger logger;
     @Mock Process proc;
+    ByteArrayOutputStream workerStdin = new ByteArrayOutputStream();
     ConnectionDescriptor connectionDescriptor;
     RecordingDescriptor recordingDescriptor;
     @Mock Path recordingFile;
@@ -88,16 +93,36 @@ class SubprocessReportGeneratorTest {
         Mockito.lenient()
                 .when(javaProcessBuilder.processArgs(Mockito.anyList()))
                 .thenReturn(javaProcessBuilder);
+        Mockito.lenient()
+                .when(javaProcessBuilder.inheritIO(Mockito.anyBoolean()))
+                .thenReturn(javaProcessBuilder);
         Mockito.lenient().when(javaProcessBuilder.exec()).thenReturn(proc);
+        Mockito.lenient().when(proc.getOutputStream()).thenReturn(workerStdin);
+        Mockito.lenient().when(proc.isAlive()).thenReturn(true);
+        Mockito.lenient().when(proc.waitFor(Mockito.anyLong(), Mockito.any())).thenReturn(true);
+        respond(SubprocessReportGenerator.ExitStatus.OK);
         Mockito.lenient()
                 .when(
                         env.getEnv(
                                 Mockito.eq("CRYOSTAT_REPORT_GENERATION_MAX_HEAP"),
                                 Mockito.anyString()))
                 .thenReturn("200");
+        ReportWorkerPool workerPool =
+                new ReportWorkerPool(env, () -> javaProcessBuilder, 1, 10, 60, logger);
         this.generator =
                 new SubprocessReportGenerator(
-                        env, fs, targetConnectionManager, () -> javaProcessBuilder, 30, logger);
+                        fs, targetConnectionManager, descriptorCache, workerPool, 30, logger);
+    }
+
+    void respond(SubprocessReportGenerator.ExitStatus... statuses) {
+        StringBuilder sb = new StringBuilder();
+        for (SubprocessReportGenerator.ExitStatus status : statuses) {
+            sb.append(String.format("{\"status\":%d}\n", status.code));
+        }
+        Mockito.lenient()
+                .when(proc.getInputStream())
+                .thenReturn(
+                        new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -126,7 +151,7 @@ class SubprocessReportGeneratorTest {
         Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
         Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
 
-        generator.exec(recordingFile, dest, "");
+        generator.exec(recordingFile, dest, "").get();
 
         Mockito.verify(javaProcessBuilder).klazz(SubprocessReportGenerator.class);
     }
@@ -137,7 +162,7 @@ class SubprocessReportGeneratorTest {
         Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
         Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
 
-        generator.exec(recordingFile, dest, "");
+        generator.exec(recordingFile, dest, "").get();
 
         ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
         Mockito.verify(javaProcessBuilder).jvmArgs(captor.capture());
@@ -158,7 +183,7 @@ class SubprocessReportGeneratorTest {
                                 Mockito.anyString()))
                 .thenReturn("0");
 
-        generator.exec(recordingFile, dest, "");
+        generator.exec(recordingFile, dest, "").get();
 
         ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
         Mockito.verify(javaProcessBuilder).jvmArgs(captor.capture());
@@ -168,33 +193,44 @@ class SubprocessReportGeneratorTest {
     }
 
     @Test
-    void shouldSetProcessArgs() throws Exception {
+    void shouldForkWorkerWithPipedStdio() throws Exception {
         Path dest = Mockito.mock(Path.class);
         Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
         Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
 
-        generator.exec(recordingFile, dest, "");
-
-        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
-        Mockito.verify(javaProcessBuilder).processArgs(captor.capture());
+        generator.exec(recordingFile, dest, "").get();
 
-        List<String> expected = List.of("/dest/recording.tmp", "/dest/somefile.tmp", "");
-        MatcherAssert.assertThat(captor.getValue(), Matchers.equalTo(expected));
+        Mockito.verify(javaProcessBuilder).processArgs(List.of("--worker"));
+        Mockito.verify(javaProcessBuilder).inheritIO(false);
     }
 
     @Test
-    void shouldSetProcessArgsFilteredUnformatted() throws Exception {
+    void shouldSendJobToWorker() throws Exception {
         Path dest = Mockito.mock(Path.class);
         Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
         Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
 
-        generator.exec(recordingFile, dest, "someFilter");
+        generator.exec(recordingFile, dest, "").get();
 
-        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
-        Mockito.verify(javaProcessBuilder).processArgs(captor.capture());
+        MatcherAssert.assertThat(
+                workerStdin.toString(StandardCharsets.UTF_8),
+                Matchers.equalTo(
+                        "{\"recording\":\"/dest/recording.tmp\","
+                                + "\"saveFile\":\"/dest/somefile.tmp\","
+                                + "\"filter\":\"\"}\n"));
+    }
 
-        List<String> expected = List.of("/dest/recording.tmp", "/dest/somefile.tmp", "someFilter");
-        MatcherAssert.assertThat(captor.getValue(), Matchers.equalTo(expected));
+    @Test
+    void shouldSendJobToWorkerFilteredUnformatted() throws Exception {
+        Path dest = Mockito.mock(Path.class);
+        Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
+        Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
+
+        generator.exec(recordingFile, dest, "someFilter").get();
+
+        MatcherAssert.assertThat(
+                workerStdin.toString(StandardCharsets.UTF_8),
+                Matchers.containsString("\"filter\":\"someFilter\""));
     }
 
     @Test
@@ -202,7 +238,6 @@ class SubprocessReportGeneratorTest {
         Path dest = Mockito.mock(Path.class);
         Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
         Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
-        Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(true);
 
         Assertions.assertTimeoutPreemptively(
                 Duration.ofSeconds(2),
@@ -217,9 +252,7 @@ class SubprocessReportGeneratorTest {
         Path dest = Mockito.mock(Path.class);
         Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
         Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
-        Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(false);
-        Mockito.when(proc.exitValue())
-                .thenReturn(SubprocessReportGenerator.ExitStatus.NO_SUCH_RECORDING.code);
+        respond(SubprocessReportGenerator.ExitStatus.NO_SUCH_RECORDING);
         Assertions.assertTimeoutPreemptively(
                 Duration.ofSeconds(2),
                 () -> {
@@ -235,12 +268,33 @@ class SubprocessReportGeneratorTest {
                 });
     }
 
+    @Test
+    void shouldThrowExceptionIfWorkerRunsOutOfMemory() throws Exception {
+        Path dest = Mockito.mock(Path.class);
+        Mockito.when(dest.toAbsolutePath()).thenReturn(dest);
+        Mockito.when(dest.toString()).thenReturn("/dest/somefile.tmp");
+        respond();
+        Mockito.when(proc.exitValue())
+                .thenReturn(SubprocessReportGenerator.ExitStatus.OUT_OF_MEMORY.code);
+
+        ExecutionException ex =
+                Assertions.assertThrows(
+                        ExecutionException.class,
+                        () -> generator.exec(recordingFile, dest, "").get());
+        MatcherAssert.assertThat(
+                ex.getCause(),
+                Matchers.instanceOf(
+                        SubprocessReportGenerator.SubprocessReportGenerationException.class));
+        MatcherAssert.assertThat(
+                ((SubprocessReportGenerator.SubprocessReportGenerationException) ex.getCause())
+                        .getStatus(),
+                Matchers.equalTo(SubprocessReportGenerator.ExitStatus.OUT_OF_MEMORY));
+    }
+
     @Test
     void shouldExecuteProcessAndDeleteRecordingOnCompletion() throws Exception {
-        Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(true);
-        Mockito.when(proc.exitValue()).thenReturn(SubprocessReportGenerator.ExitStatus.OK.code);
 
-        Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
+        Mockito.when(targetConnectionManager.executeReadOnlyTask(Mockito.any(), Mockito.any()))
                 .then(
                         new Answer<Path>() {
                             @Override
@@ -257,11 +311,9 @@ class SubprocessReportGeneratorTest {
 
     @Test
     void shouldExecuteProcessAndDeleteRecordingOnFailure() throws Exception {
-        Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(true);
-        Mockito.when(proc.exitValue())
-                .thenReturn(SubprocessReportGenerator.ExitStatus.NO_SUCH_RECORDING.code);
+        respond(SubprocessReportGenerator.ExitStatus.NO_SUCH_RECORDING);
 
-        Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
+        Mockito.when(targetConnectionManager.executeReadOnlyTask(Mockito.any(), Mockito.any()))
                 .then(
                         new Answer<Path>() {
                             @Override
@@ -90,7 +90,7 @@ class TargetEventsGetHandlerTest {
     @Test
     void shouldRespondWithErrorIfExceptionThrown() throws Exception {
         Mockito.when(
-                        connectionManager.executeConnectedTask(
+                        connectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class),
                                 Mockito.any(TargetConnectionManager.ConnectedTask.class)))
                 .thenThrow(new Exception("dummy exception"));
@@ -130,7 +130,7 @@ class TargetEventsGetHandlerTest {
         Collection events = Arrays.asList(event1, event2);
 
         Mockito.when(
-                        connectionManager.executeConnectedTask(
+                        connectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -98,7 +98,7 @@ class TargetRecordingOptionsGetHandlerTest {
     @Test
     void shouldRespondWithErrorIfExceptionThrown() throws Exception {
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenThrow(new Exception("dummy exception"));
 
@@ -128,7 +128,7 @@ class TargetRecordingOptionsGetHandlerTest {
         Mockito.when(recordingOptions.get("maxSize")).thenReturn(optionValues.get("maxSize"));
 
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         new Answer<>() {
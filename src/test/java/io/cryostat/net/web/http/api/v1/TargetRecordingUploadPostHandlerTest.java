@@ -157,7 +157,7 @@ class TargetRecordingUploadPostHandlerTest {
         Mockito.when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
                 .thenReturn(CompletableFuture.completedFuture(true));
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -188,7 +188,7 @@ class TargetRecordingUploadPostHandlerTest {
         Mockito.when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
                 .thenReturn(CompletableFuture.completedFuture(true));
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -259,7 +259,7 @@ class TargetRecordingUploadPostHandlerTest {
         Mockito.when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
                 .thenReturn(CompletableFuture.completedFuture(true));
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -333,7 +333,7 @@ class TargetRecordingUploadPostHandlerTest {
         Mockito.when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
                 .thenReturn(CompletableFuture.completedFuture(true));
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -407,7 +407,7 @@ class TargetRecordingUploadPostHandlerTest {
         Mockito.when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
                 .thenReturn(CompletableFuture.completedFuture(true));
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
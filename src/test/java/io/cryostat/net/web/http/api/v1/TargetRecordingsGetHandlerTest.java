@@ -104,7 +104,7 @@ class TargetRecordingsGetHandlerTest {
     @Test
     void shouldRespondWithErrorIfExceptionThrown() throws Exception {
         Mockito.when(
-                        connectionManager.executeConnectedTask(
+                        connectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenThrow(new Exception("dummy exception"));
 
@@ -123,7 +123,7 @@ class TargetRecordingsGetHandlerTest {
         CryostatFlightRecorderService service = Mockito.mock(CryostatFlightRecorderService.class);
 
         Mockito.when(
-                        connectionManager.executeConnectedTask(
+                        connectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
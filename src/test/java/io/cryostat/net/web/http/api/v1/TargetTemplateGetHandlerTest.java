@@ -99,7 +99,7 @@ class TargetTemplateGetHandlerTest {
         Mockito.when(req.headers()).thenReturn(MultiMap.caseInsensitiveMultiMap());
 
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenThrow(FlightRecorderException.class);
 
@@ -122,7 +122,7 @@ class TargetTemplateGetHandlerTest {
                 .thenReturn(Optional.empty());
 
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         new Answer<>() {
@@ -163,7 +163,7 @@ class TargetTemplateGetHandlerTest {
         Mockito.when(doc.toString()).thenReturn("Mock Document XML");
 
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         new Answer<>() {
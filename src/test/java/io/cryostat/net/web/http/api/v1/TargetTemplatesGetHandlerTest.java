@@ -87,7 +87,7 @@ class TargetTemplatesGetHandlerTest {
     @Test
     void shouldRespondWithErrorIfExceptionThrown() throws Exception {
         Mockito.when(
-                        connectionManager.executeConnectedTask(
+                        connectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenThrow(new Exception("dummy exception"));
 
@@ -111,7 +111,7 @@ class TargetTemplatesGetHandlerTest {
                 new Template("BarTemplate", "Template for bar-ing", "Test 2", TemplateType.CUSTOM);
 
         Mockito.when(
-                        connectionManager.executeConnectedTask(
+                        connectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -110,7 +110,7 @@ public class MBeanMetricsGetHandlerTest {
         void shouldReturnMetrics() throws Exception {
             when(requestParams.getPathParams()).thenReturn(Map.of("targetId", "foo"));
             when(requestParams.getHeaders()).thenReturn(MultiMap.caseInsensitiveMultiMap());
-            when(targetConnectionManager.executeConnectedTask(
+            when(targetConnectionManager.executeReadOnlyTask(
                             Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                     .thenAnswer(
                             arg0 ->
@@ -88,7 +88,7 @@ class TargetEventsGetHandlerTest {
 
     @Test
     void shouldHandleNoMatches() throws Exception {
-        when(targetConnectionManager.executeConnectedTask(
+        when(targetConnectionManager.executeReadOnlyTask(
                         Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
@@ -152,7 +152,7 @@ class TargetEventsGetHandlerTest {
 
         List<IEventTypeInfo> events = Arrays.asList(infoA, infoB, infoC, infoD, infoE);
 
-        when(targetConnectionManager.executeConnectedTask(
+        when(targetConnectionManager.executeReadOnlyTask(
                         Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 -> {
@@ -124,7 +124,7 @@ public class TargetProbesGetHandlerTest {
             MBeanServerConnection mbsc = Mockito.mock(MBeanServerConnection.class);
             Mockito.when(connection.getHandle()).thenReturn(handle);
             Mockito.when(
-                            targetConnectionManager.executeConnectedTask(
+                            targetConnectionManager.executeReadOnlyTask(
                                     Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                     .thenAnswer(
                             arg0 ->
@@ -148,7 +148,7 @@ class TargetRecordingGetHandlerTest {
             Mockito.when(claims.getStringClaim(Mockito.anyString())).thenReturn(null);
             Mockito.when(token.getJWTClaimsSet()).thenReturn(claims);
             Mockito.when(
-                            targetConnectionManager.executeConnectedTask(
+                            targetConnectionManager.executeReadOnlyTask(
                                     Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                     .thenAnswer(
                             new Answer<>() {
@@ -176,7 +176,7 @@ class TargetRecordingGetHandlerTest {
             Mockito.when(claims.getStringClaim(Mockito.anyString())).thenReturn(null);
             Mockito.when(token.getJWTClaimsSet()).thenReturn(claims);
             Mockito.when(
-                            targetConnectionManager.executeConnectedTask(
+                            targetConnectionManager.executeReadOnlyTask(
                                     Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                     .thenAnswer(
                             new Answer<>() {
@@ -210,7 +210,7 @@ class TargetRecordingGetHandlerTest {
             Mockito.when(claims.getStringClaim(Mockito.anyString())).thenReturn(null);
             Mockito.when(token.getJWTClaimsSet()).thenReturn(claims);
             Mockito.when(
-                            targetConnectionManager.executeConnectedTask(
+                            targetConnectionManager.executeReadOnlyTask(
                                     Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                     .thenAnswer(
                             new Answer<>() {
@@ -267,7 +267,7 @@ class TargetRecordingGetHandlerTest {
             Mockito.when(claims.getStringClaim(Mockito.anyString())).thenReturn(null);
             Mockito.when(token.getJWTClaimsSet()).thenReturn(claims);
             Mockito.when(
-                            targetConnectionManager.executeConnectedTask(
+                            targetConnectionManager.executeReadOnlyTask(
                                     Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                     .thenAnswer(
                             new Answer<>() {
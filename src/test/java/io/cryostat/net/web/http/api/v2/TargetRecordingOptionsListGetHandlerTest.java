@@ -97,7 +97,7 @@ class TargetRecordingOptionsListGetHandlerTest {
         Map<String, IOptionDescriptor<?>> options = Map.of("foo-option", descriptor);
 
         Mockito.when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class), Mockito.any()))
                 .thenAnswer(
                         arg0 ->
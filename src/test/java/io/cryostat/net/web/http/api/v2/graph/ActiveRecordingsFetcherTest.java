@@ -19,6 +19,7 @@ import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
@@ -28,6 +29,7 @@ import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ActiveRecordingsFetcher.Active;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
+import io.cryostat.recordings.RecordingMetadataManager;
 
 import graphql.GraphQLContext;
 import graphql.schema.DataFetchingEnvironment;
@@ -47,6 +49,7 @@ class ActiveRecordingsFetcherTest {
     ActiveRecordingsFetcher fetcher;
 
     @Mock AuthManager auth;
+    @Mock RecordingMetadataManager metadataManager;
 
     @Mock DataFetchingEnvironment env;
     @Mock GraphQLContext graphCtx;
@@ -55,7 +58,7 @@ class ActiveRecordingsFetcherTest {
 
     @BeforeEach
     void setup() {
-        this.fetcher = new ActiveRecordingsFetcher(auth);
+        this.fetcher = new ActiveRecordingsFetcher(auth, metadataManager);
     }
 
     @Test
@@ -294,4 +297,37 @@ class ActiveRecordingsFetcherTest {
             MatcherAssert.assertThat(active.aggregate.count, Matchers.equalTo(2L));
         }
     }
+
+    @Test
+    void shouldFilterByEqualityLabelUsingIndex() throws Exception {
+        try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
+            staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
+            when(env.getGraphQlContext()).thenReturn(graphCtx);
+            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
+                    .thenReturn(CompletableFuture.completedFuture(true));
+
+            GraphRecordingDescriptor recording1 = Mockito.mock(GraphRecordingDescriptor.class);
+            GraphRecordingDescriptor recording2 = Mockito.mock(GraphRecordingDescriptor.class);
+            when(recording1.getName()).thenReturn("foo");
+            when(recording2.getName()).thenReturn("bar");
+
+            when(filter.contains(Mockito.any())).thenReturn(false);
+            when(filter.contains(FilterInput.Key.LABELS)).thenReturn(true);
+            when(filter.get(FilterInput.Key.LABELS)).thenReturn(List.of("env = prod"));
+            when(metadataManager.getRecordingNamesWithLabel("someJvmId", "env", "prod"))
+                    .thenReturn(Optional.of(Set.of("foo")));
+
+            Recordings source = Mockito.mock(Recordings.class);
+            source.active = List.of(recording1, recording2);
+            source.jvmId = "someJvmId";
+
+            when(env.getSource()).thenReturn(source);
+
+            Active active = fetcher.get(env);
+
+            MatcherAssert.assertThat(active.data, Matchers.contains(recording1));
+            Mockito.verify(recording1, Mockito.never()).getMetadata();
+            Mockito.verify(recording2, Mockito.never()).getMetadata();
+        }
+    }
 }
@@ -18,27 +18,27 @@ package io.cryostat.net.web.http.api.v2.graph;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
 
 import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
+import io.cryostat.recordings.ArchivedRecordingQuery;
 import io.cryostat.recordings.RecordingArchiveHelper;
-import io.cryostat.recordings.RecordingMetadataManager.Metadata;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import graphql.GraphQLContext;
 import graphql.schema.DataFetchingEnvironment;
 import io.vertx.ext.web.RoutingContext;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -56,13 +56,26 @@ class AllArchivedRecordingsFetcherTest {
     @Mock GraphQLContext graphCtx;
     @Mock RoutingContext ctx;
     @Mock FilterInput filter;
-    @Mock Future<List<ArchivedRecordingInfo>> future;
 
     @BeforeEach
     void setup() {
         this.fetcher = new AllArchivedRecordingsFetcher(auth, archiveHelper, logger);
     }
 
+    void setupAuth() throws Exception {
+        when(env.getGraphQlContext()).thenReturn(graphCtx);
+        when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+    }
+
+    ArgumentCaptor<ArchivedRecordingQuery> answer(ArchivedRecordingQuery.Result result) {
+        ArgumentCaptor<ArchivedRecordingQuery> query =
+                ArgumentCaptor.forClass(ArchivedRecordingQuery.class);
+        when(archiveHelper.queryRecordings(query.capture()))
+                .thenReturn(CompletableFuture.completedFuture(result));
+        return query;
+    }
+
     @Test
     void shouldHaveExpectedRequiredPermissions() {
         MatcherAssert.assertThat(
@@ -73,19 +86,18 @@ class AllArchivedRecordingsFetcherTest {
     void shouldReturnEmptyList() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
+            setupAuth();
 
             when(filter.contains(Mockito.any())).thenReturn(false);
-            when(archiveHelper.getRecordings()).thenReturn(future);
-            when(future.get()).thenReturn(List.of());
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
             Archived recordings = fetcher.get(env);
 
             MatcherAssert.assertThat(recordings, Matchers.notNullValue());
             MatcherAssert.assertThat(recordings.data, Matchers.empty());
             MatcherAssert.assertThat(recordings.data, Matchers.instanceOf(List.class));
+            MatcherAssert.assertThat(query.getValue().getSourceTarget(), Matchers.nullValue());
         }
     }
 
@@ -93,20 +105,19 @@ class AllArchivedRecordingsFetcherTest {
     void shouldReturnRecording() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
+            setupAuth();
 
             ArchivedRecordingInfo recording = Mockito.mock(ArchivedRecordingInfo.class);
 
             when(filter.contains(Mockito.any())).thenReturn(false);
-            when(archiveHelper.getRecordings()).thenReturn(future);
-            when(future.get()).thenReturn(List.of(recording));
+            answer(new ArchivedRecordingQuery.Result(List.of(recording), 1, 123));
 
             Archived recordings = fetcher.get(env);
 
             MatcherAssert.assertThat(recordings, Matchers.notNullValue());
             MatcherAssert.assertThat(recordings.data, Matchers.contains(recording));
+            MatcherAssert.assertThat(recordings.aggregate.count, Matchers.equalTo(1L));
+            MatcherAssert.assertThat(recordings.aggregate.size, Matchers.equalTo(123L));
         }
     }
 
@@ -114,9 +125,7 @@ class AllArchivedRecordingsFetcherTest {
     void shouldReturnRecordingsMultiple() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
+            setupAuth();
 
             List<ArchivedRecordingInfo> mockList =
                     List.of(
@@ -125,135 +134,117 @@ class AllArchivedRecordingsFetcherTest {
 
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.SOURCE_TARGET)).thenReturn(true);
-
-            when(archiveHelper.getRecordings(Mockito.any())).thenReturn(future);
-            when(future.get()).thenReturn(mockList);
+            when(filter.get(FilterInput.Key.SOURCE_TARGET)).thenReturn("someTarget");
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(mockList, 2, 0));
 
             Archived recordings = fetcher.get(env);
 
             MatcherAssert.assertThat(recordings, Matchers.notNullValue());
             MatcherAssert.assertThat(recordings.data, Matchers.equalTo(mockList));
+            MatcherAssert.assertThat(
+                    query.getValue().getSourceTarget(), Matchers.equalTo("someTarget"));
         }
     }
 
     @Test
-    void shouldReturnRecordingsFiltered() throws Exception {
+    void shouldReturnEmptyIfSourceTargetQueryFails() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
-
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-            when(recording1.getName()).thenReturn("foo");
-            when(recording2.getName()).thenReturn("bar");
-            when(recording3.getName()).thenReturn("baz");
+            setupAuth();
 
             when(filter.contains(Mockito.any())).thenReturn(false);
-            when(filter.contains(FilterInput.Key.NAME)).thenReturn(true);
-            when(filter.get(FilterInput.Key.NAME)).thenReturn("foo");
-
-            when(archiveHelper.getRecordings()).thenReturn(future);
-            when(future.get()).thenReturn(List.of(recording1, recording2, recording3));
+            when(filter.contains(FilterInput.Key.SOURCE_TARGET)).thenReturn(true);
+            when(filter.get(FilterInput.Key.SOURCE_TARGET)).thenReturn("someTarget");
+            when(archiveHelper.queryRecordings(Mockito.any()))
+                    .thenReturn(CompletableFuture.failedFuture(new Exception("test")));
 
             Archived recordings = fetcher.get(env);
 
-            MatcherAssert.assertThat(recordings, Matchers.notNullValue());
-            MatcherAssert.assertThat(recordings.data, Matchers.contains(recording1));
+            MatcherAssert.assertThat(recordings.data, Matchers.empty());
+            MatcherAssert.assertThat(recordings.aggregate.count, Matchers.equalTo(0L));
         }
     }
 
     @Test
-    void shouldReturnRecordingsLabelFiltered() throws Exception {
+    void shouldPushDownNameFilter() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
+            setupAuth();
 
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
+            when(filter.contains(Mockito.any())).thenReturn(false);
+            when(filter.contains(FilterInput.Key.NAME)).thenReturn(true);
+            when(filter.get(FilterInput.Key.NAME)).thenReturn("foo");
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
+
+            fetcher.get(env);
 
-            when(recording1.getMetadata()).thenReturn(new Metadata(Map.of("foo", "bar")));
-            when(recording2.getMetadata())
-                    .thenReturn(new Metadata(Map.of("foo", "baz", "bar", "qux")));
-            when(recording3.getMetadata())
-                    .thenReturn(new Metadata(Map.of("", "foo", "bar", "foo")));
+            MatcherAssert.assertThat(query.getValue().getNames(), Matchers.equalTo(Set.of("foo")));
+        }
+    }
+
+    @Test
+    void shouldPushDownLabelFilters() throws Exception {
+        try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
+            staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
+            setupAuth();
 
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.LABELS)).thenReturn(true);
-            when(filter.get(FilterInput.Key.LABELS)).thenReturn(List.of("foo", "bar"));
+            when(filter.get(FilterInput.Key.LABELS))
+                    .thenReturn(List.of("foo", "bar == baz", "qux != quux"));
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
-            when(archiveHelper.getRecordings()).thenReturn(future);
-            when(future.get()).thenReturn(List.of(recording1, recording2, recording3));
+            fetcher.get(env);
 
-            Archived recordings = fetcher.get(env);
-
-            MatcherAssert.assertThat(recordings, Matchers.notNullValue());
-            MatcherAssert.assertThat(recordings.data, Matchers.contains(recording2));
+            // plain equalities are answered from the label index, the rest are tested per recording
+            MatcherAssert.assertThat(
+                    query.getValue().getLabels(), Matchers.contains(Pair.of("bar", "baz")));
+            MatcherAssert.assertThat(query.getValue().getLabelSelectors(), Matchers.hasSize(2));
         }
     }
 
     @Test
-    void shouldReturnRecordingsSizeFiltered() throws Exception {
+    void shouldPushDownSizeFilter() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
-
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-
-            when(recording1.getSize()).thenReturn(12345L);
-            when(recording2.getSize()).thenReturn(123456L);
-            when(recording3.getSize()).thenReturn(1234567L);
+            setupAuth();
 
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.SIZE_LE)).thenReturn(true);
             when(filter.get(FilterInput.Key.SIZE_LE)).thenReturn(123456L);
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
-            when(archiveHelper.getRecordings()).thenReturn(future);
-            when(future.get()).thenReturn(List.of(recording1, recording2, recording3));
+            fetcher.get(env);
 
-            Archived recordings = fetcher.get(env);
-
-            MatcherAssert.assertThat(recordings, Matchers.notNullValue());
-            MatcherAssert.assertThat(recordings.data, Matchers.contains(recording1, recording2));
+            MatcherAssert.assertThat(
+                    query.getValue().getSizeLessThanEqual(), Matchers.equalTo(123456L));
+            MatcherAssert.assertThat(
+                    query.getValue().getSizeGreaterThanEqual(), Matchers.nullValue());
         }
     }
 
     @Test
-    void shouldReturnRecordingsArchivedTimeFiltered() throws Exception {
+    void shouldPushDownArchivedTimeFilter() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
-
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-
-            when(recording1.getArchivedTime()).thenReturn(12345L);
-            when(recording2.getArchivedTime()).thenReturn(123456L);
-            when(recording3.getArchivedTime()).thenReturn(1234567L);
+            setupAuth();
 
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.ARCHIVED_TIME_AFTER)).thenReturn(true);
             when(filter.get(FilterInput.Key.ARCHIVED_TIME_AFTER)).thenReturn(123456L);
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
-            when(archiveHelper.getRecordings()).thenReturn(future);
-            when(future.get()).thenReturn(List.of(recording1, recording2, recording3));
-
-            Archived recordings = fetcher.get(env);
+            fetcher.get(env);
 
-            MatcherAssert.assertThat(recordings, Matchers.notNullValue());
-            MatcherAssert.assertThat(recordings.data, Matchers.contains(recording2, recording3));
+            MatcherAssert.assertThat(
+                    query.getValue().getArchivedTimeAfterEqual(), Matchers.equalTo(123456L));
+            MatcherAssert.assertThat(
+                    query.getValue().getArchivedTimeBeforeEqual(), Matchers.nullValue());
         }
     }
 }
@@ -15,29 +15,31 @@
  */
 package io.cryostat.net.web.http.api.v2.graph;
 
-import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
+import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
-import io.cryostat.recordings.RecordingMetadataManager.Metadata;
+import io.cryostat.recordings.ArchivedRecordingQuery;
+import io.cryostat.recordings.RecordingArchiveHelper;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import graphql.GraphQLContext;
 import graphql.schema.DataFetchingEnvironment;
 import io.vertx.ext.web.RoutingContext;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -45,9 +47,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 @ExtendWith(MockitoExtension.class)
 class ArchivedRecordingsFetcherTest {
+    static final String TARGET_ID = "service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi";
+
     ArchivedRecordingsFetcher fetcher;
 
     @Mock AuthManager auth;
+    @Mock RecordingArchiveHelper archiveHelper;
+    @Mock Logger logger;
 
     @Mock DataFetchingEnvironment env;
     @Mock GraphQLContext graphCtx;
@@ -56,204 +62,144 @@ class ArchivedRecordingsFetcherTest {
 
     @BeforeEach
     void setup() {
-        this.fetcher = new ArchivedRecordingsFetcher(auth);
+        this.fetcher = new ArchivedRecordingsFetcher(auth, archiveHelper, logger);
     }
 
-    @Test
-    void shouldHaveExpectedRequiredPermissions() {
-        MatcherAssert.assertThat(
-                fetcher.resourceActions(), Matchers.equalTo(Set.of(ResourceAction.READ_RECORDING)));
-    }
-
-    @Test
-    void shouldReturnEmpty() throws Exception {
+    void setupSource() throws Exception {
         when(env.getGraphQlContext()).thenReturn(graphCtx);
         when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
                 .thenReturn(CompletableFuture.completedFuture(true));
 
         Recordings source = Mockito.mock(Recordings.class);
-        source.archived = List.of();
-
+        source.targetId = TARGET_ID;
         when(env.getSource()).thenReturn(source);
+    }
 
-        Archived archived = fetcher.get(env);
-
-        MatcherAssert.assertThat(archived, Matchers.notNullValue());
-        MatcherAssert.assertThat(archived.data, Matchers.empty());
-        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(0L));
+    ArgumentCaptor<ArchivedRecordingQuery> answer(ArchivedRecordingQuery.Result result) {
+        ArgumentCaptor<ArchivedRecordingQuery> query =
+                ArgumentCaptor.forClass(ArchivedRecordingQuery.class);
+        when(archiveHelper.queryRecordings(query.capture()))
+                .thenReturn(CompletableFuture.completedFuture(result));
+        return query;
     }
 
     @Test
-    void shouldReturnRecording() throws Exception {
-        when(env.getGraphQlContext()).thenReturn(graphCtx);
-        when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                .thenReturn(CompletableFuture.completedFuture(true));
-
-        ArchivedRecordingInfo recording = Mockito.mock(ArchivedRecordingInfo.class);
-
-        Recordings source = Mockito.mock(Recordings.class);
-        source.archived = List.of(recording);
+    void shouldHaveExpectedRequiredPermissions() {
+        MatcherAssert.assertThat(
+                fetcher.resourceActions(), Matchers.equalTo(Set.of(ResourceAction.READ_RECORDING)));
+    }
 
-        when(env.getSource()).thenReturn(source);
+    @Test
+    void shouldReturnEmpty() throws Exception {
+        setupSource();
+        answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
         Archived archived = fetcher.get(env);
 
         MatcherAssert.assertThat(archived, Matchers.notNullValue());
-        MatcherAssert.assertThat(archived.data, Matchers.contains(recording));
-        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(1L));
+        MatcherAssert.assertThat(archived.data, Matchers.empty());
+        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(0L));
     }
 
     @Test
-    void shouldReturnRecordingsMultiple() throws Exception {
-        when(env.getGraphQlContext()).thenReturn(graphCtx);
-        when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                .thenReturn(CompletableFuture.completedFuture(true));
-
+    void shouldReturnRecordingsOfSourceTarget() throws Exception {
+        setupSource();
         ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
         ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-        ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-
-        Recordings source = Mockito.mock(Recordings.class);
-        source.archived = List.of(recording1, recording2, recording3);
-
-        when(env.getSource()).thenReturn(source);
+        ArgumentCaptor<ArchivedRecordingQuery> query =
+                answer(new ArchivedRecordingQuery.Result(List.of(recording1, recording2), 2, 30));
 
         Archived archived = fetcher.get(env);
 
-        MatcherAssert.assertThat(archived, Matchers.notNullValue());
+        MatcherAssert.assertThat(archived.data, Matchers.contains(recording1, recording2));
+        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(2L));
+        MatcherAssert.assertThat(archived.aggregate.size, Matchers.equalTo(30L));
+        MatcherAssert.assertThat(query.getValue().getSourceTarget(), Matchers.equalTo(TARGET_ID));
+        MatcherAssert.assertThat(query.getValue().getNames(), Matchers.nullValue());
+        MatcherAssert.assertThat(query.getValue().getOffset(), Matchers.equalTo(0));
         MatcherAssert.assertThat(
-                archived.data, Matchers.contains(recording1, recording2, recording3));
-        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(3L));
+                query.getValue().getLimit(), Matchers.equalTo(Integer.MAX_VALUE));
     }
 
     @Test
-    void shouldReturnRecordingsFiltered() throws Exception {
-        try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
-            staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
-
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-            when(recording1.getName()).thenReturn("foo");
-            when(recording2.getName()).thenReturn("bar");
-            when(recording3.getName()).thenReturn("baz");
+    void shouldReturnEmptyIfQueryFails() throws Exception {
+        setupSource();
+        when(archiveHelper.queryRecordings(Mockito.any()))
+                .thenReturn(CompletableFuture.failedFuture(new Exception("test")));
 
-            when(filter.contains(Mockito.any())).thenReturn(false);
-            when(filter.contains(FilterInput.Key.NAME)).thenReturn(true);
-            when(filter.get(FilterInput.Key.NAME)).thenReturn("foo");
-
-            Recordings source = Mockito.mock(Recordings.class);
-            source.archived = List.of(recording1, recording2, recording3);
-
-            when(env.getSource()).thenReturn(source);
-
-            Archived archived = fetcher.get(env);
+        Archived archived = fetcher.get(env);
 
-            MatcherAssert.assertThat(archived, Matchers.notNullValue());
-            MatcherAssert.assertThat(archived.data, Matchers.contains(recording1));
-            MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(1L));
-        }
+        MatcherAssert.assertThat(archived.data, Matchers.empty());
+        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(0L));
     }
 
     @Test
-    void shouldReturnRecordingsMultipleFilters() throws Exception {
+    void shouldPushDownMultipleFilters() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
-
-            String nameFilter = "foo";
-            String labelFilter1 = "template.type";
-            String labelFilter2 = "myLabel";
-            Long size = 1234567L;
-
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording4 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording5 = Mockito.mock(ArchivedRecordingInfo.class);
-            when(recording1.getName()).thenReturn("foo");
-            when(recording2.getName()).thenReturn("bar");
-            when(recording3.getName()).thenReturn("foo");
-            when(recording4.getName()).thenReturn("baz");
-            when(recording5.getName()).thenReturn("foo");
-            when(recording1.getMetadata())
-                    .thenReturn(
-                            new Metadata(Map.of("myLabel", "bar", "template.name", "Cryostat")));
-            lenient()
-                    .when(recording2.getMetadata())
-                    .thenReturn(new Metadata(Map.of("template.type", "CUSTOM", "", "")));
-            when(recording3.getMetadata())
-                    .thenReturn(new Metadata(Map.of("template.type", "TARGET", "myLabel", "foo")));
-            lenient()
-                    .when(recording4.getMetadata())
-                    .thenReturn(
-                            new Metadata(Map.of("myLabel", "value", "reason", "service-outage")));
-            when(recording5.getMetadata())
-                    .thenReturn(
-                            new Metadata(Map.of("myLabel", "foo", "template.type", "Profiling")));
-            when(recording3.getSize()).thenReturn(1234577L);
-            when(recording5.getSize()).thenReturn(1234569L);
+            setupSource();
+
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.NAME)).thenReturn(true);
             when(filter.contains(FilterInput.Key.LABELS)).thenReturn(true);
             when(filter.contains(FilterInput.Key.SIZE_GE)).thenReturn(true);
-            when(filter.get(FilterInput.Key.NAME)).thenReturn(nameFilter);
-            when(filter.get(FilterInput.Key.SIZE_GE)).thenReturn(size);
+            when(filter.contains(FilterInput.Key.ARCHIVED_TIME_BEFORE)).thenReturn(true);
+            when(filter.get(FilterInput.Key.NAME)).thenReturn("foo");
+            when(filter.get(FilterInput.Key.SIZE_GE)).thenReturn(1234567L);
+            when(filter.get(FilterInput.Key.ARCHIVED_TIME_BEFORE)).thenReturn(7654321L);
             when(filter.get(FilterInput.Key.LABELS))
-                    .thenReturn(List.of(labelFilter1, labelFilter2));
-
-            Recordings source = Mockito.mock(Recordings.class);
-            source.archived = List.of(recording1, recording2, recording3, recording4, recording5);
-
-            when(env.getSource()).thenReturn(source);
+                    .thenReturn(List.of("template.type", "myLabel = foo"));
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
-            Archived archived = fetcher.get(env);
+            fetcher.get(env);
 
-            MatcherAssert.assertThat(archived, Matchers.notNullValue());
+            ArchivedRecordingQuery q = query.getValue();
+            MatcherAssert.assertThat(q.getSourceTarget(), Matchers.equalTo(TARGET_ID));
+            MatcherAssert.assertThat(q.getNames(), Matchers.equalTo(Set.of("foo")));
             MatcherAssert.assertThat(
-                    archived.data, Matchers.containsInAnyOrder(recording3, recording5));
-            MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(2L));
-            MatcherAssert.assertThat(
-                    archived.aggregate.size,
-                    Matchers.equalTo(recording3.getSize() + recording5.getSize()));
+                    q.getLabels(), Matchers.contains(Pair.of("myLabel", "foo")));
+            MatcherAssert.assertThat(q.getLabelSelectors(), Matchers.hasSize(1));
+            MatcherAssert.assertThat(q.getSizeGreaterThanEqual(), Matchers.equalTo(1234567L));
+            MatcherAssert.assertThat(q.getSizeLessThanEqual(), Matchers.nullValue());
+            MatcherAssert.assertThat(q.getArchivedTimeBeforeEqual(), Matchers.equalTo(7654321L));
+            MatcherAssert.assertThat(q.getArchivedTimeAfterEqual(), Matchers.nullValue());
         }
     }
 
     @Test
-    void shouldReturnArchivedRecordingsFilteredByNames() throws Exception {
+    void shouldPushDownNamesFilter() throws Exception {
         try (MockedStatic<FilterInput> staticFilter = Mockito.mockStatic(FilterInput.class)) {
             staticFilter.when(() -> FilterInput.from(env)).thenReturn(filter);
-            when(env.getGraphQlContext()).thenReturn(graphCtx);
-            when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
-                    .thenReturn(CompletableFuture.completedFuture(true));
-
-            ArchivedRecordingInfo recording1 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
-            ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
-            when(recording1.getName()).thenReturn("foo");
-            when(recording2.getName()).thenReturn("bar");
-            when(recording3.getName()).thenReturn("baz");
+            setupSource();
 
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.NAMES)).thenReturn(true);
             when(filter.get(FilterInput.Key.NAMES)).thenReturn(List.of("foo", "baz"));
+            ArgumentCaptor<ArchivedRecordingQuery> query =
+                    answer(new ArchivedRecordingQuery.Result(List.of(), 0, 0));
 
-            Recordings source = Mockito.mock(Recordings.class);
-            source.archived = List.of(recording1, recording2, recording3);
-
-            when(env.getSource()).thenReturn(source);
-
-            Archived archived = fetcher.get(env);
+            fetcher.get(env);
 
-            MatcherAssert.assertThat(archived, Matchers.notNullValue());
             MatcherAssert.assertThat(
-                    archived.data, Matchers.containsInAnyOrder(recording1, recording3));
-            MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(2L));
+                    query.getValue().getNames(), Matchers.equalTo(Set.of("foo", "baz")));
         }
     }
+
+    @Test
+    void shouldPassPagingArguments() throws Exception {
+        setupSource();
+        when(env.<Integer>getArgument("limit")).thenReturn(10);
+        when(env.<Integer>getArgument("offset")).thenReturn(20);
+        ArchivedRecordingInfo recording = Mockito.mock(ArchivedRecordingInfo.class);
+        ArgumentCaptor<ArchivedRecordingQuery> query =
+                answer(new ArchivedRecordingQuery.Result(List.of(recording), 21, 100));
+
+        Archived archived = fetcher.get(env);
+
+        MatcherAssert.assertThat(query.getValue().getLimit(), Matchers.equalTo(10));
+        MatcherAssert.assertThat(query.getValue().getOffset(), Matchers.equalTo(20));
+        MatcherAssert.assertThat(archived.data, Matchers.contains(recording));
+        MatcherAssert.assertThat(archived.aggregate.count, Matchers.equalTo(21L));
+    }
 }
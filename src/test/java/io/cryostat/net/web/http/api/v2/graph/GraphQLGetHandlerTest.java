@@ -44,12 +44,13 @@ class GraphQLGetHandlerTest {
     GraphQLGetHandler handler;
 
     @Mock GraphQL graph;
+    @Mock TargetDataLoaders dataLoaders;
     @Mock AuthManager auth;
     @Mock Logger logger;
 
     @BeforeEach
     void setup() {
-        this.handler = new GraphQLGetHandler(graph, auth, logger);
+        this.handler = new GraphQLGetHandler(graph, dataLoaders, auth, logger);
     }
 
     @Nested
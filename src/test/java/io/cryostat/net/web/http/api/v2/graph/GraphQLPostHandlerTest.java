@@ -44,12 +44,13 @@ class GraphQLPostHandlerTest {
     GraphQLPostHandler handler;
 
     @Mock GraphQL graph;
+    @Mock TargetDataLoaders dataLoaders;
     @Mock AuthManager auth;
     @Mock Logger logger;
 
     @BeforeEach
     void setup() {
-        this.handler = new GraphQLPostHandler(graph, auth, logger);
+        this.handler = new GraphQLPostHandler(graph, dataLoaders, auth, logger);
     }
 
     @Nested
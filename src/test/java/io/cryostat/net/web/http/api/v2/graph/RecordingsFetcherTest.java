@@ -19,6 +19,7 @@ import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -36,9 +37,8 @@ import io.cryostat.net.web.WebServer;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
 import io.cryostat.platform.ServiceRef;
 import io.cryostat.platform.discovery.TargetNode;
-import io.cryostat.recordings.RecordingArchiveHelper;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
 import io.cryostat.recordings.RecordingMetadataManager;
-import io.cryostat.rules.ArchivedRecordingInfo;
 
 import graphql.GraphQLContext;
 import graphql.schema.DataFetchingEnvironment;
@@ -50,6 +50,7 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.dataloader.DataLoaderRegistry;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -64,12 +65,13 @@ class RecordingsFetcherTest {
     static final SelectedField archived = Mockito.mock(SelectedField.class);
 
     RecordingsFetcher fetcher;
+    DataLoaderRegistry registry;
 
     @Mock AuthManager auth;
     @Mock TargetConnectionManager targetConnectionManager;
-    @Mock RecordingArchiveHelper archiveHelper;
     @Mock CredentialsManager credentialsManager;
     @Mock RecordingMetadataManager metadataManager;
+    @Mock ActiveRecordingDescriptorCache descriptorCache;
     @Mock Provider<WebServer> webServer;
     @Mock Logger logger;
 
@@ -77,7 +79,6 @@ class RecordingsFetcherTest {
     @Mock GraphQLContext graphCtx;
     @Mock RoutingContext ctx;
     @Mock FilterInput filter;
-    @Mock CompletableFuture<List<ArchivedRecordingInfo>> archivedFuture;
 
     @BeforeAll
     static void init() {
@@ -87,15 +88,29 @@ class RecordingsFetcherTest {
 
     @BeforeEach
     void setup() {
-        this.fetcher =
-                new RecordingsFetcher(
-                        auth,
-                        targetConnectionManager,
-                        archiveHelper,
-                        credentialsManager,
-                        metadataManager,
-                        webServer,
-                        logger);
+        this.fetcher = new RecordingsFetcher(auth);
+        this.registry =
+                new TargetDataLoaders(
+                                targetConnectionManager,
+                                credentialsManager,
+                                metadataManager,
+                                descriptorCache,
+                                webServer,
+                                Runnable::run,
+                                Duration.ofSeconds(10),
+                                logger)
+                        .newRegistry();
+    }
+
+    Recordings fetch() throws Exception {
+        CompletableFuture<Recordings> future = fetcher.get(env);
+        registry.dispatchAll();
+        return future.get();
+    }
+
+    void stubDataLoader() {
+        when(env.getDataLoader(TargetDataLoaders.ACTIVE_RECORDINGS))
+                .thenReturn(registry.getDataLoader(TargetDataLoaders.ACTIVE_RECORDINGS));
     }
 
     @Test
@@ -127,12 +142,12 @@ class RecordingsFetcherTest {
         when(source.getTarget()).thenReturn(target);
         when(target.getServiceUri()).thenReturn(EXAMPLE_URI);
 
-        Recordings recordings = fetcher.get(env);
+        Recordings recordings = fetch();
 
         MatcherAssert.assertThat(recordings, Matchers.notNullValue());
         // should be null ?
         MatcherAssert.assertThat(recordings.active, Matchers.nullValue());
-        MatcherAssert.assertThat(recordings.archived, Matchers.nullValue());
+        MatcherAssert.assertThat(recordings.targetId, Matchers.equalTo(URI_STRING));
     }
 
     @Test
@@ -149,24 +164,21 @@ class RecordingsFetcherTest {
         when(env.getSource()).thenReturn(source);
         when(env.getSelectionSet()).thenReturn(selectionSet);
         when(selectionSet.getFields()).thenReturn(List.of(active, archived));
+        stubDataLoader();
 
         when(source.getTarget()).thenReturn(target);
         when(target.getServiceUri()).thenReturn(EXAMPLE_URI);
 
         // mock get active recordings
-        when(targetConnectionManager.executeConnectedTask(
+        when(targetConnectionManager.executeReadOnlyTask(
                         Mockito.any(ConnectionDescriptor.class), Mockito.any(ConnectedTask.class)))
                 .thenReturn(List.of());
 
-        // mock get archived recordings
-        when(archiveHelper.getRecordings(Mockito.any())).thenReturn(archivedFuture);
-        when(archivedFuture.get()).thenReturn(List.of());
-
-        Recordings recordings = fetcher.get(env);
+        Recordings recordings = fetch();
 
         MatcherAssert.assertThat(recordings, Matchers.notNullValue());
         MatcherAssert.assertThat(recordings.active, Matchers.empty());
-        MatcherAssert.assertThat(recordings.archived, Matchers.empty());
+        MatcherAssert.assertThat(recordings.targetId, Matchers.equalTo(URI_STRING));
     }
 
     @Test
@@ -183,24 +195,21 @@ class RecordingsFetcherTest {
         when(env.getSource()).thenReturn(source);
         when(env.getSelectionSet()).thenReturn(selectionSet);
         when(selectionSet.getFields()).thenReturn(List.of(active));
+        stubDataLoader();
 
         when(source.getTarget()).thenReturn(target);
         when(target.getServiceUri()).thenReturn(EXAMPLE_URI);
 
         GraphRecordingDescriptor activeRecording = Mockito.mock(GraphRecordingDescriptor.class);
-        when(targetConnectionManager.executeConnectedTask(
+        when(targetConnectionManager.executeReadOnlyTask(
                         Mockito.any(ConnectionDescriptor.class), Mockito.any(ConnectedTask.class)))
                 .thenReturn(List.of(activeRecording));
 
-        ArchivedRecordingInfo archivedRecording = Mockito.mock(ArchivedRecordingInfo.class);
-        lenient().when(archiveHelper.getRecordings(Mockito.any())).thenReturn(archivedFuture);
-        lenient().when(archivedFuture.get()).thenReturn(List.of(archivedRecording));
-
-        Recordings recordings = fetcher.get(env);
+        Recordings recordings = fetch();
 
         MatcherAssert.assertThat(recordings, Matchers.notNullValue());
         MatcherAssert.assertThat(recordings.active, Matchers.contains(activeRecording));
-        MatcherAssert.assertThat(recordings.archived, Matchers.nullValue());
+        MatcherAssert.assertThat(recordings.targetId, Matchers.equalTo(URI_STRING));
     }
 
     @Test
@@ -224,20 +233,16 @@ class RecordingsFetcherTest {
         GraphRecordingDescriptor activeRecording = Mockito.mock(GraphRecordingDescriptor.class);
         lenient()
                 .when(
-                        targetConnectionManager.executeConnectedTask(
+                        targetConnectionManager.executeReadOnlyTask(
                                 Mockito.any(ConnectionDescriptor.class),
                                 Mockito.any(ConnectedTask.class)))
                 .thenReturn(List.of(activeRecording));
 
-        ArchivedRecordingInfo archivedRecording = Mockito.mock(ArchivedRecordingInfo.class);
-        when(archiveHelper.getRecordings(Mockito.any())).thenReturn(archivedFuture);
-        when(archivedFuture.get()).thenReturn(List.of(archivedRecording));
-
-        Recordings recordings = fetcher.get(env);
+        Recordings recordings = fetch();
 
         MatcherAssert.assertThat(recordings, Matchers.notNullValue());
         MatcherAssert.assertThat(recordings.active, Matchers.nullValue());
-        MatcherAssert.assertThat(recordings.archived, Matchers.contains(archivedRecording));
+        MatcherAssert.assertThat(recordings.targetId, Matchers.equalTo(URI_STRING));
     }
 
     @Test
@@ -254,6 +259,7 @@ class RecordingsFetcherTest {
         when(env.getSource()).thenReturn(source);
         when(env.getSelectionSet()).thenReturn(selectionSet);
         when(selectionSet.getFields()).thenReturn(List.of(active, archived));
+        stubDataLoader();
 
         when(source.getTarget()).thenReturn(target);
         when(target.getServiceUri()).thenReturn(EXAMPLE_URI);
@@ -261,26 +267,16 @@ class RecordingsFetcherTest {
         GraphRecordingDescriptor activeRecording1 = Mockito.mock(GraphRecordingDescriptor.class);
         GraphRecordingDescriptor activeRecording2 = Mockito.mock(GraphRecordingDescriptor.class);
         GraphRecordingDescriptor activeRecording3 = Mockito.mock(GraphRecordingDescriptor.class);
-        when(targetConnectionManager.executeConnectedTask(
+        when(targetConnectionManager.executeReadOnlyTask(
                         Mockito.any(ConnectionDescriptor.class), Mockito.any(ConnectedTask.class)))
                 .thenReturn(List.of(activeRecording1, activeRecording2, activeRecording3));
 
-        ArchivedRecordingInfo archivedRecording1 = Mockito.mock(ArchivedRecordingInfo.class);
-        ArchivedRecordingInfo archivedRecording2 = Mockito.mock(ArchivedRecordingInfo.class);
-        ArchivedRecordingInfo archivedRecording3 = Mockito.mock(ArchivedRecordingInfo.class);
-        when(archiveHelper.getRecordings(Mockito.any())).thenReturn(archivedFuture);
-        when(archivedFuture.get())
-                .thenReturn(List.of(archivedRecording1, archivedRecording2, archivedRecording3));
-
-        Recordings recordings = fetcher.get(env);
+        Recordings recordings = fetch();
 
         MatcherAssert.assertThat(recordings, Matchers.notNullValue());
         MatcherAssert.assertThat(
                 recordings.active,
                 Matchers.containsInAnyOrder(activeRecording1, activeRecording2, activeRecording3));
-        MatcherAssert.assertThat(
-                recordings.archived,
-                Matchers.containsInAnyOrder(
-                        archivedRecording1, archivedRecording2, archivedRecording3));
+        MatcherAssert.assertThat(recordings.targetId, Matchers.equalTo(URI_STRING));
     }
 }
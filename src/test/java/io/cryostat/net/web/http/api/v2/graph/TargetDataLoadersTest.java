@@ -0,0 +1,174 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.net.web.http.api.v2.graph;
+
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Provider;
+
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.MBeanMetrics;
+import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.net.TargetConnectionManager.ConnectedTask;
+import io.cryostat.net.web.WebServer;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.recordings.ActiveRecordingDescriptorCache;
+import io.cryostat.recordings.RecordingMetadataManager;
+
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TargetDataLoadersTest {
+
+    static final URI URI_1 = URI.create("service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi");
+    static final URI URI_2 = URI.create("service:jmx:rmi:///jndi/rmi://bar:9091/jmxrmi");
+
+    @Mock TargetConnectionManager tcm;
+    @Mock CredentialsManager credentialsManager;
+    @Mock RecordingMetadataManager metadataManager;
+    @Mock ActiveRecordingDescriptorCache descriptorCache;
+    @Mock Provider<WebServer> webServer;
+    @Mock Logger logger;
+
+    TargetDataLoaders createLoaders(Executor executor, Duration timeout) {
+        return new TargetDataLoaders(
+                tcm,
+                credentialsManager,
+                metadataManager,
+                descriptorCache,
+                webServer,
+                executor,
+                timeout,
+                logger);
+    }
+
+    static ServiceRef target(URI uri) {
+        ServiceRef target = Mockito.mock(ServiceRef.class);
+        when(target.getServiceUri()).thenReturn(uri);
+        return target;
+    }
+
+    static ConnectionDescriptor descriptor(URI uri) {
+        return Mockito.argThat(cd -> cd != null && cd.getTargetId().equals(uri.toString()));
+    }
+
+    @Test
+    void shouldLoadBatchInOneDispatch() throws Exception {
+        MBeanMetrics metrics1 = Mockito.mock(MBeanMetrics.class);
+        MBeanMetrics metrics2 = Mockito.mock(MBeanMetrics.class);
+        when(tcm.executeReadOnlyTask(descriptor(URI_1), Mockito.any(ConnectedTask.class)))
+                .thenReturn(metrics1);
+        when(tcm.executeReadOnlyTask(descriptor(URI_2), Mockito.any(ConnectedTask.class)))
+                .thenReturn(metrics2);
+
+        DataLoaderRegistry registry =
+                createLoaders(Runnable::run, Duration.ofSeconds(10)).newRegistry();
+        DataLoader<ServiceRef, MBeanMetrics> loader =
+                registry.getDataLoader(TargetDataLoaders.MBEAN_METRICS);
+        CompletableFuture<MBeanMetrics> f1 = loader.load(target(URI_1));
+        CompletableFuture<MBeanMetrics> f2 = loader.load(target(URI_2));
+
+        MatcherAssert.assertThat(f1.isDone(), Matchers.is(false));
+        registry.dispatchAll();
+
+        MatcherAssert.assertThat(f1.get(), Matchers.sameInstance(metrics1));
+        MatcherAssert.assertThat(f2.get(), Matchers.sameInstance(metrics2));
+    }
+
+    @Test
+    void shouldOnlyFailTargetWhichFailed() throws Exception {
+        MBeanMetrics metrics = Mockito.mock(MBeanMetrics.class);
+        when(tcm.executeReadOnlyTask(descriptor(URI_1), Mockito.any(ConnectedTask.class)))
+                .thenThrow(new IllegalStateException("unreachable"));
+        when(tcm.executeReadOnlyTask(descriptor(URI_2), Mockito.any(ConnectedTask.class)))
+                .thenReturn(metrics);
+
+        DataLoaderRegistry registry =
+                createLoaders(Runnable::run, Duration.ofSeconds(10)).newRegistry();
+        DataLoader<ServiceRef, MBeanMetrics> loader =
+                registry.getDataLoader(TargetDataLoaders.MBEAN_METRICS);
+        CompletableFuture<MBeanMetrics> f1 = loader.load(target(URI_1));
+        CompletableFuture<MBeanMetrics> f2 = loader.load(target(URI_2));
+        registry.dispatchAll();
+
+        ExecutionException ee = Assertions.assertThrows(ExecutionException.class, f1::get);
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(IllegalStateException.class));
+        MatcherAssert.assertThat(f2.get(), Matchers.sameInstance(metrics));
+    }
+
+    @Test
+    void shouldTimeOutSlowTarget() throws Exception {
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        MBeanMetrics metrics = Mockito.mock(MBeanMetrics.class);
+        when(tcm.executeReadOnlyTask(descriptor(URI_1), Mockito.any(ConnectedTask.class)))
+                .thenAnswer(
+                        invocation -> {
+                            release.get();
+                            return metrics;
+                        });
+        when(tcm.executeReadOnlyTask(descriptor(URI_2), Mockito.any(ConnectedTask.class)))
+                .thenReturn(metrics);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DataLoaderRegistry registry =
+                    createLoaders(executor, Duration.ofMillis(100)).newRegistry();
+            DataLoader<ServiceRef, MBeanMetrics> loader =
+                    registry.getDataLoader(TargetDataLoaders.MBEAN_METRICS);
+            CompletableFuture<MBeanMetrics> f1 = loader.load(target(URI_1));
+            CompletableFuture<MBeanMetrics> f2 = loader.load(target(URI_2));
+            registry.dispatchAll();
+
+            ExecutionException ee = Assertions.assertThrows(ExecutionException.class, f1::get);
+            MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(TimeoutException.class));
+            MatcherAssert.assertThat(f2.get(), Matchers.sameInstance(metrics));
+        } finally {
+            release.complete(null);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldCreateIndependentRegistries() throws Exception {
+        TargetDataLoaders loaders = createLoaders(Runnable::run, Duration.ofSeconds(10));
+        MatcherAssert.assertThat(
+                loaders.newRegistry().getDataLoader(TargetDataLoaders.ACTIVE_RECORDINGS),
+                Matchers.not(
+                        Matchers.sameInstance(
+                                loaders.newRegistry()
+                                        .getDataLoader(TargetDataLoaders.ACTIVE_RECORDINGS))));
+    }
+}
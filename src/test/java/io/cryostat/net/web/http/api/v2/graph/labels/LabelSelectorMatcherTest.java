@@ -113,4 +113,23 @@ class LabelSelectorMatcherTest {
         LabelSelectorMatcher matcher = LabelSelectorMatcher.parse(expr);
         MatcherAssert.assertThat(expr, matcher.test(TEST_LABELS), Matchers.is(pass));
     }
+
+    @ParameterizedTest
+    @CsvSource(
+            value = {
+                "foo=bar : foo=bar",
+                "foo == bar : foo=bar",
+                "foo= : foo=",
+                "foo!=bar : ",
+                "foo in (bar, baz) : ",
+                "foo : ",
+            },
+            delimiter = ':')
+    void testRequiredLabel(String expr, String required) {
+        LabelSelectorMatcher matcher = LabelSelectorMatcher.parse(expr);
+        MatcherAssert.assertThat(
+                expr,
+                matcher.getRequiredLabel().map(e -> e.getKey() + "=" + e.getValue()).orElse(null),
+                Matchers.equalTo(required));
+    }
 }
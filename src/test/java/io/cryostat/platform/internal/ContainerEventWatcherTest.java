@@ -0,0 +1,209 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.platform.internal;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.cryostat.MainModule;
+import io.cryostat.core.log.Logger;
+import io.cryostat.platform.internal.ContainerEventWatcher.ContainerEvent;
+
+import com.google.gson.Gson;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.net.SocketAddress;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ContainerEventWatcherTest {
+
+    @Mock Vertx vertx;
+    @Mock HttpClient httpClient;
+    @Mock HttpClientRequest request;
+    @Mock HttpClientResponse response;
+    @Mock Runnable reconciler;
+    @Mock Logger logger;
+    Gson gson = MainModule.provideGson(logger);
+    List<ContainerEvent> events = new ArrayList<>();
+    ContainerEventWatcher watcher;
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(vertx.createHttpClient()).thenReturn(httpClient);
+        this.watcher =
+                new ContainerEventWatcher(
+                        () -> vertx,
+                        SocketAddress.domainSocketAddress("/run/test.sock"),
+                        "/events",
+                        "io.cryostat.discovery",
+                        Duration.ofMinutes(5),
+                        gson,
+                        logger,
+                        events::add,
+                        reconciler);
+    }
+
+    void givenConnectionFails() {
+        Mockito.when(httpClient.request(Mockito.any(RequestOptions.class)))
+                .thenReturn(Future.failedFuture(new IOException("refused")));
+    }
+
+    void givenConnectionSucceeds(int status) {
+        Mockito.when(httpClient.request(Mockito.any(RequestOptions.class)))
+                .thenReturn(Future.succeededFuture(request));
+        Mockito.when(request.send()).thenReturn(Future.succeededFuture(response));
+        Mockito.when(response.statusCode()).thenReturn(status);
+    }
+
+    Handler<Long> verifyReconnectScheduled(long delay) {
+        ArgumentCaptor<Handler<Long>> timerCaptor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(vertx).setTimer(Mockito.eq(delay), timerCaptor.capture());
+        return timerCaptor.getValue();
+    }
+
+    Handler<Buffer> followStream() {
+        givenConnectionSucceeds(200);
+        watcher.start();
+        ArgumentCaptor<Handler<Buffer>> handlerCaptor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(response).handler(handlerCaptor.capture());
+        return handlerCaptor.getValue();
+    }
+
+    @Test
+    void shouldReconcileOnStartAndOnConnect() {
+        followStream();
+
+        MatcherAssert.assertThat(watcher.isConnected(), Matchers.equalTo(true));
+        Mockito.verify(reconciler, Mockito.times(2)).run();
+    }
+
+    @Test
+    void shouldPassLifecycleEventsToHandler() {
+        Handler<Buffer> stream = followStream();
+
+        stream.handle(
+                Buffer.buffer(
+                        "{\"Type\":\"container\",\"Action\":\"start\",\"Actor\":{\"ID\":\"abc\","
+                                + "\"Attributes\":{\"io.cryostat.discovery\":\"true\"}}}\n"));
+
+        MatcherAssert.assertThat(events, Matchers.hasSize(1));
+        MatcherAssert.assertThat(events.get(0).Action(), Matchers.equalTo("start"));
+        MatcherAssert.assertThat(events.get(0).Actor().ID(), Matchers.equalTo("abc"));
+    }
+
+    @Test
+    void shouldIgnoreOtherEvents() {
+        Handler<Buffer> stream = followStream();
+
+        stream.handle(
+                Buffer.buffer(
+                        "\n"
+                                + "{\"Type\":\"container\",\"Action\":\"exec_start\","
+                                + "\"Actor\":{\"ID\":\"abc\"}}\n"
+                                + "{\"Type\":\"image\",\"Action\":\"remove\","
+                                + "\"Actor\":{\"ID\":\"abc\"}}\n"
+                                + "{\"Type\":\"container\",\"Action\":\"die\"}\n"
+                                + "not json\n"));
+
+        MatcherAssert.assertThat(events, Matchers.empty());
+    }
+
+    @Test
+    void shouldBackOffReconnectAttempts() {
+        givenConnectionFails();
+        watcher.start();
+
+        verifyReconnectScheduled(1_000L).handle(1L);
+        verifyReconnectScheduled(2_000L).handle(2L);
+        verifyReconnectScheduled(4_000L);
+        MatcherAssert.assertThat(watcher.isConnected(), Matchers.equalTo(false));
+        Mockito.verify(httpClient, Mockito.times(3)).request(Mockito.any(RequestOptions.class));
+        Mockito.verify(reconciler, Mockito.times(1)).run();
+    }
+
+    @Test
+    void shouldCapReconnectDelay() {
+        givenConnectionFails();
+        watcher.start();
+
+        for (long delay = 1_000L; delay < 30_000L; delay *= 2) {
+            verifyReconnectScheduled(delay).handle(delay);
+        }
+        verifyReconnectScheduled(30_000L).handle(0L);
+        Mockito.verify(vertx, Mockito.times(2)).setTimer(Mockito.eq(30_000L), Mockito.any());
+    }
+
+    @Test
+    void shouldResetBackoffOnceConnected() {
+        Mockito.when(httpClient.request(Mockito.any(RequestOptions.class)))
+                .thenReturn(Future.failedFuture(new IOException("refused")))
+                .thenReturn(Future.succeededFuture(request));
+        Mockito.when(request.send()).thenReturn(Future.succeededFuture(response));
+        Mockito.when(response.statusCode()).thenReturn(200);
+        watcher.start();
+        verifyReconnectScheduled(1_000L).handle(1L);
+        MatcherAssert.assertThat(watcher.isConnected(), Matchers.equalTo(true));
+
+        ArgumentCaptor<Handler<Void>> endCaptor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(response).endHandler(endCaptor.capture());
+        endCaptor.getValue().handle(null);
+
+        MatcherAssert.assertThat(watcher.isConnected(), Matchers.equalTo(false));
+        Mockito.verify(vertx, Mockito.times(2)).setTimer(Mockito.eq(1_000L), Mockito.any());
+    }
+
+    @Test
+    void shouldReconnectOnErrorStatus() {
+        givenConnectionSucceeds(500);
+        Mockito.when(response.request()).thenReturn(request);
+        watcher.start();
+
+        Mockito.verify(request).reset();
+        verifyReconnectScheduled(1_000L);
+        MatcherAssert.assertThat(watcher.isConnected(), Matchers.equalTo(false));
+        Mockito.verify(reconciler, Mockito.times(1)).run();
+    }
+
+    @Test
+    void shouldNotReconnectOnceStopped() {
+        followStream();
+        ArgumentCaptor<Handler<Void>> endCaptor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(response).endHandler(endCaptor.capture());
+
+        watcher.stop();
+        endCaptor.getValue().handle(null);
+
+        Mockito.verify(httpClient).close();
+        Mockito.verify(vertx, Mockito.never()).setTimer(Mockito.anyLong(), Mockito.any());
+    }
+}
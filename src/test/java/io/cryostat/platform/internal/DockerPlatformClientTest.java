@@ -0,0 +1,182 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.platform.internal;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.cryostat.MainModule;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.JFRConnectionToolkit;
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
+import io.cryostat.platform.internal.DockerPlatformClient.ContainerSpec;
+
+import com.google.gson.Gson;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.client.WebClient;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DockerPlatformClientTest {
+
+    static final String JMX_URL = "service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi";
+
+    @Mock WebClient webClient;
+    @Mock Vertx vertx;
+    @Mock JFRConnectionToolkit connectionToolkit;
+    @Mock Logger logger;
+    Gson gson = MainModule.provideGson(logger);
+    List<TargetDiscoveryEvent> events = new ArrayList<>();
+    DockerPlatformClient client;
+
+    @BeforeEach
+    void setup() {
+        this.client =
+                new DockerPlatformClient(
+                        () -> webClient,
+                        () -> vertx,
+                        SocketAddress.domainSocketAddress("/run/docker.sock"),
+                        () -> connectionToolkit,
+                        Duration.ofMinutes(5),
+                        gson,
+                        logger);
+        client.addTargetDiscoveryListener(events::add);
+    }
+
+    static ContainerSpec container(String id, String jmxUrl, Map<String, String> labels) {
+        Map<String, String> allLabels = new HashMap<>(labels);
+        allLabels.put(DockerPlatformClient.DISCOVERY_LABEL, "true");
+        allLabels.put(DockerPlatformClient.JMX_URL_LABEL, jmxUrl);
+        return new ContainerSpec(
+                id, "image", allLabels, List.of("/" + id), 1L, List.of(), 0L, "running");
+    }
+
+    void assertEvents(EventKind... kinds) {
+        MatcherAssert.assertThat(
+                events.stream().map(TargetDiscoveryEvent::getEventKind).toList(),
+                Matchers.equalTo(List.of(kinds)));
+    }
+
+    @Test
+    void shouldNotifyFoundForNewContainer() {
+        client.update(1, "a", container("a", JMX_URL, Map.of()));
+
+        assertEvents(EventKind.FOUND);
+        MatcherAssert.assertThat(
+                events.get(0).getServiceRef().getServiceUri(),
+                Matchers.equalTo(URI.create(JMX_URL)));
+        MatcherAssert.assertThat(client.listDiscoverableServices(), Matchers.hasSize(1));
+    }
+
+    @Test
+    void shouldNotNotifyUnchangedContainer() {
+        client.update(1, "a", container("a", JMX_URL, Map.of()));
+        client.update(2, "a", container("a", JMX_URL, Map.of()));
+
+        assertEvents(EventKind.FOUND);
+    }
+
+    @Test
+    void shouldNotifyModifiedWhenContainerChangesWithSameUrl() {
+        client.update(1, "a", container("a", JMX_URL, Map.of()));
+        client.update(2, "a", container("a", JMX_URL, Map.of("foo", "bar")));
+
+        assertEvents(EventKind.FOUND, EventKind.MODIFIED);
+        MatcherAssert.assertThat(
+                events.get(1).getServiceRef().getLabels(), Matchers.hasEntry("foo", "bar"));
+    }
+
+    @Test
+    void shouldNotifyLostAndFoundWhenUrlChanges() {
+        String otherUrl = "service:jmx:rmi:///jndi/rmi://foo:9092/jmxrmi";
+        client.update(1, "a", container("a", JMX_URL, Map.of()));
+        client.update(2, "a", container("a", otherUrl, Map.of()));
+
+        assertEvents(EventKind.FOUND, EventKind.LOST, EventKind.FOUND);
+        MatcherAssert.assertThat(
+                events.get(1).getServiceRef().getServiceUri(),
+                Matchers.equalTo(URI.create(JMX_URL)));
+        MatcherAssert.assertThat(
+                events.get(2).getServiceRef().getServiceUri(),
+                Matchers.equalTo(URI.create(otherUrl)));
+    }
+
+    @Test
+    void shouldNotifyLostWhenContainerIsGone() {
+        client.update(1, "a", container("a", JMX_URL, Map.of()));
+        client.update(2, "a", null);
+
+        assertEvents(EventKind.FOUND, EventKind.LOST);
+        MatcherAssert.assertThat(client.listDiscoverableServices(), Matchers.empty());
+    }
+
+    @Test
+    void shouldRemoveContainersMissingFromReconciliation() {
+        client.update(1, "a", container("a", JMX_URL, Map.of()));
+        client.reconcile(2, List.of());
+
+        assertEvents(EventKind.FOUND, EventKind.LOST);
+    }
+
+    @Test
+    void shouldNotApplyReconciliationOlderThanEventResult() {
+        // the reconciliation was requested first, but its response arrives after the event's
+        client.update(2, "a", container("a", JMX_URL, Map.of()));
+        client.reconcile(1, List.of());
+
+        assertEvents(EventKind.FOUND);
+        MatcherAssert.assertThat(client.listDiscoverableServices(), Matchers.hasSize(1));
+    }
+
+    @Test
+    void shouldNotApplyEventResultOlderThanReconciliation() {
+        client.reconcile(2, List.of(container("a", JMX_URL, Map.of())));
+        client.update(1, "a", null);
+
+        assertEvents(EventKind.FOUND);
+        MatcherAssert.assertThat(client.listDiscoverableServices(), Matchers.hasSize(1));
+    }
+
+    @Test
+    void shouldNotApplyOlderReconciliation() {
+        client.reconcile(2, List.of(container("a", JMX_URL, Map.of())));
+        client.reconcile(1, List.of());
+
+        assertEvents(EventKind.FOUND);
+    }
+
+    @Test
+    void shouldApplyEventResultsAfterReconciliation() {
+        client.reconcile(1, List.of(container("a", JMX_URL, Map.of())));
+        client.update(2, "a", null);
+        client.update(3, "a", container("a", JMX_URL, Map.of()));
+
+        assertEvents(EventKind.FOUND, EventKind.LOST, EventKind.FOUND);
+    }
+}
@@ -44,6 +44,8 @@ import io.fabric8.kubernetes.api.model.Endpoints;
 import io.fabric8.kubernetes.api.model.EndpointsBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSliceBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
 import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
@@ -73,7 +75,12 @@ class KubeApiPlatformClientTest {
     void setup() throws Exception {
         this.platformClient =
                 new KubeApiPlatformClient(
-                        List.of(NAMESPACE), k8sClient, () -> connectionToolkit, logger);
+                        List.of(NAMESPACE),
+                        false,
+                        null,
+                        k8sClient,
+                        () -> connectionToolkit,
+                        logger);
     }
 
     @Test
@@ -508,6 +515,169 @@ class KubeApiPlatformClientTest {
         MatcherAssert.assertThat(podB.getChildren(), Matchers.contains(sr2Matcher));
     }
 
+    @Test
+    void shouldResolveOwnersFromInformerCaches() throws Exception {
+        Pod target =
+                new PodBuilder()
+                        .withNewMetadata()
+                        .withName("target")
+                        .withNamespace(NAMESPACE)
+                        .endMetadata()
+                        .build();
+        k8sClient.pods().inNamespace(NAMESPACE).resource(target).create();
+
+        Endpoints endpoints =
+                new EndpointsBuilder()
+                        .withNewMetadata()
+                        .withName("endpoints1")
+                        .withNamespace(NAMESPACE)
+                        .endMetadata()
+                        .addNewSubset()
+                        .withAddresses(
+                                new EndpointAddressBuilder()
+                                        .withIp("127.0.0.2")
+                                        .withHostname(target.getMetadata().getName())
+                                        .withNewTargetRef()
+                                        .withName(target.getMetadata().getName())
+                                        .withKind(target.getKind())
+                                        .withNamespace(NAMESPACE)
+                                        .endTargetRef()
+                                        .build())
+                        .withPorts(
+                                new EndpointPortBuilder()
+                                        .withName("jfr-jmx")
+                                        .withPort(9091)
+                                        .withProtocol("tcp")
+                                        .build())
+                        .endSubset()
+                        .build();
+        k8sClient.endpoints().inNamespace(NAMESPACE).resource(endpoints).create();
+
+        platformClient.start();
+        int requestCount = server.getRequestCount();
+
+        EnvironmentNode realmNode = platformClient.getDiscoveryTree();
+        EnvironmentNode realmNode2 = platformClient.getDiscoveryTree();
+
+        MatcherAssert.assertThat(server.getRequestCount(), Matchers.equalTo(requestCount));
+        MatcherAssert.assertThat(realmNode.getChildren(), Matchers.hasSize(1));
+        EnvironmentNode nsNode = (EnvironmentNode) realmNode.getChildren().get(0);
+        MatcherAssert.assertThat(nsNode.getChildren(), Matchers.hasSize(1));
+        MatcherAssert.assertThat(
+                nsNode.getChildren().get(0),
+                Matchers.allOf(
+                        Matchers.hasProperty("name", Matchers.equalTo("target")),
+                        Matchers.hasProperty(
+                                "nodeType", Matchers.equalTo(KubernetesNodeType.POD))));
+        MatcherAssert.assertThat(realmNode2, Matchers.equalTo(realmNode));
+    }
+
+    @Test
+    void shouldDiscoverFromClusterWideEndpointSlices() throws Exception {
+        platformClient =
+                new KubeApiPlatformClient(
+                        List.of(KubeApiPlatformClient.ALL_NAMESPACES),
+                        true,
+                        "app=target",
+                        k8sClient,
+                        () -> connectionToolkit,
+                        logger);
+
+        Pod target =
+                new PodBuilder()
+                        .withNewMetadata()
+                        .withName("target")
+                        .withNamespace(NAMESPACE)
+                        .endMetadata()
+                        .build();
+        k8sClient.pods().inNamespace(NAMESPACE).resource(target).create();
+
+        EndpointSlice slice =
+                new EndpointSliceBuilder()
+                        .withNewMetadata()
+                        .withName("slice1")
+                        .withNamespace(NAMESPACE)
+                        .withLabels(Map.of("app", "target"))
+                        .endMetadata()
+                        .withAddressType("IPv4")
+                        .addNewEndpoint()
+                        .withAddresses("127.0.0.2")
+                        .withNewConditions()
+                        .withReady(true)
+                        .endConditions()
+                        .withNewTargetRef()
+                        .withName(target.getMetadata().getName())
+                        .withKind(target.getKind())
+                        .withNamespace(NAMESPACE)
+                        .endTargetRef()
+                        .endEndpoint()
+                        .addNewEndpoint()
+                        .withAddresses("127.0.0.3")
+                        .withNewConditions()
+                        .withReady(false)
+                        .endConditions()
+                        .withNewTargetRef()
+                        .withName(target.getMetadata().getName())
+                        .withKind(target.getKind())
+                        .withNamespace(NAMESPACE)
+                        .endTargetRef()
+                        .endEndpoint()
+                        .addNewEndpoint()
+                        .withAddresses("127.0.0.4")
+                        .endEndpoint()
+                        .addNewEndpoint()
+                        .withAddresses("127.0.0.5")
+                        .withNewTargetRef()
+                        .withName("node")
+                        .withKind("Node")
+                        .endTargetRef()
+                        .endEndpoint()
+                        .addNewPort()
+                        .withName("jfr-jmx")
+                        .withPort(9091)
+                        .withProtocol("TCP")
+                        .endPort()
+                        .build();
+        k8sClient.discovery().v1().endpointSlices().inNamespace(NAMESPACE).resource(slice).create();
+        EndpointSlice unselected =
+                new EndpointSliceBuilder(slice)
+                        .editMetadata()
+                        .withName("slice2")
+                        .withLabels(Map.of("app", "other"))
+                        .endMetadata()
+                        .build();
+        k8sClient
+                .discovery()
+                .v1()
+                .endpointSlices()
+                .inNamespace(NAMESPACE)
+                .resource(unselected)
+                .create();
+
+        platformClient.start();
+
+        List<ServiceRef> result = platformClient.listDiscoverableServices();
+        MatcherAssert.assertThat(result, Matchers.hasSize(1));
+        MatcherAssert.assertThat(
+                result.get(0).getServiceUri(),
+                Matchers.equalTo(
+                        URI.create(
+                                String.format(
+                                        "service:jmx:rmi:///jndi/rmi://%s.%s.pod:%d/jmxrmi",
+                                        "127-0-0-2",
+                                        NAMESPACE,
+                                        9091))));
+
+        EnvironmentNode realmNode = platformClient.getDiscoveryTree();
+        MatcherAssert.assertThat(realmNode.getChildren(), Matchers.hasSize(1));
+        MatcherAssert.assertThat(
+                realmNode.getChildren().get(0),
+                Matchers.allOf(
+                        Matchers.hasProperty("name", Matchers.equalTo(NAMESPACE)),
+                        Matchers.hasProperty(
+                                "nodeType", Matchers.equalTo(KubernetesNodeType.NAMESPACE))));
+    }
+
     @Test
     public void shouldNotifyOnAsyncAdded() throws Exception {
         CompletableFuture<TargetDiscoveryEvent> eventFuture = new CompletableFuture<>();
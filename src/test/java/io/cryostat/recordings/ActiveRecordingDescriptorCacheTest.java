@@ -0,0 +1,175 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.CryostatFlightRecorderService;
+import io.cryostat.core.net.JFRConnection;
+import io.cryostat.core.sys.Clock;
+import io.cryostat.messaging.notifications.Notification;
+import io.cryostat.net.ConnectionDescriptor;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveRecordingDescriptorCacheTest {
+
+    static final String TARGET_ID = "service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi";
+
+    @Mock Clock clock;
+    @Mock Logger logger;
+    @Mock JFRConnection connection;
+    @Mock CryostatFlightRecorderService service;
+    @Mock IRecordingDescriptor descriptor;
+
+    ConnectionDescriptor cd = new ConnectionDescriptor(TARGET_ID);
+    ActiveRecordingDescriptorCache cache;
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.cache = new ActiveRecordingDescriptorCache(Duration.ofSeconds(2), clock, logger);
+        Mockito.lenient().when(connection.getService()).thenReturn(service);
+    }
+
+    static Notification<Map<String, Object>> notification(String category, String targetId) {
+        Notification<Map<String, Object>> notification = Mockito.mock(Notification.class);
+        Mockito.when(notification.getCategory()).thenReturn(category);
+        Mockito.lenient()
+                .when(notification.getMessage())
+                .thenReturn(Map.of("target", targetId));
+        return notification;
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCacheWithinTtl() throws Exception {
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(descriptor));
+        Mockito.when(clock.getMonotonicTime())
+                .thenReturn(0L, Duration.ofMillis(1999).toNanos());
+
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.contains(descriptor));
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.contains(descriptor));
+
+        Mockito.verify(service, Mockito.times(1)).getAvailableRecordings();
+    }
+
+    @Test
+    void shouldReloadAfterTtl() throws Exception {
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(), List.of(descriptor));
+        Mockito.when(clock.getMonotonicTime()).thenReturn(0L, Duration.ofSeconds(2).toNanos());
+
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.empty());
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.contains(descriptor));
+
+        Mockito.verify(service, Mockito.times(2)).getAvailableRecordings();
+    }
+
+    @Test
+    void shouldReloadAfterRecordingNotification() throws Exception {
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(), List.of(descriptor));
+
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.empty());
+        cache.onNotification(
+                notification(RecordingTargetHelper.CREATION_NOTIFICATION_CATEGORY, TARGET_ID));
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.contains(descriptor));
+    }
+
+    @Test
+    void shouldIgnoreUnrelatedNotifications() throws Exception {
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(descriptor));
+
+        cache.get(cd, connection);
+        cache.onNotification(notification("ArchivedRecordingCreated", TARGET_ID));
+        cache.onNotification(
+                notification(
+                        RecordingTargetHelper.STOP_NOTIFICATION_CATEGORY, "some-other-target"));
+        cache.get(cd, connection);
+
+        Mockito.verify(service, Mockito.times(1)).getAvailableRecordings();
+    }
+
+    @Test
+    void shouldNotCacheFailures() throws Exception {
+        Mockito.when(service.getAvailableRecordings())
+                .thenThrow(new IllegalStateException("unreachable"))
+                .thenReturn(List.of(descriptor));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.get(cd, connection));
+        MatcherAssert.assertThat(cache.get(cd, connection), Matchers.contains(descriptor));
+    }
+
+    @Test
+    void shouldReloadOnceWhenNamedRecordingIsMissing() throws Exception {
+        Mockito.when(descriptor.getName()).thenReturn("foo");
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(), List.of(descriptor));
+
+        cache.get(cd, connection);
+        MatcherAssert.assertThat(
+                cache.getByName(cd, connection, "foo"), Matchers.equalTo(Optional.of(descriptor)));
+        MatcherAssert.assertThat(
+                cache.getByName(cd, connection, "bar"), Matchers.equalTo(Optional.empty()));
+
+        Mockito.verify(service, Mockito.times(3)).getAvailableRecordings();
+    }
+
+    @Test
+    void shouldCollapseConcurrentLoads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        Mockito.when(service.getAvailableRecordings())
+                .thenAnswer(
+                        invocation -> {
+                            loading.countDown();
+                            release.get();
+                            return List.of(descriptor);
+                        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<IRecordingDescriptor>> first =
+                    executor.submit(() -> cache.get(cd, connection));
+            loading.await();
+            Future<List<IRecordingDescriptor>> second =
+                    executor.submit(() -> cache.get(cd, connection));
+            release.complete(null);
+
+            MatcherAssert.assertThat(first.get(), Matchers.contains(descriptor));
+            MatcherAssert.assertThat(second.get(), Matchers.contains(descriptor));
+            Mockito.verify(service, Mockito.times(1)).getAvailableRecordings();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.recordings.ArchiveCatalog.Directory;
+import io.cryostat.recordings.ArchiveCatalog.Entry;
+
+import com.google.gson.Gson;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveCatalogTest {
+
+    @TempDir Path confDir;
+    @Mock Logger logger;
+    FileSystem fs = new FileSystem();
+    Gson gson = new Gson();
+    Path catalogFile;
+    ArchiveCatalog catalog;
+
+    @BeforeEach
+    void setup() {
+        this.catalogFile = confDir.resolve(ArchiveCatalog.CATALOG_FILE);
+        this.catalog = createCatalog();
+    }
+
+    ArchiveCatalog createCatalog() {
+        return new ArchiveCatalog(fs, catalogFile, Runnable::run, gson, logger);
+    }
+
+    @Test
+    void shouldPersistAndReloadRecordings() throws Exception {
+        Entry a = new Entry("a.jfr", 100, 1000, 1000);
+        Entry b = new Entry("b.jfr", 200, 2000, 2000);
+        catalog.putRecording("subdir", "service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi", "id", a);
+        catalog.putRecording("subdir", "service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi", "id", b);
+
+        ArchiveCatalog reloaded = createCatalog();
+        reloaded.load();
+
+        Directory directory = reloaded.getDirectory("subdir").get();
+        MatcherAssert.assertThat(
+                directory.connectUrl,
+                Matchers.equalTo("service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi"));
+        MatcherAssert.assertThat(directory.jvmId, Matchers.equalTo("id"));
+        MatcherAssert.assertThat(
+                List.copyOf(directory.recordings.values()), Matchers.equalTo(List.of(a, b)));
+        MatcherAssert.assertThat(
+                reloaded.findRecording("b.jfr"), Matchers.equalTo(Optional.of("subdir")));
+        MatcherAssert.assertThat(Files.exists(catalogFile), Matchers.is(true));
+    }
+
+    @Test
+    void shouldPersistRemovals() throws Exception {
+        catalog.putDirectory(
+                "one",
+                new Directory(
+                        "uploads",
+                        "uploads",
+                        Map.of("a.jfr", new Entry("a.jfr", 100, 1000, 1000))));
+        catalog.putDirectory(
+                "two",
+                new Directory(
+                        "url", "id", Map.of("b.jfr", new Entry("b.jfr", 200, 2000, 2000))));
+        catalog.removeRecording("one", "a.jfr");
+        catalog.retainDirectories(List.of("one"));
+
+        ArchiveCatalog reloaded = createCatalog();
+        reloaded.load();
+
+        MatcherAssert.assertThat(
+                reloaded.getDirectory("one").get().recordings, Matchers.anEmptyMap());
+        MatcherAssert.assertThat(reloaded.getDirectory("two"), Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(
+                reloaded.findRecording("b.jfr"), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldStartEmptyWithoutCatalogFile() throws Exception {
+        catalog.load();
+        MatcherAssert.assertThat(
+                catalog.getDirectory("subdir"), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldStartEmptyWithCorruptCatalogFile() throws Exception {
+        Files.writeString(catalogFile, "{\"subdir\": [not json");
+        catalog.load();
+        MatcherAssert.assertThat(
+                catalog.getDirectory("subdir"), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldReplaceRatherThanAppendToCatalogFile() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            catalog.putDirectory(
+                    "subdir",
+                    new Directory("url", "id", Map.of("a.jfr", new Entry("a.jfr", i, 1000, 1000))));
+        }
+        Map<?, ?> persisted = gson.fromJson(Files.readString(catalogFile), Map.class);
+        MatcherAssert.assertThat(persisted.keySet(), Matchers.contains("subdir"));
+    }
+
+    @Test
+    void shouldFallBackToBackupWhenCatalogFileIsTruncated() throws Exception {
+        Entry a = new Entry("a.jfr", 100, 1000, 1000);
+        catalog.putRecording("subdir", "url", "id", a);
+        Files.writeString(catalogFile, "{\"subdir\": {\"connectUrl\"");
+
+        ArchiveCatalog reloaded = createCatalog();
+        reloaded.load();
+
+        MatcherAssert.assertThat(
+                reloaded.getRecording("subdir", "a.jfr"), Matchers.equalTo(Optional.of(a)));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.List;
+import java.util.Map;
+
+import io.cryostat.recordings.RecordingMetadataManager.Metadata;
+import io.cryostat.rules.ArchivedRecordingInfo;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ArchivedRecordingIndexTest {
+
+    ArchivedRecordingInfo foo1;
+    ArchivedRecordingInfo bar1;
+    ArchivedRecordingInfo foo2;
+    ArchivedRecordingInfo baz2;
+    ArchivedRecordingIndex index;
+
+    static ArchivedRecordingInfo recording(
+            String name, Map<String, String> labels, long size, long archivedTime) {
+        return new ArchivedRecordingInfo(
+                "target", name, "download", "report", new Metadata(labels), size, archivedTime);
+    }
+
+    @BeforeEach
+    void setup() {
+        foo1 = recording("foo", Map.of("template.type", "TARGET", "env", "prod"), 100, 1000);
+        bar1 = recording("bar", Map.of("template.type", "CUSTOM"), 200, 2000);
+        foo2 = recording("foo", Map.of("env", "prod"), 300, 3000);
+        baz2 = recording("baz", Map.of(), 400, 4000);
+        index =
+                new ArchivedRecordingIndex(
+                        List.of(
+                                Pair.of("one", foo1),
+                                Pair.of("one", bar1),
+                                Pair.of("two", foo2),
+                                Pair.of("two", baz2)),
+                        1,
+                        2);
+    }
+
+    static ArchivedRecordingQuery.Builder builder() {
+        return ArchivedRecordingQuery.builder();
+    }
+
+    ArchivedRecordingQuery.Result query(ArchivedRecordingQuery.Builder query) {
+        return index.query(query.build(), null);
+    }
+
+    List<ArchivedRecordingInfo> select(ArchivedRecordingQuery.Builder query) {
+        return query(query).getRecordings();
+    }
+
+    @Test
+    void shouldReturnAllRecordingsInOrderWithoutConditions() {
+        ArchivedRecordingQuery.Result result = query(builder());
+        MatcherAssert.assertThat(result.getRecordings(), Matchers.contains(foo1, bar1, foo2, baz2));
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(4L));
+        MatcherAssert.assertThat(result.getAggregateSize(), Matchers.equalTo(1000L));
+    }
+
+    @Test
+    void shouldRestrictToSubdirectory() {
+        ArchivedRecordingQuery.Result result = index.query(builder().name("foo").build(), "two");
+        MatcherAssert.assertThat(result.getRecordings(), Matchers.contains(foo2));
+
+        result = index.query(builder().build(), "three");
+        MatcherAssert.assertThat(result.getRecordings(), Matchers.empty());
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void shouldSelectByNames() {
+        MatcherAssert.assertThat(
+                select(builder().names(List.of("foo", "baz"))),
+                Matchers.contains(foo1, foo2, baz2));
+        MatcherAssert.assertThat(
+                select(builder().names(List.of("foo", "baz")).name("bar")), Matchers.empty());
+    }
+
+    @Test
+    void shouldSelectByLabels() {
+        MatcherAssert.assertThat(
+                select(builder().label("env", "prod")), Matchers.contains(foo1, foo2));
+        MatcherAssert.assertThat(
+                select(builder().label("env", "prod").label("template.type", "TARGET")),
+                Matchers.contains(foo1));
+        MatcherAssert.assertThat(select(builder().label("env", "qa")), Matchers.empty());
+    }
+
+    @Test
+    void shouldApplyLabelSelectorsToIndexedMatches() {
+        ArchivedRecordingQuery.Result result =
+                query(
+                        builder()
+                                .name("foo")
+                                .labelSelector(labels -> labels.containsKey("template.type")));
+        MatcherAssert.assertThat(result.getRecordings(), Matchers.contains(foo1));
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    void shouldSelectBySizeAndArchivedTimeRanges() {
+        MatcherAssert.assertThat(
+                select(builder().sizeGreaterThanEqual(200)), Matchers.contains(bar1, foo2, baz2));
+        MatcherAssert.assertThat(
+                select(builder().sizeGreaterThanEqual(200).sizeLessThanEqual(300)),
+                Matchers.contains(bar1, foo2));
+        MatcherAssert.assertThat(
+                select(builder().archivedTimeBeforeEqual(2000)), Matchers.contains(foo1, bar1));
+        MatcherAssert.assertThat(
+                select(builder().name("foo").archivedTimeAfterEqual(2000).sizeLessThanEqual(300)),
+                Matchers.contains(foo2));
+        MatcherAssert.assertThat(
+                select(builder().sizeGreaterThanEqual(300).sizeLessThanEqual(200)),
+                Matchers.empty());
+    }
+
+    @Test
+    void shouldPageMatchesButAggregateOverAll() {
+        ArchivedRecordingQuery.Result result =
+                query(builder().sizeGreaterThanEqual(200).offset(1).limit(1));
+        MatcherAssert.assertThat(result.getRecordings(), Matchers.contains(foo2));
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(3L));
+        MatcherAssert.assertThat(result.getAggregateSize(), Matchers.equalTo(900L));
+
+        result = query(builder().offset(10));
+        MatcherAssert.assertThat(result.getRecordings(), Matchers.empty());
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(4L));
+    }
+
+    @Test
+    void shouldBeCurrentOnlyForMatchingGenerations() {
+        MatcherAssert.assertThat(index.isCurrent(1, 2), Matchers.is(true));
+        MatcherAssert.assertThat(index.isCurrent(2, 2), Matchers.is(false));
+        MatcherAssert.assertThat(index.isCurrent(1, 3), Matchers.is(false));
+    }
+}
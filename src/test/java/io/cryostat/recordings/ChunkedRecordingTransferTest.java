@@ -0,0 +1,149 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletionException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.JFRConnection;
+import io.cryostat.core.sys.Clock;
+import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.TargetConnectionManager;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedRecordingTransferTest {
+
+    @TempDir Path archiveDir;
+    @Mock TargetConnectionManager tcm;
+    @Mock JFRConnection connection;
+    @Mock Clock clock;
+    @Mock Logger logger;
+    ConnectionDescriptor cd = new ConnectionDescriptor("fooTarget");
+    ChunkedRecordingTransfer transfer;
+
+    @BeforeEach
+    void setup() {
+        this.transfer = new ChunkedRecordingTransfer(tcm, Runnable::run, clock, logger);
+    }
+
+    void givenConnected() throws Exception {
+        Mockito.when(tcm.markConnectionInUse(cd)).thenReturn(true);
+        Mockito.when(
+                        tcm.executeReadOnlyTask(
+                                Mockito.eq(cd),
+                                Mockito.any(TargetConnectionManager.ConnectedTask.class)))
+                .thenAnswer(
+                        invocation -> {
+                            TargetConnectionManager.ConnectedTask<?> task =
+                                    invocation.getArgument(1);
+                            return task.execute(connection);
+                        });
+    }
+
+    static byte[] recording(int size) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) 7);
+        data[0] = 'F';
+        data[1] = 'L';
+        data[2] = 'R';
+        data[3] = 0;
+        return data;
+    }
+
+    @Test
+    void shouldCopyRecordingInChunks() throws Exception {
+        givenConnected();
+        byte[] data = recording(ChunkedRecordingTransfer.CHUNK_SIZE * 2 + 5);
+        Path destination = Files.createFile(archiveDir.resolve("foo.jfr"));
+
+        long bytes =
+                transfer.transfer(cd, "foo", new ByteArrayInputStream(data), destination).join();
+
+        MatcherAssert.assertThat(bytes, Matchers.equalTo((long) data.length));
+        MatcherAssert.assertThat(Files.readAllBytes(destination), Matchers.equalTo(data));
+        // the target lock is taken once per chunk plus once more to find the end of the stream
+        Mockito.verify(tcm, Mockito.times(4))
+                .executeReadOnlyTask(
+                        Mockito.eq(cd), Mockito.any(TargetConnectionManager.ConnectedTask.class));
+    }
+
+    @Test
+    void shouldReportEmptyRecording() throws Exception {
+        givenConnected();
+        Path destination = Files.createFile(archiveDir.resolve("foo.jfr"));
+
+        long bytes =
+                transfer.transfer(cd, "foo", new ByteArrayInputStream(new byte[0]), destination)
+                        .join();
+
+        MatcherAssert.assertThat(bytes, Matchers.equalTo(0L));
+    }
+
+    @Test
+    void shouldRejectNonJfrData() throws Exception {
+        givenConnected();
+        Path destination = Files.createFile(archiveDir.resolve("foo.jfr"));
+
+        CompletionException ce =
+                Assertions.assertThrows(
+                        CompletionException.class,
+                        () ->
+                                transfer.transfer(
+                                                cd,
+                                                "foo",
+                                                new ByteArrayInputStream("notjfr".getBytes()),
+                                                destination)
+                                        .join());
+        MatcherAssert.assertThat(ce.getCause(), Matchers.instanceOf(IOException.class));
+    }
+
+    @Test
+    void shouldFailIfConnectionIsClosedDuringTransfer() throws Exception {
+        Mockito.when(tcm.markConnectionInUse(cd)).thenReturn(false);
+        Path destination = Files.createFile(archiveDir.resolve("foo.jfr"));
+
+        CompletionException ce =
+                Assertions.assertThrows(
+                        CompletionException.class,
+                        () ->
+                                transfer.transfer(
+                                                cd,
+                                                "foo",
+                                                new ByteArrayInputStream(recording(16)),
+                                                destination)
+                                        .join());
+        MatcherAssert.assertThat(ce.getCause(), Matchers.instanceOf(IOException.class));
+        Mockito.verify(tcm, Mockito.never())
+                .executeReadOnlyTask(
+                        Mockito.eq(cd), Mockito.any(TargetConnectionManager.ConnectedTask.class));
+    }
+}
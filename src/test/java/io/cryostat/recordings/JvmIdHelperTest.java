@@ -0,0 +1,244 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
+import io.cryostat.core.sys.Clock;
+import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.apache.commons.codec.binary.Base32;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class JvmIdHelperTest {
+
+    static final String TARGET_ID = "service:jmx:rmi:///jndi/rmi://foo:9091/jmxrmi";
+    static final long REVALIDATION_AGE_MS = Duration.ofMinutes(5).toMillis();
+    static final long MAX_AGE_MS = Duration.ofDays(7).toMillis();
+
+    @Mock TargetConnectionManager tcm;
+    @Mock CredentialsManager credentialsManager;
+    @Mock PlatformClient platform;
+    @Mock StoredJvmIdDao dao;
+    @Mock Clock clock;
+    @Mock Logger logger;
+
+    ServiceRef target;
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.target = new ServiceRef(null, URI.create(TARGET_ID), "foo");
+    }
+
+    JvmIdHelper createHelper() {
+        return new JvmIdHelper(
+                tcm,
+                credentialsManager,
+                platform,
+                dao,
+                3,
+                Duration.ofMillis(REVALIDATION_AGE_MS),
+                Duration.ofMillis(MAX_AGE_MS),
+                100,
+                Runnable::run,
+                Scheduler.disabledScheduler(),
+                clock,
+                new Base32(),
+                logger);
+    }
+
+    void givenStoredId(String jvmId, long lastVerified) {
+        Mockito.when(dao.getAll())
+                .thenReturn(List.of(new StoredJvmId(TARGET_ID, jvmId, lastVerified)));
+    }
+
+    @Test
+    void shouldTrustStoredIdsWithoutConnecting() throws Exception {
+        givenStoredId("stored-id", 0L);
+        JvmIdHelper helper = createHelper();
+
+        MatcherAssert.assertThat(helper.getJvmId(TARGET_ID), Matchers.equalTo("stored-id"));
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).get(), Matchers.equalTo("stored-id"));
+        Mockito.verifyNoInteractions(tcm);
+    }
+
+    @Test
+    void shouldNotRevalidateRecentlyVerifiedIds() throws Exception {
+        givenStoredId("stored-id", 1_000L);
+        Mockito.when(clock.getWallTime()).thenReturn(2_000L);
+        JvmIdHelper helper = createHelper();
+
+        ServiceRef resolved = helper.resolveId(target);
+
+        MatcherAssert.assertThat(resolved.getJvmId(), Matchers.equalTo("stored-id"));
+        Mockito.verifyNoInteractions(tcm);
+        Mockito.verify(dao, Mockito.never())
+                .upsert(Mockito.anyString(), Mockito.anyString(), Mockito.anyLong());
+    }
+
+    @Test
+    void shouldRevalidateStaleIdsInBackground() throws Exception {
+        givenStoredId("stored-id", 0L);
+        long now = REVALIDATION_AGE_MS + 1;
+        Mockito.when(clock.getWallTime()).thenReturn(now);
+        CompletableFuture<String> revalidation = new CompletableFuture<>();
+        Mockito.when(tcm.executeConnectedTaskAsync(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> revalidation);
+        JvmIdHelper helper = createHelper();
+
+        ServiceRef resolved = helper.resolveId(target);
+
+        MatcherAssert.assertThat(resolved.getJvmId(), Matchers.equalTo("stored-id"));
+        MatcherAssert.assertThat(
+                helper.reverseLookup("stored-id").isPresent(), Matchers.equalTo(true));
+
+        revalidation.complete("new-id");
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).get(), Matchers.equalTo("new-id"));
+        MatcherAssert.assertThat(
+                helper.reverseLookup("stored-id").isPresent(), Matchers.equalTo(false));
+        MatcherAssert.assertThat(
+                helper.reverseLookup("new-id").get().getServiceUri(),
+                Matchers.equalTo(URI.create(TARGET_ID)));
+        Mockito.verify(dao).upsert(TARGET_ID, "new-id", now);
+    }
+
+    @Test
+    void shouldRefreshTimestampWhenRevalidatedIdIsUnchanged() throws Exception {
+        givenStoredId("stored-id", 0L);
+        long now = REVALIDATION_AGE_MS + 1;
+        Mockito.when(clock.getWallTime()).thenReturn(now);
+        Mockito.when(tcm.executeConnectedTaskAsync(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture("stored-id"));
+        JvmIdHelper helper = createHelper();
+
+        helper.resolveId(target);
+        helper.resolveId(target);
+
+        Mockito.verify(tcm, Mockito.times(1))
+                .executeConnectedTaskAsync(Mockito.any(), Mockito.any());
+        Mockito.verify(dao).upsert(TARGET_ID, "stored-id", now);
+    }
+
+    @Test
+    void shouldKeepStoredIdWhenRevalidationFails() throws Exception {
+        givenStoredId("stored-id", 0L);
+        Mockito.when(clock.getWallTime()).thenReturn(REVALIDATION_AGE_MS + 1);
+        Mockito.when(tcm.executeConnectedTaskAsync(Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        invocation -> CompletableFuture.failedFuture(new Exception("unreachable")));
+        JvmIdHelper helper = createHelper();
+
+        helper.resolveId(target);
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).get(), Matchers.equalTo("stored-id"));
+        Mockito.verify(dao, Mockito.never())
+                .upsert(Mockito.anyString(), Mockito.anyString(), Mockito.anyLong());
+    }
+
+    @Test
+    void shouldStoreIdsObservedFromDiscovery() throws Exception {
+        Mockito.when(dao.getAll()).thenReturn(List.of());
+        Mockito.when(clock.getWallTime()).thenReturn(1_000L);
+        JvmIdHelper helper = createHelper();
+
+        ServiceRef withId = new ServiceRef("discovered-id", URI.create(TARGET_ID), "foo");
+        helper.resolveId(withId);
+        helper.resolveId(withId);
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).get(), Matchers.equalTo("discovered-id"));
+        Mockito.verify(dao, Mockito.times(1)).upsert(TARGET_ID, "discovered-id", 1_000L);
+        Mockito.verifyNoInteractions(tcm);
+    }
+
+    @Test
+    void shouldDeleteStoredIdWhenTargetIsLost() throws Exception {
+        givenStoredId("stored-id", 0L);
+        JvmIdHelper helper = createHelper();
+        ArgumentCaptor<Consumer<TargetDiscoveryEvent>> listenerCaptor =
+                ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(platform).addTargetDiscoveryListener(listenerCaptor.capture());
+
+        listenerCaptor.getValue().accept(new TargetDiscoveryEvent(EventKind.LOST, target));
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).isPresent(), Matchers.equalTo(false));
+        Mockito.verify(dao).delete(TARGET_ID);
+    }
+
+    @Test
+    void shouldNotLoadExpiredStoredIds() throws Exception {
+        givenStoredId("stored-id", 0L);
+        Mockito.when(clock.getWallTime()).thenReturn(MAX_AGE_MS + 1);
+        JvmIdHelper helper = createHelper();
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).isPresent(), Matchers.equalTo(false));
+        Mockito.verify(dao).deleteOlderThan(1L);
+    }
+
+    @Test
+    void shouldPruneExpiredIdsOfUndiscoveredTargets() throws Exception {
+        givenStoredId("stored-id", 0L);
+        Mockito.when(clock.getWallTime()).thenReturn(0L, MAX_AGE_MS + 1);
+        Mockito.when(platform.listDiscoverableServices()).thenReturn(List.of());
+        JvmIdHelper helper = createHelper();
+
+        helper.pruneExpiredIds();
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).isPresent(), Matchers.equalTo(false));
+        Mockito.verify(dao).delete(TARGET_ID);
+    }
+
+    @Test
+    void shouldKeepExpiredIdsOfDiscoveredTargets() throws Exception {
+        givenStoredId("stored-id", 0L);
+        Mockito.when(clock.getWallTime()).thenReturn(0L, MAX_AGE_MS + 1);
+        Mockito.when(platform.listDiscoverableServices()).thenReturn(List.of(target));
+        JvmIdHelper helper = createHelper();
+
+        helper.pruneExpiredIds();
+
+        MatcherAssert.assertThat(
+                helper.getCachedJvmId(TARGET_ID).get(), Matchers.equalTo("stored-id"));
+        Mockito.verify(dao, Mockito.never()).delete(Mockito.anyString());
+    }
+}
@@ -17,20 +17,24 @@ package io.cryostat.recordings;
 
 import static org.mockito.Mockito.lenient;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import javax.management.remote.JMXServiceURL;
 
@@ -54,6 +58,7 @@ import io.cryostat.recordings.RecordingMetadataManager.Metadata;
 import io.cryostat.rules.ArchivedRecordingInfo;
 import io.cryostat.util.URIUtil;
 
+import com.google.gson.Gson;
 import io.vertx.core.Vertx;
 import org.apache.commons.codec.binary.Base32;
 import org.hamcrest.MatcherAssert;
@@ -62,6 +67,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
@@ -94,6 +100,8 @@ class RecordingArchiveHelperTest {
     @Mock CryostatFlightRecorderService service;
     @Mock Vertx vertx;
     @Mock io.vertx.core.file.FileSystem vertxFs;
+    Path catalogFile = Path.of(ArchiveCatalog.CATALOG_FILE);
+    @Mock ChunkedRecordingTransfer transfer;
 
     String targetId = "fooTarget";
     String recordingName = "someRecording";
@@ -134,6 +142,11 @@ class RecordingArchiveHelperTest {
                         });
 
         lenient().when(vertx.fileSystem()).thenReturn(vertxFs);
+        lenient()
+                .when(
+                        transfer.transfer(
+                                Mockito.any(), Mockito.anyString(), Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(17L));
 
         this.recordingArchiveHelper =
                 new RecordingArchiveHelper(
@@ -149,7 +162,9 @@ class RecordingArchiveHelperTest {
                         notificationFactory,
                         jvmIdHelper,
                         null,
-                        base32);
+                        base32,
+                        new ArchiveCatalog(fs, catalogFile, r -> {}, new Gson(), logger),
+                        transfer);
     }
 
     @Test
@@ -263,7 +278,12 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(transfer)
+                .transfer(
+                        Mockito.any(),
+                        Mockito.eq(recordingName),
+                        Mockito.same(stream),
+                        Mockito.eq(destination));
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -345,7 +365,12 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(transfer)
+                .transfer(
+                        Mockito.any(),
+                        Mockito.eq(recordingName),
+                        Mockito.same(stream),
+                        Mockito.eq(destination));
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -439,7 +464,12 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(transfer)
+                .transfer(
+                        Mockito.any(),
+                        Mockito.eq(recordingName),
+                        Mockito.same(stream),
+                        Mockito.eq(destination));
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -520,7 +550,12 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(transfer)
+                .transfer(
+                        Mockito.any(),
+                        Mockito.eq(recordingName),
+                        Mockito.same(stream),
+                        Mockito.eq(destination));
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -608,7 +643,12 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(transfer)
+                .transfer(
+                        Mockito.any(),
+                        Mockito.eq(recordingName),
+                        Mockito.same(stream),
+                        Mockito.eq(destination));
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -620,9 +660,24 @@ class RecordingArchiveHelperTest {
     @Test
     void shouldNotSaveEmptyRecording() throws Exception {
         Mockito.when(jvmIdHelper.getJvmId(Mockito.anyString())).thenReturn("mockId");
+        Mockito.when(
+                        targetConnectionManager.executeConnectedTask(
+                                Mockito.any(),
+                                Mockito.any(TargetConnectionManager.ConnectedTask.class)))
+                .thenAnswer(
+                        new Answer<>() {
+                            @Override
+                            public Object answer(InvocationOnMock invocation) throws Throwable {
+                                TargetConnectionManager.ConnectedTask task =
+                                        (TargetConnectionManager.ConnectedTask)
+                                                invocation.getArgument(1);
+                                return task.execute(connection);
+                            }
+                        });
         Mockito.when(connection.getService()).thenReturn(service);
         IRecordingDescriptor descriptor = Mockito.mock(IRecordingDescriptor.class);
         Mockito.when(descriptor.getName()).thenReturn(recordingName);
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(descriptor));
 
         ServiceRef serviceRef1 =
                 new ServiceRef(
@@ -664,11 +719,26 @@ class RecordingArchiveHelperTest {
         Path destination = Mockito.mock(Path.class);
         Mockito.when(specificRecordingsPath.resolve(Mockito.anyString())).thenReturn(destination);
 
-        Assertions.assertThrows(
-                EmptyRecordingException.class,
-                () -> recordingArchiveHelper.writeRecordingToDestination(connection, descriptor));
-
-        Mockito.verify(fs).deleteIfExists(Mockito.any());
+        Mockito.when(
+                        transfer.transfer(
+                                Mockito.any(),
+                                Mockito.eq(recordingName),
+                                Mockito.same(stream),
+                                Mockito.eq(destination)))
+                .thenReturn(CompletableFuture.completedFuture(0L));
+
+        ExecutionException ee =
+                Assertions.assertThrows(
+                        ExecutionException.class,
+                        () ->
+                                recordingArchiveHelper
+                                        .saveRecording(
+                                                new ConnectionDescriptor(targetId), recordingName)
+                                        .get());
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(EmptyRecordingException.class));
+
+        Mockito.verify(fs).deleteIfExists(destination);
+        Mockito.verifyNoInteractions(notificationFactory);
     }
 
     @Test
@@ -723,7 +793,10 @@ class RecordingArchiveHelperTest {
 
         Instant now = Instant.now();
         Mockito.when(clock.now()).thenReturn(now);
-        Mockito.when(fs.exists(Mockito.any())).thenReturn(true).thenReturn(true).thenReturn(false);
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.writeString(Mockito.any(), Mockito.anyString(), Mockito.any()))
+                .thenThrow(new FileAlreadyExistsException("exists"))
+                .thenReturn(null);
         InputStream stream = new ByteArrayInputStream("someRecordingData".getBytes());
         Mockito.when(service.openStream(descriptor, false)).thenReturn(stream);
         Path specificRecordingsPath = Mockito.mock(Path.class);
@@ -749,13 +822,80 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(transfer)
+                .transfer(
+                        Mockito.any(),
+                        Mockito.eq(recordingName),
+                        Mockito.same(stream),
+                        Mockito.eq(destination));
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
         Mockito.verify(notificationBuilder).message(Map.of("recording", info, "target", targetId));
         Mockito.verify(notificationBuilder).build();
         Mockito.verify(notification).send();
+        Mockito.verify(fs, Mockito.times(2))
+                .writeString(destination, "", StandardOpenOption.CREATE_NEW);
+    }
+
+    @Test
+    void shouldOnlyDeleteReservedFileWhenSaveFails() throws Exception {
+        Mockito.when(jvmIdHelper.getJvmId(Mockito.anyString())).thenReturn("mockId");
+        Mockito.when(
+                        targetConnectionManager.executeConnectedTask(
+                                Mockito.any(),
+                                Mockito.any(TargetConnectionManager.ConnectedTask.class)))
+                .thenAnswer(
+                        invocation -> {
+                            TargetConnectionManager.ConnectedTask<?> task =
+                                    invocation.getArgument(1);
+                            return task.execute(connection);
+                        });
+        Mockito.when(connection.getService()).thenReturn(service);
+        IRecordingDescriptor descriptor = Mockito.mock(IRecordingDescriptor.class);
+        Mockito.when(descriptor.getName()).thenReturn(recordingName);
+        Mockito.when(service.getAvailableRecordings()).thenReturn(List.of(descriptor));
+        Mockito.when(platformClient.listDiscoverableServices()).thenReturn(List.of());
+        Mockito.when(connection.getJMXURL())
+                .thenReturn(
+                        (new JMXServiceURL("service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi")));
+        Mockito.when(connection.getHost()).thenReturn("some-hostname.local");
+        Mockito.when(clock.now()).thenReturn(Instant.now());
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+        InputStream stream = new ByteArrayInputStream("someRecordingData".getBytes());
+        Mockito.when(service.openStream(descriptor, false)).thenReturn(stream);
+        Path specificRecordingsPath = Mockito.mock(Path.class);
+        Mockito.when(archivedRecordingsPath.resolve(Mockito.anyString()))
+                .thenReturn(specificRecordingsPath);
+        // another save of the same recording within the same second already holds the first name
+        Path taken = Mockito.mock(Path.class);
+        Path reserved = Mockito.mock(Path.class);
+        Mockito.when(specificRecordingsPath.resolve(Mockito.anyString()))
+                .thenReturn(taken)
+                .thenReturn(reserved);
+        Mockito.when(fs.writeString(taken, "", StandardOpenOption.CREATE_NEW))
+                .thenThrow(new FileAlreadyExistsException("exists"));
+        Mockito.when(
+                        transfer.transfer(
+                                Mockito.any(),
+                                Mockito.eq(recordingName),
+                                Mockito.same(stream),
+                                Mockito.eq(reserved)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("transfer failed")));
+
+        ExecutionException ee =
+                Assertions.assertThrows(
+                        ExecutionException.class,
+                        () ->
+                                recordingArchiveHelper
+                                        .saveRecording(
+                                                new ConnectionDescriptor(targetId), recordingName)
+                                        .get());
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(IOException.class));
+
+        Mockito.verify(fs).deleteIfExists(reserved);
+        Mockito.verify(fs, Mockito.never()).deleteIfExists(taken);
+        Mockito.verifyNoInteractions(notificationFactory);
     }
 
     @Test
@@ -967,6 +1107,186 @@ class RecordingArchiveHelperTest {
         MatcherAssert.assertThat(result, Matchers.equalTo(expected));
     }
 
+    @Test
+    void getRecordingsShouldReuseCatalogedSubdirectories() throws Exception {
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isReadable(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isDirectory(Mockito.any())).thenReturn(true);
+
+        Mockito.when(fs.listDirectoryChildren(archivedRecordingsPath))
+                .thenReturn(List.of("encodedJvmIdA"));
+        Mockito.when(archivedRecordingsPath.resolve("encodedJvmIdA"))
+                .thenReturn(Path.of("encodedJvmIdA"));
+        Mockito.when(fs.listDirectoryChildren(Path.of("encodedJvmIdA")))
+                .thenReturn(List.of("recordingA", "connectUrl"))
+                .thenReturn(List.of("recordingA", "recordingB", "connectUrl"));
+
+        BufferedReader reader = Mockito.mock(BufferedReader.class);
+        Mockito.when(fs.readFile(Mockito.any(Path.class))).thenReturn(reader);
+        Mockito.when(reader.readLine()).thenReturn("connectUrlA");
+
+        Mockito.when(webServer.getArchivedReportURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/archive");
+        Mockito.when(webServer.getArchivedDownloadURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/download");
+        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.anyString()))
+                .thenReturn(new Metadata());
+
+        List<ArchivedRecordingInfo> first = recordingArchiveHelper.getRecordings().get();
+        MatcherAssert.assertThat(first, Matchers.hasSize(1));
+
+        // recordingB was added to the directory out-of-band and is picked up on the next listing
+        List<ArchivedRecordingInfo> second = recordingArchiveHelper.getRecordings().get();
+        MatcherAssert.assertThat(second, Matchers.hasSize(2));
+        MatcherAssert.assertThat(second.get(0), Matchers.equalTo(first.get(0)));
+        MatcherAssert.assertThat(second.get(1).getName(), Matchers.equalTo("recordingB"));
+        MatcherAssert.assertThat(second.get(1).getServiceUri(), Matchers.equalTo("connectUrlA"));
+
+        // the connectUrl is only read once, when the subdirectory is first indexed
+        Mockito.verify(fs, Mockito.times(1)).readFile(Mockito.any(Path.class));
+    }
+
+    @Test
+    void getRecordingsShouldNotRelistUnmodifiedSubdirectories(@TempDir Path archiveDir)
+            throws Exception {
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isReadable(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isDirectory(Mockito.any())).thenReturn(true);
+
+        Path subdirectory = Files.createDirectory(archiveDir.resolve("encodedJvmIdA"));
+        Instant modified = Instant.parse("2022-01-01T00:00:00Z");
+        Files.setLastModifiedTime(subdirectory, FileTime.from(modified));
+        Mockito.when(clock.now()).thenReturn(modified.plus(1, ChronoUnit.HOURS));
+
+        Mockito.when(fs.listDirectoryChildren(archivedRecordingsPath))
+                .thenReturn(List.of("encodedJvmIdA"));
+        Mockito.when(archivedRecordingsPath.resolve("encodedJvmIdA")).thenReturn(subdirectory);
+        Mockito.when(fs.listDirectoryChildren(subdirectory))
+                .thenReturn(List.of("recordingA", "connectUrl"))
+                .thenReturn(List.of("recordingA", "recordingB", "connectUrl"));
+
+        BufferedReader reader = Mockito.mock(BufferedReader.class);
+        Mockito.when(fs.readFile(Mockito.any(Path.class))).thenReturn(reader);
+        Mockito.when(reader.readLine()).thenReturn("connectUrlA");
+
+        Mockito.when(webServer.getArchivedReportURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/archive");
+        Mockito.when(webServer.getArchivedDownloadURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/download");
+        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.anyString()))
+                .thenReturn(new Metadata());
+
+        MatcherAssert.assertThat(recordingArchiveHelper.getRecordings().get(), Matchers.hasSize(1));
+        MatcherAssert.assertThat(recordingArchiveHelper.getRecordings().get(), Matchers.hasSize(1));
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(subdirectory);
+
+        // adding recordingB out-of-band moves the subdirectory's last modified time
+        Files.setLastModifiedTime(subdirectory, FileTime.from(modified.plusSeconds(60)));
+        MatcherAssert.assertThat(recordingArchiveHelper.getRecordings().get(), Matchers.hasSize(2));
+        Mockito.verify(fs, Mockito.times(2)).listDirectoryChildren(subdirectory);
+    }
+
+    @Test
+    void queryRecordingsShouldReuseIndexUntilArchiveChanges() throws Exception {
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isReadable(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isDirectory(Mockito.any())).thenReturn(true);
+
+        Mockito.when(fs.listDirectoryChildren(archivedRecordingsPath))
+                .thenReturn(List.of("encodedJvmIdA"));
+        Mockito.when(archivedRecordingsPath.resolve("encodedJvmIdA"))
+                .thenReturn(Path.of("encodedJvmIdA"));
+        Mockito.when(fs.listDirectoryChildren(Path.of("encodedJvmIdA")))
+                .thenReturn(List.of("recordingA", "connectUrl"))
+                .thenReturn(List.of("recordingA", "recordingB", "connectUrl"));
+
+        BufferedReader reader = Mockito.mock(BufferedReader.class);
+        Mockito.when(fs.readFile(Mockito.any(Path.class))).thenReturn(reader);
+        Mockito.when(reader.readLine()).thenReturn("connectUrlA");
+
+        Mockito.when(webServer.getArchivedReportURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/archive");
+        Mockito.when(webServer.getArchivedDownloadURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/download");
+        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.anyString()))
+                .thenReturn(new Metadata());
+
+        ArchivedRecordingQuery all = ArchivedRecordingQuery.builder().build();
+        MatcherAssert.assertThat(
+                recordingArchiveHelper.queryRecordings(all).get().getCount(),
+                Matchers.equalTo(1L));
+        MatcherAssert.assertThat(
+                recordingArchiveHelper.queryRecordings(all).get().getCount(),
+                Matchers.equalTo(1L));
+        Mockito.verify(recordingMetadataManager, Mockito.times(1))
+                .getMetadata(Mockito.any(), Mockito.anyString());
+        // the archive was reconciled by the first query and is not reconciled again so soon
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(Path.of("encodedJvmIdA"));
+
+        // recordingB was added to the directory out-of-band and is picked up by a listing, which
+        // changes the catalog, so the index is rebuilt
+        MatcherAssert.assertThat(recordingArchiveHelper.getRecordings().get(), Matchers.hasSize(2));
+        ArchivedRecordingQuery byName = ArchivedRecordingQuery.builder().name("recordingB").build();
+        ArchivedRecordingQuery.Result result = recordingArchiveHelper.queryRecordings(byName).get();
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(
+                result.getRecordings().get(0).getServiceUri(), Matchers.equalTo("connectUrlA"));
+        // only the new recording is described by the query
+        Mockito.verify(recordingMetadataManager, Mockito.times(2))
+                .getMetadata(Mockito.any(), Mockito.eq("recordingA"));
+        Mockito.verify(recordingMetadataManager, Mockito.times(2))
+                .getMetadata(Mockito.any(), Mockito.eq("recordingB"));
+    }
+
+    @Test
+    void queryRecordingsShouldOnlyRedescribeRelabelledRecordings() throws Exception {
+        ArgumentCaptor<Consumer<String>> listenerCaptor = ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(recordingMetadataManager).addChangeListener(listenerCaptor.capture());
+
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isReadable(Mockito.any())).thenReturn(true);
+        Mockito.when(fs.isDirectory(Mockito.any())).thenReturn(true);
+
+        Mockito.when(fs.listDirectoryChildren(archivedRecordingsPath))
+                .thenReturn(List.of("encodedJvmIdA"));
+        Mockito.when(archivedRecordingsPath.resolve("encodedJvmIdA"))
+                .thenReturn(Path.of("encodedJvmIdA"));
+        Mockito.when(fs.listDirectoryChildren(Path.of("encodedJvmIdA")))
+                .thenReturn(List.of("recordingA", "recordingB", "connectUrl"));
+
+        BufferedReader reader = Mockito.mock(BufferedReader.class);
+        Mockito.when(fs.readFile(Mockito.any(Path.class))).thenReturn(reader);
+        Mockito.when(reader.readLine()).thenReturn("connectUrlA");
+
+        Mockito.when(webServer.getArchivedReportURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/archive");
+        Mockito.when(webServer.getArchivedDownloadURL(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn("/some/path/download");
+        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.anyString()))
+                .thenReturn(new Metadata());
+
+        ArchivedRecordingQuery labelled =
+                ArchivedRecordingQuery.builder().label("app", "foo").build();
+        MatcherAssert.assertThat(
+                recordingArchiveHelper.queryRecordings(labelled).get().getCount(),
+                Matchers.equalTo(0L));
+
+        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.eq("recordingA")))
+                .thenReturn(new Metadata(Map.of("app", "foo")));
+        listenerCaptor.getValue().accept("recordingA");
+        Mockito.when(recordingMetadataManager.getGeneration()).thenReturn(1L);
+
+        ArchivedRecordingQuery.Result result =
+                recordingArchiveHelper.queryRecordings(labelled).get();
+        MatcherAssert.assertThat(result.getCount(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(
+                result.getRecordings().get(0).getName(), Matchers.equalTo("recordingA"));
+        Mockito.verify(recordingMetadataManager, Mockito.times(2))
+                .getMetadata(Mockito.any(), Mockito.eq("recordingA"));
+        Mockito.verify(recordingMetadataManager, Mockito.times(1))
+                .getMetadata(Mockito.any(), Mockito.eq("recordingB"));
+    }
+
     @Test
     void getRecordingsShouldHandleIOException() throws Exception {
         Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
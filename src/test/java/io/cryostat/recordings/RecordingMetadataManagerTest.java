@@ -24,6 +24,7 @@ import java.io.StringReader;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Map;
 
 import javax.inject.Provider;
@@ -47,6 +48,8 @@ import io.cryostat.recordings.RecordingMetadataManager.StoredRecordingMetadata;
 import com.google.gson.Gson;
 import io.vertx.core.Vertx;
 import org.apache.commons.codec.binary.Base32;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -117,6 +120,7 @@ public class RecordingMetadataManagerTest {
                         recordingMetadataDir,
                         archivedRecordingsPath,
                         30,
+                        Duration.ofSeconds(1),
                         fs,
                         archiveHelperProvider,
                         targetConnectionManager,
@@ -148,6 +152,16 @@ public class RecordingMetadataManagerTest {
                 .setRecordingMetadata(connectionDescriptor, recordingName, new Metadata(labels))
                 .get();
 
+        verify(fs, Mockito.never())
+                .writeString(
+                        Mockito.any(Path.class),
+                        Mockito.anyString(),
+                        Mockito.any(OpenOption.class),
+                        Mockito.any(OpenOption.class),
+                        Mockito.any(OpenOption.class));
+
+        recordingMetadataManager.flush();
+
         verify(fs)
                 .writeString(
                         Mockito.any(Path.class),
@@ -194,15 +208,16 @@ public class RecordingMetadataManagerTest {
         when(mockPath.getParent()).thenReturn(parentPath);
 
         when(fs.deleteIfExists(mockPath)).thenReturn(true);
-        when(fs.isRegularFile(mockPath)).thenReturn(true);
-        when(fs.readFile(mockPath))
-                .thenReturn(new BufferedReader(new StringReader("{\"labels\":{}}")));
 
         recordingMetadataManager
                 .setRecordingMetadata(connectionDescriptor, recordingName, metadata)
                 .get();
+        recordingMetadataManager.flush();
 
-        recordingMetadataManager.deleteRecordingMetadataIfExists(jvmId, recordingName);
+        MatcherAssert.assertThat(
+                recordingMetadataManager.deleteRecordingMetadataIfExists(jvmId, recordingName),
+                Matchers.equalTo(metadata));
+        recordingMetadataManager.flush();
 
         verify(fs).deleteIfExists(Mockito.any(Path.class));
     }
@@ -231,10 +246,12 @@ public class RecordingMetadataManagerTest {
         recordingMetadataManager
                 .setRecordingMetadata(connectionDescriptor, recordingName, metadata)
                 .get();
+        recordingMetadataManager.flush();
 
         recordingMetadataManager
                 .setRecordingMetadata(connectionDescriptor, recordingName, updatedMetadata)
                 .get();
+        recordingMetadataManager.flush();
 
         InOrder inOrder = Mockito.inOrder(fs);
         inOrder.verify(fs)
@@ -275,6 +292,7 @@ public class RecordingMetadataManagerTest {
 
         recordingMetadataManager.copyMetadataToArchives(
                 connectionDescriptor, recordingName, filename);
+        recordingMetadataManager.flush();
 
         Mockito.verify(fs)
                 .writeString(
@@ -284,4 +302,107 @@ public class RecordingMetadataManagerTest {
                         StandardOpenOption.CREATE,
                         StandardOpenOption.TRUNCATE_EXISTING);
     }
+
+    @Test
+    void shouldNotTouchDiskForRepeatedLookups() throws Exception {
+        String recordingName = "someRecording";
+        String jvmId = "id";
+        Metadata metadata = new Metadata(Map.of("KEY", "value"));
+
+        when(jvmIdHelper.getJvmId(Mockito.any(ConnectionDescriptor.class))).thenReturn(jvmId);
+        when(connectionDescriptor.getTargetId()).thenReturn("someTarget");
+
+        recordingMetadataManager
+                .setRecordingMetadata(connectionDescriptor, recordingName, metadata)
+                .get();
+
+        for (int i = 0; i < 3; i++) {
+            MatcherAssert.assertThat(
+                    recordingMetadataManager.getMetadata(connectionDescriptor, recordingName),
+                    Matchers.equalTo(metadata));
+            MatcherAssert.assertThat(
+                    recordingMetadataManager.getMetadataFromPathIfExists(jvmId, recordingName),
+                    Matchers.equalTo(metadata));
+        }
+
+        Mockito.verifyNoInteractions(fs);
+    }
+
+    @Test
+    void shouldNotWriteFileForMissingMetadata() throws Exception {
+        Path mockPath = Mockito.mock(Path.class);
+        when(recordingMetadataDir.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(mockPath.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(fs.isRegularFile(mockPath)).thenReturn(false);
+
+        MatcherAssert.assertThat(
+                recordingMetadataManager.getMetadataFromPathIfExists("id", "someRecording"),
+                Matchers.equalTo(new Metadata()));
+
+        Mockito.verify(fs, Mockito.never())
+                .writeString(Mockito.any(Path.class), Mockito.anyString());
+    }
+
+    @Test
+    void shouldFallBackToDiskBeforeMetadataIsLoaded() throws Exception {
+        Path mockPath = Mockito.mock(Path.class);
+        when(recordingMetadataDir.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(mockPath.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(fs.isRegularFile(mockPath)).thenReturn(true);
+        when(fs.readFile(mockPath))
+                .thenReturn(
+                        new BufferedReader(
+                                new StringReader("{\"labels\":{\"KEY\":\"value\"}}")));
+
+        Metadata expected = new Metadata(Map.of("KEY", "value"));
+        MatcherAssert.assertThat(
+                recordingMetadataManager.getMetadataFromPathIfExists("id", "someRecording"),
+                Matchers.equalTo(expected));
+        MatcherAssert.assertThat(
+                recordingMetadataManager.getMetadataFromPathIfExists("id", "someRecording"),
+                Matchers.equalTo(expected));
+
+        Mockito.verify(fs, Mockito.times(1)).readFile(mockPath);
+    }
+
+    @Test
+    void shouldRewriteOnlyLatestStateOnFlush() throws Exception {
+        String recordingName = "someRecording";
+        String targetId = "someTarget";
+        String jvmId = "id";
+        Metadata metadata = new Metadata(Map.of("KEY", "value"));
+        Metadata updatedMetadata = new Metadata(Map.of("KEY", "UPDATED_VALUE"));
+
+        when(jvmIdHelper.getJvmId(Mockito.any(ConnectionDescriptor.class))).thenReturn(jvmId);
+        when(connectionDescriptor.getTargetId()).thenReturn(targetId);
+        Path mockPath = Mockito.mock(Path.class);
+        when(recordingMetadataDir.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(mockPath.resolve(Mockito.anyString())).thenReturn(mockPath);
+
+        recordingMetadataManager
+                .setRecordingMetadata(connectionDescriptor, recordingName, metadata)
+                .get();
+        recordingMetadataManager
+                .setRecordingMetadata(connectionDescriptor, recordingName, updatedMetadata)
+                .get();
+        recordingMetadataManager.flush();
+        recordingMetadataManager.flush();
+
+        Mockito.verify(fs, Mockito.times(1))
+                .writeString(
+                        mockPath,
+                        gson.toJson(
+                                StoredRecordingMetadata.of(
+                                        targetId, jvmId, recordingName, updatedMetadata)),
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        Mockito.verify(fs, Mockito.times(1))
+                .writeString(
+                        Mockito.any(Path.class),
+                        Mockito.anyString(),
+                        Mockito.any(OpenOption.class),
+                        Mockito.any(OpenOption.class),
+                        Mockito.any(OpenOption.class));
+    }
 }
@@ -20,6 +20,7 @@ import static org.mockito.Mockito.*;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -42,6 +43,7 @@ import io.cryostat.core.EventOptionsBuilder;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.CryostatFlightRecorderService;
 import io.cryostat.core.net.JFRConnection;
+import io.cryostat.core.sys.Clock;
 import io.cryostat.core.templates.TemplateService;
 import io.cryostat.core.templates.TemplateType;
 import io.cryostat.jmc.serialization.HyperlinkedSerializableRecordingDescriptor;
@@ -88,6 +90,7 @@ public class RecordingTargetHelperTest {
     @Mock ReportService reportService;
     @Mock RecordingMetadataManager recordingMetadataManager;
     @Mock RecordingArchiveHelper recordingArchiveHelper;
+    @Mock Clock clock;
     @Mock Logger logger;
 
     @Mock JFRConnection connection;
@@ -119,6 +122,7 @@ public class RecordingTargetHelperTest {
                         reportService,
                         recordingMetadataManager,
                         recordingArchiveHelper,
+                        new ActiveRecordingDescriptorCache(Duration.ZERO, clock, logger),
                         logger);
     }
 
@@ -127,7 +131,7 @@ public class RecordingTargetHelperTest {
         ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("fooTarget");
         String recordingName = "someRecording";
 
-        Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
+        Mockito.when(targetConnectionManager.executeReadOnlyTask(Mockito.any(), Mockito.any()))
                 .thenAnswer(
                         new Answer<Object>() {
                             @Override
@@ -158,7 +162,7 @@ public class RecordingTargetHelperTest {
         ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("fooTarget");
         String recordingName = "someRecording";
 
-        Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
+        Mockito.when(targetConnectionManager.executeReadOnlyTask(Mockito.any(), Mockito.any()))
                 .thenAnswer(
                         new Answer<Object>() {
                             @Override
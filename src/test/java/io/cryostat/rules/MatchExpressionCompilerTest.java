@@ -0,0 +1,189 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import javax.script.ScriptEngine;
+
+import io.cryostat.MainModule;
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.ServiceRef.AnnotationKey;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MatchExpressionCompilerTest {
+
+    MatchExpressionCompiler compiler;
+    MatchExpressionEvaluator scriptEvaluator;
+    @Mock Logger logger;
+    @Mock CredentialsManager credentials;
+    @Mock RuleRegistry rules;
+
+    @BeforeEach
+    void setup() {
+        this.compiler = new MatchExpressionCompiler();
+        ScriptEngine scriptEngine = MainModule.provideScriptEngine();
+        MatchExpressionCompiler noopCompiler =
+                new MatchExpressionCompiler() {
+                    @Override
+                    Optional<Predicate<ServiceRef>> compile(String matchExpression) {
+                        return Optional.empty();
+                    }
+                };
+        this.scriptEvaluator =
+                new MatchExpressionEvaluator(
+                        scriptEngine, noopCompiler, credentials, rules, logger);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "true",
+                "false",
+                "target.alias == 'svc-3'",
+                "target.alias === 'svc-3' || target.alias !== 'svc-4'",
+                "target.jvmId != null && target.jvmId == 'jvm-7'",
+                "target.alias == null",
+                "target.connectUrl == 'service:jmx:rmi:///jndi/rmi://host-1:9091/jmxrmi'",
+                "target.labels.app == 'web' && target.labels['tier'] == 'back'",
+                "target.labels.missing == null",
+                "target.labels.missing == 'web'",
+                "target.annotations.platform.namespace == 'ns-2'",
+                "target.annotations.cryostat.PORT == '9091'",
+                "target.annotations.cryostat.NOT_A_KEY == null",
+                "/^svc-[0-9]+$/.test(target.alias)",
+                "/SVC-1/i.test(target.alias)",
+                "/null/.test(target.alias)",
+                "/host-(1|2):\\d+/.test(target.connectUrl)",
+                "/^.*-2$/.test(target.annotations.platform.namespace)",
+                "/web/.test(target.labels.app) && /back/.test(target.labels.tier)",
+                "'literal' == 'literal'",
+            })
+    void compiledPredicatesShouldAgreeWithScriptEngine(String expr) throws Exception {
+        Optional<Predicate<ServiceRef>> predicate = compiler.compile(expr);
+        List<ServiceRef> targets = targets(200);
+        for (ServiceRef target : targets) {
+            boolean expected;
+            try {
+                expected = scriptEvaluator.applies(expr, target);
+            } catch (Exception e) {
+                // expressions which the script engine rejects must never be compiled
+                MatcherAssert.assertThat(predicate.isPresent(), Matchers.is(false));
+                return;
+            }
+            if (predicate.isPresent()) {
+                MatcherAssert.assertThat(
+                        expr + " " + target, predicate.get().test(target), Matchers.is(expected));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "true",
+                "target.alias == 'svc-3'",
+                "target.labels.app != 'web' || target.jvmId === null",
+                "/^svc-[0-9]+$/.test(target.alias)",
+                "/svc/i.test(target.alias)",
+                "/a.c$/.test(target.alias)",
+                "target['labels']['app'] == 'web'",
+            })
+    void shouldCompileSupportedSubset(String expr) {
+        MatcherAssert.assertThat(compiler.compile(expr).isPresent(), Matchers.is(true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "1",
+                "null",
+                "target.alias",
+                "\"a string\"",
+                "true && target.alias",
+                "target.labels.port == 9091",
+                "target.alias == true",
+                "target.labels.empty == 'x'",
+                "target.labels.size == 'x'",
+                "target.foo == 'bar'",
+                "/a*+/.test(target.alias)",
+                "/\\s/.test(target.alias)",
+                "/(?<name>a)/.test(target.alias)",
+                "/[a[b]]/.test(target.alias)",
+                "/[a&&b]/.test(target.alias)",
+                "/a/g.test(target.alias)",
+                "/\u00e9/i.test(target.alias)",
+                "/(a)\\1/.test(target.alias)",
+                "target.alias == 'a'; true",
+                "(",
+            })
+    void shouldNotCompileUnsupportedExpressions(String expr) {
+        MatcherAssert.assertThat(compiler.compile(expr).isPresent(), Matchers.is(false));
+    }
+
+    @Test
+    void shouldTranslateJavaScriptAnchorsAndWildcards() {
+        MatcherAssert.assertThat(
+                MatchExpressionCompiler.translateRegExp("^a.[.$]b$"),
+                Matchers.equalTo("^a[^\\n\\r\\u2028\\u2029][.$]b\\z"));
+    }
+
+    @Test
+    void shouldNotMatchEndAnchorBeforeTrailingNewline() {
+        Predicate<ServiceRef> predicate = compiler.compile("/svc$/.test(target.alias)").get();
+        URI uri = URI.create("service:jmx:rmi:///jndi/rmi://a:1/jmxrmi");
+        ServiceRef ref = new ServiceRef("id", uri, "svc\n");
+        MatcherAssert.assertThat(predicate.test(ref), Matchers.is(false));
+    }
+
+    static List<ServiceRef> targets(int count) {
+        List<ServiceRef> targets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            URI uri =
+                    URI.create(
+                            String.format(
+                                    "service:jmx:rmi:///jndi/rmi://host-%d:9091/jmxrmi", i % 4));
+            String jvmId = i % 3 == 0 ? null : "jvm-" + i;
+            String alias = i % 5 == 0 ? null : "svc-" + (i % 7);
+            ServiceRef ref = new ServiceRef(jvmId, uri, alias);
+            if (i % 2 == 0) {
+                ref.setLabels(Map.of("app", "web", "tier", i % 4 == 0 ? "back" : "front"));
+            }
+            ref.setPlatformAnnotations(Map.of("namespace", "ns-" + (i % 3)));
+            ref.setCryostatAnnotations(
+                    Map.of(AnnotationKey.HOST, "host-" + (i % 4), AnnotationKey.PORT, "9091"));
+            targets.add(ref);
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import javax.script.ScriptException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
+import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MatchExpressionIndexTest {
+
+    static final String EXPR = "target.alias == 'a'";
+
+    MatchExpressionIndex index;
+    @Mock MatchExpressionEvaluator evaluator;
+    @Mock PlatformClient platformClient;
+    @Mock Logger logger;
+
+    ServiceRef a = ref(1, "a");
+    ServiceRef b = ref(2, "b");
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.index = new MatchExpressionIndex(() -> evaluator, platformClient, logger);
+        Mockito.lenient().when(platformClient.listDiscoverableServices()).thenReturn(List.of(a, b));
+        Mockito.lenient()
+                .when(evaluator.applies(Mockito.eq(EXPR), Mockito.any()))
+                .thenAnswer(
+                        invocation ->
+                                ((ServiceRef) invocation.getArgument(1))
+                                        .getAlias()
+                                        .equals(a.getAlias()));
+    }
+
+    static ServiceRef ref(int port, String alias) {
+        URI uri = URI.create(String.format("service:jmx:rmi:///jndi/rmi://host:%d/jmxrmi", port));
+        return new ServiceRef("id-" + port, uri, alias);
+    }
+
+    @Test
+    void evaluatesEachTargetOnlyOnce() throws Exception {
+        MatcherAssert.assertThat(index.getMatchingTargets(EXPR), Matchers.equalTo(Set.of(a)));
+        MatcherAssert.assertThat(index.matches(EXPR, a), Matchers.is(true));
+        MatcherAssert.assertThat(index.matches(EXPR, b), Matchers.is(false));
+        MatcherAssert.assertThat(index.getMatchingExpressions(a), Matchers.equalTo(Set.of(EXPR)));
+        MatcherAssert.assertThat(index.getMatchingExpressions(b), Matchers.empty());
+
+        Mockito.verify(evaluator).applies(EXPR, a);
+        Mockito.verify(evaluator).applies(EXPR, b);
+        Mockito.verifyNoMoreInteractions(evaluator);
+    }
+
+    @Test
+    void updatesOnTargetDiscoveryEvents() throws Exception {
+        index.getMatchingTargets(EXPR);
+
+        ServiceRef c = ref(3, "a");
+        index.onTargetDiscovery(new TargetDiscoveryEvent(EventKind.FOUND, c));
+        MatcherAssert.assertThat(index.getMatchingTargets(EXPR), Matchers.equalTo(Set.of(a, c)));
+
+        ServiceRef modified = ref(1, "z");
+        index.onTargetDiscovery(new TargetDiscoveryEvent(EventKind.MODIFIED, modified));
+        MatcherAssert.assertThat(index.getMatchingTargets(EXPR), Matchers.equalTo(Set.of(c)));
+
+        index.onTargetDiscovery(new TargetDiscoveryEvent(EventKind.LOST, c));
+        MatcherAssert.assertThat(index.getMatchingTargets(EXPR), Matchers.empty());
+        MatcherAssert.assertThat(index.getMatchingExpressions(c), Matchers.empty());
+    }
+
+    @Test
+    void appliesDiscoveryEventsWhichArriveDuringLoad() throws Exception {
+        Thread lost =
+                new Thread(
+                        () -> index.onTargetDiscovery(new TargetDiscoveryEvent(EventKind.LOST, a)));
+        Mockito.when(platformClient.listDiscoverableServices())
+                .thenAnswer(
+                        invocation -> {
+                            lost.start();
+                            // the event must wait for the listing to complete, not be dropped
+                            while (lost.getState() != Thread.State.BLOCKED
+                                    && lost.getState() != Thread.State.TERMINATED) {
+                                Thread.sleep(10);
+                            }
+                            return List.of(a, b);
+                        });
+
+        index.getMatchingTargets(EXPR);
+        lost.join();
+        MatcherAssert.assertThat(index.getMatchingTargets(EXPR), Matchers.empty());
+    }
+
+    @Test
+    void evaluatesUnindexedTargetsDirectly() throws Exception {
+        index.getMatchingTargets(EXPR);
+
+        ServiceRef undiscovered = ref(4, "a");
+        MatcherAssert.assertThat(index.matches(EXPR, undiscovered), Matchers.is(true));
+        MatcherAssert.assertThat(index.getMatchingTargets(EXPR), Matchers.equalTo(Set.of(a)));
+    }
+
+    @Test
+    void reevaluatesInvalidatedExpressions() throws Exception {
+        index.getMatchingTargets(EXPR);
+        index.invalidate(EXPR);
+        MatcherAssert.assertThat(index.getMatchingExpressions(a), Matchers.empty());
+
+        index.getMatchingTargets(EXPR);
+        Mockito.verify(evaluator, Mockito.times(2)).applies(EXPR, a);
+    }
+
+    @Test
+    void propagatesEvaluationFailures() throws Exception {
+        Mockito.when(evaluator.applies(Mockito.eq("bad"), Mockito.any()))
+                .thenThrow(ScriptException.class);
+        Assertions.assertThrows(ScriptException.class, () -> index.getMatchingTargets("bad"));
+        Assertions.assertThrows(ScriptException.class, () -> index.matches("bad", a));
+    }
+
+    @Test
+    void doesNotIndexFailedEvaluations() throws Exception {
+        Mockito.when(evaluator.applies(Mockito.eq("flaky"), Mockito.any()))
+                .thenThrow(ScriptException.class)
+                .thenReturn(true);
+        Assertions.assertThrows(ScriptException.class, () -> index.getMatchingTargets("flaky"));
+        MatcherAssert.assertThat(index.getMatchingTargets("flaky"), Matchers.equalTo(Set.of(a, b)));
+    }
+
+    @Test
+    void dropsExpressionsWhichFailAgainstNewTargets() throws Exception {
+        index.getMatchingTargets(EXPR);
+
+        ServiceRef c = ref(3, "a");
+        Mockito.when(evaluator.applies(EXPR, c)).thenThrow(ScriptException.class);
+        index.onTargetDiscovery(new TargetDiscoveryEvent(EventKind.FOUND, c));
+
+        MatcherAssert.assertThat(index.getMatchingExpressions(a), Matchers.empty());
+        Assertions.assertThrows(ScriptException.class, () -> index.getMatchingTargets(EXPR));
+    }
+}
@@ -57,6 +57,8 @@ class MatchExpressionManagerTest {
                 new MatchExpressionManager(
                         matchExpressionValidator,
                         () -> matchExpressionEvaluator,
+                        new MatchExpressionIndex(
+                                () -> matchExpressionEvaluator, platformClient, logger),
                         platformClient,
                         dao,
                         gson,
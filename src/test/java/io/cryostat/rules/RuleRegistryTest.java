@@ -30,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 import io.cryostat.MainModule;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.FileSystem;
+import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
 import io.cryostat.rules.RuleRegistry.RuleEvent;
 import io.cryostat.util.events.Event;
@@ -52,6 +53,7 @@ class RuleRegistryTest {
     RuleRegistry registry;
     @Mock Path rulesDir;
     @Mock MatchExpressionEvaluator matchExpressionEvaluator;
+    @Mock PlatformClient platformClient;
     @Mock FileSystem fs;
     @Mock Logger logger;
     Gson gson = Mockito.spy(MainModule.provideGson(logger));
@@ -62,8 +64,10 @@ class RuleRegistryTest {
 
     @BeforeEach
     void setup() throws Exception {
+        MatchExpressionIndex index =
+                new MatchExpressionIndex(() -> matchExpressionEvaluator, platformClient, logger);
         this.registry =
-                new RuleRegistry(rulesDir, () -> matchExpressionEvaluator, fs, gson, logger);
+                new RuleRegistry(rulesDir, () -> matchExpressionEvaluator, index, fs, gson, logger);
         this.testRule =
                 new Rule.Builder()
                         .name("test rule")